@@ -0,0 +1,117 @@
+package performance;
+
+import gestionVol.Aeroport;
+import gestionVol.Compagnie;
+import gestionVol.Ville;
+import gestionVol.Vol;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure de la mémoire occupée par un million de vols avec ou sans escales, index des aéroports, de la compagnie
+ * et du catalogue compris. Le compteur octetsParVol donne le tas retenu par vol ; le benchmark n'utilise que l'API
+ * publique pour pouvoir être lancé sur une version antérieure et comparer les deux représentations
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class EmpreinteVolsBenchmark {
+
+    private static final ZonedDateTime DEBUT = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @State(Scope.Thread)
+    public static class Reseau {
+
+        @Param({"1000000"})
+        public int nombreVols;
+
+        @Param({"0", "2"})
+        public int escalesParVol;
+
+        Aeroport depart;
+
+        Aeroport arrivee;
+
+        Aeroport escale;
+
+        Compagnie compagnie;
+
+        final List<Vol> vols = new ArrayList<>();
+
+        @Setup(Level.Trial)
+        public void preparer() {
+            depart = new Aeroport("CDG", new Ville("Roissy-en-France"));
+            arrivee = new Aeroport("JFK", new Ville("New York"));
+            escale = new Aeroport("AMS", new Ville("Amsterdam"));
+            compagnie = new Compagnie("Air France");
+        }
+
+        @TearDown(Level.Iteration)
+        public void nettoyer() {
+            for (Vol vol : vols) {
+                vol.removeVol();
+            }
+            vols.clear();
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Empreinte {
+
+        public long octetsParVol;
+
+        @Setup(Level.Iteration)
+        public void remettreAZero() {
+            octetsParVol = 0;
+        }
+    }
+
+    @Benchmark
+    public List<Vol> creerVols(Reseau reseau, Empreinte empreinte) {
+        long avant = tasUtilise();
+        for (int i = 0; i < reseau.nombreVols; i++) {
+            ZonedDateTime date = DEBUT.plusMinutes(i % (7 * 24 * 60));
+            Vol vol = new Vol("JMH-EM" + i, reseau.compagnie, reseau.depart, reseau.arrivee, date, date.plusHours(8), 180, 100.0);
+            for (int e = 1; e <= reseau.escalesParVol; e++) {
+                vol.addEscale(reseau.escale, date.plusHours(2L * e), date.plusHours(2L * e).plusMinutes(30));
+            }
+            reseau.vols.add(vol);
+        }
+        empreinte.octetsParVol = (tasUtilise() - avant) / reseau.nombreVols;
+        return reseau.vols;
+    }
+
+    /**
+     * Retourne la taille du tas occupé après plusieurs ramasse-miettes complets
+     *
+     * @return le nombre d'octets occupés
+     */
+    private static long tasUtilise() {
+        MemoryMXBean memoire = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            memoire.gc();
+        }
+        return memoire.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,69 @@
+package performance;
+
+import gestionVol.Aeroport;
+import gestionVol.Compagnie;
+import gestionVol.Escale;
+import gestionVol.Ville;
+import gestionVol.Vol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark de l'ajout d'une escale à un vol en comportant déjà beaucoup.
+ * Chaque opération ajoute puis retire une escale au milieu du vol, pour que le vol garde la même taille
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EscalesBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int nombreEscales;
+
+    private Vol vol;
+
+    private Aeroport escale;
+
+    private ZonedDateTime arriveeMilieu;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        escale = new Aeroport("AMS", new Ville("Amsterdam"));
+        Compagnie compagnie = new Compagnie("Air France");
+
+        // Une escale toutes les dix minutes, chacune durant cinq minutes
+        ZonedDateTime depart = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        vol = new Vol("JMH-ESC" + nombreEscales, compagnie, cdg, jfk, depart, depart.plusMinutes(10L * (nombreEscales + 2)), 180, 100.0);
+        for (int i = 1; i <= nombreEscales; i++) {
+            ZonedDateTime arrivee = depart.plusMinutes(10L * i);
+            vol.addEscale(escale, arrivee, arrivee.plusMinutes(5));
+        }
+        arriveeMilieu = depart.plusMinutes(10L * (nombreEscales / 2) + 6);
+    }
+
+    @TearDown(Level.Trial)
+    public void nettoyer() {
+        vol.removeVol();
+    }
+
+    @Benchmark
+    public Escale ajouterEscale() {
+        Escale ajoutee = vol.addEscale(escale, arriveeMilieu, arriveeMilieu.plusMinutes(2));
+        vol.removeEscale(ajoutee);
+        return ajoutee;
+    }
+}
@@ -0,0 +1,117 @@
+package performance;
+
+import gestionVol.Aeroport;
+import gestionVol.Compagnie;
+import gestionVol.Ville;
+import gestionVol.Vol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de l'entretien du graphe des vols : création et suppression d'un vol entre deux aéroports
+ * ayant déjà beaucoup de vols, et fermeture complète d'un aéroport
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReseauBenchmark {
+
+    private static final ZonedDateTime DEBUT = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    // Deux aéroports reliés par de nombreux vols répartis sur une semaine
+    @State(Scope.Thread)
+    public static class GrandsAeroports {
+
+        @Param({"1000", "100000"})
+        public int nombreVols;
+
+        Aeroport depart;
+
+        Aeroport arrivee;
+
+        Compagnie compagnie;
+
+        ZonedDateTime dateDepart;
+
+        private final List<Vol> vols = new ArrayList<>();
+
+        @Setup(Level.Trial)
+        public void preparer() {
+            Random random = new Random(42);
+            depart = new Aeroport("CDG", new Ville("Roissy-en-France"));
+            arrivee = new Aeroport("JFK", new Ville("New York"));
+            compagnie = new Compagnie("Air France");
+            for (int i = 0; i < nombreVols; i++) {
+                ZonedDateTime date = DEBUT.plusMinutes(random.nextInt(7 * 24 * 60));
+                vols.add(new Vol("JMH-GA" + i, compagnie, depart, arrivee, date, date.plusHours(8), 180, 100.0));
+            }
+            dateDepart = DEBUT.plusDays(3).plusMinutes(7);
+        }
+
+        @TearDown(Level.Trial)
+        public void nettoyer() {
+            for (Vol vol : vols) {
+                vol.removeVol();
+            }
+        }
+    }
+
+    // Un aéroport desservant de nombreuses villes, avec de nombreux vols vers un autre aéroport, reconstruit avant chaque fermeture
+    @State(Scope.Thread)
+    public static class AeroportAFermer {
+
+        @Param({"100", "10000"})
+        public int taille;
+
+        Aeroport aeroport;
+
+        final List<Vol> vols = new ArrayList<>();
+
+        @Setup(Level.Invocation)
+        public void preparer() {
+            aeroport = new Aeroport("ORY", new Ville("Paris"));
+            Aeroport autre = new Aeroport("NCE", new Ville("Nice"));
+            Compagnie compagnie = new Compagnie("Transavia");
+            for (int i = 0; i < taille; i++) {
+                aeroport.addVilleDesservie(new Ville("V" + i));
+                ZonedDateTime date = DEBUT.plusMinutes(i);
+                vols.add(new Vol("JMH-AF" + i, compagnie, aeroport, autre, date, date.plusHours(1), 180, 100.0));
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void nettoyer() {
+            vols.clear();
+        }
+    }
+
+    @Benchmark
+    public Vol creerEtSupprimerVol(GrandsAeroports reseau) {
+        Vol vol = new Vol("JMH-NV", reseau.compagnie, reseau.depart, reseau.arrivee, reseau.dateDepart, reseau.dateDepart.plusHours(8), 180, 100.0);
+        vol.removeVol();
+        return vol;
+    }
+
+    @Benchmark
+    public Aeroport removeAeroport(AeroportAFermer fermeture) {
+        for (Vol vol : fermeture.vols) {
+            vol.removeVol();
+        }
+        fermeture.aeroport.removeAeroport();
+        return fermeture.aeroport;
+    }
+}
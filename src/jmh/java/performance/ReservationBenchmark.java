@@ -0,0 +1,81 @@
+package performance;
+
+import gestionVol.Aeroport;
+import gestionVol.Compagnie;
+import gestionVol.Ville;
+import gestionVol.Vol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import reservation.AnnuaireReservations;
+import reservation.Client;
+import reservation.Passager;
+import reservation.Reservation;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmarks du cycle de vie complet d'une réservation : création, ajout des passagers, paiement, confirmation
+ * et annulation, sur un seul thread et sur plusieurs threads réservant le même vol
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReservationBenchmark {
+
+    private static final AtomicInteger ITERATIONS = new AtomicInteger();
+
+    private Vol vol;
+
+    private Client client;
+
+    // Un vol et un client neufs à chaque itération, pour que leurs ensembles de réservations ne grossissent pas sans fin
+    @Setup(Level.Iteration)
+    public void preparer() {
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Compagnie compagnie = new Compagnie("Air France");
+        ZonedDateTime depart = ZonedDateTime.of(2024, 1, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+        vol = new Vol("JMH" + ITERATIONS.incrementAndGet(), compagnie, cdg, jfk, depart, depart.plusHours(8), 1_000_000, 100.0);
+        vol.ouvrir();
+        client = new Client("Dupont", "FR76 1234", "dupont@mail.fr");
+    }
+
+    @TearDown(Level.Iteration)
+    public void nettoyer() {
+        vol.removeVol();
+        // L'annuaire retient chaque réservation créée : il est vidé pour que les itérations ne s'alourdissent pas
+        AnnuaireReservations.getInstance().vider();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Reservation cycleDeVie() {
+        return cycle();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Reservation cycleDeVieConcurrent() {
+        return cycle();
+    }
+
+    private Reservation cycle() {
+        Reservation reservation = new Reservation(client, vol);
+        reservation.addPassagers(new Passager("Dupont", "Jean"), new Passager("Dupont", "Marie"));
+        reservation.payer();
+        reservation.confirmer();
+        reservation.annuler();
+        return reservation;
+    }
+}
@@ -1,7 +1,15 @@
 package gestionVol;
 
+import supervision.EvenementProgramme;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Classe representant un aeroport
@@ -33,11 +41,32 @@ public class Aeroport {
      */
     private final Set<Vol> volsAArrivee = new HashSet<>();
 
+    /**
+     * Les vols au départ de l'aeroport indexés par instant de départ, en nanosecondes depuis l'epoch
+     */
+    private final TreeMap<Long, List<Vol>> departsParInstant = new TreeMap<>();
+
+    /**
+     * Les vols à l'arrivée de l'aeroport indexés par instant d'arrivée, en nanosecondes depuis l'epoch
+     */
+    private final TreeMap<Long, List<Vol>> arriveesParInstant = new TreeMap<>();
+
     /**
      * La liste des escales prévues à l'aeroport
      */
     private final Set<Escale> escales = new HashSet<>();
 
+    /**
+     * Les périodes au sol des escales et des rotations des vols, indexées par intervalle
+     */
+    private final ArbreOccupations occupations = new ArbreOccupations();
+
+    /**
+     * La durée de rotation d'un avion avant un départ ou après une arrivée, en nanosecondes. Les rotations ne sont
+     * pas indexées si elle est nulle
+     */
+    private long rotationNanos;
+
     /**
      * Constructeur de la classe Aeroport
      *
@@ -106,6 +135,7 @@ public class Aeroport {
 
         this.villesDesservies.add(ville);
         ville.addAeroportDesservantWithoutBidirectional(this);
+        IndexRoutes.getInstance().relier(this, ville);
     }
 
     /**
@@ -121,6 +151,9 @@ public class Aeroport {
 
         this.villesDesservies.remove(ville);
         ville.removeAeroportDesservantWithoutBidirectional(this);
+        if (ville != this.ville) {
+            IndexRoutes.getInstance().delier(this, ville);
+        }
     }
 
     /**
@@ -142,7 +175,10 @@ public class Aeroport {
             throw new IllegalArgumentException("vol ne peut pas être null");
         }
 
-        this.volsAuDepart.add(vol);
+        if (this.volsAuDepart.add(vol)) {
+            indexer(this.departsParInstant, vol.getDepartNanos(), vol);
+            occuperDepart(vol);
+        }
     }
 
     /**
@@ -155,7 +191,25 @@ public class Aeroport {
             throw new IllegalArgumentException("vol ne peut pas être null");
         }
 
-        this.volsAuDepart.remove(vol);
+        if (this.volsAuDepart.remove(vol)) {
+            desindexer(this.departsParInstant, vol.getDepartNanos(), vol);
+            if (this.rotationNanos > 0) {
+                this.occupations.retirer(Occupation.Nature.DEPART, vol, vol.getDepartNanos() - this.rotationNanos);
+            }
+        }
+    }
+
+    /**
+     * Retourne les vols au départ de l'aeroport entre deux dates, triés par date de départ
+     *
+     * @param debut la date de départ minimale, incluse
+     * @param fin la date de départ maximale, exclue
+     * @exception IllegalArgumentException si une des dates est null
+     *
+     * @return les vols au départ de l'aeroport entre les deux dates
+     */
+    public List<Vol> getVolsAuDepartEntre(ZonedDateTime debut, ZonedDateTime fin) {
+        return rechercher(this.departsParInstant, debut, fin);
     }
 
     /**
@@ -177,7 +231,10 @@ public class Aeroport {
             throw new IllegalArgumentException("vol ne peut pas être null");
         }
 
-        this.volsAArrivee.add(vol);
+        if (this.volsAArrivee.add(vol)) {
+            indexer(this.arriveesParInstant, vol.getArriveeNanos(), vol);
+            occuperArrivee(vol);
+        }
     }
 
     /**
@@ -190,7 +247,86 @@ public class Aeroport {
             throw new IllegalArgumentException("vol ne peut pas être null");
         }
 
-        this.volsAArrivee.remove(vol);
+        if (this.volsAArrivee.remove(vol)) {
+            desindexer(this.arriveesParInstant, vol.getArriveeNanos(), vol);
+            if (this.rotationNanos > 0) {
+                this.occupations.retirer(Occupation.Nature.ARRIVEE, vol, vol.getArriveeNanos());
+            }
+        }
+    }
+
+    /**
+     * Retourne les vols à l'arrivée de l'aeroport entre deux dates, triés par date d'arrivée
+     *
+     * @param debut la date d'arrivée minimale, incluse
+     * @param fin la date d'arrivée maximale, exclue
+     * @exception IllegalArgumentException si une des dates est null
+     *
+     * @return les vols à l'arrivée de l'aeroport entre les deux dates
+     */
+    public List<Vol> getVolsAArriveeEntre(ZonedDateTime debut, ZonedDateTime fin) {
+        return rechercher(this.arriveesParInstant, debut, fin);
+    }
+
+    /**
+     * Ajoute un vol à un index par instant
+     *
+     * @param index l'index à mettre à jour
+     * @param instant l'instant du vol, en nanosecondes depuis l'epoch
+     * @param vol le vol à ajouter
+     */
+    private static void indexer(TreeMap<Long, List<Vol>> index, long instant, Vol vol) {
+        index.computeIfAbsent(instant, i -> new ArrayList<>(1)).add(vol);
+    }
+
+    /**
+     * Retire un vol d'un index par instant
+     *
+     * @param index l'index à mettre à jour
+     * @param instant l'instant auquel le vol a été indexé, en nanosecondes depuis l'epoch
+     * @param vol le vol à retirer
+     */
+    private static void desindexer(TreeMap<Long, List<Vol>> index, long instant, Vol vol) {
+        List<Vol> vols = index.get(instant);
+        if (vols == null) {
+            return;
+        }
+        for (int i = 0; i < vols.size(); i++) {
+            if (vols.get(i) == vol) {
+                vols.remove(i);
+                break;
+            }
+        }
+        if (vols.isEmpty()) {
+            index.remove(instant);
+        }
+    }
+
+    /**
+     * Retourne les vols d'un index compris entre deux dates, dans l'ordre de l'index
+     *
+     * @param index l'index à parcourir
+     * @param debut la date minimale, incluse
+     * @param fin la date maximale, exclue
+     * @exception IllegalArgumentException si une des dates est null
+     *
+     * @return les vols compris entre les deux dates
+     */
+    private static List<Vol> rechercher(TreeMap<Long, List<Vol>> index, ZonedDateTime debut, ZonedDateTime fin) {
+        if (debut == null || fin == null) {
+            throw new IllegalArgumentException("debut and fin cannot be null");
+        }
+
+        List<Vol> resultat = new ArrayList<>();
+        long debutNanos = Horodatage.borne(debut);
+        long finNanos = Horodatage.borne(fin);
+        if (debutNanos >= finNanos) {
+            return resultat;
+        }
+        for (List<Vol> vols : index.subMap(debutNanos, true, finNanos, false).values()) {
+            resultat.addAll(vols);
+        }
+        return resultat;
     }
 
     /**
@@ -212,7 +348,9 @@ public class Aeroport {
             throw new IllegalArgumentException("escale ne peut pas être null");
         }
 
-        this.escales.add(escale);
+        if (this.escales.add(escale)) {
+            occuperEscale(escale);
+        }
     }
 
     /**
@@ -225,7 +363,151 @@ public class Aeroport {
             throw new IllegalArgumentException("escale ne peut pas être null");
         }
 
-        this.escales.remove(escale);
+        if (this.escales.remove(escale)) {
+            this.occupations.retirer(Occupation.Nature.ESCALE, escale, escale.getArriveeNanos());
+        }
+    }
+
+    /**
+     * Ajoute d'un bloc des vols et des escales à l'aeroport, lors d'un chargement en masse.
+     * Les vols sont indexés dans l'ordre chronologique
+     *
+     * @param departs les vols au départ de l'aeroport
+     * @param arrivees les vols à l'arrivée de l'aeroport
+     * @param escales les escales prévues à l'aeroport
+     */
+    void charger(List<Vol> departs, List<Vol> arrivees, List<Escale> escales) {
+        departs.sort(Comparator.comparingLong(Vol::getDepartNanos));
+        for (Vol vol : departs) {
+            if (this.volsAuDepart.add(vol)) {
+                indexer(this.departsParInstant, vol.getDepartNanos(), vol);
+                occuperDepart(vol);
+            }
+        }
+        arrivees.sort(Comparator.comparingLong(Vol::getArriveeNanos));
+        for (Vol vol : arrivees) {
+            if (this.volsAArrivee.add(vol)) {
+                indexer(this.arriveesParInstant, vol.getArriveeNanos(), vol);
+                occuperArrivee(vol);
+            }
+        }
+        for (Escale escale : escales) {
+            if (this.escales.add(escale)) {
+                occuperEscale(escale);
+            }
+        }
+    }
+
+    /**
+     * Retourne la durée de rotation d'un avion avant un départ ou après une arrivée
+     *
+     * @return la durée de rotation, nulle si les rotations ne sont pas suivies
+     */
+    public Duration getDureeRotation() {
+        return Duration.ofNanos(this.rotationNanos);
+    }
+
+    /**
+     * Modifie la durée de rotation d'un avion avant un départ ou après une arrivée et réindexe les occupations du sol
+     *
+     * @param dureeRotation la nouvelle durée de rotation, nulle pour ne suivre que les escales
+     * @exception IllegalArgumentException si la durée est null ou négative
+     */
+    public void setDureeRotation(Duration dureeRotation) {
+        if (dureeRotation == null || dureeRotation.isNegative()) {
+            throw new IllegalArgumentException("dureeRotation ne peut pas être null ou négative");
+        }
+
+        this.rotationNanos = dureeRotation.toNanos();
+        this.occupations.vider();
+        for (Escale escale : this.escales) {
+            occuperEscale(escale);
+        }
+        for (Vol vol : this.volsAuDepart) {
+            occuperDepart(vol);
+        }
+        for (Vol vol : this.volsAArrivee) {
+            occuperArrivee(vol);
+        }
+    }
+
+    /**
+     * Retourne les avions au sol à l'aéroport pendant une période : les escales et les rotations qui la chevauchent
+     *
+     * @param debut le début de la période, inclus
+     * @param fin la fin de la période, exclue
+     * @exception IllegalArgumentException si une des dates est null
+     *
+     * @return les occupations du sol chevauchant la période, triées par début
+     */
+    public List<Occupation> getOccupationsEntre(ZonedDateTime debut, ZonedDateTime fin) {
+        if (debut == null || fin == null) {
+            throw new IllegalArgumentException("debut and fin cannot be null");
+        }
+
+        List<Occupation> resultat = new ArrayList<>();
+        long debutNanos = Horodatage.borne(debut);
+        long finNanos = Horodatage.borne(fin);
+        if (debutNanos < finNanos) {
+            this.occupations.chevauchant(debutNanos, finNanos, resultat);
+        }
+        return resultat;
+    }
+
+    /**
+     * Retourne les avions au sol à l'aéroport à un instant donné
+     *
+     * @param instant l'instant
+     * @exception IllegalArgumentException si l'instant est null
+     *
+     * @return les occupations du sol en cours à cet instant, triées par début
+     */
+    public List<Occupation> getOccupationsA(ZonedDateTime instant) {
+        if (instant == null) {
+            throw new IllegalArgumentException("instant cannot be null");
+        }
+
+        List<Occupation> resultat = new ArrayList<>();
+        // Un instant au-delà de la plage supportée ne tombe dans aucune occupation
+        long nanos = Horodatage.borne(instant);
+        if (nanos != Long.MAX_VALUE) {
+            this.occupations.chevauchant(nanos, nanos + 1, resultat);
+        }
+        return resultat;
+    }
+
+    /**
+     * Indexe la période au sol d'une escale
+     *
+     * @param escale l'escale
+     */
+    private void occuperEscale(Escale escale) {
+        this.occupations.ajouter(Occupation.Nature.ESCALE, escale.getVol(), escale,
+                escale.getArriveeNanos(), escale.getDepartNanos(), escale.getFuseauArrivee());
+    }
+
+    /**
+     * Indexe la rotation précédant le départ d'un vol, si les rotations sont suivies
+     *
+     * @param vol le vol au départ
+     */
+    private void occuperDepart(Vol vol) {
+        if (this.rotationNanos > 0) {
+            this.occupations.ajouter(Occupation.Nature.DEPART, vol, null,
+                    vol.getDepartNanos() - this.rotationNanos, vol.getDepartNanos(), vol.getFuseauDepart());
+        }
+    }
+
+    /**
+     * Indexe la rotation suivant l'arrivée d'un vol, si les rotations sont suivies
+     *
+     * @param vol le vol à l'arrivée
+     */
+    private void occuperArrivee(Vol vol) {
+        if (this.rotationNanos > 0) {
+            this.occupations.ajouter(Occupation.Nature.ARRIVEE, vol, null,
+                    vol.getArriveeNanos(), vol.getArriveeNanos() + this.rotationNanos, vol.getFuseauArrivee());
+        }
     }
 
     /**
@@ -234,15 +516,25 @@ public class Aeroport {
      * @exception IllegalStateException si des vols au départ ou à l'arrivée sont encore présents
      */
     public void removeAeroport() {
-        if(!this.volsAuDepart.isEmpty() || !this.volsAArrivee.isEmpty()) {
-            throw new IllegalStateException("L'aeroport ne peut pas être supprimé car des vols au départ ou à l'arrivée sont encore présents");
-        }
-
-        this.ville.removeAeroportWithoutBidirectional(this);
-        for(Ville ville : this.villesDesservies) {
-            ville.removeAeroportDesservantWithoutBidirectional(this);
-            this.villesDesservies.remove(ville);
+        EvenementProgramme evenement = EvenementProgramme.commencer("removeAeroport");
+        int villes = this.villesDesservies.size();
+        try {
+            if(!this.volsAuDepart.isEmpty() || !this.volsAArrivee.isEmpty()) {
+                throw new IllegalStateException("L'aeroport ne peut pas être supprimé car des vols au départ ou à l'arrivée sont encore présents");
+            }
+
+            this.ville.removeAeroportWithoutBidirectional(this);
+            IndexRoutes.getInstance().delier(this, this.ville);
+            for(Ville ville : this.villesDesservies) {
+                ville.removeAeroportDesservantWithoutBidirectional(this);
+                IndexRoutes.getInstance().delier(this, ville);
+            }
+            IndexRoutes.getInstance().oublier(this);
+            this.villesDesservies.clear();
+            this.ville = null;
+            evenement.reussir();
+        } finally {
+            evenement.terminer(null, this.nom, villes);
         }
-        this.ville = null;
     }
 }
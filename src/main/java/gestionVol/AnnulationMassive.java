@@ -0,0 +1,204 @@
+package gestionVol;
+
+import reservation.Reservation;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classe d'annulation en masse de vols par la compagnie, par exemple lors d'une grève.
+ * Les vols sont fermés et retirés du réseau par l'appelant, puis l'annulation et le remboursement de leurs réservations
+ * sont répartis par lots sur les threads de l'instance, partagés par tous ses appels ; l'appel rend la main aussitôt
+ * avec un suivi de l'avancement.
+ * Un vol étant fermé avant que ses réservations ne soient relevées, aucune réservation concurrente ne peut lui échapper
+ */
+public class AnnulationMassive {
+
+    /**
+     * Le nombre de réservations annulées par chaque tâche
+     */
+    private static final int TAILLE_LOT = 256;
+
+    /**
+     * La durée en secondes après laquelle un thread d'annulation inactif s'arrête
+     */
+    private static final long INACTIVITE = 30;
+
+    /**
+     * Les threads d'annulation, autant que de tâches simultanées, arrêtés lorsqu'ils restent inactifs
+     */
+    private final ThreadPoolExecutor executeur;
+
+    /**
+     * Constructeur de la classe AnnulationMassive, annulant sur tous les processeurs disponibles
+     */
+    public AnnulationMassive() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructeur de la classe AnnulationMassive
+     *
+     * @param parallelisme le nombre de tâches d'annulation simultanées
+     * @exception IllegalArgumentException si le parallélisme n'est pas strictement positif
+     */
+    public AnnulationMassive(int parallelisme) {
+        if (parallelisme <= 0) {
+            throw new IllegalArgumentException("parallelisme doit être strictement positif");
+        }
+
+        this.executeur = new ThreadPoolExecutor(parallelisme, parallelisme, INACTIVITE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), tache -> {
+                    Thread thread = new Thread(tache, "annulation-massive");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executeur.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Annule un vol et toutes ses réservations
+     *
+     * @param vol le vol à annuler
+     * @exception IllegalArgumentException si le vol est null
+     *
+     * @return le suivi de l'annulation
+     */
+    public SuiviAnnulation annulerVol(Vol vol) {
+        if (vol == null) {
+            throw new IllegalArgumentException("vol cannot be null");
+        }
+
+        return annulerVols(List.of(vol));
+    }
+
+    /**
+     * Annule les vols d'une compagnie partant dans un intervalle de temps, et toutes leurs réservations
+     *
+     * @param compagnie la compagnie
+     * @param debut le début de l'intervalle, inclus
+     * @param fin la fin de l'intervalle, incluse
+     * @exception IllegalArgumentException si un paramètre est null
+     * @exception IllegalArgumentException si le début est après la fin
+     *
+     * @return le suivi de l'annulation
+     */
+    public SuiviAnnulation annulerCompagnie(Compagnie compagnie, ZonedDateTime debut, ZonedDateTime fin) {
+        if (compagnie == null) {
+            throw new IllegalArgumentException("compagnie cannot be null");
+        }
+        verifierIntervalle(debut, fin);
+
+        long debutNanos = Horodatage.borne(debut);
+        long finNanos = Horodatage.borne(fin);
+        List<Vol> vols = new ArrayList<>();
+        for (Vol vol : compagnie.getVols()) {
+            if (vol.getDepartNanos() >= debutNanos && vol.getDepartNanos() <= finNanos) {
+                vols.add(vol);
+            }
+        }
+        return annulerVols(vols);
+    }
+
+    /**
+     * Annule les vols partant d'un aéroport ou y arrivant dans un intervalle de temps, et toutes leurs réservations
+     *
+     * @param aeroport l'aéroport
+     * @param debut le début de l'intervalle, inclus
+     * @param fin la fin de l'intervalle, incluse
+     * @exception IllegalArgumentException si un paramètre est null
+     * @exception IllegalArgumentException si le début est après la fin
+     *
+     * @return le suivi de l'annulation
+     */
+    public SuiviAnnulation annulerAeroport(Aeroport aeroport, ZonedDateTime debut, ZonedDateTime fin) {
+        if (aeroport == null) {
+            throw new IllegalArgumentException("aeroport cannot be null");
+        }
+        verifierIntervalle(debut, fin);
+
+        List<Vol> vols = new ArrayList<>(aeroport.getVolsAuDepartEntre(debut, fin));
+        vols.addAll(aeroport.getVolsAArriveeEntre(debut, fin));
+        return annulerVols(vols);
+    }
+
+    /**
+     * Annule des vols et toutes leurs réservations. Les vols déjà supprimés, y compris par un appel concurrent,
+     * sont ignorés
+     *
+     * @param vols les vols à annuler
+     * @exception IllegalArgumentException si les vols sont null
+     *
+     * @return le suivi de l'annulation
+     */
+    public SuiviAnnulation annulerVols(Collection<Vol> vols) {
+        if (vols == null) {
+            throw new IllegalArgumentException("vols cannot be null");
+        }
+
+        long debut = System.nanoTime();
+        // Fermeture de tous les vols avant de relever leurs réservations, en ne gardant que ceux que cet appel a supprimés
+        Set<Vol> aAnnuler = new LinkedHashSet<>(vols);
+        aAnnuler.removeIf(vol -> !vol.supprimer());
+        List<Reservation> reservations = new ArrayList<>();
+        for (Vol vol : aAnnuler) {
+            reservations.addAll(vol.getReservations());
+        }
+
+        int nombreLots = (reservations.size() + TAILLE_LOT - 1) / TAILLE_LOT;
+        SuiviAnnulation suivi = new SuiviAnnulation(aAnnuler.size(), reservations.size(), nombreLots, debut);
+        if (nombreLots == 0) {
+            return suivi;
+        }
+
+        for (int i = 0; i < reservations.size(); i += TAILLE_LOT) {
+            List<Reservation> lot = reservations.subList(i, Math.min(i + TAILLE_LOT, reservations.size()));
+            this.executeur.execute(() -> annuler(lot, suivi));
+        }
+        return suivi;
+    }
+
+    /**
+     * Annule un lot de réservations ; l'échec d'une annulation n'interrompt pas le lot
+     *
+     * @param lot les réservations à annuler
+     * @param suivi le suivi de l'annulation
+     */
+    private static void annuler(List<Reservation> lot, SuiviAnnulation suivi) {
+        try {
+            for (Reservation reservation : lot) {
+                try {
+                    reservation.annulerParCompagnie();
+                    suivi.signalerAnnulation();
+                } catch (RuntimeException e) {
+                    suivi.signalerEchec();
+                }
+            }
+        } finally {
+            suivi.signalerLot();
+        }
+    }
+
+    /**
+     * Vérifie un intervalle de temps
+     *
+     * @param debut le début de l'intervalle
+     * @param fin la fin de l'intervalle
+     * @exception IllegalArgumentException si une borne est null ou si le début est après la fin
+     */
+    private static void verifierIntervalle(ZonedDateTime debut, ZonedDateTime fin) {
+        if (debut == null || fin == null) {
+            throw new IllegalArgumentException("debut and fin cannot be null");
+        }
+        if (debut.isAfter(fin)) {
+            throw new IllegalArgumentException("debut doit être avant fin");
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package gestionVol;
+
+import java.time.ZoneId;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Arbre d'intervalles des occupations du sol d'un aéroport : un arbre binaire de recherche ordonné par début
+ * d'occupation, équilibré par des priorités aléatoires (treap), dont chaque noeud connaît la plus grande fin de son
+ * sous-arbre. Une recherche ne descend que dans les sous-arbres pouvant contenir une occupation chevauchant
+ * l'intervalle demandé, pour un coût en O(log n + k) en moyenne lorsque les occupations sont courtes devant
+ * l'étendue du programme
+ */
+class ArbreOccupations {
+
+    private final SplittableRandom aleatoire = new SplittableRandom();
+
+    private Occupation racine;
+
+    /**
+     * Le nombre d'occupations de l'arbre, qui permet au retrait de savoir s'il a trouvé l'occupation
+     */
+    private int taille;
+
+    /**
+     * Ajoute une occupation à l'arbre
+     *
+     * @param nature la cause de l'occupation
+     * @param vol le vol au sol
+     * @param escale l'escale, null s'il s'agit d'une rotation
+     * @param debutNanos le début de l'occupation en nanosecondes depuis l'epoch
+     * @param finNanos la fin de l'occupation en nanosecondes depuis l'epoch
+     * @param fuseau le fuseau dans lequel exprimer les dates
+     */
+    void ajouter(Occupation.Nature nature, Vol vol, Escale escale, long debutNanos, long finNanos, ZoneId fuseau) {
+        racine = inserer(racine, new Occupation(nature, vol, escale, debutNanos, finNanos, fuseau, aleatoire.nextInt()));
+        taille++;
+    }
+
+    /**
+     * Retire l'occupation d'un vol ou d'une escale. Sans effet si elle n'est pas dans l'arbre
+     *
+     * @param nature la cause de l'occupation
+     * @param element le vol ou l'escale
+     * @param debutNanos le début de l'occupation lors de son ajout
+     */
+    void retirer(Occupation.Nature nature, Object element, long debutNanos) {
+        racine = retirer(racine, nature, element, debutNanos);
+    }
+
+    /**
+     * Vide l'arbre
+     */
+    void vider() {
+        racine = null;
+        taille = 0;
+    }
+
+    /**
+     * Ajoute à une liste les occupations chevauchant un intervalle, par début croissant
+     *
+     * @param debutNanos le début de l'intervalle, inclus
+     * @param finNanos la fin de l'intervalle, exclue
+     * @param resultat la liste à compléter
+     */
+    void chevauchant(long debutNanos, long finNanos, List<Occupation> resultat) {
+        chevauchant(racine, debutNanos, finNanos, resultat);
+    }
+
+    private static void chevauchant(Occupation noeud, long debutNanos, long finNanos, List<Occupation> resultat) {
+        while (noeud != null && noeud.finMax > debutNanos) {
+            chevauchant(noeud.gauche, debutNanos, finNanos, resultat);
+            if (noeud.debutNanos >= finNanos) {
+                return;
+            }
+            if (noeud.finNanos > debutNanos) {
+                resultat.add(noeud);
+            }
+            noeud = noeud.droite;
+        }
+    }
+
+    private Occupation inserer(Occupation noeud, Occupation nouvelle) {
+        if (noeud == null) {
+            return nouvelle;
+        }
+        if (nouvelle.priorite > noeud.priorite) {
+            Occupation[] parties = new Occupation[2];
+            separer(noeud, nouvelle.debutNanos, parties);
+            nouvelle.gauche = parties[0];
+            nouvelle.droite = parties[1];
+            mettreAJour(nouvelle);
+            return nouvelle;
+        }
+        if (nouvelle.debutNanos < noeud.debutNanos) {
+            noeud.gauche = inserer(noeud.gauche, nouvelle);
+        } else {
+            noeud.droite = inserer(noeud.droite, nouvelle);
+        }
+        mettreAJour(noeud);
+        return noeud;
+    }
+
+    /**
+     * Sépare un sous-arbre entre les occupations commençant avant un instant et les autres
+     *
+     * @param noeud la racine du sous-arbre
+     * @param debutNanos l'instant de séparation
+     * @param parties reçoit les racines des occupations commençant avant l'instant, puis des autres
+     */
+    private static void separer(Occupation noeud, long debutNanos, Occupation[] parties) {
+        if (noeud == null) {
+            parties[0] = null;
+            parties[1] = null;
+            return;
+        }
+        if (noeud.debutNanos < debutNanos) {
+            separer(noeud.droite, debutNanos, parties);
+            noeud.droite = parties[0];
+            mettreAJour(noeud);
+            parties[0] = noeud;
+        } else {
+            separer(noeud.gauche, debutNanos, parties);
+            noeud.gauche = parties[1];
+            mettreAJour(noeud);
+            parties[1] = noeud;
+        }
+    }
+
+    private Occupation retirer(Occupation noeud, Occupation.Nature nature, Object element, long debutNanos) {
+        if (noeud == null) {
+            return null;
+        }
+        if (debutNanos < noeud.debutNanos) {
+            noeud.gauche = retirer(noeud.gauche, nature, element, debutNanos);
+        } else if (debutNanos > noeud.debutNanos) {
+            noeud.droite = retirer(noeud.droite, nature, element, debutNanos);
+        } else if (noeud.concerne(nature, element)) {
+            taille--;
+            return fusionner(noeud.gauche, noeud.droite);
+        } else {
+            // Les occupations de même début peuvent se trouver des deux côtés après les rotations
+            int avant = taille;
+            noeud.gauche = retirer(noeud.gauche, nature, element, debutNanos);
+            if (taille == avant) {
+                noeud.droite = retirer(noeud.droite, nature, element, debutNanos);
+            }
+        }
+        mettreAJour(noeud);
+        return noeud;
+    }
+
+    private static Occupation fusionner(Occupation gauche, Occupation droite) {
+        if (gauche == null) {
+            return droite;
+        }
+        if (droite == null) {
+            return gauche;
+        }
+        if (gauche.priorite > droite.priorite) {
+            gauche.droite = fusionner(gauche.droite, droite);
+            mettreAJour(gauche);
+            return gauche;
+        }
+        droite.gauche = fusionner(gauche, droite.gauche);
+        mettreAJour(droite);
+        return droite;
+    }
+
+    private static void mettreAJour(Occupation noeud) {
+        long finMax = noeud.finNanos;
+        if (noeud.gauche != null && noeud.gauche.finMax > finMax) {
+            finMax = noeud.gauche.finMax;
+        }
+        if (noeud.droite != null && noeud.droite.finMax > finMax) {
+            finMax = noeud.droite.finMax;
+        }
+        noeud.finMax = finMax;
+    }
+}
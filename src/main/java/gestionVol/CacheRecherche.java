@@ -0,0 +1,274 @@
+package gestionVol;
+
+import supervision.Compteur;
+import supervision.Metriques;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classe représentant le cache global des recherches de vols directs par route et par jour de départ.
+ * Le cache est borné en nombre de recherches et réparti en segments verrouillés indépendamment, chacun évinçant
+ * sa recherche la moins récemment consultée. Une recherche est invalidée par {@link CalendrierTarifs} dès qu'un vol
+ * de sa route et de son jour est ajouté, déplacé, retiré, ouvert, fermé, change d'heure d'arrivée, de prix ou de
+ * tranche tarifaire, se remplit ou retrouve des places.
+ * Succès, échecs, évictions et invalidations sont comptés dans les {@link Metriques}
+ */
+public class CacheRecherche {
+
+    /**
+     * La capacité du cache à sa création, en nombre de recherches
+     */
+    public static final int CAPACITE_PAR_DEFAUT = 10_000;
+
+    /**
+     * Le nombre de segments du cache, une puissance de deux
+     */
+    private static final int NOMBRE_SEGMENTS = 16;
+
+    /**
+     * L'ordre des résultats : du moins cher au plus cher, puis par départ
+     */
+    private static final Comparator<Vol> ORDRE_RESULTATS = Comparator.comparingDouble(Vol::getPrixCourant)
+            .thenComparingLong(Vol::getDepartNanos);
+
+    /**
+     * L'instance unique du cache
+     */
+    private static final CacheRecherche INSTANCE = new CacheRecherche();
+
+    /**
+     * Les segments du cache, remplacés d'un bloc lorsque la capacité change
+     */
+    private volatile Segment[] segments;
+
+    /**
+     * Constructeur de la classe CacheRecherche
+     */
+    private CacheRecherche() {
+        this.segments = segments(CAPACITE_PAR_DEFAUT);
+    }
+
+    /**
+     * Retourne le cache global des recherches
+     *
+     * @return le cache des recherches
+     */
+    public static CacheRecherche getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Retourne les vols directs réservables d'une route pour un jour de départ, depuis le cache si la recherche
+     * y est encore valide
+     *
+     * @param origine l'aéroport de départ
+     * @param destination l'aéroport d'arrivée
+     * @param jour le jour de départ, dans le fuseau de la date de départ des vols
+     * @exception IllegalArgumentException si un des aéroports ou le jour est null
+     *
+     * @return les vols ouverts ayant des places disponibles, du moins cher au plus cher
+     */
+    public List<Vol> rechercher(Aeroport origine, Aeroport destination, LocalDate jour) {
+        if (origine == null || destination == null || jour == null) {
+            throw new IllegalArgumentException("origine, destination and jour cannot be null");
+        }
+
+        Cle cle = new Cle(origine, destination, jour.toEpochDay());
+        Segment segment = this.segment(cle);
+        Entree jeton;
+        synchronized (segment) {
+            Entree entree = segment.recherches.get(cle);
+            if (entree != null && entree.vols != null) {
+                Metriques.incrementer(Compteur.RECHERCHES_EN_CACHE);
+                return entree.vols;
+            }
+            // Le jeton réserve la place : une invalidation pendant le calcul le retire et le résultat n'est pas retenu
+            jeton = entree != null ? entree : new Entree();
+            if (entree == null) {
+                segment.recherches.put(cle, jeton);
+            }
+        }
+
+        Metriques.incrementer(Compteur.RECHERCHES_CALCULEES);
+        List<Vol> vols = calculer(origine, destination, cle.jour);
+        synchronized (segment) {
+            if (segment.recherches.get(cle) == jeton) {
+                jeton.vols = vols;
+            }
+        }
+        return vols;
+    }
+
+    /**
+     * Retourne le nombre maximal de recherches retenues par le cache
+     *
+     * @return la capacité du cache
+     */
+    public int getCapacite() {
+        return this.segments[0].capacite * NOMBRE_SEGMENTS;
+    }
+
+    /**
+     * Modifie le nombre maximal de recherches retenues par le cache, et le vide
+     *
+     * @param capacite la nouvelle capacité, arrondie au multiple supérieur du nombre de segments
+     * @exception IllegalArgumentException si la capacité n'est pas strictement positive
+     */
+    public void setCapacite(int capacite) {
+        if (capacite <= 0) {
+            throw new IllegalArgumentException("capacite doit être strictement positive");
+        }
+
+        this.segments = segments(capacite);
+    }
+
+    /**
+     * Retourne le nombre de recherches retenues par le cache
+     *
+     * @return le nombre de recherches en cache
+     */
+    public int getTaille() {
+        int taille = 0;
+        for (Segment segment : this.segments) {
+            synchronized (segment) {
+                taille += segment.recherches.size();
+            }
+        }
+        return taille;
+    }
+
+    /**
+     * Vide le cache
+     */
+    public void vider() {
+        for (Segment segment : this.segments) {
+            synchronized (segment) {
+                segment.recherches.clear();
+            }
+        }
+    }
+
+    /**
+     * Invalide la recherche d'une route pour un jour de départ. Sans effet si elle n'est pas en cache
+     *
+     * @param depart l'aéroport de départ
+     * @param arrivee l'aéroport d'arrivée
+     * @param jour le jour de départ, en jours depuis l'epoch
+     */
+    void invalider(Aeroport depart, Aeroport arrivee, long jour) {
+        Cle cle = new Cle(depart, arrivee, jour);
+        Segment segment = this.segment(cle);
+        synchronized (segment) {
+            if (segment.recherches.remove(cle) != null) {
+                Metriques.incrementer(Compteur.RECHERCHES_INVALIDEES);
+            }
+        }
+    }
+
+    private Segment segment(Cle cle) {
+        Segment[] segments = this.segments;
+        return segments[cle.hashCode() & (NOMBRE_SEGMENTS - 1)];
+    }
+
+    private static Segment[] segments(int capacite) {
+        Segment[] segments = new Segment[NOMBRE_SEGMENTS];
+        for (int i = 0; i < NOMBRE_SEGMENTS; i++) {
+            segments[i] = new Segment((capacite + NOMBRE_SEGMENTS - 1) / NOMBRE_SEGMENTS);
+        }
+        return segments;
+    }
+
+    /**
+     * Recherche les vols directs réservables d'une route pour un jour de départ dans l'index des départs de l'aéroport
+     *
+     * @param origine l'aéroport de départ
+     * @param destination l'aéroport d'arrivée
+     * @param jour le jour de départ, en jours depuis l'epoch
+     * @return les vols trouvés, du moins cher au plus cher
+     */
+    private static List<Vol> calculer(Aeroport origine, Aeroport destination, long jour) {
+        // Le jour d'un vol est celui de son fuseau de départ, décalé d'au plus 18 heures par rapport à UTC
+        ZonedDateTime debut = LocalDate.ofEpochDay(jour - 1).atStartOfDay(ZoneOffset.UTC);
+        List<Vol> vols = new ArrayList<>();
+        for (Vol vol : origine.getVolsAuDepartEntre(debut, debut.plusDays(3))) {
+            if (vol.getArrivee() == destination && vol.getJourDepart() == jour
+                    && vol.isReservationOuverte() && vol.getPlacesDisponibles() > 0) {
+                vols.add(vol);
+            }
+        }
+        vols.sort(ORDRE_RESULTATS);
+        return Collections.unmodifiableList(vols);
+    }
+
+    /**
+     * La clé d'une recherche : une route et un jour de départ
+     */
+    private static final class Cle {
+
+        final Aeroport depart;
+
+        final Aeroport arrivee;
+
+        final long jour;
+
+        Cle(Aeroport depart, Aeroport arrivee, long jour) {
+            this.depart = depart;
+            this.arrivee = arrivee;
+            this.jour = jour;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Cle)) return false;
+            Cle cle = (Cle) obj;
+            return this.depart == cle.depart && this.arrivee == cle.arrivee && this.jour == cle.jour;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 31 * (31 * this.depart.hashCode() + this.arrivee.hashCode()) + Long.hashCode(this.jour);
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Une recherche en cache, sans résultat tant qu'elle est en cours de calcul
+     */
+    private static final class Entree {
+
+        List<Vol> vols;
+    }
+
+    /**
+     * Un segment du cache, dont les recherches sont rangées de la moins récemment consultée à la plus récente
+     */
+    private static final class Segment {
+
+        final int capacite;
+
+        final LinkedHashMap<Cle, Entree> recherches;
+
+        Segment(int capacite) {
+            this.capacite = capacite;
+            this.recherches = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Cle, Entree> eldest) {
+                    if (size() <= Segment.this.capacite) {
+                        return false;
+                    }
+                    Metriques.incrementer(Compteur.RECHERCHES_EVINCEES);
+                    return true;
+                }
+            };
+        }
+    }
+}
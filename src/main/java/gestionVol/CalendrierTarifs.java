@@ -0,0 +1,332 @@
+package gestionVol;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Classe représentant le calendrier global des tarifs les plus bas, par route et par jour de départ. Une route
+ * relie l'aéroport de départ d'un vol à son aéroport d'arrivée.
+ * Le calendrier est tenu à jour par {@link Vol} : chaque jour retient le tarif le plus bas de ses vols, recalculé
+ * uniquement lorsqu'un de ses vols change de prix, ouvre, ferme, se remplit ou change de tranche tarifaire, si bien
+ * qu'une consultation ne fait que lire les jours demandés. Chaque route a son propre verrou, et chaque vol retient
+ * le jour dans lequel il est rangé.
+ * Un changement de prix ou de disponibilité ne fait que périmer le jour du vol : le tarif est recalculé par le pool
+ * commun, une fois pour tous les changements reçus entre-temps, ou par la première consultation du jour si elle le
+ * précède. L'invalidation des recherches correspondantes du {@link CacheRecherche} revient à {@link Vol}
+ */
+public class CalendrierTarifs {
+
+    /**
+     * L'instance unique du calendrier
+     */
+    private static final CalendrierTarifs INSTANCE = new CalendrierTarifs();
+
+    /**
+     * Les routes, par aéroport de départ puis aéroport d'arrivée. Une route sans vol est conservée, pour qu'un vol
+     * ne soit jamais rangé dans une route qu'une autre mise à jour vient de retirer
+     */
+    private final Map<Aeroport, Map<Aeroport, Route>> routes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructeur de la classe CalendrierTarifs
+     */
+    private CalendrierTarifs() {
+    }
+
+    /**
+     * Retourne le calendrier global des tarifs
+     *
+     * @return le calendrier des tarifs
+     */
+    public static CalendrierTarifs getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Retourne le tarif le plus bas d'une route pour chaque jour d'une période
+     *
+     * @param depart l'aéroport de départ
+     * @param arrivee l'aéroport d'arrivée
+     * @param debut le premier jour de la période
+     * @param nombreJours le nombre de jours de la période
+     * @exception IllegalArgumentException si un des aéroports ou le premier jour est null
+     * @exception IllegalArgumentException si le nombre de jours n'est pas strictement positif
+     *
+     * @return le tarif le plus bas de chaque jour ayant un vol réservable, par jour croissant
+     */
+    public List<TarifJour> getCalendrier(Aeroport depart, Aeroport arrivee, LocalDate debut, int nombreJours) {
+        if (depart == null || arrivee == null || debut == null) {
+            throw new IllegalArgumentException("depart, arrivee and debut cannot be null");
+        }
+        if (nombreJours <= 0) {
+            throw new IllegalArgumentException("nombreJours doit être strictement positif");
+        }
+
+        List<TarifJour> calendrier = new ArrayList<>();
+        Route route = this.route(depart, arrivee);
+        if (route == null) {
+            return calendrier;
+        }
+        long premier = debut.toEpochDay();
+        synchronized (route) {
+            for (Jour jour : route.jours.subMap(premier, premier + nombreJours).values()) {
+                jour.actualiser();
+                if (jour.tarif != null) {
+                    calendrier.add(jour.tarif);
+                }
+            }
+        }
+        return calendrier;
+    }
+
+    /**
+     * Retourne le tarif le plus bas d'une route pour un jour de départ
+     *
+     * @param depart l'aéroport de départ
+     * @param arrivee l'aéroport d'arrivée
+     * @param jour le jour de départ
+     * @exception IllegalArgumentException si un des aéroports ou le jour est null
+     *
+     * @return le tarif le plus bas du jour, null si aucun vol de la route n'est réservable ce jour-là
+     */
+    public TarifJour getTarifMinimal(Aeroport depart, Aeroport arrivee, LocalDate jour) {
+        if (depart == null || arrivee == null || jour == null) {
+            throw new IllegalArgumentException("depart, arrivee and jour cannot be null");
+        }
+
+        Route route = this.route(depart, arrivee);
+        if (route == null) {
+            return null;
+        }
+        synchronized (route) {
+            Jour trouve = route.jours.get(jour.toEpochDay());
+            if (trouve == null) {
+                return null;
+            }
+            trouve.actualiser();
+            return trouve.tarif;
+        }
+    }
+
+    /**
+     * Vide le calendrier, avant de recharger le programme des vols. Les vols retirés n'y sont plus rangés
+     * et leurs modifications ultérieures sont sans effet sur le calendrier
+     */
+    public void vider() {
+        List<Route> videes = new ArrayList<>();
+        for (Map<Aeroport, Route> arrivees : this.routes.values()) {
+            videes.addAll(arrivees.values());
+        }
+        this.routes.clear();
+        for (Route route : videes) {
+            synchronized (route) {
+                route.videe = true;
+                for (Jour jour : route.jours.values()) {
+                    for (Vol vol : jour.vols) {
+                        if (vol.getJourTarifs() == jour) {
+                            vol.setJourTarifs(null);
+                        }
+                    }
+                }
+                route.jours.clear();
+            }
+        }
+    }
+
+    /**
+     * Range un vol dans le jour de sa route
+     *
+     * @param vol le vol à ranger
+     */
+    void ajouter(Vol vol) {
+        while (true) {
+            Route route = this.routes.computeIfAbsent(vol.getDepart(), a -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(vol.getArrivee(), a -> new Route());
+            synchronized (route) {
+                // Une route vidée entre-temps a été remplacée
+                if (route.videe) {
+                    continue;
+                }
+                Jour jour = route.jours.computeIfAbsent(vol.getJourDepart(), j -> new Jour(route, j));
+                jour.vols.add(vol);
+                vol.setJourTarifs(jour);
+                jour.perime.set(false);
+                jour.recalculer();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Retire un vol du calendrier. Sans effet si le vol n'y est pas rangé
+     *
+     * @param vol le vol à retirer
+     */
+    void retirer(Vol vol) {
+        Jour jour = vol.getJourTarifs();
+        if (jour == null) {
+            return;
+        }
+        Route route = jour.route;
+        synchronized (route) {
+            if (route.videe || vol.getJourTarifs() != jour) {
+                return;
+            }
+            jour.vols.remove(vol);
+            vol.setJourTarifs(null);
+            if (jour.vols.isEmpty()) {
+                route.jours.remove(jour.jour);
+            } else {
+                jour.perime.set(false);
+                jour.recalculer();
+            }
+        }
+    }
+
+    /**
+     * Range de nouveau un vol dont la route ou le jour de départ a changé.
+     * Sans effet si le vol n'est pas rangé dans le calendrier
+     *
+     * @param vol le vol déplacé
+     */
+    void deplacer(Vol vol) {
+        Jour jour = vol.getJourTarifs();
+        if (jour != null && !jour.route.videe) {
+            this.retirer(vol);
+            this.ajouter(vol);
+        }
+    }
+
+    /**
+     * Signale qu'un vol a changé de prix, de disponibilité ou d'horaire : le tarif de son jour est périmé tout de
+     * suite, et recalculé hors de l'appel. Sans effet si le vol n'est pas rangé dans le calendrier
+     *
+     * @param vol le vol modifié
+     */
+    void actualiser(Vol vol) {
+        Jour jour = vol.getJourTarifs();
+        while (jour != null) {
+            if (jour.perime.compareAndSet(false, true)) {
+                Jour perime = jour;
+                ForkJoinPool.commonPool().execute(() -> {
+                    synchronized (perime.route) {
+                        perime.actualiser();
+                    }
+                });
+            }
+            // Un vol rangé dans un autre jour pendant le signalement périme aussi son nouveau jour
+            Jour actuel = vol.getJourTarifs();
+            if (actuel == jour) {
+                return;
+            }
+            jour = actuel;
+        }
+    }
+
+    /**
+     * Retourne la route reliant deux aéroports
+     *
+     * @param depart l'aéroport de départ
+     * @param arrivee l'aéroport d'arrivée
+     * @return la route, null si aucun vol ne l'a encore desservie
+     */
+    private Route route(Aeroport depart, Aeroport arrivee) {
+        Map<Aeroport, Route> arrivees = this.routes.get(depart);
+        return arrivees == null ? null : arrivees.get(arrivee);
+    }
+
+    /**
+     * Les jours d'une route, par jour de départ en jours depuis l'epoch, protégés par le verrou de la route
+     */
+    private static final class Route {
+
+        /**
+         * Les jours de la route ayant au moins un vol, par jour de départ
+         */
+        final TreeMap<Long, Jour> jours = new TreeMap<>();
+
+        /**
+         * Si la route a été retirée du calendrier par un vidage
+         */
+        volatile boolean videe;
+    }
+
+    /**
+     * Les vols d'une route partant un même jour, et leur tarif le plus bas
+     */
+    static final class Jour {
+
+        /**
+         * La route du jour, dont le verrou protège le jour
+         */
+        final Route route;
+
+        /**
+         * Le jour de départ, en jours depuis l'epoch
+         */
+        final long jour;
+
+        /**
+         * Les vols du jour, réservables ou non
+         */
+        final List<Vol> vols = new ArrayList<>(2);
+
+        /**
+         * Si le tarif est à recalculer
+         */
+        final AtomicBoolean perime = new AtomicBoolean();
+
+        /**
+         * Le tarif le plus bas parmi les vols réservables, null s'il n'y en a aucun
+         */
+        TarifJour tarif;
+
+        /**
+         * Constructeur de la classe Jour
+         *
+         * @param route la route du jour
+         * @param jour le jour de départ, en jours depuis l'epoch
+         */
+        Jour(Route route, long jour) {
+            this.route = route;
+            this.jour = jour;
+        }
+
+        /**
+         * Recalcule le tarif le plus bas du jour s'il est périmé, sous le verrou de la route
+         */
+        void actualiser() {
+            if (this.perime.getAndSet(false)) {
+                this.recalculer();
+            }
+        }
+
+        /**
+         * Recalcule le tarif le plus bas du jour, parmi les vols ouverts ayant des places disponibles
+         */
+        void recalculer() {
+            Vol moinsCher = null;
+            double prixMinimal = Double.POSITIVE_INFINITY;
+            for (Vol vol : this.vols) {
+                if (vol.isReservationOuverte() && vol.getPlacesDisponibles() > 0) {
+                    double prix = vol.getPrixCourant();
+                    if (prix < prixMinimal) {
+                        prixMinimal = prix;
+                        moinsCher = vol;
+                    }
+                }
+            }
+            if (moinsCher == null) {
+                this.tarif = null;
+            } else if (this.tarif == null || this.tarif.getVol() != moinsCher || this.tarif.getPrix() != prixMinimal) {
+                this.tarif = new TarifJour(LocalDate.ofEpochDay(this.jour), moinsCher, prixMinimal);
+            }
+        }
+    }
+}
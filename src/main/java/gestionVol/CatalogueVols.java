@@ -0,0 +1,163 @@
+package gestionVol;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Classe représentant le catalogue global des vols, indexé par numéro de vol puis par jour de départ.
+ * Un même numéro de vol étant réutilisé chaque jour, un vol est identifié par son numéro et son jour de départ.
+ * Le catalogue est tenu à jour par les constructeurs et les modificateurs de {@link Vol}
+ */
+public class CatalogueVols {
+
+    /**
+     * L'instance unique du catalogue
+     */
+    private static final CatalogueVols INSTANCE = new CatalogueVols();
+
+    /**
+     * Les vols par numéro puis par jour de départ (en jours depuis l'epoch)
+     */
+    private final Map<String, Map<Long, Vol>> vols = new ConcurrentHashMap<>();
+
+    /**
+     * Constructeur de la classe CatalogueVols
+     */
+    private CatalogueVols() {
+    }
+
+    /**
+     * Retourne le catalogue global des vols
+     *
+     * @return le catalogue global des vols
+     */
+    public static CatalogueVols getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Retourne le vol ayant un numéro donné et partant un jour donné
+     *
+     * @param numero le numéro du vol
+     * @param jour le jour de départ du vol, dans le fuseau de sa date de départ
+     * @exception IllegalArgumentException si le numéro ou le jour est null
+     *
+     * @return le vol, ou null s'il n'existe pas
+     */
+    public Vol rechercher(String numero, LocalDate jour) {
+        if (numero == null || jour == null) {
+            throw new IllegalArgumentException("numero and jour cannot be null");
+        }
+
+        Map<Long, Vol> parJour = this.vols.get(numero);
+        return parJour == null ? null : parJour.get(jour.toEpochDay());
+    }
+
+    /**
+     * Retourne tous les vols ayant un numéro donné, quel que soit leur jour de départ
+     *
+     * @param numero le numéro des vols
+     * @exception IllegalArgumentException si le numéro est null
+     *
+     * @return les vols ayant ce numéro
+     */
+    public Collection<Vol> rechercher(String numero) {
+        if (numero == null) {
+            throw new IllegalArgumentException("numero cannot be null");
+        }
+
+        Map<Long, Vol> parJour = this.vols.get(numero);
+        return parJour == null ? new ArrayList<>() : new ArrayList<>(parJour.values());
+    }
+
+    /**
+     * Retourne le nombre de vols du catalogue
+     *
+     * @return le nombre de vols du catalogue
+     */
+    public int getNombreVols() {
+        int nombre = 0;
+        for (Map<Long, Vol> parJour : this.vols.values()) {
+            nombre += parJour.size();
+        }
+        return nombre;
+    }
+
+    /**
+     * Retourne tous les vols du catalogue
+     *
+     * @return les vols du catalogue
+     */
+    public List<Vol> getVols() {
+        List<Vol> tous = new ArrayList<>();
+        for (Map<Long, Vol> parJour : this.vols.values()) {
+            tous.addAll(parJour.values());
+        }
+        return tous;
+    }
+
+    /**
+     * Vide le catalogue, avant de recharger le programme des vols. Les vols retirés ne sont ni fermés
+     * ni retirés de leurs compagnies et de leurs aéroports
+     */
+    public void vider() {
+        this.vols.clear();
+    }
+
+    /**
+     * Enregistre un vol dans le catalogue sous son numéro et son jour de départ
+     *
+     * @param vol le vol à enregistrer
+     * @exception IllegalArgumentException si un autre vol de même numéro part le même jour
+     */
+    void enregistrer(Vol vol) {
+        this.enregistrer(vol, vol.getNumero(), vol.getJourDepart());
+    }
+
+    /**
+     * Range un vol enregistré sous un nouveau numéro ou un nouveau jour de départ, avant que le vol ne change.
+     * Le vol reste à son ancienne place si la nouvelle est prise
+     *
+     * @param vol le vol à déplacer
+     * @param numero le nouveau numéro du vol
+     * @param jour le nouveau jour de départ du vol, en jours depuis l'epoch
+     * @exception IllegalArgumentException si un autre vol de ce numéro part déjà ce jour-là
+     */
+    void deplacer(Vol vol, String numero, long jour) {
+        if (numero.equals(vol.getNumero()) && jour == vol.getJourDepart()) {
+            return;
+        }
+        this.enregistrer(vol, numero, jour);
+        this.retirer(vol);
+    }
+
+    /**
+     * Retire un vol du catalogue s'il y est toujours enregistré. Un autre vol de même numéro et de même jour
+     * n'est jamais retiré à sa place
+     *
+     * @param vol le vol à retirer
+     */
+    void retirer(Vol vol) {
+        this.vols.computeIfPresent(vol.getNumero(), (numero, parJour) -> {
+            parJour.computeIfPresent(vol.getJourDepart(), (jour, enregistre) -> enregistre == vol ? null : enregistre);
+            return parJour.isEmpty() ? null : parJour;
+        });
+    }
+
+    private void enregistrer(Vol vol, String numero, long jour) {
+        // L'insertion se fait dans le calcul de la table du numéro, qu'un retrait concurrent ne peut pas détacher
+        Vol[] existant = new Vol[1];
+        this.vols.compute(numero, (n, parJour) -> {
+            Map<Long, Vol> table = parJour == null ? new ConcurrentHashMap<>(2) : parJour;
+            existant[0] = table.putIfAbsent(jour, vol);
+            return table;
+        });
+        if (existant[0] != null && existant[0] != vol) {
+            throw new IllegalArgumentException("Un vol " + numero + " part déjà le " + LocalDate.ofEpochDay(jour));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package gestionVol;
 
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -63,6 +64,22 @@ public class Compagnie {
         return vols;
     }
 
+    /**
+     * Applique une même grille tarifaire à tous les vols de la compagnie
+     *
+     * @param grilleTarifaire la grille tarifaire à appliquer
+     * @exception IllegalArgumentException si la grille est null
+     */
+    public void appliquerGrilleTarifaire(GrilleTarifaire grilleTarifaire) {
+        if (grilleTarifaire == null) {
+            throw new IllegalArgumentException("grilleTarifaire cannot be null");
+        }
+
+        for (Vol vol : vols) {
+            vol.setGrilleTarifaire(grilleTarifaire);
+        }
+    }
+
     /**
      * Ajoute un vol à la liste des vols de la compagnie
      *
@@ -81,4 +98,13 @@ public class Compagnie {
     protected void removeVolWithoutBidirectional(Vol vol){
         this.vols.remove(vol);
     }
+
+    /**
+     * Ajoute d'un bloc des vols à la compagnie, lors d'un chargement en masse
+     *
+     * @param vols les vols à ajouter
+     */
+    void chargerVols(Collection<Vol> vols) {
+        this.vols.addAll(vols);
+    }
 }
@@ -0,0 +1,134 @@
+package gestionVol;
+
+/**
+ * Classe représentant le nombre de tronçons de vol reliant chaque couple d'aéroports, par clé de couple.
+ * Les clés et les nombres sont rangés dans des tableaux primitifs à adressage ouvert : une mise à jour ne boxe
+ * ni n'alloue rien tant que la table n'est pas agrandie. Une case de nombre nul est vide.
+ * La classe n'est pas synchronisée : elle est protégée par le verrou d'écriture de {@link IndexRoutes}
+ */
+final class CompteursTroncons {
+
+    /**
+     * La capacité initiale de la table, puissance de deux
+     */
+    private static final int CAPACITE_INITIALE = 64;
+
+    /**
+     * Les clés des couples rangés
+     */
+    private long[] cles = new long[CAPACITE_INITIALE];
+
+    /**
+     * Le nombre de tronçons de chaque couple rangé, 0 pour une case vide
+     */
+    private int[] nombres = new int[CAPACITE_INITIALE];
+
+    /**
+     * Le nombre de couples rangés
+     */
+    private int taille;
+
+    /**
+     * Mélange les bits d'une clé
+     *
+     * @param cle la clé du couple
+     * @return l'empreinte de la clé
+     */
+    private static int empreinte(long cle) {
+        long h = cle * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Ajoute une variation au nombre de tronçons d'un couple, et retire le couple s'il n'a plus de tronçon
+     *
+     * @param cle la clé du couple
+     * @param variation la variation du nombre de tronçons
+     * @return le nouveau nombre de tronçons du couple, 0 s'il n'en a plus. Un couple inconnu dont on retire
+     * des tronçons reste absent
+     */
+    int ajouter(long cle, int variation) {
+        int masque = this.nombres.length - 1;
+        int i = empreinte(cle) & masque;
+        while (this.nombres[i] != 0 && this.cles[i] != cle) {
+            i = (i + 1) & masque;
+        }
+
+        if (this.nombres[i] == 0) {
+            if (variation <= 0) {
+                return 0;
+            }
+            this.cles[i] = cle;
+            this.nombres[i] = variation;
+            // La table est agrandie au-delà de trois quarts de cases occupées
+            if (++this.taille > this.nombres.length - (this.nombres.length >>> 2)) {
+                this.agrandir();
+            }
+            return variation;
+        }
+
+        int nombre = this.nombres[i] + variation;
+        if (nombre > 0) {
+            this.nombres[i] = nombre;
+            return nombre;
+        }
+        this.retirer(i);
+        return 0;
+    }
+
+    /**
+     * Retire tous les couples
+     */
+    void vider() {
+        this.cles = new long[CAPACITE_INITIALE];
+        this.nombres = new int[CAPACITE_INITIALE];
+        this.taille = 0;
+    }
+
+    /**
+     * Vide une case, en reculant les couples suivants de la même suite pour qu'aucun ne soit séparé
+     * de sa case d'origine
+     *
+     * @param i la case à vider
+     */
+    private void retirer(int i) {
+        int masque = this.nombres.length - 1;
+        this.nombres[i] = 0;
+        int j = i;
+        while (true) {
+            j = (j + 1) & masque;
+            if (this.nombres[j] == 0) {
+                break;
+            }
+            int origine = empreinte(this.cles[j]) & masque;
+            if (((j - origine) & masque) >= ((j - i) & masque)) {
+                this.cles[i] = this.cles[j];
+                this.nombres[i] = this.nombres[j];
+                this.nombres[j] = 0;
+                i = j;
+            }
+        }
+        this.taille--;
+    }
+
+    /**
+     * Recopie la table dans une table deux fois plus grande
+     */
+    private void agrandir() {
+        long[] anciennesCles = this.cles;
+        int[] anciensNombres = this.nombres;
+        this.cles = new long[2 * anciennesCles.length];
+        this.nombres = new int[2 * anciensNombres.length];
+        int masque = this.nombres.length - 1;
+        for (int k = 0; k < anciensNombres.length; k++) {
+            if (anciensNombres[k] != 0) {
+                int i = empreinte(anciennesCles[k]) & masque;
+                while (this.nombres[i] != 0) {
+                    i = (i + 1) & masque;
+                }
+                this.cles[i] = anciennesCles[k];
+                this.nombres[i] = anciensNombres[k];
+            }
+        }
+    }
+}
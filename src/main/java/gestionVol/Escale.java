@@ -1,6 +1,7 @@
 package gestionVol;
 
 import java.time.Duration;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Objects;
 
@@ -20,14 +21,24 @@ public class Escale implements Comparable<Escale> {
     private Aeroport aeroport;
 
     /**
-     *  La date d'arrivée à l'escale
+     *  L'instant d'arrivée à l'escale, en nanosecondes depuis l'epoch
      */
-    private ZonedDateTime dateArrivee;
+    private long arriveeNanos;
 
     /**
-     *  La date de départ de l'escale
+     *  Le fuseau de la date d'arrivée à l'escale
      */
-    private ZonedDateTime dateDepart;
+    private ZoneId fuseauArrivee;
+
+    /**
+     *  L'instant de départ de l'escale, en nanosecondes depuis l'epoch
+     */
+    private long departNanos;
+
+    /**
+     *  Le fuseau de la date de départ de l'escale
+     */
+    private ZoneId fuseauDepart;
 
     /**
      * Constructeur de la classe Escale
@@ -44,17 +55,48 @@ public class Escale implements Comparable<Escale> {
             throw new IllegalArgumentException("vol, aeroport, dateArrivee and dateDepart cannot be null");
         }
 
-        if (dateArrivee.isAfter(dateDepart) || dateArrivee.isEqual(dateDepart)) {
+        long arriveeNanos = Horodatage.nanos(dateArrivee);
+        long departNanos = Horodatage.nanos(dateDepart);
+        if (arriveeNanos >= departNanos) {
             throw new IllegalArgumentException("dateArrivee doit être avant dateDepart");
         }
 
         this.vol = vol;
 
+        // Les dates doivent être connues avant l'ajout à l'aéroport, qui indexe l'escale par période au sol
+        this.arriveeNanos = arriveeNanos;
+        this.fuseauArrivee = Horodatage.fuseau(dateArrivee);
+        this.departNanos = departNanos;
+        this.fuseauDepart = Horodatage.fuseau(dateDepart);
+
         this.aeroport = aeroport;
         this.aeroport.addEscaleWithoutBidirectional(this);
+    }
+
+    /**
+     * Constructeur vide de la classe Escale, utilisé par le chargement en masse
+     */
+    private Escale() {
+    }
 
-        this.dateArrivee = dateArrivee;
-        this.dateDepart = dateDepart;
+    /**
+     * Crée une escale déjà validée sans mettre à jour l'aéroport, lors d'un chargement en masse
+     *
+     * @param vol le vol concerné par l'escale
+     * @param aeroport l'aéroport où le vol fait escale
+     * @param dateArrivee la date d'arrivée à l'escale
+     * @param dateDepart la date de départ de l'escale
+     * @return l'escale créée
+     */
+    static Escale charger(Vol vol, Aeroport aeroport, ZonedDateTime dateArrivee, ZonedDateTime dateDepart) {
+        Escale escale = new Escale();
+        escale.vol = vol;
+        escale.aeroport = aeroport;
+        escale.arriveeNanos = Horodatage.nanos(dateArrivee);
+        escale.fuseauArrivee = Horodatage.fuseau(dateArrivee);
+        escale.departNanos = Horodatage.nanos(dateDepart);
+        escale.fuseauDepart = Horodatage.fuseau(dateDepart);
+        return escale;
     }
 
     /**
@@ -86,6 +128,12 @@ public class Escale implements Comparable<Escale> {
             throw new IllegalArgumentException("aeroport cannot be null");
         }
 
+        if (this.vol.getDepart() != null) {
+            int rang = EscalesVol.indice(this.vol.tableauEscales(), this);
+            if (rang >= 0) {
+                IndexRoutes.getInstance().deplacerArret(this.vol.arretAvant(rang), this.aeroport, aeroport, this.vol.arretApres(rang));
+            }
+        }
         this.aeroport.removeEscaleWithoutBidirectional(this);
         this.aeroport = aeroport;
         this.aeroport.addEscaleWithoutBidirectional(this);
@@ -97,11 +145,29 @@ public class Escale implements Comparable<Escale> {
      * @return la date d'arrivée à l'escale
      */
     public ZonedDateTime getDateArrivee() {
-        return dateArrivee;
+        return Horodatage.date(arriveeNanos, fuseauArrivee);
+    }
+
+    /**
+     * Retourne l'instant d'arrivée à l'escale, sans reconstruire sa date
+     *
+     * @return le nombre de nanosecondes entre l'epoch et l'arrivée à l'escale
+     */
+    public long getArriveeNanos() {
+        return arriveeNanos;
+    }
+
+    /**
+     * Retourne le fuseau de la date d'arrivée à l'escale
+     *
+     * @return le fuseau de la date d'arrivée
+     */
+    ZoneId getFuseauArrivee() {
+        return fuseauArrivee;
     }
 
     /**
-     * Modifie la date d'arrivée à l'escale
+     * Modifie la date d'arrivée à l'escale et met à jour les occupations du sol de l'aéroport
      *
      * @param dateArrivee la nouvelle date d'arrivée à l'escale
      * @exception IllegalArgumentException si la date d'arrivée est après la date de départ
@@ -113,22 +179,25 @@ public class Escale implements Comparable<Escale> {
             throw new IllegalArgumentException("dateArrivee cannot be null");
         }
 
-        if (dateArrivee.isAfter(this.dateDepart) || dateArrivee.isEqual(this.dateDepart)) {
+        long arriveeNanos = Horodatage.nanos(dateArrivee);
+        if (arriveeNanos >= this.departNanos) {
             throw new IllegalArgumentException("dateArrivee doit être avant dateDepart");
         }
 
         Escale escalePrecedente = this.vol.getEscales().lower(this);
 
         if (escalePrecedente != null) {
-            if (escalePrecedente.getDateDepart().isAfter(dateArrivee)
-                    || (escalePrecedente.getDateDepart().isEqual(dateArrivee))) {
+            if (escalePrecedente.departNanos >= arriveeNanos) {
                 throw new IllegalArgumentException("dateArrivee doit être après la date de départ de l'escale précédente");
             }
-        } else if (this.vol.getDateDepart().isAfter(dateArrivee) || this.vol.getDateDepart().isEqual(dateArrivee)) {
+        } else if (this.vol.getDepartNanos() >= arriveeNanos) {
             throw new IllegalArgumentException("dateArrivee doit être après la date de départ du vol");
         }
 
-        this.dateArrivee = dateArrivee;
+        this.aeroport.removeEscaleWithoutBidirectional(this);
+        this.arriveeNanos = arriveeNanos;
+        this.fuseauArrivee = Horodatage.fuseau(dateArrivee);
+        this.aeroport.addEscaleWithoutBidirectional(this);
     }
 
     /**
@@ -137,11 +206,20 @@ public class Escale implements Comparable<Escale> {
      * @return la date de départ de l'escale
      */
     public ZonedDateTime getDateDepart() {
-        return dateDepart;
+        return Horodatage.date(departNanos, fuseauDepart);
+    }
+
+    /**
+     * Retourne l'instant de départ de l'escale, sans reconstruire sa date
+     *
+     * @return le nombre de nanosecondes entre l'epoch et le départ de l'escale
+     */
+    public long getDepartNanos() {
+        return departNanos;
     }
 
     /**
-     * Modifie la date de départ de l'escale
+     * Modifie la date de départ de l'escale et met à jour les occupations du sol de l'aéroport
      *
      * @param dateDepart la nouvelle date de départ de l'escale
      * @exception IllegalArgumentException si la date de départ est avant la date d'arrivée
@@ -153,22 +231,25 @@ public class Escale implements Comparable<Escale> {
             throw new IllegalArgumentException("dateDepart cannot be null");
         }
 
-        if (dateDepart.isBefore(this.dateArrivee) || dateDepart.isEqual(this.dateArrivee)) {
+        long departNanos = Horodatage.nanos(dateDepart);
+        if (departNanos <= this.arriveeNanos) {
             throw new IllegalArgumentException("dateDepart doit être après dateArrivee");
         }
 
         Escale escaleSuivante = this.vol.getEscales().higher(this);
 
         if (escaleSuivante != null) {
-            if (escaleSuivante.getDateArrivee().isBefore(dateDepart)
-                    || (escaleSuivante.getDateArrivee().isEqual(dateDepart))) {
+            if (escaleSuivante.arriveeNanos <= departNanos) {
                 throw new IllegalArgumentException("dateDepart doit être avant la date d'arrivée de l'escale suivante");
             }
-        } else if (this.vol.getDateArrivee().isBefore(dateDepart) || this.vol.getDateArrivee().isEqual(dateDepart)) {
+        } else if (this.vol.getArriveeNanos() <= departNanos) {
             throw new IllegalArgumentException("dateDepart doit être avant la date d'arrivée du vol");
         }
 
-        this.dateDepart = dateDepart;
+        this.aeroport.removeEscaleWithoutBidirectional(this);
+        this.departNanos = departNanos;
+        this.fuseauDepart = Horodatage.fuseau(dateDepart);
+        this.aeroport.addEscaleWithoutBidirectional(this);
     }
 
     /**
@@ -177,7 +258,7 @@ public class Escale implements Comparable<Escale> {
      * @return la durée de l'escale
      */
     public Duration getDuree() {
-        return Duration.between(dateArrivee, dateDepart);
+        return Duration.ofNanos(departNanos - arriveeNanos);
     }
 
     /**
@@ -191,7 +272,7 @@ public class Escale implements Comparable<Escale> {
 
     @Override
     public int compareTo(Escale escale) {
-        return dateArrivee.compareTo(escale.dateArrivee);
+        return Long.compare(arriveeNanos, escale.arriveeNanos);
     }
 
     @Override
@@ -201,7 +282,9 @@ public class Escale implements Comparable<Escale> {
         Escale escale = (Escale) o;
         return Objects.equals(getVol(), escale.getVol()) &&
                 Objects.equals(getAeroport(), escale.getAeroport()) &&
-                Objects.equals(getDateArrivee(), escale.getDateArrivee()) &&
-                Objects.equals(getDateDepart(), escale.getDateDepart());
+                arriveeNanos == escale.arriveeNanos &&
+                departNanos == escale.departNanos &&
+                Objects.equals(fuseauArrivee, escale.fuseauArrivee) &&
+                Objects.equals(fuseauDepart, escale.fuseauDepart);
     }
 }
@@ -0,0 +1,303 @@
+package gestionVol;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Vue en lecture seule des escales d'un vol, triées par date d'arrivée.
+ * Les escales sont rangées dans un tableau trié de la taille exacte, remplacé à chaque modification, et partagé
+ * par tous les vols sans escale lorsqu'il est vide. Les recherches se font par dichotomie sur les instants d'arrivée,
+ * et un parcours porte sur les escales présentes à son début. Les sous-ensembles et l'ordre inverse sont des copies
+ * en lecture seule des escales présentes lors de l'appel
+ */
+public class EscalesVol extends AbstractSet<Escale> implements NavigableSet<Escale> {
+
+    /**
+     * Le tableau partagé par tous les vols sans escale
+     */
+    static final Escale[] AUCUNE = new Escale[0];
+
+    /**
+     * Le vol dont on consulte les escales
+     */
+    private final Vol vol;
+
+    /**
+     * Constructeur de la classe EscalesVol
+     *
+     * @param vol le vol dont on consulte les escales
+     */
+    EscalesVol(Vol vol) {
+        this.vol = vol;
+    }
+
+    @Override
+    public int size() {
+        return vol.tableauEscales().length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return vol.tableauEscales().length == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Escale && indice(vol.tableauEscales(), (Escale) o) >= 0;
+    }
+
+    @Override
+    public Iterator<Escale> iterator() {
+        Escale[] escales = vol.tableauEscales();
+        return new Iterator<>() {
+            private int suivant = 0;
+
+            @Override
+            public boolean hasNext() {
+                return suivant < escales.length;
+            }
+
+            @Override
+            public Escale next() {
+                if (suivant >= escales.length) {
+                    throw new NoSuchElementException();
+                }
+                return escales[suivant++];
+            }
+        };
+    }
+
+    @Override
+    public Comparator<? super Escale> comparator() {
+        return null;
+    }
+
+    /**
+     * Retourne la première escale du vol
+     *
+     * @exception NoSuchElementException si le vol n'a pas d'escale
+     *
+     * @return la première escale du vol
+     */
+    @Override
+    public Escale first() {
+        Escale[] escales = vol.tableauEscales();
+        if (escales.length == 0) {
+            throw new NoSuchElementException();
+        }
+        return escales[0];
+    }
+
+    /**
+     * Retourne la dernière escale du vol
+     *
+     * @exception NoSuchElementException si le vol n'a pas d'escale
+     *
+     * @return la dernière escale du vol
+     */
+    @Override
+    public Escale last() {
+        Escale[] escales = vol.tableauEscales();
+        if (escales.length == 0) {
+            throw new NoSuchElementException();
+        }
+        return escales[escales.length - 1];
+    }
+
+    /**
+     * Retourne l'escale qui précède une escale
+     *
+     * @param escale l'escale de référence
+     * @return la dernière escale arrivant strictement avant l'escale de référence, null s'il n'y en a pas
+     */
+    @Override
+    public Escale lower(Escale escale) {
+        Escale[] escales = vol.tableauEscales();
+        int rang = rang(escales, escale.getArriveeNanos());
+        return rang > 0 ? escales[rang - 1] : null;
+    }
+
+    /**
+     * Retourne l'escale qui suit une escale
+     *
+     * @param escale l'escale de référence
+     * @return la première escale arrivant strictement après l'escale de référence, null s'il n'y en a pas
+     */
+    @Override
+    public Escale higher(Escale escale) {
+        Escale[] escales = vol.tableauEscales();
+        int rang = rang(escales, escale.getArriveeNanos() + 1);
+        return rang < escales.length ? escales[rang] : null;
+    }
+
+    /**
+     * Retourne l'escale qui précède une escale, ou l'escale elle-même
+     *
+     * @param escale l'escale de référence
+     * @return la dernière escale arrivant avant l'escale de référence ou en même temps, null s'il n'y en a pas
+     */
+    @Override
+    public Escale floor(Escale escale) {
+        Escale[] escales = vol.tableauEscales();
+        int rang = rang(escales, escale.getArriveeNanos() + 1);
+        return rang > 0 ? escales[rang - 1] : null;
+    }
+
+    /**
+     * Retourne l'escale qui suit une escale, ou l'escale elle-même
+     *
+     * @param escale l'escale de référence
+     * @return la première escale arrivant après l'escale de référence ou en même temps, null s'il n'y en a pas
+     */
+    @Override
+    public Escale ceiling(Escale escale) {
+        Escale[] escales = vol.tableauEscales();
+        int rang = rang(escales, escale.getArriveeNanos());
+        return rang < escales.length ? escales[rang] : null;
+    }
+
+    /**
+     * Non supporté : les escales se retirent par le vol
+     *
+     * @exception UnsupportedOperationException toujours
+     *
+     * @return jamais
+     */
+    @Override
+    public Escale pollFirst() {
+        throw new UnsupportedOperationException("Les escales se retirent par Vol.removeEscale");
+    }
+
+    /**
+     * Non supporté : les escales se retirent par le vol
+     *
+     * @exception UnsupportedOperationException toujours
+     *
+     * @return jamais
+     */
+    @Override
+    public Escale pollLast() {
+        throw new UnsupportedOperationException("Les escales se retirent par Vol.removeEscale");
+    }
+
+    @Override
+    public Iterator<Escale> descendingIterator() {
+        return this.descendingSet().iterator();
+    }
+
+    @Override
+    public NavigableSet<Escale> descendingSet() {
+        return this.copie().descendingSet();
+    }
+
+    @Override
+    public NavigableSet<Escale> subSet(Escale debut, boolean debutInclus, Escale fin, boolean finInclus) {
+        return this.copie().subSet(debut, debutInclus, fin, finInclus);
+    }
+
+    @Override
+    public NavigableSet<Escale> headSet(Escale fin, boolean inclus) {
+        return this.copie().headSet(fin, inclus);
+    }
+
+    @Override
+    public NavigableSet<Escale> tailSet(Escale debut, boolean inclus) {
+        return this.copie().tailSet(debut, inclus);
+    }
+
+    @Override
+    public SortedSet<Escale> subSet(Escale debut, Escale fin) {
+        return this.subSet(debut, true, fin, false);
+    }
+
+    @Override
+    public SortedSet<Escale> headSet(Escale fin) {
+        return this.headSet(fin, false);
+    }
+
+    @Override
+    public SortedSet<Escale> tailSet(Escale debut) {
+        return this.tailSet(debut, true);
+    }
+
+    /**
+     * Retourne une copie en lecture seule des escales présentes
+     *
+     * @return les escales du vol, triées par date d'arrivée
+     */
+    private NavigableSet<Escale> copie() {
+        return Collections.unmodifiableNavigableSet(new TreeSet<>((SortedSet<Escale>) this));
+    }
+
+    /**
+     * Retourne le rang auquel une escale arrivant à un instant donné serait insérée
+     *
+     * @param escales les escales triées
+     * @param arriveeNanos l'instant d'arrivée, en nanosecondes depuis l'epoch
+     * @return l'indice de la première escale arrivant à cet instant ou après
+     */
+    static int rang(Escale[] escales, long arriveeNanos) {
+        int debut = 0;
+        int fin = escales.length;
+        while (debut < fin) {
+            int milieu = (debut + fin) >>> 1;
+            if (escales[milieu].getArriveeNanos() < arriveeNanos) {
+                debut = milieu + 1;
+            } else {
+                fin = milieu;
+            }
+        }
+        return debut;
+    }
+
+    /**
+     * Retourne l'indice d'une escale
+     *
+     * @param escales les escales triées
+     * @param escale l'escale cherchée
+     * @return l'indice de l'escale, -1 si elle n'est pas présente
+     */
+    static int indice(Escale[] escales, Escale escale) {
+        int rang = rang(escales, escale.getArriveeNanos());
+        return rang < escales.length && escales[rang].equals(escale) ? rang : -1;
+    }
+
+    /**
+     * Retourne un nouveau tableau d'escales comportant une escale de plus
+     *
+     * @param escales les escales triées
+     * @param rang le rang de la nouvelle escale
+     * @param escale la nouvelle escale
+     * @return les escales triées avec la nouvelle escale
+     */
+    static Escale[] inserer(Escale[] escales, int rang, Escale escale) {
+        Escale[] resultat = new Escale[escales.length + 1];
+        System.arraycopy(escales, 0, resultat, 0, rang);
+        resultat[rang] = escale;
+        System.arraycopy(escales, rang, resultat, rang + 1, escales.length - rang);
+        return resultat;
+    }
+
+    /**
+     * Retourne un nouveau tableau d'escales privé d'une escale
+     *
+     * @param escales les escales triées
+     * @param indice l'indice de l'escale à retirer
+     * @return les escales triées sans l'escale retirée
+     */
+    static Escale[] retirer(Escale[] escales, int indice) {
+        if (escales.length == 1) {
+            return AUCUNE;
+        }
+        Escale[] resultat = Arrays.copyOf(escales, escales.length - 1);
+        System.arraycopy(escales, indice + 1, resultat, indice, escales.length - indice - 1);
+        return resultat;
+    }
+}
@@ -0,0 +1,111 @@
+package gestionVol;
+
+import java.util.Arrays;
+
+/**
+ * Classe représentant une grille tarifaire : le prix d'une place est le prix de base du vol multiplié par le
+ * coefficient de la tranche correspondant au taux de remplissage du vol. Une grille est immuable, et peut donc être
+ * partagée par tous les vols d'une compagnie
+ */
+public class GrilleTarifaire {
+
+    /**
+     * La grille d'une seule tranche au prix de base, quel que soit le remplissage
+     */
+    public static final GrilleTarifaire UNIQUE = new GrilleTarifaire(new double[]{0}, new double[]{1});
+
+    /**
+     * Le taux de remplissage à partir duquel s'applique chaque tranche, par ordre croissant
+     */
+    private final double[] remplissages;
+
+    /**
+     * Le coefficient appliqué au prix de base dans chaque tranche
+     */
+    private final double[] coefficients;
+
+    /**
+     * Constructeur de la classe GrilleTarifaire
+     *
+     * @param remplissages le taux de remplissage, entre 0 et 1, à partir duquel s'applique chaque tranche
+     * @param coefficients le coefficient appliqué au prix de base dans chaque tranche
+     * @exception IllegalArgumentException si un des tableaux est null ou vide, ou s'ils n'ont pas la même taille
+     * @exception IllegalArgumentException si la première tranche ne commence pas à 0 ou si les taux ne sont pas strictement croissants
+     * @exception IllegalArgumentException si un taux est supérieur à 1 ou si un coefficient est négatif
+     */
+    public GrilleTarifaire(double[] remplissages, double[] coefficients) {
+        if (remplissages == null || coefficients == null) {
+            throw new IllegalArgumentException("remplissages and coefficients cannot be null");
+        }
+        if (remplissages.length == 0 || remplissages.length != coefficients.length) {
+            throw new IllegalArgumentException("remplissages et coefficients doivent avoir la même taille, non nulle");
+        }
+        if (remplissages[0] != 0) {
+            throw new IllegalArgumentException("la première tranche doit commencer à un remplissage de 0");
+        }
+        for (int i = 0; i < remplissages.length; i++) {
+            if (i > 0 && !(remplissages[i] > remplissages[i - 1])) {
+                throw new IllegalArgumentException("les remplissages doivent être strictement croissants");
+            }
+            if (remplissages[i] > 1) {
+                throw new IllegalArgumentException("un remplissage doit être compris entre 0 et 1");
+            }
+            if (!(coefficients[i] >= 0)) {
+                throw new IllegalArgumentException("un coefficient doit être positif");
+            }
+        }
+
+        this.remplissages = remplissages.clone();
+        this.coefficients = coefficients.clone();
+    }
+
+    /**
+     * Retourne le nombre de tranches de la grille
+     *
+     * @return le nombre de tranches
+     */
+    public int getNombreTranches() {
+        return remplissages.length;
+    }
+
+    /**
+     * Retourne le taux de remplissage à partir duquel s'applique une tranche
+     *
+     * @param tranche l'indice de la tranche
+     * @return le taux de remplissage minimal de la tranche
+     */
+    public double getRemplissageMinimal(int tranche) {
+        return remplissages[tranche];
+    }
+
+    /**
+     * Retourne le coefficient appliqué au prix de base dans une tranche
+     *
+     * @param tranche l'indice de la tranche
+     * @return le coefficient de la tranche
+     */
+    public double getCoefficient(int tranche) {
+        return coefficients[tranche];
+    }
+
+    /**
+     * Retourne la tranche applicable à un vol
+     *
+     * @param placesVendues le nombre de places vendues ou bloquées
+     * @param capacite le nombre total de places du vol
+     * @return l'indice de la tranche
+     */
+    public int tranche(int placesVendues, int capacite) {
+        double remplissage = capacite <= 0 ? 1 : (double) placesVendues / capacite;
+        int tranche = 0;
+        while (tranche + 1 < remplissages.length && remplissages[tranche + 1] <= remplissage) {
+            tranche++;
+        }
+        return tranche;
+    }
+
+    @Override
+    public String toString() {
+        return "GrilleTarifaire" + Arrays.toString(remplissages) + " x" + Arrays.toString(coefficients);
+    }
+}
@@ -0,0 +1,103 @@
+package gestionVol;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Conversions entre les dates des vols et leur représentation compacte : un nombre de nanosecondes depuis l'epoch
+ * et une référence partagée vers le fuseau. Les comparaisons de dates se font ainsi sur des long, et une date
+ * n'est reconstruite que lorsqu'elle est demandée
+ */
+final class Horodatage {
+
+    private static final long NANOS_PAR_SECONDE = 1_000_000_000L;
+
+    private static final long SECONDES_PAR_JOUR = 86_400L;
+
+    /**
+     * Les fuseaux déjà rencontrés, pour que tous les vols d'un même fuseau partagent la même instance
+     */
+    private static final ConcurrentHashMap<ZoneId, ZoneId> FUSEAUX = new ConcurrentHashMap<>();
+
+    private Horodatage() {
+    }
+
+    /**
+     * Retourne l'instant d'une date en nanosecondes depuis l'epoch
+     *
+     * @param date la date
+     * @exception IllegalArgumentException si la date n'est pas comprise entre 1677 et 2262
+     *
+     * @return le nombre de nanosecondes entre l'epoch et la date
+     */
+    static long nanos(ZonedDateTime date) {
+        try {
+            return Math.addExact(Math.multiplyExact(date.toEpochSecond(), NANOS_PAR_SECONDE), date.getNano());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("date hors de la plage supportée : " + date, e);
+        }
+    }
+
+    /**
+     * Retourne l'instant d'une borne de recherche en nanosecondes depuis l'epoch, ramené dans la plage supportée
+     *
+     * @param date la borne
+     * @return le nombre de nanosecondes entre l'epoch et la borne, Long.MIN_VALUE ou Long.MAX_VALUE si elle est
+     * hors de la plage supportée
+     */
+    static long borne(ZonedDateTime date) {
+        try {
+            return Math.addExact(Math.multiplyExact(date.toEpochSecond(), NANOS_PAR_SECONDE), date.getNano());
+        } catch (ArithmeticException e) {
+            return date.toEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Retourne l'instance partagée d'un fuseau
+     *
+     * @param date la date dont on veut le fuseau
+     * @return le fuseau de la date
+     */
+    static ZoneId fuseau(ZonedDateTime date) {
+        ZoneId fuseau = date.getZone();
+        ZoneId partage = FUSEAUX.putIfAbsent(fuseau, fuseau);
+        return partage == null ? fuseau : partage;
+    }
+
+    /**
+     * Reconstruit une date à partir de sa représentation compacte
+     *
+     * @param nanos le nombre de nanosecondes entre l'epoch et la date
+     * @param fuseau le fuseau de la date
+     * @return la date
+     */
+    static ZonedDateTime date(long nanos, ZoneId fuseau) {
+        return ZonedDateTime.ofInstant(instant(nanos), fuseau);
+    }
+
+    /**
+     * Retourne l'instant correspondant à un nombre de nanosecondes depuis l'epoch
+     *
+     * @param nanos le nombre de nanosecondes entre l'epoch et l'instant
+     * @return l'instant
+     */
+    static Instant instant(long nanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, NANOS_PAR_SECONDE), Math.floorMod(nanos, NANOS_PAR_SECONDE));
+    }
+
+    /**
+     * Retourne le jour local d'un instant dans un fuseau, sans reconstruire la date
+     *
+     * @param nanos le nombre de nanosecondes entre l'epoch et l'instant
+     * @param fuseau le fuseau
+     * @return le nombre de jours entre l'epoch et le jour local de l'instant
+     */
+    static long jour(long nanos, ZoneId fuseau) {
+        long secondes = Math.floorDiv(nanos, NANOS_PAR_SECONDE);
+        long decalage = fuseau.getRules().getOffset(Instant.ofEpochSecond(secondes)).getTotalSeconds();
+        return Math.floorDiv(secondes + decalage, SECONDES_PAR_JOUR);
+    }
+}
@@ -0,0 +1,349 @@
+package gestionVol;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classe d'import en masse d'un programme de vols au format CSV, une ligne par vol séparée par des points-virgules :
+ * <pre>numero;compagnie;depart;arrivee;dateDepart;dateArrivee;places;prix[;aeroport;dateArrivee;dateDepart]...</pre>
+ * Les dates sont au format ISO (par exemple 2024-01-01T08:00+01:00[Europe/Paris]) et chaque escale ajoute trois champs
+ * dans l'ordre du vol. Les lignes vides et celles commençant par # sont ignorées.
+ * Le fichier est lu en continu par blocs de lignes, analysés et validés en parallèle ; la lecture attend, en analysant
+ * elle-même un bloc, dès que trop de blocs sont en attente d'analyse. Les vols valides sont ensuite publiés d'un bloc
+ * dans leurs compagnies, leurs aéroports et le catalogue. Une ligne invalide est rejetée sans interrompre l'import,
+ * de même qu'un vol dont le numéro part déjà le même jour
+ */
+public class ImportProgramme {
+
+    /**
+     * Le nombre de lignes de chaque bloc analysé par une tâche
+     */
+    private static final int TAILLE_BLOC = 4096;
+
+    /**
+     * Le nombre de champs d'un vol sans escale
+     */
+    private static final int CHAMPS_VOL = 8;
+
+    /**
+     * Le nombre de champs de chaque escale
+     */
+    private static final int CHAMPS_ESCALE = 3;
+
+    /**
+     * Les aéroports connus, par nom
+     */
+    private final Map<String, Aeroport> aeroports = new HashMap<>();
+
+    /**
+     * Les compagnies connues, par nom
+     */
+    private final Map<String, Compagnie> compagnies = new HashMap<>();
+
+    /**
+     * Le nombre de tâches d'analyse simultanées
+     */
+    private final int parallelisme;
+
+    /**
+     * Constructeur de la classe ImportProgramme, analysant sur tous les processeurs disponibles
+     *
+     * @param aeroports les aéroports auxquels les vols peuvent faire référence
+     * @param compagnies les compagnies auxquelles les vols peuvent faire référence
+     * @exception IllegalArgumentException si les aéroports ou les compagnies sont null
+     */
+    public ImportProgramme(Collection<Aeroport> aeroports, Collection<Compagnie> compagnies) {
+        this(aeroports, compagnies, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructeur de la classe ImportProgramme
+     *
+     * @param aeroports les aéroports auxquels les vols peuvent faire référence
+     * @param compagnies les compagnies auxquelles les vols peuvent faire référence
+     * @param parallelisme le nombre de tâches d'analyse simultanées
+     * @exception IllegalArgumentException si les aéroports ou les compagnies sont null
+     * @exception IllegalArgumentException si le parallélisme n'est pas strictement positif
+     */
+    public ImportProgramme(Collection<Aeroport> aeroports, Collection<Compagnie> compagnies, int parallelisme) {
+        if (aeroports == null || compagnies == null) {
+            throw new IllegalArgumentException("aeroports and compagnies cannot be null");
+        }
+        if (parallelisme <= 0) {
+            throw new IllegalArgumentException("parallelisme doit être strictement positif");
+        }
+
+        for (Aeroport aeroport : aeroports) {
+            this.aeroports.put(aeroport.getNom(), aeroport);
+        }
+        for (Compagnie compagnie : compagnies) {
+            this.compagnies.put(compagnie.getNom(), compagnie);
+        }
+        this.parallelisme = parallelisme;
+    }
+
+    /**
+     * Importe un programme de vols depuis un fichier encodé en UTF-8
+     *
+     * @param fichier le chemin du fichier
+     * @exception IllegalArgumentException si le chemin est null
+     * @exception UncheckedIOException si le fichier ne peut pas être lu
+     *
+     * @return le compte rendu de l'import
+     */
+    public RapportImport importer(Path fichier) {
+        if (fichier == null) {
+            throw new IllegalArgumentException("fichier cannot be null");
+        }
+
+        try (Reader lecteur = Files.newBufferedReader(fichier, StandardCharsets.UTF_8)) {
+            return importer(lecteur);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible de lire le programme des vols", e);
+        }
+    }
+
+    /**
+     * Importe un programme de vols depuis un flux de caractères
+     *
+     * @param source le flux à lire
+     * @exception IllegalArgumentException si le flux est null
+     * @exception UncheckedIOException si le flux ne peut pas être lu
+     *
+     * @return le compte rendu de l'import
+     */
+    public RapportImport importer(Reader source) {
+        if (source == null) {
+            throw new IllegalArgumentException("source cannot be null");
+        }
+
+        long debut = System.nanoTime();
+        // Au plus un bloc en attente par thread : au-delà, le thread de lecture analyse le bloc lui-même
+        ThreadPoolExecutor executeur = new ThreadPoolExecutor(this.parallelisme, this.parallelisme, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.parallelisme), new ThreadPoolExecutor.CallerRunsPolicy());
+        List<Future<Bloc>> blocs = new ArrayList<>();
+        try {
+            BufferedReader lecteur = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source, 1 << 16);
+            int numero = 1;
+            List<String> lignes = new ArrayList<>(TAILLE_BLOC);
+            String ligne;
+            while ((ligne = lecteur.readLine()) != null) {
+                lignes.add(ligne);
+                if (lignes.size() == TAILLE_BLOC) {
+                    Bloc bloc = new Bloc(numero, lignes);
+                    blocs.add(executeur.submit(() -> analyser(bloc)));
+                    numero += lignes.size();
+                    lignes = new ArrayList<>(TAILLE_BLOC);
+                }
+            }
+            if (!lignes.isEmpty()) {
+                Bloc bloc = new Bloc(numero, lignes);
+                blocs.add(executeur.submit(() -> analyser(bloc)));
+            }
+
+            List<Vol> vols = new ArrayList<>();
+            List<Integer> lignesVols = new ArrayList<>();
+            List<String> rejets = new ArrayList<>();
+            int nombreEscales = 0;
+            for (Future<Bloc> futur : blocs) {
+                Bloc bloc = attendre(futur);
+                vols.addAll(bloc.vols);
+                lignesVols.addAll(bloc.lignesVols);
+                rejets.addAll(bloc.rejets);
+                nombreEscales += bloc.nombreEscales;
+            }
+
+            // Les doublons sont retrouvés par identité, un doublon étant égal au vol publié à sa place
+            Set<Vol> doublons = Collections.newSetFromMap(new IdentityHashMap<>());
+            doublons.addAll(Vol.publier(vols));
+            int nombreVols = vols.size();
+            for (int i = 0; i < vols.size() && !doublons.isEmpty(); i++) {
+                Vol vol = vols.get(i);
+                if (doublons.remove(vol)) {
+                    rejets.add("ligne " + lignesVols.get(i) + " : le vol " + vol.getNumero() + " part déjà ce jour-là");
+                    nombreVols--;
+                    nombreEscales -= vol.getEscales().size();
+                }
+            }
+            return new RapportImport(nombreVols, nombreEscales, rejets, Duration.ofNanos(System.nanoTime() - debut));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible de lire le programme des vols", e);
+        } finally {
+            executeur.shutdownNow();
+        }
+    }
+
+    /**
+     * Attend le résultat de l'analyse d'un bloc
+     *
+     * @param futur l'analyse en cours
+     * @return le bloc analysé
+     */
+    private static Bloc attendre(Future<Bloc> futur) {
+        try {
+            return futur.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("L'import a été interrompu", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("L'analyse d'un bloc du programme a échoué", e.getCause());
+        }
+    }
+
+    /**
+     * Analyse un bloc de lignes et construit ses vols sans les publier
+     *
+     * @param bloc le bloc à analyser
+     * @return le bloc complété de ses vols et de ses rejets
+     */
+    private Bloc analyser(Bloc bloc) {
+        for (int i = 0; i < bloc.lignes.size(); i++) {
+            String ligne = bloc.lignes.get(i);
+            if (ligne.isBlank() || ligne.charAt(0) == '#') {
+                continue;
+            }
+            try {
+                Vol vol = construire(ligne.split(";", -1));
+                bloc.vols.add(vol);
+                bloc.lignesVols.add(bloc.premiereLigne + i);
+                bloc.nombreEscales += vol.getEscales().size();
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                bloc.rejets.add("ligne " + (bloc.premiereLigne + i) + " : " + e.getMessage());
+            }
+        }
+        bloc.lignes = null;
+        return bloc;
+    }
+
+    /**
+     * Construit un vol et ses escales à partir des champs d'une ligne, en validant toute la séquence d'un seul passage
+     *
+     * @param champs les champs de la ligne
+     * @exception IllegalArgumentException si la ligne est invalide
+     * @exception DateTimeParseException si une date est mal formée
+     *
+     * @return le vol construit
+     */
+    private Vol construire(String[] champs) {
+        if (champs.length < CHAMPS_VOL || (champs.length - CHAMPS_VOL) % CHAMPS_ESCALE != 0) {
+            throw new IllegalArgumentException("nombre de champs invalide");
+        }
+
+        String numero = champs[0];
+        if (numero.isEmpty()) {
+            throw new IllegalArgumentException("numero cannot be empty");
+        }
+        Compagnie compagnie = this.compagnies.get(champs[1]);
+        if (compagnie == null) {
+            throw new IllegalArgumentException("compagnie inconnue " + champs[1]);
+        }
+        Aeroport depart = aeroport(champs[2]);
+        Aeroport arrivee = aeroport(champs[3]);
+        ZonedDateTime dateDepart = ZonedDateTime.parse(champs[4]);
+        ZonedDateTime dateArrivee = ZonedDateTime.parse(champs[5]);
+        int places = Integer.parseInt(champs[6]);
+        double prix = Double.parseDouble(champs[7]);
+        if (places < 0) {
+            throw new IllegalArgumentException("placesDisponibles doit être positif");
+        }
+        if (prix < 0) {
+            throw new IllegalArgumentException("prix doit être positif");
+        }
+
+        // Chaque date de la séquence départ, escales, arrivée doit suivre strictement la précédente
+        Vol vol = new Vol(numero, compagnie, depart, arrivee, dateDepart, dateArrivee, places, places, prix, false);
+        ZonedDateTime precedente = dateDepart;
+        for (int c = CHAMPS_VOL; c < champs.length; c += CHAMPS_ESCALE) {
+            Aeroport aeroport = aeroport(champs[c]);
+            ZonedDateTime arriveeEscale = ZonedDateTime.parse(champs[c + 1]);
+            ZonedDateTime departEscale = ZonedDateTime.parse(champs[c + 2]);
+            if (!arriveeEscale.isAfter(precedente) || !departEscale.isAfter(arriveeEscale)) {
+                throw new IllegalArgumentException("les escales du vol " + numero + " ne sont pas dans l'ordre");
+            }
+            vol.chargerEscale(Escale.charger(vol, aeroport, arriveeEscale, departEscale));
+            precedente = departEscale;
+        }
+        if (!dateArrivee.isAfter(precedente)) {
+            throw new IllegalArgumentException("dateArrivee du vol " + numero + " doit être après son départ et ses escales");
+        }
+        return vol;
+    }
+
+    /**
+     * Retourne l'aéroport d'un nom donné
+     *
+     * @param nom le nom de l'aéroport
+     * @exception IllegalArgumentException si l'aéroport est inconnu
+     *
+     * @return l'aéroport
+     */
+    private Aeroport aeroport(String nom) {
+        Aeroport aeroport = this.aeroports.get(nom);
+        if (aeroport == null) {
+            throw new IllegalArgumentException("aeroport inconnu " + nom);
+        }
+        return aeroport;
+    }
+
+    /**
+     * Bloc de lignes analysé par une tâche
+     */
+    private static class Bloc {
+
+        /**
+         * Le numéro de la première ligne du bloc dans le fichier
+         */
+        final int premiereLigne;
+
+        /**
+         * Les lignes du bloc, libérées après l'analyse
+         */
+        List<String> lignes;
+
+        /**
+         * Les vols construits
+         */
+        final List<Vol> vols = new ArrayList<>();
+
+        /**
+         * Le numéro de ligne de chaque vol construit
+         */
+        final List<Integer> lignesVols = new ArrayList<>();
+
+        /**
+         * Les lignes rejetées
+         */
+        final List<String> rejets = new ArrayList<>();
+
+        /**
+         * Le nombre d'escales construites
+         */
+        int nombreEscales;
+
+        Bloc(int premiereLigne, List<String> lignes) {
+            this.premiereLigne = premiereLigne;
+            this.lignes = lignes;
+        }
+    }
+}
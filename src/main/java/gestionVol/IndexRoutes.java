@@ -0,0 +1,655 @@
+package gestionVol;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Classe représentant l'index global des routes entre villes. Une ville est reliée par tous ses aéroports et par
+ * les aéroports qui la desservent ; deux aéroports sont reliés directement lorsqu'un vol les enchaîne sans se poser
+ * entre eux, au départ, entre deux escales ou à l'arrivée.
+ * Aéroports et villes reçoivent des indices entiers, et les liaisons sont rangées dans des ensembles de bits.
+ * L'index est tenu à jour par {@link Vol}, {@link Escale} et {@link Aeroport} ; seules les lignes touchées par une
+ * modification sont recalculées, à leur prochaine consultation, et une requête sur une ville à jour se résume
+ * à la lecture d'un bit. Les requêtes sur des lignes à jour se font en parallèle sous le verrou de lecture ; les
+ * modifications et le recalcul d'une ligne périmée prennent le verrou d'écriture. Les vols publiés en masse sont
+ * indexés sous une seule prise du verrou
+ */
+public class IndexRoutes {
+
+    /**
+     * L'instance unique de l'index
+     */
+    private static final IndexRoutes INSTANCE = new IndexRoutes();
+
+    /**
+     * Le verrou de l'index, non réentrant : les méthodes privées supposent qu'il est déjà pris
+     */
+    private final StampedLock verrou = new StampedLock();
+
+    /**
+     * L'indice de chaque aéroport
+     */
+    private final Map<Aeroport, Integer> indicesAeroports = new HashMap<>();
+
+    /**
+     * L'indice de chaque ville
+     */
+    private final Map<Ville, Integer> indicesVilles = new HashMap<>();
+
+    /**
+     * Les aéroports, par indice
+     */
+    private final List<Aeroport> aeroports = new ArrayList<>();
+
+    /**
+     * Les indices libérés par les aéroports supprimés, à réutiliser
+     */
+    private final Deque<Integer> aeroportsLibres = new ArrayDeque<>();
+
+    /**
+     * Les indices libérés par les villes qui ne sont plus reliées par aucun aéroport, à réutiliser
+     */
+    private final Deque<Integer> villesLibres = new ArrayDeque<>();
+
+    /**
+     * Le nombre de tronçons de vol reliant chaque couple d'aéroports, par clé de couple
+     */
+    private final CompteursTroncons troncons = new CompteursTroncons();
+
+    /**
+     * Les aéroports reliés directement depuis chaque aéroport
+     */
+    private final List<BitSet> successeurs = new ArrayList<>();
+
+    /**
+     * Les aéroports reliés directement à chaque aéroport
+     */
+    private final List<BitSet> predecesseurs = new ArrayList<>();
+
+    /**
+     * Les villes desservies par chaque aéroport, y compris la sienne
+     */
+    private final List<BitSet> villesAeroport = new ArrayList<>();
+
+    /**
+     * Les aéroports atteignables depuis chaque aéroport avec au plus une correspondance
+     */
+    private final List<BitSet> accessibles = new ArrayList<>();
+
+    /**
+     * Les aéroports dont l'ensemble des aéroports atteignables est à recalculer
+     */
+    private final BitSet aeroportsPerimes = new BitSet();
+
+    /**
+     * Les aéroports reliant chaque ville
+     */
+    private final List<BitSet> aeroportsVille = new ArrayList<>();
+
+    /**
+     * Les villes reliées directement depuis chaque ville
+     */
+    private final List<BitSet> directesVille = new ArrayList<>();
+
+    /**
+     * Les villes atteignables depuis chaque ville avec au plus une correspondance
+     */
+    private final List<BitSet> routesVille = new ArrayList<>();
+
+    /**
+     * Les villes dont les liaisons sont à recalculer
+     */
+    private final BitSet villesPerimees = new BitSet();
+
+    /**
+     * Constructeur de la classe IndexRoutes
+     */
+    private IndexRoutes() {
+    }
+
+    /**
+     * Retourne l'index global des routes
+     *
+     * @return l'index des routes
+     */
+    public static IndexRoutes getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Retourne si un vol relie directement deux villes
+     *
+     * @param origine la ville de départ
+     * @param destination la ville d'arrivée
+     * @exception IllegalArgumentException si une des villes est null
+     *
+     * @return true si un tronçon de vol relie un aéroport de la ville de départ à un aéroport de la ville d'arrivée
+     */
+    public boolean existeLiaisonDirecte(Ville origine, Ville destination) {
+        if (origine == null || destination == null) {
+            throw new IllegalArgumentException("origine and destination cannot be null");
+        }
+
+        return lireLiaison(origine, destination, this.directesVille);
+    }
+
+    /**
+     * Retourne s'il existe une route entre deux villes, directe ou avec une correspondance
+     *
+     * @param origine la ville de départ
+     * @param destination la ville d'arrivée
+     * @exception IllegalArgumentException si une des villes est null
+     *
+     * @return true si la ville d'arrivée est atteignable depuis la ville de départ avec au plus une correspondance
+     */
+    public boolean existeRoute(Ville origine, Ville destination) {
+        if (origine == null || destination == null) {
+            throw new IllegalArgumentException("origine and destination cannot be null");
+        }
+
+        return lireLiaison(origine, destination, this.routesVille);
+    }
+
+    /**
+     * Lit la liaison entre deux villes dans une ligne de villes, sous le verrou de lecture si la ligne de la ville
+     * de départ est à jour, sinon sous le verrou d'écriture après l'avoir recalculée
+     *
+     * @param origine la ville de départ
+     * @param destination la ville d'arrivée
+     * @param liaisons les villes reliées depuis chaque ville, directement ou avec une correspondance
+     * @return true si la ville d'arrivée figure dans la ligne de la ville de départ
+     */
+    private boolean lireLiaison(Ville origine, Ville destination, List<BitSet> liaisons) {
+        long lecture = this.verrou.readLock();
+        try {
+            Integer depart = this.indicesVilles.get(origine);
+            Integer arrivee = this.indicesVilles.get(destination);
+            if (depart == null || arrivee == null) {
+                return false;
+            }
+            if (!this.villesPerimees.get(depart)) {
+                return liaisons.get(depart).get(arrivee);
+            }
+        } finally {
+            this.verrou.unlockRead(lecture);
+        }
+
+        long ecriture = this.verrou.writeLock();
+        try {
+            Integer depart = this.indicesVilles.get(origine);
+            Integer arrivee = this.indicesVilles.get(destination);
+            if (depart == null || arrivee == null) {
+                return false;
+            }
+            actualiserVille(depart);
+            return liaisons.get(depart).get(arrivee);
+        } finally {
+            this.verrou.unlockWrite(ecriture);
+        }
+    }
+
+    /**
+     * Retourne les aéroports de la ville de départ d'où l'on peut atteindre la ville d'arrivée avec au plus une
+     * correspondance
+     *
+     * @param origine la ville de départ
+     * @param destination la ville d'arrivée
+     * @exception IllegalArgumentException si une des villes est null
+     *
+     * @return les aéroports de départ desservant la ville d'arrivée
+     */
+    public List<Aeroport> getAeroportsServant(Ville origine, Ville destination) {
+        if (origine == null || destination == null) {
+            throw new IllegalArgumentException("origine and destination cannot be null");
+        }
+
+        long lecture = this.verrou.readLock();
+        try {
+            Integer depart = this.indicesVilles.get(origine);
+            if (depart == null || !this.aeroportsVille.get(depart).intersects(this.aeroportsPerimes)) {
+                return aeroportsServant(origine, destination);
+            }
+        } finally {
+            this.verrou.unlockRead(lecture);
+        }
+
+        long ecriture = this.verrou.writeLock();
+        try {
+            Integer depart = this.indicesVilles.get(origine);
+            if (depart != null) {
+                BitSet sources = this.aeroportsVille.get(depart);
+                for (int a = sources.nextSetBit(0); a >= 0; a = sources.nextSetBit(a + 1)) {
+                    actualiserAeroport(a);
+                }
+            }
+            return aeroportsServant(origine, destination);
+        } finally {
+            this.verrou.unlockWrite(ecriture);
+        }
+    }
+
+    /**
+     * Retourne les aéroports de la ville de départ d'où l'on peut atteindre la ville d'arrivée, sous un verrou de
+     * l'index et les aéroports de la ville de départ étant à jour
+     *
+     * @param origine la ville de départ
+     * @param destination la ville d'arrivée
+     * @return les aéroports de départ desservant la ville d'arrivée
+     */
+    private List<Aeroport> aeroportsServant(Ville origine, Ville destination) {
+        List<Aeroport> resultat = new ArrayList<>();
+        Integer depart = this.indicesVilles.get(origine);
+        Integer arrivee = this.indicesVilles.get(destination);
+        if (depart == null || arrivee == null) {
+            return resultat;
+        }
+        BitSet cibles = this.aeroportsVille.get(arrivee);
+        BitSet sources = this.aeroportsVille.get(depart);
+        for (int a = sources.nextSetBit(0); a >= 0; a = sources.nextSetBit(a + 1)) {
+            if (this.accessibles.get(a).intersects(cibles)) {
+                resultat.add(this.aeroports.get(a));
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Vide l'index, avant de recharger le programme des vols. Les tronçons des vols indexés avant le vidage
+     * sont ensuite ignorés s'ils sont retirés
+     */
+    public void vider() {
+        long ecriture = this.verrou.writeLock();
+        try {
+            this.indicesAeroports.clear();
+            this.indicesVilles.clear();
+            this.aeroports.clear();
+            this.aeroportsLibres.clear();
+            this.villesLibres.clear();
+            this.troncons.vider();
+            this.successeurs.clear();
+            this.predecesseurs.clear();
+            this.villesAeroport.clear();
+            this.accessibles.clear();
+            this.aeroportsPerimes.clear();
+            this.aeroportsVille.clear();
+            this.directesVille.clear();
+            this.routesVille.clear();
+            this.villesPerimees.clear();
+        } finally {
+            this.verrou.unlockWrite(ecriture);
+        }
+    }
+
+    /**
+     * Ajoute les tronçons d'un vol à l'index
+     *
+     * @param vol le vol
+     */
+    void ajouterVol(Vol vol) {
+        long ecriture = this.verrou.writeLock();
+        try {
+            indexerVol(vol, 1);
+        } finally {
+            this.verrou.unlockWrite(ecriture);
+        }
+    }
+
+    /**
+     * Ajoute d'un bloc les tronçons de vols publiés en masse à l'index
+     *
+     * @param vols les vols
+     */
+    void ajouterVols(Collection<Vol> vols) {
+        long ecriture = this.verrou.writeLock();
+        try {
+            for (Vol vol : vols) {
+                indexerVol(vol, 1);
+            }
+        } finally {
+            this.verrou.unlockWrite(ecriture);
+        }
+    }
+
+    /**
+     * Retire les tronçons d'un vol de l'index
+     *
+     * @param vol le vol
+     */
+    void retirerVol(Vol vol) {
+        long ecriture = this.verrou.writeLock();
+        try {
+            indexerVol(vol, -1);
+        } finally {
+            this.verrou.unlockWrite(ecriture);
+        }
+    }
+
+    /**
+     * Ajoute ou retire les tronçons d'un vol, sous le verrou d'écriture
+     *
+     * @param vol le vol
+     * @param variation 1 pour ajouter les tronçons, -1 pour les retirer
+     */
+    private void indexerVol(Vol vol, int variation) {
+        Aeroport precedent = vol.getDepart();
+        for (Escale escale : vol.tableauEscales()) {
+            modifierTroncon(precedent, escale.getAeroport(), variation);
+            precedent = escale.getAeroport();
+        }
+        modifierTroncon(precedent, vol.getArrivee(), variation);
+    }
+
+    /**
+     * Ajoute un arrêt entre deux arrêts consécutifs d'un vol
+     *
+     * @param avant l'arrêt précédent
+     * @param arret le nouvel arrêt
+     * @param apres l'arrêt suivant
+     */
+    void insererArret(Aeroport avant, Aeroport arret, Aeroport apres) {
+        long ecriture = this.verrou.writeLock();
+        try {
+            modifierTroncon(avant, apres, -1);
+            modifierTroncon(avant, arret, 1);
+            modifierTroncon(arret, apres, 1);
+        } finally {
+            this.verrou.unlockWrite(ecriture);
+        }
+    }
+
+    /**
+     * Retire un arrêt d'un vol, dont les arrêts voisins deviennent consécutifs
+     *
+     * @param avant l'arrêt précédent
+     * @param arret l'arrêt retiré
+     * @param apres l'arrêt suivant
+     */
+    void retirerArret(Aeroport avant, Aeroport arret, Aeroport apres) {
+        long ecriture = this.verrou.writeLock();
+        try {
+            modifierTroncon(avant, arret, -1);
+            modifierTroncon(arret, apres, -1);
+            modifierTroncon(avant, apres, 1);
+        } finally {
+            this.verrou.unlockWrite(ecriture);
+        }
+    }
+
+    /**
+     * Remplace l'aéroport d'un arrêt d'un vol
+     *
+     * @param avant l'arrêt précédent, null pour le départ du vol
+     * @param ancien l'ancien aéroport de l'arrêt
+     * @param nouveau le nouvel aéroport de l'arrêt
+     * @param apres l'arrêt suivant, null pour l'arrivée du vol
+     */
+    void deplacerArret(Aeroport avant, Aeroport ancien, Aeroport nouveau, Aeroport apres) {
+        long ecriture = this.verrou.writeLock();
+        try {
+            if (avant != null) {
+                modifierTroncon(avant, ancien, -1);
+                modifierTroncon(avant, nouveau, 1);
+            }
+            if (apres != null) {
+                modifierTroncon(ancien, apres, -1);
+                modifierTroncon(nouveau, apres, 1);
+            }
+        } finally {
+            this.verrou.unlockWrite(ecriture);
+        }
+    }
+
+    /**
+     * Ajoute une ville à celles que relie un aéroport. Sans effet si l'aéroport n'est pas encore indexé :
+     * ses villes sont lues lors de son premier tronçon
+     *
+     * @param aeroport l'aéroport
+     * @param ville la ville reliée
+     */
+    void relier(Aeroport aeroport, Ville ville) {
+        long ecriture = this.verrou.writeLock();
+        try {
+            Integer a = this.indicesAeroports.get(aeroport);
+            if (a != null) {
+                relier(a, ville);
+            }
+        } finally {
+            this.verrou.unlockWrite(ecriture);
+        }
+    }
+
+    /**
+     * Ajoute une ville à celles que relie un aéroport indexé, sous le verrou d'écriture
+     *
+     * @param a l'indice de l'aéroport
+     * @param ville la ville reliée
+     */
+    private void relier(int a, Ville ville) {
+        int v = indice(ville);
+        this.villesAeroport.get(a).set(v);
+        this.aeroportsVille.get(v).set(a);
+        this.villesPerimees.set(v);
+        perimerVillesVers(a);
+    }
+
+    /**
+     * Retire une ville de celles que relie un aéroport
+     *
+     * @param aeroport l'aéroport
+     * @param ville la ville qui n'est plus reliée
+     */
+    void delier(Aeroport aeroport, Ville ville) {
+        long ecriture = this.verrou.writeLock();
+        try {
+            Integer a = this.indicesAeroports.get(aeroport);
+            Integer v = this.indicesVilles.get(ville);
+            if (a == null || v == null) {
+                return;
+            }
+            this.villesAeroport.get(a).clear(v);
+            this.aeroportsVille.get(v).clear(a);
+            if (this.aeroportsVille.get(v).isEmpty()) {
+                this.indicesVilles.remove(ville);
+                this.directesVille.set(v, new BitSet());
+                this.routesVille.set(v, new BitSet());
+                this.villesPerimees.clear(v);
+                this.villesLibres.push(v);
+            } else {
+                this.villesPerimees.set(v);
+            }
+            perimerVillesVers(a);
+        } finally {
+            this.verrou.unlockWrite(ecriture);
+        }
+    }
+
+    /**
+     * Retire de l'index un aéroport supprimé, dont les villes ont déjà été déliées et qui n'a plus de vol
+     *
+     * @param aeroport l'aéroport supprimé
+     */
+    void oublier(Aeroport aeroport) {
+        long ecriture = this.verrou.writeLock();
+        try {
+            Integer a = this.indicesAeroports.remove(aeroport);
+            if (a == null) {
+                return;
+            }
+            this.aeroports.set(a, null);
+            this.successeurs.get(a).clear();
+            this.predecesseurs.get(a).clear();
+            this.villesAeroport.get(a).clear();
+            this.accessibles.get(a).clear();
+            this.aeroportsPerimes.clear(a);
+            this.aeroportsLibres.push(a);
+        } finally {
+            this.verrou.unlockWrite(ecriture);
+        }
+    }
+
+    /**
+     * Ajoute ou retire un tronçon entre deux aéroports, et périme les lignes dont les liaisons changent
+     *
+     * @param depart l'aéroport de départ du tronçon
+     * @param arrivee l'aéroport d'arrivée du tronçon
+     * @param variation 1 pour un tronçon ajouté, -1 pour un tronçon retiré
+     */
+    private void modifierTroncon(Aeroport depart, Aeroport arrivee, int variation) {
+        int d = indice(depart);
+        int a = indice(arrivee);
+        // Un tronçon inconnu retiré vient d'un vol indexé avant un vidage, et reste absent
+        boolean relies = this.troncons.ajouter(((long) d << 32) | a, variation) > 0;
+        if (relies == this.successeurs.get(d).get(a)) {
+            return;
+        }
+
+        this.successeurs.get(d).set(a, relies);
+        this.predecesseurs.get(a).set(d, relies);
+        // Les aéroports atteignables changent pour le départ du tronçon et pour tous ceux qui y mènent
+        perimerAeroport(d);
+        BitSet amont = this.predecesseurs.get(d);
+        for (int p = amont.nextSetBit(0); p >= 0; p = amont.nextSetBit(p + 1)) {
+            perimerAeroport(p);
+        }
+    }
+
+    /**
+     * Périme les aéroports atteignables depuis un aéroport et les liaisons des villes qu'il relie
+     *
+     * @param aeroport l'indice de l'aéroport
+     */
+    private void perimerAeroport(int aeroport) {
+        this.aeroportsPerimes.set(aeroport);
+        this.villesPerimees.or(this.villesAeroport.get(aeroport));
+    }
+
+    /**
+     * Périme les liaisons des villes qui atteignent un aéroport, après un changement des villes qu'il relie :
+     * les villes de l'aéroport, celles de ses prédécesseurs, qui le relient directement, et celles des prédécesseurs
+     * de ceux-ci, qui l'atteignent avec une correspondance
+     *
+     * @param aeroport l'indice de l'aéroport
+     */
+    private void perimerVillesVers(int aeroport) {
+        this.villesPerimees.or(this.villesAeroport.get(aeroport));
+        BitSet amont = this.predecesseurs.get(aeroport);
+        for (int p = amont.nextSetBit(0); p >= 0; p = amont.nextSetBit(p + 1)) {
+            this.villesPerimees.or(this.villesAeroport.get(p));
+            BitSet amontP = this.predecesseurs.get(p);
+            for (int q = amontP.nextSetBit(0); q >= 0; q = amontP.nextSetBit(q + 1)) {
+                this.villesPerimees.or(this.villesAeroport.get(q));
+            }
+        }
+    }
+
+    /**
+     * Recalcule les aéroports atteignables depuis un aéroport s'ils sont périmés
+     *
+     * @param aeroport l'indice de l'aéroport
+     */
+    private void actualiserAeroport(int aeroport) {
+        if (!this.aeroportsPerimes.get(aeroport)) {
+            return;
+        }
+        BitSet directs = this.successeurs.get(aeroport);
+        BitSet atteignables = (BitSet) directs.clone();
+        for (int s = directs.nextSetBit(0); s >= 0; s = directs.nextSetBit(s + 1)) {
+            atteignables.or(this.successeurs.get(s));
+        }
+        this.accessibles.set(aeroport, atteignables);
+        this.aeroportsPerimes.clear(aeroport);
+    }
+
+    /**
+     * Recalcule les liaisons d'une ville si elles sont périmées
+     *
+     * @param ville l'indice de la ville
+     */
+    private void actualiserVille(int ville) {
+        if (!this.villesPerimees.get(ville)) {
+            return;
+        }
+        BitSet directes = new BitSet();
+        BitSet routes = new BitSet();
+        BitSet sources = this.aeroportsVille.get(ville);
+        for (int a = sources.nextSetBit(0); a >= 0; a = sources.nextSetBit(a + 1)) {
+            actualiserAeroport(a);
+            BitSet successeursA = this.successeurs.get(a);
+            for (int s = successeursA.nextSetBit(0); s >= 0; s = successeursA.nextSetBit(s + 1)) {
+                directes.or(this.villesAeroport.get(s));
+            }
+            BitSet accessiblesA = this.accessibles.get(a);
+            for (int s = accessiblesA.nextSetBit(0); s >= 0; s = accessiblesA.nextSetBit(s + 1)) {
+                routes.or(this.villesAeroport.get(s));
+            }
+        }
+        this.directesVille.set(ville, directes);
+        this.routesVille.set(ville, routes);
+        this.villesPerimees.clear(ville);
+    }
+
+    /**
+     * Retourne l'indice d'un aéroport, en l'enregistrant avec sa ville et les villes qu'il dessert s'il est nouveau
+     *
+     * @param aeroport l'aéroport
+     * @return l'indice de l'aéroport
+     */
+    private int indice(Aeroport aeroport) {
+        Integer indice = this.indicesAeroports.get(aeroport);
+        if (indice != null) {
+            return indice;
+        }
+        int a;
+        if (this.aeroportsLibres.isEmpty()) {
+            a = this.aeroports.size();
+            this.aeroports.add(aeroport);
+            this.successeurs.add(new BitSet());
+            this.predecesseurs.add(new BitSet());
+            this.villesAeroport.add(new BitSet());
+            this.accessibles.add(new BitSet());
+        } else {
+            a = this.aeroportsLibres.pop();
+            this.aeroports.set(a, aeroport);
+        }
+        this.indicesAeroports.put(aeroport, a);
+        if (aeroport.getVille() != null) {
+            relier(a, aeroport.getVille());
+        }
+        for (Ville ville : aeroport.getVillesDesservies()) {
+            relier(a, ville);
+        }
+        return a;
+    }
+
+    /**
+     * Retourne l'indice d'une ville, en l'enregistrant si elle est nouvelle
+     *
+     * @param ville la ville
+     * @return l'indice de la ville
+     */
+    private int indice(Ville ville) {
+        Integer indice = this.indicesVilles.get(ville);
+        if (indice != null) {
+            return indice;
+        }
+        int v;
+        if (this.villesLibres.isEmpty()) {
+            v = this.aeroportsVille.size();
+            this.aeroportsVille.add(new BitSet());
+            this.directesVille.add(new BitSet());
+            this.routesVille.add(new BitSet());
+        } else {
+            v = this.villesLibres.pop();
+        }
+        this.indicesVilles.put(ville, v);
+        this.villesPerimees.set(v);
+        return v;
+    }
+}
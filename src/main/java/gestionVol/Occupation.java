@@ -0,0 +1,145 @@
+package gestionVol;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Classe représentant une période pendant laquelle un avion est au sol dans un aéroport : la durée d'une escale,
+ * ou la rotation avant le départ ou après l'arrivée d'un vol. Les occupations d'un aéroport forment les noeuds
+ * de son arbre d'intervalles
+ */
+public class Occupation {
+
+    /**
+     * Les causes d'occupation du sol
+     */
+    public enum Nature {
+        /**
+         * Un vol faisant escale, de son arrivée à son départ de l'escale
+         */
+        ESCALE,
+        /**
+         * Un vol préparé avant son départ, pendant la durée de rotation de l'aéroport
+         */
+        DEPART,
+        /**
+         * Un vol débarqué après son arrivée, pendant la durée de rotation de l'aéroport
+         */
+        ARRIVEE
+    }
+
+    private final Nature nature;
+
+    private final Vol vol;
+
+    private final Escale escale;
+
+    /**
+     * Le début de l'occupation, inclus, en nanosecondes depuis l'epoch
+     */
+    final long debutNanos;
+
+    /**
+     * La fin de l'occupation, exclue, en nanosecondes depuis l'epoch
+     */
+    final long finNanos;
+
+    private final ZoneId fuseau;
+
+    /**
+     * La plus grande fin des occupations du sous-arbre
+     */
+    long finMax;
+
+    /**
+     * La priorité du noeud, qui équilibre l'arbre
+     */
+    final int priorite;
+
+    Occupation gauche;
+
+    Occupation droite;
+
+    /**
+     * Constructeur de la classe Occupation
+     *
+     * @param nature la cause de l'occupation
+     * @param vol le vol au sol
+     * @param escale l'escale, null s'il s'agit d'une rotation
+     * @param debutNanos le début de l'occupation en nanosecondes depuis l'epoch
+     * @param finNanos la fin de l'occupation en nanosecondes depuis l'epoch
+     * @param fuseau le fuseau dans lequel exprimer les dates
+     * @param priorite la priorité du noeud
+     */
+    Occupation(Nature nature, Vol vol, Escale escale, long debutNanos, long finNanos, ZoneId fuseau, int priorite) {
+        this.nature = nature;
+        this.vol = vol;
+        this.escale = escale;
+        this.debutNanos = debutNanos;
+        this.finNanos = finNanos;
+        this.fuseau = fuseau;
+        this.finMax = finNanos;
+        this.priorite = priorite;
+    }
+
+    /**
+     * Retourne la cause de l'occupation
+     *
+     * @return la cause de l'occupation
+     */
+    public Nature getNature() {
+        return nature;
+    }
+
+    /**
+     * Retourne le vol au sol
+     *
+     * @return le vol au sol
+     */
+    public Vol getVol() {
+        return vol;
+    }
+
+    /**
+     * Retourne l'escale occupant le sol
+     *
+     * @return l'escale, null s'il s'agit d'une rotation
+     */
+    public Escale getEscale() {
+        return escale;
+    }
+
+    /**
+     * Retourne le début de l'occupation
+     *
+     * @return le début de l'occupation, inclus
+     */
+    public ZonedDateTime getDebut() {
+        return Horodatage.date(debutNanos, fuseau);
+    }
+
+    /**
+     * Retourne la fin de l'occupation
+     *
+     * @return la fin de l'occupation, exclue
+     */
+    public ZonedDateTime getFin() {
+        return Horodatage.date(finNanos, fuseau);
+    }
+
+    /**
+     * Retourne si l'occupation concerne un élément donné
+     *
+     * @param nature la cause de l'occupation
+     * @param element le vol ou l'escale
+     * @return true si l'occupation est celle de l'élément, false sinon
+     */
+    boolean concerne(Nature nature, Object element) {
+        return this.nature == nature && (nature == Nature.ESCALE ? this.escale == element : this.vol == element);
+    }
+
+    @Override
+    public String toString() {
+        return nature + " " + vol.getNumero() + " [" + getDebut() + ", " + getFin() + ")";
+    }
+}
@@ -0,0 +1,366 @@
+package gestionVol;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Classe représentant le plan de cabine d'un vol : des rangées numérotées à partir de 1, ayant toutes la même
+ * disposition de sièges, par exemple "ABC DEF" pour deux blocs de trois sièges séparés par une allée.
+ * Deux sièges sont adjacents s'ils se suivent dans un même bloc d'une même rangée.
+ * L'occupation est rangée dans des mots de 64 bits, plusieurs rangées entières par mot ; les bits ne correspondant
+ * à aucun siège sont marqués occupés une fois pour toutes. Un groupe de sièges adjacents libres se trouve par
+ * quelques opérations sur chaque mot, et se prend par compare-and-set sur ce mot, sans verrou.
+ * Un plan n'appartient qu'à un seul vol, dont il compte exactement la capacité
+ */
+public class PlanSieges {
+
+    /**
+     * Le nombre de rangées
+     */
+    private final int nombreRangees;
+
+    /**
+     * La disposition d'une rangée, les espaces marquant les allées
+     */
+    private final String disposition;
+
+    /**
+     * Les lettres des sièges d'une rangée, dans l'ordre
+     */
+    private final char[] lettres;
+
+    /**
+     * Le nombre de rangées rangées dans chaque mot
+     */
+    private final int rangeesParMot;
+
+    /**
+     * Pour chaque taille de groupe, les bits d'un mot où un groupe de cette taille peut commencer sans changer de
+     * bloc ni de rangée ; 0 pour les tailles supérieures au plus grand bloc
+     */
+    private final long[] debutsPossibles;
+
+    /**
+     * L'occupation des sièges, un bit à 1 par siège occupé ou inexistant
+     */
+    private final AtomicLongArray occupation;
+
+    /**
+     * Le vol auquel le plan a été donné, null tant qu'il n'a été donné à aucun vol
+     */
+    private final AtomicReference<Vol> vol = new AtomicReference<>();
+
+    /**
+     * Constructeur de la classe PlanSieges
+     *
+     * @param nombreRangees le nombre de rangées de la cabine
+     * @param disposition les lettres des sièges d'une rangée, des espaces séparant les blocs
+     * @exception IllegalArgumentException si la disposition est null
+     * @exception IllegalArgumentException si le nombre de rangées n'est pas strictement positif
+     * @exception IllegalArgumentException si la disposition ne contient aucun siège, plus de 64 sièges ou deux fois la même lettre
+     */
+    public PlanSieges(int nombreRangees, String disposition) {
+        if (disposition == null) {
+            throw new IllegalArgumentException("disposition cannot be null");
+        }
+        if (nombreRangees <= 0) {
+            throw new IllegalArgumentException("nombreRangees doit être strictement positif");
+        }
+        String sieges = disposition.replace(" ", "");
+        if (sieges.isEmpty() || sieges.length() > Long.SIZE) {
+            throw new IllegalArgumentException("une rangée doit compter entre 1 et 64 sièges");
+        }
+        if (sieges.chars().distinct().count() != sieges.length()) {
+            throw new IllegalArgumentException("une lettre de siège ne peut apparaître qu'une fois par rangée");
+        }
+
+        this.nombreRangees = nombreRangees;
+        this.disposition = disposition;
+        this.lettres = sieges.toCharArray();
+        int largeur = this.lettres.length;
+        this.rangeesParMot = Long.SIZE / largeur;
+
+        // Débuts possibles dans une rangée pour chaque taille de groupe, bloc par bloc
+        long[] debutsRangee = new long[largeur + 1];
+        int colonne = 0;
+        for (String bloc : disposition.trim().split(" +")) {
+            for (int taille = 1; taille <= bloc.length(); taille++) {
+                for (int debut = colonne; debut + taille <= colonne + bloc.length(); debut++) {
+                    debutsRangee[taille] |= 1L << debut;
+                }
+            }
+            colonne += bloc.length();
+        }
+        this.debutsPossibles = new long[largeur + 1];
+        for (int taille = 1; taille <= largeur; taille++) {
+            for (int k = 0; k < this.rangeesParMot; k++) {
+                this.debutsPossibles[taille] |= debutsRangee[taille] << (k * largeur);
+            }
+        }
+
+        int nombreMots = (nombreRangees + this.rangeesParMot - 1) / this.rangeesParMot;
+        this.occupation = new AtomicLongArray(nombreMots);
+        for (int mot = 0; mot < nombreMots; mot++) {
+            int rangees = Math.min(this.rangeesParMot, nombreRangees - mot * this.rangeesParMot);
+            int bits = rangees * largeur;
+            this.occupation.set(mot, bits == Long.SIZE ? 0L : -1L << bits);
+        }
+    }
+
+    /**
+     * Retourne le nombre de rangées de la cabine
+     *
+     * @return le nombre de rangées
+     */
+    public int getNombreRangees() {
+        return nombreRangees;
+    }
+
+    /**
+     * Retourne la disposition d'une rangée
+     *
+     * @return les lettres des sièges d'une rangée, des espaces séparant les blocs
+     */
+    public String getDisposition() {
+        return disposition;
+    }
+
+    /**
+     * Retourne le vol auquel le plan a été donné
+     *
+     * @return le vol du plan, null si le plan n'a été donné à aucun vol
+     */
+    public Vol getVol() {
+        return vol.get();
+    }
+
+    /**
+     * Retourne le nombre de sièges de la cabine
+     *
+     * @return le nombre de sièges
+     */
+    public int getNombreSieges() {
+        return nombreRangees * lettres.length;
+    }
+
+    /**
+     * Retourne le nombre de sièges libres de la cabine
+     *
+     * @return le nombre de sièges libres
+     */
+    public int getNombreSiegesLibres() {
+        int occupes = 0;
+        for (int mot = 0; mot < occupation.length(); mot++) {
+            occupes += Long.bitCount(occupation.get(mot));
+        }
+        return occupation.length() * Long.SIZE - occupes;
+    }
+
+    /**
+     * Retourne si un siège est libre
+     *
+     * @param siege le libellé du siège, par exemple "12C"
+     * @exception IllegalArgumentException si le siège n'existe pas dans la cabine
+     *
+     * @return true si le siège est libre, false sinon
+     */
+    public boolean isLibre(String siege) {
+        int indice = indice(siege);
+        return (occupation.get(mot(indice)) & (1L << bit(indice))) == 0;
+    }
+
+    /**
+     * Attribue des sièges à un groupe, adjacents autant que possible : le groupe est découpé en sous-groupes aussi
+     * grands que le permettent les blocs de la cabine et les sièges libres, en commençant par l'avant de la cabine
+     *
+     * @param nombre le nombre de sièges à attribuer
+     * @exception IllegalArgumentException si le nombre de sièges n'est pas strictement positif
+     *
+     * @return les indices des sièges attribués, null si la cabine n'a plus assez de sièges libres
+     */
+    public int[] attribuer(int nombre) {
+        if (nombre <= 0) {
+            throw new IllegalArgumentException("nombre doit être strictement positif");
+        }
+
+        int[] sieges = new int[nombre];
+        int attribues = 0;
+        int taille = Math.min(nombre, lettres.length);
+        while (attribues < nombre) {
+            taille = Math.min(taille, nombre - attribues);
+            while (taille > 0 && debutsPossibles[taille] == 0) {
+                taille--;
+            }
+            int premier = taille == 0 ? -1 : prendreGroupe(taille);
+            if (premier >= 0) {
+                for (int i = 0; i < taille; i++) {
+                    sieges[attribues++] = premier + i;
+                }
+            } else if (taille > 1) {
+                // Plus aucun groupe de cette taille : le reste du groupe est placé en sous-groupes plus petits
+                taille--;
+            } else {
+                for (int i = 0; i < attribues; i++) {
+                    liberer(sieges[i]);
+                }
+                return null;
+            }
+        }
+        return sieges;
+    }
+
+    /**
+     * Libère des sièges attribués. Sans effet sur un siège déjà libre
+     *
+     * @param sieges les indices des sièges à libérer
+     * @exception IllegalArgumentException si les sièges sont null
+     */
+    public void liberer(int[] sieges) {
+        if (sieges == null) {
+            throw new IllegalArgumentException("sieges cannot be null");
+        }
+
+        for (int siege : sieges) {
+            liberer(siege);
+        }
+    }
+
+    /**
+     * Marque occupés des sièges précis, par exemple ceux d'une réservation relue dans le journal ou une photographie.
+     * Rien n'est pris si un des sièges est déjà occupé
+     *
+     * @param sieges les indices des sièges à occuper
+     * @exception IllegalArgumentException si les sièges sont null ou si un siège n'existe pas dans la cabine
+     *
+     * @return true si les sièges ont été pris, false si l'un d'eux était déjà occupé
+     */
+    public boolean occuper(int[] sieges) {
+        if (sieges == null) {
+            throw new IllegalArgumentException("sieges cannot be null");
+        }
+        for (int siege : sieges) {
+            if (siege < 0 || siege >= getNombreSieges()) {
+                throw new IllegalArgumentException("Le siège n'existe pas dans la cabine");
+            }
+        }
+
+        for (int i = 0; i < sieges.length; i++) {
+            int mot = mot(sieges[i]);
+            long masque = 1L << bit(sieges[i]);
+            long occupe;
+            do {
+                occupe = occupation.get(mot);
+                if ((occupe & masque) != 0) {
+                    for (int j = 0; j < i; j++) {
+                        liberer(sieges[j]);
+                    }
+                    return false;
+                }
+            } while (!occupation.compareAndSet(mot, occupe, occupe | masque));
+        }
+        return true;
+    }
+
+    /**
+     * Retourne le libellé d'un siège, son numéro de rangée suivi de sa lettre
+     *
+     * @param siege l'indice du siège
+     * @exception IllegalArgumentException si le siège n'existe pas dans la cabine
+     *
+     * @return le libellé du siège, par exemple "12C"
+     */
+    public String libelle(int siege) {
+        if (siege < 0 || siege >= getNombreSieges()) {
+            throw new IllegalArgumentException("Le siège n'existe pas dans la cabine");
+        }
+        return (siege / lettres.length + 1) + String.valueOf(lettres[siege % lettres.length]);
+    }
+
+    /**
+     * Retourne l'indice d'un siège d'après son libellé
+     *
+     * @param siege le libellé du siège, par exemple "12C"
+     * @exception IllegalArgumentException si le siège est null ou n'existe pas dans la cabine
+     *
+     * @return l'indice du siège
+     */
+    public int indice(String siege) {
+        if (siege == null || siege.length() < 2) {
+            throw new IllegalArgumentException("Le siège n'existe pas dans la cabine");
+        }
+        int colonne = new String(lettres).indexOf(siege.charAt(siege.length() - 1));
+        int rangee;
+        try {
+            rangee = Integer.parseInt(siege.substring(0, siege.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Le siège n'existe pas dans la cabine");
+        }
+        if (colonne < 0 || rangee < 1 || rangee > nombreRangees) {
+            throw new IllegalArgumentException("Le siège n'existe pas dans la cabine");
+        }
+        return (rangee - 1) * lettres.length + colonne;
+    }
+
+    /**
+     * Donne le plan à un vol. Un plan donné à un vol ne peut plus l'être à un autre, même remplacé ensuite,
+     * car des sièges peuvent encore y être pris par ses réservations
+     *
+     * @param vol le vol
+     * @return true si le plan est celui du vol, false s'il a déjà été donné à un autre vol
+     */
+    boolean attacher(Vol vol) {
+        return this.vol.compareAndSet(null, vol) || this.vol.get() == vol;
+    }
+
+    /**
+     * Prend le premier groupe de sièges adjacents libres d'une taille donnée
+     *
+     * @param taille la taille du groupe, au plus celle du plus grand bloc
+     * @return l'indice du premier siège du groupe, -1 si aucun groupe de cette taille n'est libre
+     */
+    private int prendreGroupe(int taille) {
+        long groupe = taille == Long.SIZE ? -1L : (1L << taille) - 1;
+        for (int mot = 0; mot < occupation.length(); mot++) {
+            while (true) {
+                long occupe = occupation.get(mot);
+                // Un bit reste à 1 là où commencent taille sièges libres consécutifs
+                long libres = ~occupe;
+                long debuts = libres;
+                for (int decalage = 1; decalage < taille && debuts != 0; decalage++) {
+                    debuts &= libres >>> decalage;
+                }
+                debuts &= debutsPossibles[taille];
+                if (debuts == 0) {
+                    break;
+                }
+                int bit = Long.numberOfTrailingZeros(debuts);
+                if (occupation.compareAndSet(mot, occupe, occupe | (groupe << bit))) {
+                    return mot * rangeesParMot * lettres.length + bit;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void liberer(int siege) {
+        int mot = mot(siege);
+        long masque = 1L << bit(siege);
+        long occupe;
+        do {
+            occupe = occupation.get(mot);
+        } while ((occupe & masque) != 0 && !occupation.compareAndSet(mot, occupe, occupe & ~masque));
+    }
+
+    private int mot(int siege) {
+        return siege / (rangeesParMot * lettres.length);
+    }
+
+    private int bit(int siege) {
+        return siege % (rangeesParMot * lettres.length);
+    }
+
+    @Override
+    public String toString() {
+        return "PlanSieges " + nombreRangees + " x [" + disposition + "]";
+    }
+}
@@ -0,0 +1,97 @@
+package gestionVol;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Classe représentant le compte rendu d'un import de programme de vols
+ */
+public class RapportImport {
+
+    /**
+     * Le nombre de vols importés
+     */
+    private final int nombreVols;
+
+    /**
+     * Le nombre d'escales importées
+     */
+    private final int nombreEscales;
+
+    /**
+     * Les lignes rejetées, avec leur numéro et le motif du rejet
+     */
+    private final List<String> rejets;
+
+    /**
+     * La durée de l'import
+     */
+    private final Duration duree;
+
+    /**
+     * Constructeur de la classe RapportImport
+     *
+     * @param nombreVols le nombre de vols importés
+     * @param nombreEscales le nombre d'escales importées
+     * @param rejets les lignes rejetées
+     * @param duree la durée de l'import
+     */
+    RapportImport(int nombreVols, int nombreEscales, List<String> rejets, Duration duree) {
+        this.nombreVols = nombreVols;
+        this.nombreEscales = nombreEscales;
+        this.rejets = rejets;
+        this.duree = duree;
+    }
+
+    /**
+     * Retourne le nombre de vols importés
+     *
+     * @return le nombre de vols importés
+     */
+    public int getNombreVols() {
+        return nombreVols;
+    }
+
+    /**
+     * Retourne le nombre d'escales importées
+     *
+     * @return le nombre d'escales importées
+     */
+    public int getNombreEscales() {
+        return nombreEscales;
+    }
+
+    /**
+     * Retourne les lignes rejetées, sous la forme "ligne n : motif"
+     *
+     * @return les lignes rejetées
+     */
+    public List<String> getRejets() {
+        return rejets;
+    }
+
+    /**
+     * Retourne la durée de l'import
+     *
+     * @return la durée de l'import
+     */
+    public Duration getDuree() {
+        return duree;
+    }
+
+    /**
+     * Retourne le débit de l'import
+     *
+     * @return le nombre de vols importés par seconde
+     */
+    public double getVolsParSeconde() {
+        long nanos = Math.max(duree.toNanos(), 1);
+        return nombreVols * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d vols et %d escales importés en %d ms (%.0f vols/s), %d lignes rejetées",
+                nombreVols, nombreEscales, duree.toMillis(), getVolsParSeconde(), rejets.size());
+    }
+}
@@ -0,0 +1,391 @@
+package gestionVol;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classe représentant une photographie binaire du réseau : villes, aéroports, compagnies, vols et escales.
+ * Les objets y sont désignés par leur indice et les chaînes de caractères sont mutualisées dans une table.
+ * Le chargement lit le fichier projeté en mémoire et construit tous les objets en masse, sans passer par
+ * les méthodes de mise à jour bidirectionnelle : chaque compagnie et chaque aéroport reçoit ses vols d'un bloc
+ */
+public class SnapshotReseau {
+
+    /**
+     * L'entête des fichiers de photographie du réseau
+     */
+    private static final int MAGIQUE = 0x52455331;
+
+    /**
+     * La version du format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Les villes du réseau
+     */
+    private final List<Ville> villes;
+
+    /**
+     * Les aéroports du réseau
+     */
+    private final List<Aeroport> aeroports;
+
+    /**
+     * Les compagnies du réseau
+     */
+    private final List<Compagnie> compagnies;
+
+    /**
+     * Les vols du réseau
+     */
+    private final List<Vol> vols;
+
+    /**
+     * Constructeur de la classe SnapshotReseau
+     *
+     * @param villes les villes chargées
+     * @param aeroports les aéroports chargés
+     * @param compagnies les compagnies chargées
+     * @param vols les vols chargés
+     */
+    private SnapshotReseau(List<Ville> villes, List<Aeroport> aeroports, List<Compagnie> compagnies, List<Vol> vols) {
+        this.villes = villes;
+        this.aeroports = aeroports;
+        this.compagnies = compagnies;
+        this.vols = vols;
+    }
+
+    /**
+     * Retourne les villes chargées
+     *
+     * @return les villes chargées
+     */
+    public List<Ville> getVilles() {
+        return villes;
+    }
+
+    /**
+     * Retourne les aéroports chargés
+     *
+     * @return les aéroports chargés
+     */
+    public List<Aeroport> getAeroports() {
+        return aeroports;
+    }
+
+    /**
+     * Retourne les compagnies chargées
+     *
+     * @return les compagnies chargées
+     */
+    public List<Compagnie> getCompagnies() {
+        return compagnies;
+    }
+
+    /**
+     * Retourne les vols chargés
+     *
+     * @return les vols chargés
+     */
+    public List<Vol> getVols() {
+        return vols;
+    }
+
+    /**
+     * Écrit une photographie de tous les vols du catalogue
+     *
+     * @param fichier le chemin de la photographie
+     * @exception IllegalArgumentException si le chemin est null
+     * @exception UncheckedIOException si la photographie ne peut pas être écrite
+     */
+    public static void ecrire(Path fichier) {
+        ecrire(fichier, CatalogueVols.getInstance().getVols());
+    }
+
+    /**
+     * Écrit une photographie d'un ensemble de vols, avec leurs compagnies, leurs aéroports et les villes de ceux-ci.
+     * Le fichier est écrit à côté puis renommé atomiquement, pour ne jamais laisser de photographie incomplète.
+     * Les vols sont lus sans verrou : une photographie prise pendant des modifications du programme n'est pas atomique
+     *
+     * @param fichier le chemin de la photographie
+     * @param vols les vols à photographier
+     * @exception IllegalArgumentException si le chemin ou les vols sont null
+     * @exception UncheckedIOException si la photographie ne peut pas être écrite
+     */
+    public static void ecrire(Path fichier, Collection<Vol> vols) {
+        if (fichier == null || vols == null) {
+            throw new IllegalArgumentException("fichier and vols cannot be null");
+        }
+
+        // Numérotation des objets et des chaînes
+        Map<String, Integer> chaines = new LinkedHashMap<>();
+        Map<Ville, Integer> villes = new LinkedHashMap<>();
+        Map<Aeroport, Integer> aeroports = new LinkedHashMap<>();
+        Map<Compagnie, Integer> compagnies = new LinkedHashMap<>();
+        for (Vol vol : vols) {
+            numeroter(compagnies, vol.getCompagnie());
+            numeroter(aeroports, vol.getDepart());
+            numeroter(aeroports, vol.getArrivee());
+            for (Escale escale : vol.getEscales()) {
+                numeroter(aeroports, escale.getAeroport());
+            }
+        }
+        for (Aeroport aeroport : aeroports.keySet()) {
+            numeroter(villes, aeroport.getVille());
+            for (Ville ville : aeroport.getVillesDesservies()) {
+                numeroter(villes, ville);
+            }
+        }
+
+        // La table des chaînes, complétée pendant l'écriture du corps, est écrite à la fin du fichier
+        // et sa position est reportée dans l'entête
+        Path temporaire = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporaire, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream sortie = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16));
+            sortie.writeInt(MAGIQUE);
+            sortie.writeInt(VERSION);
+            sortie.writeLong(0);
+
+            sortie.writeInt(villes.size());
+            for (Ville ville : villes.keySet()) {
+                sortie.writeInt(chaine(chaines, ville.getNom()));
+            }
+
+            sortie.writeInt(aeroports.size());
+            for (Aeroport aeroport : aeroports.keySet()) {
+                sortie.writeInt(chaine(chaines, aeroport.getNom()));
+                sortie.writeInt(villes.get(aeroport.getVille()));
+                sortie.writeInt(aeroport.getVillesDesservies().size());
+                for (Ville ville : aeroport.getVillesDesservies()) {
+                    sortie.writeInt(villes.get(ville));
+                }
+            }
+
+            sortie.writeInt(compagnies.size());
+            for (Compagnie compagnie : compagnies.keySet()) {
+                sortie.writeInt(chaine(chaines, compagnie.getNom()));
+            }
+
+            sortie.writeInt(vols.size());
+            for (Vol vol : vols) {
+                sortie.writeInt(chaine(chaines, vol.getNumero()));
+                sortie.writeInt(compagnies.get(vol.getCompagnie()));
+                sortie.writeInt(aeroports.get(vol.getDepart()));
+                sortie.writeInt(aeroports.get(vol.getArrivee()));
+                date(sortie, chaines, vol.getDateDepart());
+                date(sortie, chaines, vol.getDateArrivee());
+                sortie.writeInt(vol.getCapacite());
+                sortie.writeInt(vol.getPlacesDisponibles());
+                sortie.writeDouble(vol.getPrix());
+                sortie.writeBoolean(vol.isReservationOuverte());
+                sortie.writeInt(vol.getEscales().size());
+                for (Escale escale : vol.getEscales()) {
+                    sortie.writeInt(aeroports.get(escale.getAeroport()));
+                    date(sortie, chaines, escale.getDateArrivee());
+                    date(sortie, chaines, escale.getDateDepart());
+                }
+            }
+
+            long positionChaines = sortie.size();
+            sortie.writeInt(chaines.size());
+            for (String chaine : chaines.keySet()) {
+                byte[] utf8 = chaine.getBytes(StandardCharsets.UTF_8);
+                sortie.writeInt(utf8.length);
+                sortie.write(utf8);
+            }
+            sortie.flush();
+
+            ByteBuffer entete = ByteBuffer.allocate(8).putLong(0, positionChaines);
+            canal.write(entete, 8);
+            canal.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'écrire la photographie du réseau", e);
+        }
+
+        try {
+            Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'écrire la photographie du réseau", e);
+        }
+    }
+
+    /**
+     * Attribue un indice à un objet s'il n'en a pas encore
+     *
+     * @param indices les indices déjà attribués
+     * @param objet l'objet
+     * @param <T> le type de l'objet
+     */
+    private static <T> void numeroter(Map<T, Integer> indices, T objet) {
+        indices.putIfAbsent(objet, indices.size());
+    }
+
+    /**
+     * Retourne l'indice d'une chaîne dans la table des chaînes, en l'y ajoutant si besoin
+     *
+     * @param chaines la table des chaînes
+     * @param chaine la chaîne
+     * @return l'indice de la chaîne
+     */
+    private static int chaine(Map<String, Integer> chaines, String chaine) {
+        Integer indice = chaines.get(chaine);
+        if (indice == null) {
+            indice = chaines.size();
+            chaines.put(chaine, indice);
+        }
+        return indice;
+    }
+
+    /**
+     * Écrit une date sous forme d'instant et de fuseau
+     *
+     * @param sortie le flux d'écriture
+     * @param chaines la table des chaînes
+     * @param date la date
+     * @exception IOException si l'écriture échoue
+     */
+    private static void date(DataOutputStream sortie, Map<String, Integer> chaines, ZonedDateTime date) throws IOException {
+        sortie.writeLong(date.toEpochSecond());
+        sortie.writeInt(date.getNano());
+        sortie.writeInt(chaine(chaines, date.getZone().getId()));
+    }
+
+    /**
+     * Charge une photographie du réseau. Les vols chargés sont publiés dans leurs compagnies, leurs aéroports
+     * et le catalogue, qui ne doit contenir aucun vol de même numéro partant le même jour
+     *
+     * @param fichier le chemin de la photographie
+     * @exception IllegalArgumentException si le chemin est null
+     * @exception IllegalStateException si le fichier n'est pas une photographie du réseau ou dépasse 2 Go
+     * @exception IllegalStateException si un vol de la photographie est déjà au catalogue ; les autres vols sont chargés
+     * @exception UncheckedIOException si la photographie ne peut pas être lue
+     *
+     * @return le réseau chargé
+     */
+    public static SnapshotReseau charger(Path fichier) {
+        if (fichier == null) {
+            throw new IllegalArgumentException("fichier cannot be null");
+        }
+
+        MappedByteBuffer tampon;
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("La photographie du réseau dépasse 2 Go");
+            }
+            tampon = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible de lire la photographie du réseau", e);
+        }
+
+        if (tampon.remaining() < 16 || tampon.getInt() != MAGIQUE) {
+            throw new IllegalStateException("Le fichier n'est pas une photographie du réseau");
+        }
+        if (tampon.getInt() != VERSION) {
+            throw new IllegalStateException("Le fichier n'est pas une photographie du réseau");
+        }
+
+        // Lecture de la table des chaînes en fin de fichier, puis retour au corps
+        long positionChaines = tampon.getLong();
+        int positionCorps = tampon.position();
+        tampon.position((int) positionChaines);
+        String[] chaines = new String[tampon.getInt()];
+        for (int i = 0; i < chaines.length; i++) {
+            byte[] utf8 = new byte[tampon.getInt()];
+            tampon.get(utf8);
+            chaines[i] = new String(utf8, StandardCharsets.UTF_8);
+        }
+        ZoneId[] fuseaux = new ZoneId[chaines.length];
+        tampon.position(positionCorps);
+
+        int nombreVilles = tampon.getInt();
+        List<Ville> villes = new ArrayList<>(nombreVilles);
+        for (int i = 0; i < nombreVilles; i++) {
+            villes.add(new Ville(chaines[tampon.getInt()]));
+        }
+
+        int nombreAeroports = tampon.getInt();
+        List<Aeroport> aeroports = new ArrayList<>(nombreAeroports);
+        for (int i = 0; i < nombreAeroports; i++) {
+            Aeroport aeroport = new Aeroport(chaines[tampon.getInt()], villes.get(tampon.getInt()));
+            int nombreDesservies = tampon.getInt();
+            for (int j = 0; j < nombreDesservies; j++) {
+                aeroport.addVilleDesservie(villes.get(tampon.getInt()));
+            }
+            aeroports.add(aeroport);
+        }
+
+        int nombreCompagnies = tampon.getInt();
+        List<Compagnie> compagnies = new ArrayList<>(nombreCompagnies);
+        for (int i = 0; i < nombreCompagnies; i++) {
+            compagnies.add(new Compagnie(chaines[tampon.getInt()]));
+        }
+
+        // Construction des vols et des escales, publiés d'un bloc ensuite
+        int nombreVols = tampon.getInt();
+        List<Vol> vols = new ArrayList<>(nombreVols);
+        for (int i = 0; i < nombreVols; i++) {
+            String numero = chaines[tampon.getInt()];
+            int compagnie = tampon.getInt();
+            int depart = tampon.getInt();
+            int arrivee = tampon.getInt();
+            ZonedDateTime dateDepart = date(tampon, chaines, fuseaux);
+            ZonedDateTime dateArrivee = date(tampon, chaines, fuseaux);
+            int capacite = tampon.getInt();
+            int placesDisponibles = tampon.getInt();
+            Vol vol = new Vol(numero, compagnies.get(compagnie), aeroports.get(depart), aeroports.get(arrivee),
+                    dateDepart, dateArrivee, capacite, placesDisponibles, tampon.getDouble(), tampon.get() != 0);
+
+            int nombreEscales = tampon.getInt();
+            for (int j = 0; j < nombreEscales; j++) {
+                int aeroport = tampon.getInt();
+                ZonedDateTime arriveeEscale = date(tampon, chaines, fuseaux);
+                ZonedDateTime departEscale = date(tampon, chaines, fuseaux);
+                vol.chargerEscale(Escale.charger(vol, aeroports.get(aeroport), arriveeEscale, departEscale));
+            }
+            vols.add(vol);
+        }
+        if (!Vol.publier(vols).isEmpty()) {
+            throw new IllegalStateException("Des vols de la photographie du réseau partent déjà le même jour sous le même numéro");
+        }
+
+        return new SnapshotReseau(villes, aeroports, compagnies, vols);
+    }
+
+    /**
+     * Lit une date écrite sous forme d'instant et de fuseau
+     *
+     * @param tampon le fichier projeté
+     * @param chaines la table des chaînes
+     * @param fuseaux les fuseaux déjà décodés, par indice de chaîne
+     * @return la date
+     */
+    private static ZonedDateTime date(MappedByteBuffer tampon, String[] chaines, ZoneId[] fuseaux) {
+        long secondes = tampon.getLong();
+        int nanos = tampon.getInt();
+        int fuseau = tampon.getInt();
+        if (fuseaux[fuseau] == null) {
+            fuseaux[fuseau] = ZoneId.of(chaines[fuseau]);
+        }
+        return ZonedDateTime.ofInstant(Instant.ofEpochSecond(secondes, nanos), fuseaux[fuseau]);
+    }
+}
@@ -0,0 +1,201 @@
+package gestionVol;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Classe permettant de suivre l'avancement d'une annulation en masse de vols
+ */
+public class SuiviAnnulation {
+
+    /**
+     * Le nombre de vols annulés
+     */
+    private final int nombreVols;
+
+    /**
+     * Le nombre de réservations à annuler
+     */
+    private final int nombreReservations;
+
+    /**
+     * Les lots de réservations restant à traiter
+     */
+    private final CountDownLatch lotsRestants;
+
+    /**
+     * L'instant de début de l'annulation, en nanosecondes
+     */
+    private final long debut;
+
+    /**
+     * L'instant de fin de l'annulation, en nanosecondes, 0 tant qu'elle n'est pas terminée
+     */
+    private volatile long fin;
+
+    /**
+     * Le nombre de réservations annulées
+     */
+    private final LongAdder annulees = new LongAdder();
+
+    /**
+     * Le nombre de réservations dont l'annulation a échoué
+     */
+    private final LongAdder echecs = new LongAdder();
+
+    /**
+     * Constructeur de la classe SuiviAnnulation
+     *
+     * @param nombreVols le nombre de vols annulés
+     * @param nombreReservations le nombre de réservations à annuler
+     * @param nombreLots le nombre de lots de réservations à traiter
+     * @param debut l'instant de début de l'annulation, en nanosecondes
+     */
+    SuiviAnnulation(int nombreVols, int nombreReservations, int nombreLots, long debut) {
+        this.nombreVols = nombreVols;
+        this.nombreReservations = nombreReservations;
+        this.lotsRestants = new CountDownLatch(nombreLots);
+        this.debut = debut;
+        if (nombreLots == 0) {
+            this.fin = System.nanoTime();
+        }
+    }
+
+    /**
+     * Comptabilise une réservation annulée
+     */
+    void signalerAnnulation() {
+        this.annulees.increment();
+    }
+
+    /**
+     * Comptabilise une réservation dont l'annulation a échoué
+     */
+    void signalerEchec() {
+        this.echecs.increment();
+    }
+
+    /**
+     * Comptabilise un lot de réservations entièrement traité
+     */
+    void signalerLot() {
+        this.lotsRestants.countDown();
+        if (this.lotsRestants.getCount() == 0) {
+            this.fin = System.nanoTime();
+        }
+    }
+
+    /**
+     * Retourne le nombre de vols annulés
+     *
+     * @return le nombre de vols annulés
+     */
+    public int getNombreVols() {
+        return nombreVols;
+    }
+
+    /**
+     * Retourne le nombre de réservations à annuler
+     *
+     * @return le nombre de réservations à annuler
+     */
+    public int getNombreReservations() {
+        return nombreReservations;
+    }
+
+    /**
+     * Retourne le nombre de réservations déjà annulées
+     *
+     * @return le nombre de réservations annulées
+     */
+    public long getReservationsAnnulees() {
+        return annulees.sum();
+    }
+
+    /**
+     * Retourne le nombre de réservations dont l'annulation a échoué
+     *
+     * @return le nombre d'échecs
+     */
+    public long getEchecs() {
+        return echecs.sum();
+    }
+
+    /**
+     * Retourne l'avancement de l'annulation
+     *
+     * @return la part des réservations traitées, entre 0 et 1
+     */
+    public double getProgression() {
+        if (nombreReservations == 0) {
+            return 1.0;
+        }
+        return (double) (annulees.sum() + echecs.sum()) / nombreReservations;
+    }
+
+    /**
+     * Retourne si toutes les réservations ont été traitées
+     *
+     * @return true si l'annulation est terminée, false sinon
+     */
+    public boolean isTermine() {
+        return lotsRestants.getCount() == 0;
+    }
+
+    /**
+     * Retourne la durée de l'annulation, jusqu'à maintenant si elle n'est pas terminée
+     *
+     * @return la durée de l'annulation
+     */
+    public Duration getDuree() {
+        long fin = this.fin;
+        return Duration.ofNanos((fin == 0 ? System.nanoTime() : fin) - debut);
+    }
+
+    /**
+     * Attend la fin de l'annulation
+     *
+     * @exception IllegalStateException si l'attente est interrompue
+     *
+     * @return le suivi de l'annulation terminée
+     */
+    public SuiviAnnulation attendre() {
+        try {
+            lotsRestants.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("L'attente de l'annulation a été interrompue", e);
+        }
+        return this;
+    }
+
+    /**
+     * Attend la fin de l'annulation au plus pendant une durée donnée
+     *
+     * @param delai la durée d'attente maximale
+     * @exception IllegalArgumentException si le délai est null
+     * @exception IllegalStateException si l'attente est interrompue
+     *
+     * @return true si l'annulation est terminée, false si le délai est écoulé
+     */
+    public boolean attendre(Duration delai) {
+        if (delai == null) {
+            throw new IllegalArgumentException("delai cannot be null");
+        }
+
+        try {
+            return lotsRestants.await(delai.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("L'attente de l'annulation a été interrompue", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d vols annulés, %d/%d réservations annulées, %d échecs en %d ms",
+                nombreVols, getReservationsAnnulees(), nombreReservations, getEchecs(), getDuree().toMillis());
+    }
+}
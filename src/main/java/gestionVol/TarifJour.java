@@ -0,0 +1,70 @@
+package gestionVol;
+
+import java.time.LocalDate;
+
+/**
+ * Classe représentant le tarif le plus bas d'une route pour un jour de départ : le vol ouvert à la réservation,
+ * avec des places disponibles, dont le prix courant est le plus bas ce jour-là
+ */
+public class TarifJour {
+
+    /**
+     * Le jour de départ, dans le fuseau de la date de départ du vol
+     */
+    private final LocalDate jour;
+
+    /**
+     * Le vol le moins cher du jour
+     */
+    private final Vol vol;
+
+    /**
+     * Le prix courant d'une place sur le vol
+     */
+    private final double prix;
+
+    /**
+     * Constructeur de la classe TarifJour
+     *
+     * @param jour le jour de départ, dans le fuseau de la date de départ du vol
+     * @param vol le vol le moins cher du jour
+     * @param prix le prix courant d'une place sur le vol
+     */
+    TarifJour(LocalDate jour, Vol vol, double prix) {
+        this.jour = jour;
+        this.vol = vol;
+        this.prix = prix;
+    }
+
+    /**
+     * Retourne le jour de départ
+     *
+     * @return le jour de départ
+     */
+    public LocalDate getJour() {
+        return jour;
+    }
+
+    /**
+     * Retourne le vol le moins cher du jour
+     *
+     * @return le vol le moins cher du jour
+     */
+    public Vol getVol() {
+        return vol;
+    }
+
+    /**
+     * Retourne le prix d'une place sur le vol le moins cher du jour
+     *
+     * @return le prix d'une place
+     */
+    public double getPrix() {
+        return prix;
+    }
+
+    @Override
+    public String toString() {
+        return jour + " " + vol.getNumero() + " " + prix;
+    }
+}
@@ -1,18 +1,36 @@
 package gestionVol;
 
+import reservation.ListeAttente;
 import reservation.Reservation;
+import supervision.Compteur;
+import supervision.EvenementProgramme;
+import supervision.Metriques;
 
 import java.time.Duration;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Classe représentant un vol
  */
 public class Vol {
 
+    /**
+     * Valeur sentinelle de l'inventaire d'un vol supprimé : plus aucune place ne peut y être réservée ou libérée
+     */
+    private static final int INVENTAIRE_FERME = -1;
+
     /**
      * Le numéro du vol
      */
@@ -34,39 +52,76 @@ public class Vol {
     private Aeroport arrivee;
 
     /**
-     * Les escales du vol dans l'ordre
+     * Les escales du vol triées par date d'arrivée, dans un tableau remplacé à chaque modification
+     */
+    private Escale[] escales = EscalesVol.AUCUNE;
+
+    /**
+     * L'instant de départ du vol, en nanosecondes depuis l'epoch
      */
-    private final TreeSet<Escale> escales = new TreeSet<>();
+    private long departNanos;
 
     /**
-     * La date de départ du vol
+     * Le fuseau de la date de départ du vol
      */
-    private ZonedDateTime dateDepart;
+    private ZoneId fuseauDepart;
 
     /**
-     * La date d'arrivée du vol
+     * Le jour local de départ du vol, qui participe à son identité
      */
-    private ZonedDateTime dateArrivee;
+    private long jourDepart;
+
+    /**
+     * L'instant d'arrivée du vol, en nanosecondes depuis l'epoch
+     */
+    private long arriveeNanos;
+
+    /**
+     * Le fuseau de la date d'arrivée du vol
+     */
+    private ZoneId fuseauArrivee;
 
     /**
      * Si le vol est ouvert à la réservation ou non
      */
-    private boolean reservationOuverte;
+    private volatile boolean reservationOuverte;
+
+    /**
+     * L'inventaire du vol : ses places disponibles, sa capacité, sa grille tarifaire et sa tranche courante.
+     * Remplacé en entier et uniquement par compare-and-set pour ne jamais survendre le vol, la tranche étant recalculée
+     * à chaque vente ou libération de places et non à chaque lecture du prix
+     */
+    private final AtomicReference<Inventaire> inventaire;
 
     /**
-     * Le nombre de places disponibles
+     * Si le vol a été supprimé, positionné par le seul appel qui le retire du réseau
      */
-    private int placesDisponibles;
+    private final AtomicBoolean supprime = new AtomicBoolean();
 
     /**
-     * Le prix d'une place
+     * Le prix de base d'une place
      */
     private double prix;
 
     /**
      * Les réservations du vol
      */
-    private final Set<Reservation> reservations = new HashSet<>();
+    private final Set<Reservation> reservations = ConcurrentHashMap.newKeySet();
+
+    /**
+     * La liste d'attente du vol, créée à la première demande
+     */
+    private volatile ListeAttente listeAttente;
+
+    /**
+     * Le plan de cabine du vol, null si les places ne sont pas attribuées à des sièges
+     */
+    private volatile PlanSieges planSieges;
+
+    /**
+     * Le jour du calendrier des tarifs dans lequel le vol est rangé, null s'il n'y est pas rangé
+     */
+    private volatile CalendrierTarifs.Jour jourTarifs;
 
     /**
      * Constructeur de la classe Vol
@@ -83,12 +138,15 @@ public class Vol {
      * @exception IllegalArgumentException si la date de depart est après la date d'arrivée
      * @exception IllegalArgumentException si le nombre de places disponibles est négatif
      * @exception IllegalArgumentException si le prix est négatif
+     * @exception IllegalArgumentException si un autre vol de même numéro part le même jour
      */
     public Vol(String numero, Compagnie compagnie, Aeroport depart, Aeroport arrivee, ZonedDateTime dateDepart, ZonedDateTime dateArrivee, int placesDisponibles, double prix) {
         if(numero == null || compagnie == null || depart == null || arrivee == null || dateDepart == null || dateArrivee == null) {
             throw new IllegalArgumentException("numero, compagnie, depart, arrivée, dateDepart and dateArrivee cannot be null");
         }
-        if(dateDepart.isAfter(dateArrivee) || dateDepart.isEqual(dateArrivee)) {
+        long departNanos = Horodatage.nanos(dateDepart);
+        long arriveeNanos = Horodatage.nanos(dateArrivee);
+        if(departNanos >= arriveeNanos) {
             throw new IllegalArgumentException("dateDepart doit être avant dateArrivee");
         }
         if(placesDisponibles < 0) {
@@ -100,6 +158,17 @@ public class Vol {
 
         this.numero = numero;
 
+        // Les dates doivent être connues avant l'ajout à la compagnie et aux aéroports, qui rangent le vol
+        // par numéro et jour de départ et l'indexent par instant
+        this.departNanos = departNanos;
+        this.fuseauDepart = Horodatage.fuseau(dateDepart);
+        this.jourDepart = Horodatage.jour(this.departNanos, this.fuseauDepart);
+        this.arriveeNanos = arriveeNanos;
+        this.fuseauArrivee = Horodatage.fuseau(dateArrivee);
+
+        // Le catalogue refuse un second vol de même numéro le même jour, avant toute autre modification
+        CatalogueVols.getInstance().enregistrer(this);
+
         this.compagnie = compagnie;
         this.compagnie.addVolWithoutBidirectional(this);
 
@@ -107,14 +176,46 @@ public class Vol {
         this.arrivee = arrivee;
         this.depart.addVolAuDepartWithoutBidirectional(this);
         this.arrivee.addVolAArriveeWithoutBidirectional(this);
-
-        this.dateDepart = dateDepart;
-        this.dateArrivee = dateArrivee;
+        IndexRoutes.getInstance().ajouterVol(this);
 
         this.reservationOuverte = false;
 
-        this.placesDisponibles = placesDisponibles;
+        this.inventaire = new AtomicReference<>(new Inventaire(placesDisponibles, placesDisponibles, GrilleTarifaire.UNIQUE));
+        this.prix = prix;
+
+        CalendrierTarifs.getInstance().ajouter(this);
+        this.invaliderRecherche(this.depart, this.arrivee, this.jourDepart);
+    }
+
+    /**
+     * Constructeur de la classe Vol utilisé par le chargement en masse : les valeurs sont déjà validées et le vol
+     * n'est ajouté ni à sa compagnie, ni à ses aéroports, ni au catalogue, qui sont alimentés d'un bloc ensuite
+     *
+     * @param numero le numéro du vol
+     * @param compagnie la compagnie du vol
+     * @param depart l'aéroport de depart du vol
+     * @param arrivee l'aéroport d'arrivée du vol
+     * @param dateDepart la date de depart du vol
+     * @param dateArrivee la date d'arrivée du vol
+     * @param capacite le nombre de places du vol
+     * @param placesDisponibles le nombre de places disponibles
+     * @param prix le prix d'une place
+     * @param reservationOuverte si le vol est ouvert à la réservation
+     */
+    Vol(String numero, Compagnie compagnie, Aeroport depart, Aeroport arrivee, ZonedDateTime dateDepart, ZonedDateTime dateArrivee,
+        int capacite, int placesDisponibles, double prix, boolean reservationOuverte) {
+        this.numero = numero;
+        this.compagnie = compagnie;
+        this.depart = depart;
+        this.arrivee = arrivee;
+        this.departNanos = Horodatage.nanos(dateDepart);
+        this.fuseauDepart = Horodatage.fuseau(dateDepart);
+        this.jourDepart = Horodatage.jour(this.departNanos, this.fuseauDepart);
+        this.arriveeNanos = Horodatage.nanos(dateArrivee);
+        this.fuseauArrivee = Horodatage.fuseau(dateArrivee);
+        this.inventaire = new AtomicReference<>(new Inventaire(placesDisponibles, capacite, GrilleTarifaire.UNIQUE));
         this.prix = prix;
+        this.reservationOuverte = reservationOuverte;
     }
 
     /**
@@ -127,16 +228,22 @@ public class Vol {
     }
 
     /**
-     * Modifie le numero du vol
+     * Modifie le numero du vol et met à jour la compagnie, les aéroports et le catalogue qui indexent le vol par numéro
      *
      * @param numero le nouveau numero du vol
      * @exception IllegalArgumentException si le numero est null
+     * @exception IllegalArgumentException si un autre vol de ce numéro part le même jour
      */
     public void setNumero(String numero) {
         if(numero == null) {
             throw new IllegalArgumentException("numero cannot be null");
         }
+        if (this.compagnie != null) {
+            CatalogueVols.getInstance().deplacer(this, numero, this.jourDepart);
+        }
+        detacher();
         this.numero = numero;
+        rattacher();
     }
 
     /**
@@ -179,12 +286,21 @@ public class Vol {
      * @exception IllegalArgumentException si l'aeroport de depart est null
      */
     public void setDepart(Aeroport depart) {
-        if(depart == null) {
-            throw new IllegalArgumentException("depart cannot be null");
+        EvenementProgramme evenement = EvenementProgramme.commencer("setDepart");
+        try {
+            if(depart == null) {
+                throw new IllegalArgumentException("depart cannot be null");
+            }
+            Aeroport ancienDepart = this.depart;
+            this.depart.removeVolAuDepartWithoutBidirectional(this);
+            IndexRoutes.getInstance().deplacerArret(null, this.depart, depart, this.arretApres(-1));
+            this.depart = depart;
+            this.depart.addVolAuDepartWithoutBidirectional(this);
+            this.deplacerTarifs(ancienDepart, this.arrivee, this.jourDepart);
+            evenement.reussir();
+        } finally {
+            evenement.terminer(this.numero, depart == null ? null : depart.getNom(), 0);
         }
-        this.depart.removeVolAuDepartWithoutBidirectional(this);
-        this.depart = depart;
-        this.depart.addVolAuDepartWithoutBidirectional(this);
     }
 
     /**
@@ -203,12 +319,21 @@ public class Vol {
      * @exception IllegalArgumentException si l'aeroport d'arrivee est null
      */
     public void setArrivee(Aeroport arrivee) {
-        if(arrivee == null) {
-            throw new IllegalArgumentException("arrivee cannot be null");
+        EvenementProgramme evenement = EvenementProgramme.commencer("setArrivee");
+        try {
+            if(arrivee == null) {
+                throw new IllegalArgumentException("arrivee cannot be null");
+            }
+            Aeroport ancienneArrivee = this.arrivee;
+            this.arrivee.removeVolAArriveeWithoutBidirectional(this);
+            IndexRoutes.getInstance().deplacerArret(this.arretAvant(this.escales.length), this.arrivee, arrivee, null);
+            this.arrivee = arrivee;
+            this.arrivee.addVolAArriveeWithoutBidirectional(this);
+            this.deplacerTarifs(this.depart, ancienneArrivee, this.jourDepart);
+            evenement.reussir();
+        } finally {
+            evenement.terminer(this.numero, arrivee == null ? null : arrivee.getNom(), 0);
         }
-        this.arrivee.removeVolAArriveeWithoutBidirectional(this);
-        this.arrivee = arrivee;
-        this.arrivee.addVolAArriveeWithoutBidirectional(this);
     }
 
     /**
@@ -217,24 +342,64 @@ public class Vol {
      * @return la date de départ du vol
      */
     public ZonedDateTime getDateDepart() {
-        return dateDepart;
+        return Horodatage.date(departNanos, fuseauDepart);
+    }
+
+    /**
+     * Retourne l'instant de départ du vol, sans reconstruire sa date
+     *
+     * @return le nombre de nanosecondes entre l'epoch et le départ du vol
+     */
+    public long getDepartNanos() {
+        return departNanos;
+    }
+
+    /**
+     * Retourne le fuseau de la date de départ du vol
+     *
+     * @return le fuseau de la date de départ
+     */
+    ZoneId getFuseauDepart() {
+        return fuseauDepart;
     }
 
     /**
-     * Modifie la date de depart du vol
+     * Retourne le jour de départ du vol, dans le fuseau de sa date de départ
+     *
+     * @return le nombre de jours entre l'epoch et le jour de départ du vol
+     */
+    long getJourDepart() {
+        return jourDepart;
+    }
+
+    /**
+     * Modifie la date de depart du vol et met à jour la compagnie, les aéroports et le catalogue qui indexent le vol
      *
      * @param dateDepart la nouvelle date de depart du vol
      * @exception IllegalArgumentException si la date de depart est null
      * @exception IllegalArgumentException si la date de depart est après la date d'arrivee
+     * @exception IllegalArgumentException si un autre vol de même numéro part déjà le nouveau jour
      */
     public void setDateDepart(ZonedDateTime dateDepart) {
         if(dateDepart == null) {
             throw new IllegalArgumentException("dateDepart cannot be null");
         }
-        if(dateDepart.isAfter(this.dateArrivee) || dateDepart.isEqual(this.dateArrivee)) {
+        long departNanos = Horodatage.nanos(dateDepart);
+        if(departNanos >= this.arriveeNanos) {
             throw new IllegalArgumentException("dateDepart doit être avant dateArrivee");
         }
-        this.dateDepart = dateDepart;
+        ZoneId fuseauDepart = Horodatage.fuseau(dateDepart);
+        long jourDepart = Horodatage.jour(departNanos, fuseauDepart);
+        if (this.compagnie != null) {
+            CatalogueVols.getInstance().deplacer(this, this.numero, jourDepart);
+        }
+        long ancienJour = this.jourDepart;
+        detacher();
+        this.departNanos = departNanos;
+        this.fuseauDepart = fuseauDepart;
+        this.jourDepart = jourDepart;
+        rattacher();
+        this.deplacerTarifs(this.depart, this.arrivee, ancienJour);
     }
 
     /**
@@ -243,11 +408,84 @@ public class Vol {
      * @return la date d'arrivee du vol
      */
     public ZonedDateTime getDateArrivee() {
-        return dateArrivee;
+        return Horodatage.date(arriveeNanos, fuseauArrivee);
     }
 
     /**
-     * Modifie la date d'arrivee du vol
+     * Retourne l'instant d'arrivée du vol, sans reconstruire sa date
+     *
+     * @return le nombre de nanosecondes entre l'epoch et l'arrivée du vol
+     */
+    public long getArriveeNanos() {
+        return arriveeNanos;
+    }
+
+    /**
+     * Retourne le fuseau de la date d'arrivée du vol
+     *
+     * @return le fuseau de la date d'arrivée
+     */
+    ZoneId getFuseauArrivee() {
+        return fuseauArrivee;
+    }
+
+    /**
+     * Retourne le jour du calendrier des tarifs dans lequel le vol est rangé
+     *
+     * @return le jour du vol dans le calendrier, null s'il n'y est pas rangé
+     */
+    CalendrierTarifs.Jour getJourTarifs() {
+        return jourTarifs;
+    }
+
+    /**
+     * Modifie le jour du calendrier des tarifs dans lequel le vol est rangé, sous le verrou de sa route
+     *
+     * @param jourTarifs le jour du vol dans le calendrier, null s'il n'y est plus rangé
+     */
+    void setJourTarifs(CalendrierTarifs.Jour jourTarifs) {
+        this.jourTarifs = jourTarifs;
+    }
+
+    /**
+     * Signale au calendrier des tarifs que le vol a changé de prix, de disponibilité ou d'horaire, et invalide
+     * la recherche de son jour dans le cache des recherches
+     */
+    private void actualiserTarifs() {
+        CalendrierTarifs.getInstance().actualiser(this);
+        this.invaliderRecherche(this.depart, this.arrivee, this.jourDepart);
+    }
+
+    /**
+     * Range de nouveau le vol dans le calendrier des tarifs après un changement de route ou de jour de départ,
+     * et invalide les recherches de son ancien et de son nouveau jour
+     *
+     * @param ancienDepart l'aéroport de départ du vol avant le changement
+     * @param ancienneArrivee l'aéroport d'arrivée du vol avant le changement
+     * @param ancienJour le jour de départ du vol avant le changement, en jours depuis l'epoch
+     */
+    private void deplacerTarifs(Aeroport ancienDepart, Aeroport ancienneArrivee, long ancienJour) {
+        CalendrierTarifs.getInstance().deplacer(this);
+        this.invaliderRecherche(ancienDepart, ancienneArrivee, ancienJour);
+        this.invaliderRecherche(this.depart, this.arrivee, this.jourDepart);
+    }
+
+    /**
+     * Invalide une recherche du cache des recherches. Sans effet tant que la route du vol n'est pas connue
+     *
+     * @param depart l'aéroport de départ de la recherche
+     * @param arrivee l'aéroport d'arrivée de la recherche
+     * @param jour le jour de départ de la recherche, en jours depuis l'epoch
+     */
+    private void invaliderRecherche(Aeroport depart, Aeroport arrivee, long jour) {
+        if (depart != null && arrivee != null) {
+            CacheRecherche.getInstance().invalider(depart, arrivee, jour);
+        }
+    }
+
+    /**
+     * Modifie la date d'arrivee du vol, met à jour l'index des arrivées de l'aéroport d'arrivée et invalide la
+     * recherche du jour du vol
      *
      * @param dateArrivee la nouvelle date d'arrivee du vol
      * @exception IllegalArgumentException si la date d'arrivee est null
@@ -257,10 +495,20 @@ public class Vol {
         if(dateArrivee == null) {
             throw new IllegalArgumentException("dateArrivee cannot be null");
         }
-        if(dateArrivee.isBefore(this.dateDepart) || dateArrivee.isEqual(this.dateDepart)) {
+        long arriveeNanos = Horodatage.nanos(dateArrivee);
+        if(arriveeNanos <= this.departNanos) {
             throw new IllegalArgumentException("dateArrivee doit être après dateDepart");
         }
-        this.dateArrivee = dateArrivee;
+        if (this.arrivee == null) {
+            this.arriveeNanos = arriveeNanos;
+            this.fuseauArrivee = Horodatage.fuseau(dateArrivee);
+            return;
+        }
+        this.arrivee.removeVolAArriveeWithoutBidirectional(this);
+        this.arriveeNanos = arriveeNanos;
+        this.fuseauArrivee = Horodatage.fuseau(dateArrivee);
+        this.arrivee.addVolAArriveeWithoutBidirectional(this);
+        this.actualiserTarifs();
     }
 
     /**
@@ -269,7 +517,7 @@ public class Vol {
      * @return la durée du vol
      */
     public Duration obtenirDuree() {
-        return Duration.between(this.dateDepart, this.dateArrivee);
+        return Duration.ofNanos(this.arriveeNanos - this.departNanos);
     }
 
     /**
@@ -282,11 +530,21 @@ public class Vol {
     }
 
     /**
-     * Retourne les escales du vol
+     * Retourne les escales du vol, triées par date d'arrivée. L'ensemble est une vue en lecture seule : les escales
+     * s'ajoutent et se retirent par {@link #addEscale} et {@link #removeEscale}
      *
      * @return les escales du vol
      */
-    public TreeSet<Escale> getEscales() {
+    public NavigableSet<Escale> getEscales() {
+        return new EscalesVol(this);
+    }
+
+    /**
+     * Retourne le tableau trié des escales du vol, qui ne doit pas être modifié
+     *
+     * @return les escales du vol
+     */
+    Escale[] tableauEscales() {
         return escales;
     }
 
@@ -302,47 +560,153 @@ public class Vol {
      * @return l'escale ajoutée
      */
     public Escale addEscale(Aeroport aeroport, ZonedDateTime dateArrivee, ZonedDateTime dateDepart) {
-        Escale nouvelleEscale = new Escale(this, aeroport, dateArrivee, dateDepart);
-        this.escales.add(nouvelleEscale);
+        EvenementProgramme evenement = EvenementProgramme.commencer("addEscale");
+        try {
+            Escale nouvelleEscale = this.ajouterEscale(aeroport, dateArrivee, dateDepart);
+            evenement.reussir();
+            return nouvelleEscale;
+        } finally {
+            evenement.terminer(this.numero, aeroport == null ? null : aeroport.getNom(), this.escales.length);
+        }
+    }
+
+    /**
+     * Valide et ajoute une escale au vol
+     *
+     * @param aeroport l'aéroport de l'escale
+     * @param dateArrivee la date d'arrivée de l'escale
+     * @param dateDepart la date de départ de l'escale
+     * @exception IllegalArgumentException si l'escale n'est pas compatible avec une autre escale, le départ ou l'arrivée du vol
+     *
+     * @return l'escale ajoutée
+     */
+    private Escale ajouterEscale(Aeroport aeroport, ZonedDateTime dateArrivee, ZonedDateTime dateDepart) {
+        if(aeroport == null || dateArrivee == null || dateDepart == null) {
+            throw new IllegalArgumentException("aeroport, dateArrivee and dateDepart cannot be null");
+        }
+        long arriveeNanos = Horodatage.nanos(dateArrivee);
+        long departNanos = Horodatage.nanos(dateDepart);
 
-        // On vérifie si l'escale est possible, sinon on l'enlève
-        if(dateArrivee.isAfter(dateDepart) || dateArrivee.isEqual(dateDepart)) {
-            nouvelleEscale.removeEscale();
-            this.escales.remove(nouvelleEscale);
-            throw new IllegalArgumentException("L'escale doit débuter avant la fin de l'escale");
+        // On vérifie si l'escale est possible avant de l'insérer
+        if(arriveeNanos >= departNanos) {
+            Metriques.incrementer(Compteur.ESCALES_REFUSEES);
+            throw new IllegalArgumentException("dateArrivee doit être avant dateDepart");
         }
 
-        Escale escalePrecedente = this.escales.lower(nouvelleEscale);
+        Escale[] actuelles = this.escales;
+        int rang = EscalesVol.rang(actuelles, arriveeNanos);
+        Escale escalePrecedente = rang > 0 ? actuelles[rang - 1] : null;
 
         if(escalePrecedente != null) {
-            if(escalePrecedente.getDateDepart().isAfter(dateArrivee) || escalePrecedente.getDateDepart().isEqual(dateArrivee)) {
-                nouvelleEscale.removeEscale();
-                this.escales.remove(nouvelleEscale);
+            if(escalePrecedente.getDepartNanos() >= arriveeNanos) {
+                Metriques.incrementer(Compteur.ESCALES_REFUSEES);
                 throw new IllegalArgumentException("L'escale doit débuter après la précédente escale");
             }
-        } else if (this.dateDepart.isAfter(dateArrivee) || this.dateDepart.isEqual(dateArrivee)) {
-            nouvelleEscale.removeEscale();
-            this.escales.remove(nouvelleEscale);
+        } else if (this.departNanos >= arriveeNanos) {
+            Metriques.incrementer(Compteur.ESCALES_REFUSEES);
             throw new IllegalArgumentException("L'escale doit débuter après le départ du vol");
         }
 
-        Escale escaleSuivante = this.escales.higher(nouvelleEscale);
+        Escale escaleSuivante = rang < actuelles.length ? actuelles[rang] : null;
 
         if(escaleSuivante != null) {
-            if(escaleSuivante.getDateArrivee().isBefore(dateDepart) || escaleSuivante.getDateArrivee().isEqual(dateDepart)) {
-                nouvelleEscale.removeEscale();
-                this.escales.remove(nouvelleEscale);
+            if(escaleSuivante.getArriveeNanos() <= departNanos) {
+                Metriques.incrementer(Compteur.ESCALES_REFUSEES);
                 throw new IllegalArgumentException("L'escale doit se terminer avant la prochaine escale");
             }
-        } else if (this.dateArrivee.isBefore(dateDepart) || this.dateArrivee.isEqual(dateDepart)) {
-            nouvelleEscale.removeEscale();
-            this.escales.remove(nouvelleEscale);
+        } else if (this.arriveeNanos <= departNanos) {
+            Metriques.incrementer(Compteur.ESCALES_REFUSEES);
             throw new IllegalArgumentException("L'escale doit se terminer avant la date d'arrivee");
         }
 
+        Escale nouvelleEscale = new Escale(this, aeroport, dateArrivee, dateDepart);
+        if (this.depart != null) {
+            IndexRoutes.getInstance().insererArret(this.arretAvant(rang), aeroport, this.arretApres(rang - 1));
+        }
+        this.escales = EscalesVol.inserer(actuelles, rang, nouvelleEscale);
         return nouvelleEscale;
     }
 
+    /**
+     * Retourne l'aéroport de l'arrêt précédant une escale
+     *
+     * @param rang le rang de l'escale
+     * @return l'aéroport de l'escale précédente, ou l'aéroport de départ pour la première escale
+     */
+    Aeroport arretAvant(int rang) {
+        return rang > 0 ? this.escales[rang - 1].getAeroport() : this.depart;
+    }
+
+    /**
+     * Retourne l'aéroport de l'arrêt suivant une escale
+     *
+     * @param rang le rang de l'escale, -1 pour le départ du vol
+     * @return l'aéroport de l'escale suivante, ou l'aéroport d'arrivée pour la dernière escale
+     */
+    Aeroport arretApres(int rang) {
+        return rang + 1 < this.escales.length ? this.escales[rang + 1].getAeroport() : this.arrivee;
+    }
+
+    /**
+     * Ajoute une escale déjà validée au vol, lors d'un chargement en masse
+     *
+     * @param escale l'escale à ajouter
+     */
+    void chargerEscale(Escale escale) {
+        this.escales = EscalesVol.inserer(this.escales, EscalesVol.rang(this.escales, escale.getArriveeNanos()), escale);
+    }
+
+    /**
+     * Publie d'un bloc des vols construits en masse dans leurs compagnies, leurs aéroports et le catalogue.
+     * Chaque compagnie et chaque aéroport reçoit tous ses vols en une fois, et chaque aéroport ses escales.
+     * Un vol dont le numéro part déjà le même jour n'est pas publié
+     *
+     * @param vols les vols à publier
+     * @return les vols écartés car un vol de même numéro part déjà le même jour, vide si tous ont été publiés
+     */
+    static List<Vol> publier(Collection<Vol> vols) {
+        CatalogueVols catalogue = CatalogueVols.getInstance();
+        List<Vol> doublons = new ArrayList<>();
+        List<Vol> publies = new ArrayList<>(vols.size());
+        for (Vol vol : vols) {
+            try {
+                catalogue.enregistrer(vol);
+                publies.add(vol);
+            } catch (IllegalArgumentException e) {
+                doublons.add(vol);
+            }
+        }
+        vols = publies;
+
+        Map<Compagnie, List<Vol>> volsCompagnies = new HashMap<>();
+        Map<Aeroport, List<Vol>> departs = new HashMap<>();
+        Map<Aeroport, List<Vol>> arrivees = new HashMap<>();
+        Map<Aeroport, List<Escale>> escales = new HashMap<>();
+        for (Vol vol : vols) {
+            volsCompagnies.computeIfAbsent(vol.compagnie, c -> new ArrayList<>()).add(vol);
+            departs.computeIfAbsent(vol.depart, a -> new ArrayList<>()).add(vol);
+            arrivees.computeIfAbsent(vol.arrivee, a -> new ArrayList<>()).add(vol);
+            for (Escale escale : vol.escales) {
+                escales.computeIfAbsent(escale.getAeroport(), a -> new ArrayList<>()).add(escale);
+            }
+        }
+
+        volsCompagnies.forEach(Compagnie::chargerVols);
+        Set<Aeroport> aeroports = new HashSet<>(departs.keySet());
+        aeroports.addAll(arrivees.keySet());
+        aeroports.addAll(escales.keySet());
+        for (Aeroport aeroport : aeroports) {
+            aeroport.charger(departs.getOrDefault(aeroport, new ArrayList<>()), arrivees.getOrDefault(aeroport, new ArrayList<>()),
+                    escales.getOrDefault(aeroport, new ArrayList<>()));
+        }
+        IndexRoutes.getInstance().ajouterVols(vols);
+        CalendrierTarifs calendrier = CalendrierTarifs.getInstance();
+        for (Vol vol : vols) {
+            calendrier.ajouter(vol);
+        }
+        return doublons;
+    }
+
     /**
      * Supprime une escale du vol
      *
@@ -354,12 +718,16 @@ public class Vol {
         if (escale == null) {
             throw new IllegalArgumentException("escale cannot be null");
         }
-        if (!this.escales.contains(escale)) {
+        int indice = EscalesVol.indice(this.escales, escale);
+        if (indice < 0) {
             throw new IllegalArgumentException("L'escale n'est pas dans le vol");
         }
 
+        if (this.depart != null) {
+            IndexRoutes.getInstance().retirerArret(this.arretAvant(indice), escale.getAeroport(), this.arretApres(indice));
+        }
         escale.removeEscale();
-        this.escales.remove(escale);
+        this.escales = EscalesVol.retirer(this.escales, indice);
     }
 
     /**
@@ -372,6 +740,8 @@ public class Vol {
             throw new IllegalStateException("Le vol doit avoir une compagnie, un aeroport de depart et un aeroport d'arrivee pour être ouvert à la reservation");
         }
         this.reservationOuverte = true;
+        Metriques.incrementer(Compteur.VOLS_OUVERTS);
+        this.actualiserTarifs();
     }
 
     /**
@@ -379,6 +749,8 @@ public class Vol {
      */
     public void fermer() {
         this.reservationOuverte = false;
+        Metriques.incrementer(Compteur.VOLS_FERMES);
+        this.actualiserTarifs();
     }
 
     /**
@@ -387,35 +759,124 @@ public class Vol {
      * @return le nombre de places disponibles du vol
      */
     public int getPlacesDisponibles() {
-        return placesDisponibles;
+        return Math.max(this.inventaire.get().places, 0);
     }
 
     /**
-     * Modifie le nombre de places disponibles du vol
+     * Modifie le nombre de places disponibles du vol. Les places déjà vendues le restent : la capacité du vol
+     * varie d'autant, dans le même inventaire que les places et la tranche tarifaire.
+     * Les réservations en attente sont promues si des places se libèrent
      *
      * @param placesDisponibles le nouveau nombre de places disponibles du vol
      * @exception IllegalArgumentException si le nombre de places disponibles est négatif
+     * @exception IllegalStateException si le vol a été supprimé
+     * @exception IllegalStateException si la capacité du vol changerait alors qu'un plan de cabine lui est attaché
      */
     public void setPlacesDisponibles(int placesDisponibles) {
         if(placesDisponibles < 0) {
             throw new IllegalArgumentException("placesDisponibles doit être positif");
         }
-        this.placesDisponibles = placesDisponibles;
+
+        synchronized (this) {
+            Inventaire etat;
+            int capacite;
+            do {
+                etat = this.inventaire.get();
+                if (etat.places == INVENTAIRE_FERME) {
+                    throw new IllegalStateException("Le vol a été supprimé");
+                }
+                capacite = etat.capacite - etat.places + placesDisponibles;
+                // Le plan de cabine compte autant de sièges que la capacité du vol, il ne la suit pas
+                if (this.planSieges != null && capacite != etat.capacite) {
+                    throw new IllegalStateException("Impossible de changer la capacité du vol : un plan de cabine lui est attaché");
+                }
+            } while (!this.inventaire.compareAndSet(etat, new Inventaire(placesDisponibles, capacite, etat.grille)));
+            this.actualiserTarifs();
+        }
+        // Hors du verrou du vol : la promotion paie les réservations en attente
+        this.promouvoirListeAttente();
     }
 
     /**
-     * Retourne le prix d'une place du vol
+     * Retourne le nombre total de places du vol, vendues ou non
      *
-     * @return le prix d'une place du vol
+     * @return la capacité du vol
+     */
+    public int getCapacite() {
+        return this.inventaire.get().capacite;
+    }
+
+    /**
+     * Réserve atomiquement des places sur le vol, sans verrou
+     *
+     * @param nombre le nombre de places à réserver
+     * @exception IllegalArgumentException si le nombre de places n'est pas strictement positif
+     *
+     * @return true si les places ont été réservées, false s'il n'y a plus assez de places ou si le vol a été supprimé
+     */
+    public boolean reserverPlaces(int nombre) {
+        if (nombre <= 0) {
+            throw new IllegalArgumentException("nombre doit être strictement positif");
+        }
+
+        Inventaire etat;
+        Inventaire suivant;
+        do {
+            etat = this.inventaire.get();
+            if (etat.places < nombre) {
+                return false;
+            }
+            suivant = etat.avecPlaces(etat.places - nombre);
+        } while (!this.inventaire.compareAndSet(etat, suivant));
+        if (etat.places == nombre || suivant.tranche != etat.tranche) {
+            this.actualiserTarifs();
+        }
+        return true;
+    }
+
+    /**
+     * Libère atomiquement des places précédemment réservées sur le vol, puis signale les places rendues à la liste
+     * d'attente du vol, qui promeut ses réservations hors de l'appel. Sans effet si le vol a été supprimé
+     *
+     * @param nombre le nombre de places à libérer
+     * @exception IllegalArgumentException si le nombre de places n'est pas strictement positif
+     */
+    public void libererPlaces(int nombre) {
+        if (nombre <= 0) {
+            throw new IllegalArgumentException("nombre doit être strictement positif");
+        }
+
+        Inventaire etat;
+        Inventaire suivant;
+        do {
+            etat = this.inventaire.get();
+            if (etat.places == INVENTAIRE_FERME) {
+                return;
+            }
+            suivant = etat.avecPlaces(etat.places + nombre);
+        } while (!this.inventaire.compareAndSet(etat, suivant));
+        if (etat.places == 0 || suivant.tranche != etat.tranche) {
+            this.actualiserTarifs();
+        }
+        ListeAttente liste = this.listeAttente;
+        if (liste != null) {
+            liste.signalerPlacesLiberees();
+        }
+    }
+
+    /**
+     * Retourne le prix de base d'une place du vol, avant application de la grille tarifaire
+     *
+     * @return le prix de base d'une place du vol
      */
     public double getPrix() {
         return prix;
     }
 
     /**
-     * Modifie le prix d'une place du vol
+     * Modifie le prix de base d'une place du vol
      *
-     * @param prix le nouveau prix d'une place du vol
+     * @param prix le nouveau prix de base d'une place du vol
      * @exception IllegalArgumentException si le prix est négatif
      */
     public void setPrix(double prix) {
@@ -424,6 +885,114 @@ public class Vol {
         }
 
         this.prix = prix;
+        this.actualiserTarifs();
+    }
+
+    /**
+     * Retourne le prix d'une place au remplissage actuel du vol : le prix de base multiplié par le coefficient de la
+     * tranche courante, lue dans l'inventaire sans recalcul avec la grille dont elle est issue
+     *
+     * @return le prix courant d'une place du vol
+     */
+    public double getPrixCourant() {
+        Inventaire etat = this.inventaire.get();
+        return this.prix * etat.grille.getCoefficient(etat.tranche);
+    }
+
+    /**
+     * Retourne la tranche tarifaire courante du vol
+     *
+     * @return l'indice de la tranche dans la grille tarifaire du vol
+     */
+    public int getTrancheTarifaire() {
+        return this.inventaire.get().tranche;
+    }
+
+    /**
+     * Retourne la grille tarifaire du vol
+     *
+     * @return la grille tarifaire du vol
+     */
+    public GrilleTarifaire getGrilleTarifaire() {
+        return this.inventaire.get().grille;
+    }
+
+    /**
+     * Modifie la grille tarifaire du vol et recalcule sa tranche courante
+     *
+     * @param grilleTarifaire la nouvelle grille tarifaire du vol
+     * @exception IllegalArgumentException si la grille est null
+     */
+    public void setGrilleTarifaire(GrilleTarifaire grilleTarifaire) {
+        if (grilleTarifaire == null) {
+            throw new IllegalArgumentException("grilleTarifaire cannot be null");
+        }
+
+        Inventaire etat;
+        do {
+            etat = this.inventaire.get();
+        } while (!this.inventaire.compareAndSet(etat, new Inventaire(etat.places, etat.capacite, grilleTarifaire)));
+        this.actualiserTarifs();
+    }
+
+    /**
+     * Retourne le plan de cabine du vol
+     *
+     * @return le plan de cabine, null si les places ne sont pas attribuées à des sièges
+     */
+    public PlanSieges getPlanSieges() {
+        return planSieges;
+    }
+
+    /**
+     * Modifie le plan de cabine du vol. Les sièges déjà attribués restent pris sur l'ancien plan,
+     * et les réservations payées ensuite reçoivent des sièges du nouveau. Tant qu'un plan est attaché,
+     * la capacité du vol ne peut plus changer
+     *
+     * @param planSieges le nouveau plan de cabine, null pour ne plus attribuer de sièges
+     * @exception IllegalArgumentException si le plan ne compte pas autant de sièges que la capacité du vol
+     * @exception IllegalArgumentException si le plan a déjà été donné à un autre vol
+     */
+    public synchronized void setPlanSieges(PlanSieges planSieges) {
+        if (planSieges != null) {
+            if (planSieges.getNombreSieges() != this.getCapacite()) {
+                throw new IllegalArgumentException("Le plan de cabine doit compter autant de sièges que la capacité du vol");
+            }
+            if (!planSieges.attacher(this)) {
+                throw new IllegalArgumentException("Le plan de cabine est déjà celui d'un autre vol");
+            }
+        }
+        this.planSieges = planSieges;
+    }
+
+    /**
+     * Retourne la liste d'attente du vol, en la créant si besoin
+     *
+     * @return la liste d'attente du vol
+     */
+    public ListeAttente getListeAttente() {
+        ListeAttente liste = this.listeAttente;
+        if (liste == null) {
+            synchronized (this) {
+                liste = this.listeAttente;
+                if (liste == null) {
+                    liste = new ListeAttente(this);
+                    this.listeAttente = liste;
+                }
+            }
+        }
+        return liste;
+    }
+
+    /**
+     * Promeut les réservations en attente du vol tant qu'il a assez de places.
+     * Sans effet si aucune réservation n'a jamais attendu ce vol
+     */
+    public void promouvoirListeAttente() {
+        ListeAttente liste = this.listeAttente;
+        if (liste != null) {
+            liste.promouvoir();
+        }
     }
 
     /**
@@ -454,10 +1023,58 @@ public class Vol {
     }
 
     /**
-     * Supprime le vol de la compagnie, de l'aéroport de départ et de l'aéroport d'arrivée
+     * Supprime une réservation du vol
+     *
+     * @param reservation la réservation à supprimer du vol
+     * @exception IllegalArgumentException si la réservation est null
+     */
+    public void removeReservationWithoutBidirectional(Reservation reservation) {
+        if(reservation == null) {
+            throw new IllegalArgumentException("reservation cannot be null");
+        }
+
+        this.reservations.remove(reservation);
+    }
+
+    /**
+     * Supprime le vol de la compagnie, de l'aéroport de départ et de l'aéroport d'arrivée.
+     * L'inventaire est fermé avant l'annulation des réservations pour qu'aucun paiement concurrent ne puisse aboutir.
+     * Sans effet si le vol est déjà supprimé : ses réservations sont annulées par l'appel qui l'a supprimé
      */
     public void removeVol() {
-        this.reservationOuverte = false;
+        EvenementProgramme evenement = EvenementProgramme.commencer("removeVol");
+        try {
+            if (this.supprimer()) {
+                for (Reservation reservation : this.reservations) {
+                    reservation.annulerParCompagnie();
+                }
+            }
+            evenement.reussir();
+        } finally {
+            evenement.terminer(this.numero, null, this.reservations.size());
+        }
+    }
+
+    /**
+     * Ferme le vol et le retire de la compagnie, des aéroports et du catalogue, sans annuler ses réservations.
+     * Une réservation créée en même temps voit le vol fermé ou figure dans ses réservations une fois le vol retiré.
+     * Parmi des appels concurrents, un seul retire le vol
+     *
+     * @return true si cet appel a retiré le vol, false s'il était déjà supprimé
+     */
+    boolean supprimer() {
+        if (!this.supprime.compareAndSet(false, true)) {
+            return false;
+        }
+        if (this.reservationOuverte) {
+            this.reservationOuverte = false;
+            Metriques.incrementer(Compteur.VOLS_FERMES);
+        }
+        this.inventaire.updateAndGet(etat -> etat.avecPlaces(INVENTAIRE_FERME));
+        CatalogueVols.getInstance().retirer(this);
+        IndexRoutes.getInstance().retirerVol(this);
+        CalendrierTarifs.getInstance().retirer(this);
+        this.invaliderRecherche(this.depart, this.arrivee, this.jourDepart);
         this.compagnie.removeVolWithoutBidirectional(this);
         this.compagnie = null;
         this.depart.removeVolAuDepartWithoutBidirectional(this);
@@ -467,17 +1084,95 @@ public class Vol {
         for (Escale escale : this.escales) {
             escale.removeEscale();
         }
-        for (Reservation reservation : this.reservations) {
-            reservation.annulerParCompagnie();
+        return true;
+    }
+
+    /**
+     * Retire le vol des ensembles qui le rangent par numéro et jour de départ, avant la modification de l'un d'eux,
+     * le catalogue l'ayant déjà rangé sous sa nouvelle clé. Sans effet si le vol a été supprimé
+     */
+    private void detacher() {
+        if (this.compagnie == null) {
+            return;
+        }
+        this.compagnie.removeVolWithoutBidirectional(this);
+        this.depart.removeVolAuDepartWithoutBidirectional(this);
+        this.arrivee.removeVolAArriveeWithoutBidirectional(this);
+    }
+
+    /**
+     * Remet le vol dans les ensembles qui le rangent par numéro et jour de départ, après la modification de l'un d'eux.
+     * Sans effet si le vol a été supprimé
+     */
+    private void rattacher() {
+        if (this.compagnie == null) {
+            return;
         }
+        this.compagnie.addVolWithoutBidirectional(this);
+        this.depart.addVolAuDepartWithoutBidirectional(this);
+        this.arrivee.addVolAArriveeWithoutBidirectional(this);
     }
 
+    /**
+     * Un vol est identifié par son numéro et son jour de départ, un même numéro étant réutilisé chaque jour
+     *
+     * @param obj l'objet à comparer
+     * @return true si l'objet est un vol de même numéro partant le même jour, false sinon
+     */
     @Override
     public boolean equals(Object obj) {
-        try {
-            return ((Vol) obj).getNumero().equals(this.numero);
-        } catch (Exception e){
-            return false;
+        if (this == obj) return true;
+        if (!(obj instanceof Vol)) return false;
+        Vol vol = (Vol) obj;
+        return this.numero.equals(vol.numero) && this.getJourDepart() == vol.getJourDepart();
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.numero.hashCode() + Long.hashCode(this.getJourDepart());
+    }
+
+    /**
+     * État immuable de l'inventaire d'un vol : la tranche qu'il porte est toujours celle de ses places,
+     * de sa capacité et de sa grille, qui ne sont jamais lues séparément
+     */
+    private static final class Inventaire {
+
+        /**
+         * Le nombre de places disponibles, {@link #INVENTAIRE_FERME} pour un vol supprimé
+         */
+        final int places;
+
+        /**
+         * Le nombre total de places du vol, vendues ou non
+         */
+        final int capacite;
+
+        /**
+         * La grille tarifaire appliquée au prix de base selon le remplissage du vol
+         */
+        final GrilleTarifaire grille;
+
+        /**
+         * L'indice de la tranche courante dans la grille
+         */
+        final int tranche;
+
+        Inventaire(int places, int capacite, GrilleTarifaire grille) {
+            this.places = places;
+            this.capacite = capacite;
+            this.grille = grille;
+            this.tranche = places == INVENTAIRE_FERME ? 0 : grille.tranche(capacite - places, capacite);
+        }
+
+        /**
+         * Retourne l'inventaire pour un autre nombre de places disponibles, avec la tranche correspondante
+         *
+         * @param places le nombre de places disponibles
+         * @return l'inventaire à publier
+         */
+        Inventaire avecPlaces(int places) {
+            return new Inventaire(places, this.capacite, this.grille);
         }
     }
 }
@@ -0,0 +1,114 @@
+package recherche;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Classe représentant un itinéraire composé d'un ou plusieurs tronçons avec correspondances
+ */
+public class Itineraire {
+
+    /**
+     * Les tronçons de l'itinéraire dans l'ordre
+     */
+    private final List<Troncon> troncons;
+
+    /**
+     * Le prix de l'itinéraire relevé par la recherche, sur les prix des vols au moment de la compilation du réseau
+     */
+    private final double prixRecherche;
+
+    /**
+     * Constructeur de la classe Itineraire
+     *
+     * @param troncons les tronçons de l'itinéraire dans l'ordre
+     * @param prixRecherche le prix de l'itinéraire relevé par la recherche
+     */
+    Itineraire(List<Troncon> troncons, double prixRecherche) {
+        this.troncons = Collections.unmodifiableList(troncons);
+        this.prixRecherche = prixRecherche;
+    }
+
+    /**
+     * Retourne les tronçons de l'itinéraire
+     *
+     * @return les tronçons de l'itinéraire dans l'ordre
+     */
+    public List<Troncon> getTroncons() {
+        return troncons;
+    }
+
+    /**
+     * Retourne la date de départ de l'itinéraire
+     *
+     * @return la date de départ du premier tronçon
+     */
+    public ZonedDateTime getDateDepart() {
+        return troncons.get(0).getDateDepart();
+    }
+
+    /**
+     * Retourne la date d'arrivée de l'itinéraire
+     *
+     * @return la date d'arrivée du dernier tronçon
+     */
+    public ZonedDateTime getDateArrivee() {
+        return troncons.get(troncons.size() - 1).getDateArrivee();
+    }
+
+    /**
+     * Retourne la durée totale de l'itinéraire, correspondances comprises
+     *
+     * @return la durée totale de l'itinéraire
+     */
+    public Duration getDuree() {
+        return Duration.between(getDateDepart(), getDateArrivee());
+    }
+
+    /**
+     * Retourne le nombre de correspondances de l'itinéraire
+     *
+     * @return le nombre de changements de vol
+     */
+    public int getNombreCorrespondances() {
+        return troncons.size() - 1;
+    }
+
+    /**
+     * Retourne le nombre d'arrêts de l'itinéraire, escales traversées et correspondances comprises
+     *
+     * @return le nombre d'arrêts de l'itinéraire
+     */
+    public int getNombreArrets() {
+        int arrets = getNombreCorrespondances();
+        for (Troncon troncon : troncons) {
+            arrets += troncon.getNombreEscales();
+        }
+        return arrets;
+    }
+
+    /**
+     * Retourne le prix de l'itinéraire, somme du prix courant d'une place sur chaque vol emprunté
+     *
+     * @return le prix de l'itinéraire
+     */
+    public double getPrix() {
+        double prix = 0;
+        for (Troncon troncon : troncons) {
+            prix += troncon.getVol().getPrixCourant();
+        }
+        return prix;
+    }
+
+    /**
+     * Retourne le prix de l'itinéraire relevé par la recherche, celui sur lequel elle a comparé et trié les
+     * itinéraires. Il peut différer du prix courant si le remplissage d'un vol a changé depuis
+     *
+     * @return le prix de l'itinéraire au moment de la recherche
+     */
+    public double getPrixRecherche() {
+        return prixRecherche;
+    }
+}
@@ -0,0 +1,319 @@
+package recherche;
+
+import gestionVol.Aeroport;
+import gestionVol.Ville;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Classe de recherche des itinéraires arrivant au plus tôt, par balayage des connexions (Connection Scan Algorithm).
+ * Les connexions du réseau étant triées par heure de départ, une requête se résume à un parcours linéaire
+ * à partir de l'heure de départ, interrompu dès que plus aucune connexion ne peut améliorer l'arrivée
+ */
+public class RechercheItineraires {
+
+    /**
+     * Valeur des heures d'arrivée encore inconnues
+     */
+    private static final long INATTEIGNABLE = Long.MAX_VALUE;
+
+    /**
+     * Le réseau parcouru
+     */
+    private final ReseauVols reseau;
+
+    /**
+     * Le temps de correspondance minimal de chaque aéroport, en secondes
+     */
+    private final long[] correspondanceMinimale;
+
+    /**
+     * Les tableaux de travail de chaque thread, réutilisés d'une requête à l'autre
+     */
+    private final ThreadLocal<EspaceTravail> espaces;
+
+    /**
+     * Tableaux de travail d'une requête
+     */
+    private static class EspaceTravail {
+
+        /**
+         * L'heure d'arrivée au plus tôt à chaque aéroport
+         */
+        final long[] arrivee;
+
+        /**
+         * La connexion par laquelle on arrive au plus tôt à chaque aéroport, -1 pour une origine
+         */
+        final int[] connexionArrivee;
+
+        /**
+         * La connexion à laquelle on est monté dans le vol menant au plus tôt à chaque aéroport
+         */
+        final int[] connexionEmbarquement;
+
+        /**
+         * Le numéro de la dernière requête ayant atteint chaque vol, pour éviter de réinitialiser le tableau
+         */
+        final int[] volAtteint;
+
+        /**
+         * La connexion à laquelle on est monté dans chaque vol atteint
+         */
+        final int[] embarquementVol;
+
+        /**
+         * Le numéro de la requête en cours
+         */
+        int requete;
+
+        EspaceTravail(int nombreAeroports, int nombreVols) {
+            this.arrivee = new long[nombreAeroports];
+            this.connexionArrivee = new int[nombreAeroports];
+            this.connexionEmbarquement = new int[nombreAeroports];
+            this.volAtteint = new int[nombreVols];
+            this.embarquementVol = new int[nombreVols];
+        }
+    }
+
+    /**
+     * Constructeur de la classe RechercheItineraires
+     *
+     * @param reseau le réseau à parcourir
+     * @param correspondanceMinimale le temps de correspondance minimal par défaut entre deux vols
+     * @exception IllegalArgumentException si le réseau ou le temps de correspondance est null
+     * @exception IllegalArgumentException si le temps de correspondance est négatif
+     */
+    public RechercheItineraires(ReseauVols reseau, Duration correspondanceMinimale) {
+        if (reseau == null || correspondanceMinimale == null) {
+            throw new IllegalArgumentException("reseau and correspondanceMinimale cannot be null");
+        }
+        if (correspondanceMinimale.isNegative()) {
+            throw new IllegalArgumentException("correspondanceMinimale doit être positive");
+        }
+
+        this.reseau = reseau;
+        this.correspondanceMinimale = new long[reseau.getNombreAeroports()];
+        Arrays.fill(this.correspondanceMinimale, correspondanceMinimale.getSeconds());
+        this.espaces = ThreadLocal.withInitial(() -> new EspaceTravail(reseau.getNombreAeroports(), reseau.getNombreVols()));
+    }
+
+    /**
+     * Modifie le temps de correspondance minimal d'un aéroport.
+     * À effectuer avant de lancer des recherches concurrentes
+     *
+     * @param aeroport l'aéroport
+     * @param correspondanceMinimale le temps de correspondance minimal à l'aéroport
+     * @exception IllegalArgumentException si l'aéroport ou le temps de correspondance est null
+     * @exception IllegalArgumentException si le temps de correspondance est négatif
+     */
+    public void setCorrespondanceMinimale(Aeroport aeroport, Duration correspondanceMinimale) {
+        if (aeroport == null || correspondanceMinimale == null) {
+            throw new IllegalArgumentException("aeroport and correspondanceMinimale cannot be null");
+        }
+        if (correspondanceMinimale.isNegative()) {
+            throw new IllegalArgumentException("correspondanceMinimale doit être positive");
+        }
+
+        int indice = this.reseau.indice(aeroport);
+        if (indice >= 0) {
+            this.correspondanceMinimale[indice] = correspondanceMinimale.getSeconds();
+        }
+    }
+
+    /**
+     * Recherche les itinéraires arrivant au plus tôt entre deux villes, en considérant tous les aéroports
+     * de chaque ville ainsi que les aéroports qui la desservent
+     *
+     * @param origine la ville de départ
+     * @param destination la ville d'arrivée
+     * @param depart la date à partir de laquelle on peut partir
+     * @exception IllegalArgumentException si une ville ou la date de départ est null
+     *
+     * @return le meilleur itinéraire vers chaque aéroport de destination atteignable, trié par date d'arrivée
+     */
+    public List<Itineraire> rechercher(Ville origine, Ville destination, ZonedDateTime depart) {
+        if (origine == null || destination == null) {
+            throw new IllegalArgumentException("origine and destination cannot be null");
+        }
+
+        return rechercher(aeroports(origine), aeroports(destination), depart);
+    }
+
+    /**
+     * Recherche l'itinéraire arrivant au plus tôt entre deux aéroports
+     *
+     * @param origine l'aéroport de départ
+     * @param destination l'aéroport d'arrivée
+     * @param depart la date à partir de laquelle on peut partir
+     * @exception IllegalArgumentException si un aéroport ou la date de départ est null
+     *
+     * @return une liste contenant l'itinéraire arrivant au plus tôt, vide si la destination est inatteignable
+     */
+    public List<Itineraire> rechercher(Aeroport origine, Aeroport destination, ZonedDateTime depart) {
+        if (origine == null || destination == null) {
+            throw new IllegalArgumentException("origine and destination cannot be null");
+        }
+
+        return rechercher(Collections.singleton(origine), Collections.singleton(destination), depart);
+    }
+
+    /**
+     * Recherche les itinéraires arrivant au plus tôt depuis un ensemble d'aéroports vers un autre
+     *
+     * @param origines les aéroports de départ
+     * @param destinations les aéroports d'arrivée
+     * @param depart la date à partir de laquelle on peut partir
+     * @exception IllegalArgumentException si la date de départ est null
+     *
+     * @return le meilleur itinéraire vers chaque aéroport de destination atteignable, trié par date d'arrivée
+     */
+    private List<Itineraire> rechercher(Set<Aeroport> origines, Set<Aeroport> destinations, ZonedDateTime depart) {
+        if (depart == null) {
+            throw new IllegalArgumentException("depart cannot be null");
+        }
+
+        EspaceTravail espace = this.espaces.get();
+        long[] arrivee = espace.arrivee;
+        int[] connexionArrivee = espace.connexionArrivee;
+        int[] connexionEmbarquement = espace.connexionEmbarquement;
+        int[] volAtteint = espace.volAtteint;
+        int[] embarquementVol = espace.embarquementVol;
+        int requete = ++espace.requete;
+        if (requete == 0) {
+            // Débordement du compteur de requêtes : on repart d'un tableau propre
+            Arrays.fill(volAtteint, 0);
+            requete = espace.requete = 1;
+        }
+
+        Arrays.fill(arrivee, INATTEIGNABLE);
+        long heureDepart = depart.toEpochSecond();
+        for (Aeroport aeroport : origines) {
+            int indice = this.reseau.indice(aeroport);
+            if (indice >= 0) {
+                arrivee[indice] = heureDepart;
+                connexionArrivee[indice] = -1;
+            }
+        }
+
+        int[] cibles = new int[destinations.size()];
+        int nombreCibles = 0;
+        for (Aeroport aeroport : destinations) {
+            int indice = this.reseau.indice(aeroport);
+            if (indice >= 0) {
+                cibles[nombreCibles++] = indice;
+            }
+        }
+        if (nombreCibles == 0) {
+            return new ArrayList<>();
+        }
+
+        int[] cDepart = this.reseau.connexionDepart;
+        int[] cArrivee = this.reseau.connexionArrivee;
+        long[] cHeureDepart = this.reseau.connexionHeureDepart;
+        long[] cHeureArrivee = this.reseau.connexionHeureArrivee;
+        int[] cVol = this.reseau.connexionVol;
+
+        // Dès que toutes les destinations sont atteintes, aucune connexion partant après la plus tardive
+        // de leurs arrivées ne peut plus les améliorer
+        long borne = INATTEIGNABLE;
+        for (int i = this.reseau.premiereConnexion(heureDepart); i < cDepart.length; i++) {
+            long heure = cHeureDepart[i];
+            if (heure >= borne) {
+                break;
+            }
+
+            int vol = cVol[i];
+            if (volAtteint[vol] != requete) {
+                int aeroport = cDepart[i];
+                long arriveeAeroport = arrivee[aeroport];
+                if (arriveeAeroport == INATTEIGNABLE) {
+                    continue;
+                }
+                long correspondance = connexionArrivee[aeroport] < 0 ? 0 : this.correspondanceMinimale[aeroport];
+                if (arriveeAeroport + correspondance > heure) {
+                    continue;
+                }
+                volAtteint[vol] = requete;
+                embarquementVol[vol] = i;
+            }
+
+            int suivant = cArrivee[i];
+            long heureArrivee = cHeureArrivee[i];
+            if (heureArrivee < arrivee[suivant]) {
+                arrivee[suivant] = heureArrivee;
+                connexionArrivee[suivant] = i;
+                connexionEmbarquement[suivant] = embarquementVol[vol];
+                borne = borne(cibles, nombreCibles, arrivee);
+            }
+        }
+
+        List<Itineraire> itineraires = new ArrayList<>();
+        for (int c = 0; c < nombreCibles; c++) {
+            int cible = cibles[c];
+            if (arrivee[cible] != INATTEIGNABLE && connexionArrivee[cible] >= 0) {
+                itineraires.add(reconstruire(cible, connexionArrivee, connexionEmbarquement));
+            }
+        }
+        itineraires.sort(Comparator.comparing(Itineraire::getDateArrivee));
+        return itineraires;
+    }
+
+    /**
+     * Retourne l'heure au-delà de laquelle plus aucune connexion ne peut améliorer les destinations
+     *
+     * @param cibles les indices des aéroports de destination
+     * @param nombreCibles le nombre de destinations
+     * @param arrivee l'heure d'arrivée au plus tôt à chaque aéroport
+     * @return la plus tardive des arrivées aux destinations, ou INATTEIGNABLE si une destination n'est pas encore atteinte
+     */
+    private static long borne(int[] cibles, int nombreCibles, long[] arrivee) {
+        long borne = 0;
+        for (int c = 0; c < nombreCibles; c++) {
+            borne = Math.max(borne, arrivee[cibles[c]]);
+        }
+        return borne;
+    }
+
+    /**
+     * Reconstruit l'itinéraire menant à un aéroport en remontant les connexions d'arrivée
+     *
+     * @param cible l'indice de l'aéroport atteint
+     * @param connexionArrivee la connexion d'arrivée au plus tôt à chaque aéroport
+     * @param connexionEmbarquement la connexion d'embarquement correspondante
+     * @return l'itinéraire menant à l'aéroport
+     */
+    private Itineraire reconstruire(int cible, int[] connexionArrivee, int[] connexionEmbarquement) {
+        List<Troncon> troncons = new ArrayList<>();
+        double prix = 0;
+        int aeroport = cible;
+        while (connexionArrivee[aeroport] >= 0) {
+            int embarquement = connexionEmbarquement[aeroport];
+            troncons.add(this.reseau.troncon(embarquement, connexionArrivee[aeroport]));
+            prix += this.reseau.prixVol[this.reseau.connexionVol[embarquement]];
+            aeroport = this.reseau.connexionDepart[embarquement];
+        }
+        Collections.reverse(troncons);
+        return new Itineraire(troncons, prix);
+    }
+
+    /**
+     * Retourne les aéroports d'une ville et les aéroports qui la desservent
+     *
+     * @param ville la ville
+     * @return les aéroports de la ville et ceux qui la desservent
+     */
+    private static Set<Aeroport> aeroports(Ville ville) {
+        Set<Aeroport> aeroports = new HashSet<>(ville.getAeroports());
+        aeroports.addAll(ville.getAeroportsDesservant());
+        return aeroports;
+    }
+}
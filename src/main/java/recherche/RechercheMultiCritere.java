@@ -0,0 +1,637 @@
+package recherche;
+
+import gestionVol.Aeroport;
+import gestionVol.Ville;
+import supervision.Compteur;
+import supervision.Metriques;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Classe de recherche multicritère des itinéraires par tours successifs, à la manière de RAPTOR.
+ * Le tour k étend d'un vol supplémentaire les étiquettes créées au tour k - 1, ce qui donne en une seule passe
+ * le front de Pareto des itinéraires selon la durée, le prix et le nombre d'arrêts (escales et correspondances).
+ * Les étiquettes sont rangées dans des tableaux primitifs propres à chaque thread, de taille bornée et réutilisés
+ * d'une requête à l'autre : une requête n'alloue que les itinéraires qu'elle retourne.
+ * Le sac d'un aéroport qui déborde est déplacé dans un emplacement deux fois plus grand, pris dans une réserve
+ * bornée, et le front grandit de même ; les tableaux agrandis sont conservés pour les requêtes suivantes.
+ * Une requête qui épuise les étiquettes ou la réserve des sacs écarte les étiquettes suivantes : elle est alors
+ * tronquée, ce qui est compté dans les {@link Metriques} et indiqué par {@link #isDerniereRechercheTronquee()}
+ */
+public class RechercheMultiCritere {
+
+    /**
+     * Le nombre d'étiquettes non dominées que peut contenir le sac d'un aéroport avant d'être agrandi
+     */
+    private static final int CAPACITE_SAC = 8;
+
+    /**
+     * Le nombre d'itinéraires que peut contenir le front de Pareto avant d'être agrandi
+     */
+    private static final int CAPACITE_FRONT = 64;
+
+    /**
+     * Le nombre maximal d'étiquettes créées par requête
+     */
+    private static final int CAPACITE_ETIQUETTES = 1 << 16;
+
+    /**
+     * La taille maximale de la réserve des sacs agrandis : les sacs ne contiennent jamais plus d'étiquettes
+     * qu'il n'en est créé, et chaque agrandissement au plus double la place occupée
+     */
+    private static final int CAPACITE_RESERVE_SACS = 2 * CAPACITE_ETIQUETTES;
+
+    /**
+     * Le premier départ des étiquettes d'origine, qui n'ont encore emprunté aucun vol
+     */
+    private static final long AUCUN_DEPART = Long.MAX_VALUE;
+
+    /**
+     * Le réseau parcouru
+     */
+    private final ReseauVols reseau;
+
+    /**
+     * Le temps de correspondance minimal de chaque aéroport, en secondes
+     */
+    private final long[] correspondanceMinimale;
+
+    /**
+     * Le nombre maximal de vols d'un itinéraire
+     */
+    private final int nombreMaximalVols;
+
+    /**
+     * La durée après l'heure de départ demandée pendant laquelle on peut embarquer, en secondes
+     */
+    private final long fenetre;
+
+    /**
+     * Les tableaux de travail de chaque thread, réutilisés d'une requête à l'autre
+     */
+    private final ThreadLocal<EspaceTravail> espaces;
+
+    /**
+     * Tableaux de travail d'une requête. Une étiquette est un indice dans les tableaux d'étiquettes
+     */
+    private static class EspaceTravail {
+
+        final long[] arrivee = new long[CAPACITE_ETIQUETTES];
+        final long[] premierDepart = new long[CAPACITE_ETIQUETTES];
+        final double[] prix = new double[CAPACITE_ETIQUETTES];
+        final int[] arrets = new int[CAPACITE_ETIQUETTES];
+        final int[] aeroport = new int[CAPACITE_ETIQUETTES];
+        final int[] parent = new int[CAPACITE_ETIQUETTES];
+        final int[] embarquement = new int[CAPACITE_ETIQUETTES];
+        final int[] debarquement = new int[CAPACITE_ETIQUETTES];
+        final boolean[] domine = new boolean[CAPACITE_ETIQUETTES];
+
+        /**
+         * Le nombre d'étiquettes créées par la requête en cours
+         */
+        int nombreEtiquettes;
+
+        /**
+         * Les étiquettes non dominées de chaque aéroport : CAPACITE_SAC emplacements par aéroport, suivis
+         * de la réserve des sacs agrandis
+         */
+        int[] sacs;
+
+        /**
+         * La fin de la partie de la réserve utilisée par la requête en cours
+         */
+        int finSacs;
+
+        /**
+         * Le premier emplacement du sac de chaque aéroport
+         */
+        final int[] debutSac;
+
+        /**
+         * Le nombre d'emplacements du sac de chaque aéroport
+         */
+        final int[] capaciteSac;
+
+        /**
+         * Le nombre d'étiquettes dans le sac de chaque aéroport
+         */
+        final int[] tailleSac;
+
+        /**
+         * Les aéroports dont le sac a été modifié par la requête en cours
+         */
+        final int[] aeroportsModifies;
+        int nombreAeroportsModifies;
+
+        /**
+         * Si chaque aéroport est une destination de la requête en cours
+         */
+        final boolean[] destination;
+
+        /**
+         * Les étiquettes arrivées à destination et non dominées
+         */
+        int[] front = new int[CAPACITE_FRONT];
+        int tailleFront;
+
+        /**
+         * Si la requête en cours a dû écarter des étiquettes faute de place
+         */
+        boolean tronquee;
+
+        /**
+         * Les étiquettes créées au tour précédent et au tour en cours
+         */
+        int[] tourPrecedent = new int[CAPACITE_ETIQUETTES];
+        int[] tourCourant = new int[CAPACITE_ETIQUETTES];
+        int taillePrecedent;
+        int tailleCourant;
+
+        EspaceTravail(int nombreAeroports) {
+            this.sacs = new int[nombreAeroports * CAPACITE_SAC];
+            this.finSacs = this.sacs.length;
+            this.debutSac = new int[nombreAeroports];
+            this.capaciteSac = new int[nombreAeroports];
+            for (int a = 0; a < nombreAeroports; a++) {
+                this.debutSac[a] = a * CAPACITE_SAC;
+                this.capaciteSac[a] = CAPACITE_SAC;
+            }
+            this.tailleSac = new int[nombreAeroports];
+            this.aeroportsModifies = new int[nombreAeroports];
+            this.destination = new boolean[nombreAeroports];
+        }
+
+        /**
+         * Remet à zéro les structures touchées par la requête précédente
+         */
+        void reinitialiser() {
+            for (int i = 0; i < nombreAeroportsModifies; i++) {
+                int a = aeroportsModifies[i];
+                tailleSac[a] = 0;
+                debutSac[a] = a * CAPACITE_SAC;
+                capaciteSac[a] = CAPACITE_SAC;
+            }
+            Arrays.fill(destination, false);
+            finSacs = tailleSac.length * CAPACITE_SAC;
+            nombreAeroportsModifies = 0;
+            nombreEtiquettes = 0;
+            tailleFront = 0;
+            taillePrecedent = 0;
+            tailleCourant = 0;
+            tronquee = false;
+        }
+
+        /**
+         * Déplace le sac plein d'un aéroport dans un emplacement deux fois plus grand de la réserve,
+         * en agrandissant la réserve si besoin
+         *
+         * @param aeroport l'indice de l'aéroport
+         * @return true si le sac a été agrandi, false si la réserve est épuisée
+         */
+        boolean agrandirSac(int aeroport) {
+            int capacite = 2 * capaciteSac[aeroport];
+            int limite = tailleSac.length * CAPACITE_SAC + CAPACITE_RESERVE_SACS;
+            if (finSacs + capacite > limite) {
+                return false;
+            }
+            if (finSacs + capacite > sacs.length) {
+                sacs = Arrays.copyOf(sacs, Math.min(limite, Math.max(2 * sacs.length, finSacs + capacite)));
+            }
+            System.arraycopy(sacs, debutSac[aeroport], sacs, finSacs, tailleSac[aeroport]);
+            debutSac[aeroport] = finSacs;
+            capaciteSac[aeroport] = capacite;
+            finSacs += capacite;
+            return true;
+        }
+
+        /**
+         * Indique si une étiquette domine une candidate, selon l'arrivée, le premier départ, le prix et les arrêts
+         *
+         * @param a l'étiquette
+         * @param arriveeB l'heure d'arrivée de la candidate
+         * @param premierDepartB l'heure du premier départ de la candidate
+         * @param prixB le prix de la candidate
+         * @param arretsB le nombre d'arrêts de la candidate
+         * @return true si l'étiquette est au moins aussi bonne que la candidate sur tous les critères
+         */
+        boolean etiquetteDomine(int a, long arriveeB, long premierDepartB, double prixB, int arretsB) {
+            return arrivee[a] <= arriveeB && premierDepart[a] >= premierDepartB && prix[a] <= prixB && arrets[a] <= arretsB;
+        }
+
+        /**
+         * Indique si une candidate domine une étiquette
+         *
+         * @param b l'étiquette
+         * @param arriveeA l'heure d'arrivée de la candidate
+         * @param premierDepartA l'heure du premier départ de la candidate
+         * @param prixA le prix de la candidate
+         * @param arretsA le nombre d'arrêts de la candidate
+         * @return true si la candidate est au moins aussi bonne que l'étiquette sur tous les critères
+         */
+        boolean candidateDomine(int b, long arriveeA, long premierDepartA, double prixA, int arretsA) {
+            return arriveeA <= arrivee[b] && premierDepartA >= premierDepart[b] && prixA <= prix[b] && arretsA <= arrets[b];
+        }
+    }
+
+    /**
+     * Constructeur de la classe RechercheMultiCritere, limitée à trois vols partant dans les 24 heures
+     *
+     * @param reseau le réseau à parcourir
+     * @param correspondanceMinimale le temps de correspondance minimal par défaut entre deux vols
+     * @exception IllegalArgumentException si le réseau ou le temps de correspondance est null
+     * @exception IllegalArgumentException si le temps de correspondance est négatif
+     */
+    public RechercheMultiCritere(ReseauVols reseau, Duration correspondanceMinimale) {
+        this(reseau, correspondanceMinimale, 3, Duration.ofHours(24));
+    }
+
+    /**
+     * Constructeur de la classe RechercheMultiCritere
+     *
+     * @param reseau le réseau à parcourir
+     * @param correspondanceMinimale le temps de correspondance minimal par défaut entre deux vols
+     * @param nombreMaximalVols le nombre maximal de vols d'un itinéraire, c'est-à-dire le nombre de tours
+     * @param fenetre la durée après l'heure de départ demandée pendant laquelle on peut embarquer
+     * @exception IllegalArgumentException si le réseau, le temps de correspondance ou la fenêtre est null
+     * @exception IllegalArgumentException si le temps de correspondance ou la fenêtre est négatif
+     * @exception IllegalArgumentException si le nombre maximal de vols n'est pas strictement positif
+     */
+    public RechercheMultiCritere(ReseauVols reseau, Duration correspondanceMinimale, int nombreMaximalVols, Duration fenetre) {
+        if (reseau == null || correspondanceMinimale == null || fenetre == null) {
+            throw new IllegalArgumentException("reseau, correspondanceMinimale and fenetre cannot be null");
+        }
+        if (correspondanceMinimale.isNegative() || fenetre.isNegative()) {
+            throw new IllegalArgumentException("correspondanceMinimale et fenetre doivent être positives");
+        }
+        if (nombreMaximalVols <= 0) {
+            throw new IllegalArgumentException("nombreMaximalVols doit être strictement positif");
+        }
+
+        this.reseau = reseau;
+        this.correspondanceMinimale = new long[reseau.getNombreAeroports()];
+        Arrays.fill(this.correspondanceMinimale, correspondanceMinimale.getSeconds());
+        this.nombreMaximalVols = nombreMaximalVols;
+        this.fenetre = fenetre.getSeconds();
+        this.espaces = ThreadLocal.withInitial(() -> new EspaceTravail(reseau.getNombreAeroports()));
+    }
+
+    /**
+     * Modifie le temps de correspondance minimal d'un aéroport.
+     * À effectuer avant de lancer des recherches concurrentes
+     *
+     * @param aeroport l'aéroport
+     * @param correspondanceMinimale le temps de correspondance minimal à l'aéroport
+     * @exception IllegalArgumentException si l'aéroport ou le temps de correspondance est null
+     * @exception IllegalArgumentException si le temps de correspondance est négatif
+     */
+    public void setCorrespondanceMinimale(Aeroport aeroport, Duration correspondanceMinimale) {
+        if (aeroport == null || correspondanceMinimale == null) {
+            throw new IllegalArgumentException("aeroport and correspondanceMinimale cannot be null");
+        }
+        if (correspondanceMinimale.isNegative()) {
+            throw new IllegalArgumentException("correspondanceMinimale doit être positive");
+        }
+
+        int indice = this.reseau.indice(aeroport);
+        if (indice >= 0) {
+            this.correspondanceMinimale[indice] = correspondanceMinimale.getSeconds();
+        }
+    }
+
+    /**
+     * Recherche le front de Pareto des itinéraires entre deux villes, en considérant tous les aéroports
+     * de chaque ville ainsi que les aéroports qui la desservent
+     *
+     * @param origine la ville de départ
+     * @param destination la ville d'arrivée
+     * @param depart la date à partir de laquelle on peut partir
+     * @exception IllegalArgumentException si une ville ou la date de départ est null
+     *
+     * @return les itinéraires non dominés selon la durée, le prix et le nombre d'arrêts, triés par prix
+     */
+    public List<Itineraire> rechercher(Ville origine, Ville destination, ZonedDateTime depart) {
+        if (origine == null || destination == null) {
+            throw new IllegalArgumentException("origine and destination cannot be null");
+        }
+
+        return rechercher(aeroports(origine), aeroports(destination), depart);
+    }
+
+    /**
+     * Recherche le front de Pareto des itinéraires entre deux aéroports
+     *
+     * @param origine l'aéroport de départ
+     * @param destination l'aéroport d'arrivée
+     * @param depart la date à partir de laquelle on peut partir
+     * @exception IllegalArgumentException si un aéroport ou la date de départ est null
+     *
+     * @return les itinéraires non dominés selon la durée, le prix et le nombre d'arrêts, triés par prix
+     */
+    public List<Itineraire> rechercher(Aeroport origine, Aeroport destination, ZonedDateTime depart) {
+        if (origine == null || destination == null) {
+            throw new IllegalArgumentException("origine and destination cannot be null");
+        }
+
+        return rechercher(Collections.singleton(origine), Collections.singleton(destination), depart);
+    }
+
+    /**
+     * Recherche le front de Pareto des itinéraires depuis un ensemble d'aéroports vers un autre
+     *
+     * @param origines les aéroports de départ
+     * @param destinations les aéroports d'arrivée
+     * @param depart la date à partir de laquelle on peut partir
+     * @exception IllegalArgumentException si la date de départ est null
+     *
+     * @return les itinéraires non dominés selon la durée, le prix et le nombre d'arrêts, triés par prix
+     */
+    private List<Itineraire> rechercher(Set<Aeroport> origines, Set<Aeroport> destinations, ZonedDateTime depart) {
+        if (depart == null) {
+            throw new IllegalArgumentException("depart cannot be null");
+        }
+
+        EspaceTravail espace = this.espaces.get();
+        espace.reinitialiser();
+
+        long heureDepart = depart.toEpochSecond();
+        long dernierEmbarquement = heureDepart + this.fenetre;
+        for (Aeroport aeroport : destinations) {
+            int indice = this.reseau.indice(aeroport);
+            if (indice >= 0) {
+                espace.destination[indice] = true;
+            }
+        }
+        for (Aeroport aeroport : origines) {
+            int indice = this.reseau.indice(aeroport);
+            if (indice >= 0 && !espace.destination[indice]) {
+                int etiquette = inserer(espace, indice, heureDepart, AUCUN_DEPART, 0, 0, -1, -1, -1);
+                if (etiquette >= 0) {
+                    espace.tourCourant[espace.tailleCourant++] = etiquette;
+                }
+            }
+        }
+
+        for (int tour = 1; tour <= this.nombreMaximalVols && espace.tailleCourant > 0; tour++) {
+            int[] precedent = espace.tourCourant;
+            espace.tourCourant = espace.tourPrecedent;
+            espace.tourPrecedent = precedent;
+            espace.taillePrecedent = espace.tailleCourant;
+            espace.tailleCourant = 0;
+
+            for (int e = 0; e < espace.taillePrecedent; e++) {
+                int etiquette = espace.tourPrecedent[e];
+                if (!espace.domine[etiquette]) {
+                    etendre(espace, etiquette, dernierEmbarquement);
+                }
+            }
+        }
+
+        if (espace.tronquee) {
+            Metriques.incrementer(Compteur.RECHERCHES_TRONQUEES);
+        }
+        return front(espace);
+    }
+
+    /**
+     * Retourne si la dernière recherche du thread appelant a dû écarter des étiquettes faute de place,
+     * auquel cas des itinéraires non dominés peuvent manquer à son résultat
+     *
+     * @return true si la dernière recherche du thread a été tronquée
+     */
+    public boolean isDerniereRechercheTronquee() {
+        return this.espaces.get().tronquee;
+    }
+
+    /**
+     * Étend une étiquette de tous les vols qu'on peut prendre depuis son aéroport
+     *
+     * @param espace l'espace de travail
+     * @param etiquette l'étiquette à étendre
+     * @param dernierEmbarquement l'heure au-delà de laquelle on ne peut plus embarquer
+     */
+    private void etendre(EspaceTravail espace, int etiquette, long dernierEmbarquement) {
+        ReseauVols r = this.reseau;
+        int aeroport = espace.aeroport[etiquette];
+        boolean origine = espace.parent[etiquette] < 0;
+        long disponible = espace.arrivee[etiquette] + (origine ? 0 : this.correspondanceMinimale[aeroport]);
+        int volPrecedent = origine ? -1 : r.connexionVol[espace.embarquement[etiquette]];
+
+        int debut = premierDepart(aeroport, disponible);
+        int fin = r.debutDepartsAeroport[aeroport + 1];
+        for (int d = debut; d < fin; d++) {
+            int embarquement = r.departsAeroport[d];
+            long heureEmbarquement = r.connexionHeureDepart[embarquement];
+            if (heureEmbarquement > dernierEmbarquement) {
+                break;
+            }
+            int vol = r.connexionVol[embarquement];
+            if (vol == volPrecedent) {
+                continue;
+            }
+
+            long premierDepart = origine ? heureEmbarquement : espace.premierDepart[etiquette];
+            double prix = espace.prix[etiquette] + r.prixVol[vol];
+            int arrets = espace.arrets[etiquette] + (origine ? 0 : 1);
+
+            // On descend à chaque arrêt suivant du vol, en comptant les escales traversées
+            int finVol = r.debutConnexionsVol[vol + 1];
+            for (int c = r.debutConnexionsVol[vol] + r.connexionRang[embarquement]; c < finVol; c++) {
+                int debarquement = r.connexionsVol[c];
+                int nouvelle = inserer(espace, r.connexionArrivee[debarquement], r.connexionHeureArrivee[debarquement],
+                        premierDepart, prix, arrets, etiquette, embarquement, debarquement);
+                if (nouvelle >= 0 && !espace.destination[r.connexionArrivee[debarquement]]) {
+                    if (espace.tailleCourant < espace.tourCourant.length) {
+                        espace.tourCourant[espace.tailleCourant++] = nouvelle;
+                    } else {
+                        espace.tronquee = true;
+                    }
+                }
+                arrets++;
+            }
+        }
+    }
+
+    /**
+     * Insère une étiquette candidate dans le sac de son aéroport si elle n'est dominée ni par le sac
+     * ni par le front des destinations
+     *
+     * @param espace l'espace de travail
+     * @param aeroport l'indice de l'aéroport atteint
+     * @param arrivee l'heure d'arrivée à l'aéroport
+     * @param premierDepart l'heure de départ du premier vol de l'itinéraire
+     * @param prix le prix cumulé de l'itinéraire
+     * @param arrets le nombre d'arrêts cumulé de l'itinéraire
+     * @param parent l'étiquette étendue, -1 pour une origine
+     * @param embarquement la connexion à laquelle on monte dans le dernier vol
+     * @param debarquement la connexion à l'issue de laquelle on descend du dernier vol
+     * @return l'étiquette créée, ou -1 si la candidate est dominée ou si la requête est tronquée faute de place
+     */
+    private int inserer(EspaceTravail espace, int aeroport, long arrivee, long premierDepart, double prix, int arrets,
+                        int parent, int embarquement, int debarquement) {
+        // Toute extension d'une étiquette dominée par une arrivée à destination restera dominée
+        for (int i = 0; i < espace.tailleFront; i++) {
+            if (espace.etiquetteDomine(espace.front[i], arrivee, premierDepart, prix, arrets)) {
+                return -1;
+            }
+        }
+
+        int base = espace.debutSac[aeroport];
+        int taille = espace.tailleSac[aeroport];
+        for (int i = 0; i < taille; i++) {
+            if (espace.etiquetteDomine(espace.sacs[base + i], arrivee, premierDepart, prix, arrets)) {
+                return -1;
+            }
+        }
+        if (espace.nombreEtiquettes == CAPACITE_ETIQUETTES) {
+            espace.tronquee = true;
+            return -1;
+        }
+
+        int etiquette = espace.nombreEtiquettes++;
+        espace.arrivee[etiquette] = arrivee;
+        espace.premierDepart[etiquette] = premierDepart;
+        espace.prix[etiquette] = prix;
+        espace.arrets[etiquette] = arrets;
+        espace.aeroport[etiquette] = aeroport;
+        espace.parent[etiquette] = parent;
+        espace.embarquement[etiquette] = embarquement;
+        espace.debarquement[etiquette] = debarquement;
+        espace.domine[etiquette] = false;
+
+        // Retrait des étiquettes du sac dominées par la nouvelle
+        int conservees = 0;
+        for (int i = 0; i < taille; i++) {
+            int autre = espace.sacs[base + i];
+            if (espace.candidateDomine(autre, arrivee, premierDepart, prix, arrets)) {
+                espace.domine[autre] = true;
+            } else {
+                espace.sacs[base + conservees++] = autre;
+            }
+        }
+        if (taille == 0) {
+            espace.aeroportsModifies[espace.nombreAeroportsModifies++] = aeroport;
+        }
+        espace.tailleSac[aeroport] = conservees;
+        if (conservees == espace.capaciteSac[aeroport] && !espace.agrandirSac(aeroport)) {
+            // Réserve épuisée : la nouvelle étiquette n'est pas conservée, ce qui borne la mémoire de la requête
+            espace.nombreEtiquettes--;
+            espace.tronquee = true;
+            return -1;
+        }
+        espace.sacs[espace.debutSac[aeroport] + conservees] = etiquette;
+        espace.tailleSac[aeroport] = conservees + 1;
+
+        if (espace.destination[aeroport]) {
+            ajouterAuFront(espace, etiquette);
+        }
+        return etiquette;
+    }
+
+    /**
+     * Ajoute une étiquette arrivée à destination au front de Pareto, en l'agrandissant s'il est plein.
+     * Le front ne contient jamais plus d'étiquettes qu'il n'en est créé
+     *
+     * @param espace l'espace de travail
+     * @param etiquette l'étiquette arrivée à destination
+     */
+    private static void ajouterAuFront(EspaceTravail espace, int etiquette) {
+        int conservees = 0;
+        for (int i = 0; i < espace.tailleFront; i++) {
+            int autre = espace.front[i];
+            if (!espace.candidateDomine(autre, espace.arrivee[etiquette], espace.premierDepart[etiquette], espace.prix[etiquette], espace.arrets[etiquette])) {
+                espace.front[conservees++] = autre;
+            }
+        }
+        if (conservees == espace.front.length) {
+            espace.front = Arrays.copyOf(espace.front, 2 * conservees);
+        }
+        espace.front[conservees++] = etiquette;
+        espace.tailleFront = conservees;
+    }
+
+    /**
+     * Retourne l'indice du premier départ d'un aéroport à partir d'une heure donnée
+     *
+     * @param aeroport l'indice de l'aéroport
+     * @param heure l'heure en secondes depuis l'epoch
+     * @return l'indice dans departsAeroport du premier départ à cette heure ou après
+     */
+    private int premierDepart(int aeroport, long heure) {
+        ReseauVols r = this.reseau;
+        int bas = r.debutDepartsAeroport[aeroport];
+        int haut = r.debutDepartsAeroport[aeroport + 1];
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (r.connexionHeureDepart[r.departsAeroport[milieu]] < heure) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu;
+            }
+        }
+        return bas;
+    }
+
+    /**
+     * Construit les itinéraires du front, restreint aux critères durée, prix et nombre d'arrêts
+     *
+     * @param espace l'espace de travail
+     * @return les itinéraires non dominés, triés par prix
+     */
+    private List<Itineraire> front(EspaceTravail espace) {
+        List<Itineraire> itineraires = new ArrayList<>();
+        for (int i = 0; i < espace.tailleFront; i++) {
+            int a = espace.front[i];
+            long dureeA = espace.arrivee[a] - espace.premierDepart[a];
+            boolean domine = false;
+            for (int j = 0; j < espace.tailleFront && !domine; j++) {
+                int b = espace.front[j];
+                long dureeB = espace.arrivee[b] - espace.premierDepart[b];
+                boolean auMoinsAussiBon = dureeB <= dureeA && espace.prix[b] <= espace.prix[a] && espace.arrets[b] <= espace.arrets[a];
+                boolean meilleur = dureeB < dureeA || espace.prix[b] < espace.prix[a] || espace.arrets[b] < espace.arrets[a];
+                domine = auMoinsAussiBon && (meilleur || b < a);
+            }
+            if (!domine) {
+                itineraires.add(reconstruire(espace, a));
+            }
+        }
+        // Trié sur le prix des étiquettes, celui du front, et non sur le prix courant des vols qui a pu changer depuis
+        itineraires.sort(Comparator.comparingDouble(Itineraire::getPrixRecherche).thenComparing(Itineraire::getDuree));
+        return itineraires;
+    }
+
+    /**
+     * Reconstruit l'itinéraire d'une étiquette en remontant ses parents
+     *
+     * @param espace l'espace de travail
+     * @param etiquette l'étiquette arrivée à destination
+     * @return l'itinéraire correspondant
+     */
+    private Itineraire reconstruire(EspaceTravail espace, int etiquette) {
+        List<Troncon> troncons = new ArrayList<>();
+        for (int e = etiquette; espace.parent[e] >= 0; e = espace.parent[e]) {
+            troncons.add(this.reseau.troncon(espace.embarquement[e], espace.debarquement[e]));
+        }
+        Collections.reverse(troncons);
+        return new Itineraire(troncons, espace.prix[etiquette]);
+    }
+
+    /**
+     * Retourne les aéroports d'une ville et les aéroports qui la desservent
+     *
+     * @param ville la ville
+     * @return les aéroports de la ville et ceux qui la desservent
+     */
+    private static Set<Aeroport> aeroports(Ville ville) {
+        Set<Aeroport> aeroports = new HashSet<>(ville.getAeroports());
+        aeroports.addAll(ville.getAeroportsDesservant());
+        return aeroports;
+    }
+}
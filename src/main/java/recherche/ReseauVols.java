@@ -0,0 +1,369 @@
+package recherche;
+
+import gestionVol.Aeroport;
+import gestionVol.Escale;
+import gestionVol.Vol;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classe représentant une photographie compilée du réseau de vols pour la recherche d'itinéraires.
+ * Chaque vol est découpé en connexions (départ → escales → arrivée) rangées dans des tableaux primitifs
+ * triés par heure de départ. La photographie n'est pas mise à jour : elle doit être reconstruite après
+ * une modification du programme des vols
+ */
+public class ReseauVols {
+
+    /**
+     * Les aéroports du réseau, par indice
+     */
+    private final Aeroport[] aeroports;
+
+    /**
+     * L'indice de chaque aéroport du réseau
+     */
+    private final Map<Aeroport, Integer> indicesAeroports;
+
+    /**
+     * Les vols du réseau, par indice
+     */
+    private final Vol[] vols;
+
+    /**
+     * L'indice de l'aéroport de départ de chaque connexion
+     */
+    final int[] connexionDepart;
+
+    /**
+     * L'indice de l'aéroport d'arrivée de chaque connexion
+     */
+    final int[] connexionArrivee;
+
+    /**
+     * L'heure de départ de chaque connexion, en secondes depuis l'epoch
+     */
+    final long[] connexionHeureDepart;
+
+    /**
+     * L'heure d'arrivée de chaque connexion, en secondes depuis l'epoch
+     */
+    final long[] connexionHeureArrivee;
+
+    /**
+     * L'indice du vol de chaque connexion
+     */
+    final int[] connexionVol;
+
+    /**
+     * Le rang de chaque connexion dans son vol, 0 pour la connexion partant de l'aéroport de départ
+     */
+    final int[] connexionRang;
+
+    /**
+     * Le début de la liste des connexions partant de chaque aéroport dans departsAeroport, indicé par aéroport
+     */
+    final int[] debutDepartsAeroport;
+
+    /**
+     * Les connexions groupées par aéroport de départ, triées par heure de départ au sein de chaque aéroport
+     */
+    final int[] departsAeroport;
+
+    /**
+     * Le début de la liste des connexions de chaque vol dans connexionsVol, indicé par vol
+     */
+    final int[] debutConnexionsVol;
+
+    /**
+     * Les connexions groupées par vol, dans l'ordre du vol
+     */
+    final int[] connexionsVol;
+
+    /**
+     * Le prix courant d'une place sur chaque vol au moment de la compilation
+     */
+    final double[] prixVol;
+
+    /**
+     * Constructeur de la classe ReseauVols
+     *
+     * @param aeroports les aéroports du réseau
+     * @param indicesAeroports l'indice de chaque aéroport
+     * @param vols les vols du réseau
+     * @param connexions les connexions à plat, quatre entiers par connexion : départ, arrivée, vol et rang
+     * @param heuresDepart les heures de départ des connexions
+     * @param heuresArrivee les heures d'arrivée des connexions
+     * @param nombreConnexions le nombre de connexions
+     */
+    private ReseauVols(Aeroport[] aeroports, Map<Aeroport, Integer> indicesAeroports, Vol[] vols,
+                       int[] connexions, long[] heuresDepart, long[] heuresArrivee, int nombreConnexions) {
+        this.aeroports = aeroports;
+        this.indicesAeroports = indicesAeroports;
+        this.vols = vols;
+
+        // Tri des connexions par heure de départ sur des clés primitives (heure relative, indice)
+        long origine = Long.MAX_VALUE;
+        for (int i = 0; i < nombreConnexions; i++) {
+            origine = Math.min(origine, heuresDepart[i]);
+        }
+        long[] cles = new long[nombreConnexions];
+        for (int i = 0; i < nombreConnexions; i++) {
+            long relatif = heuresDepart[i] - origine;
+            if (relatif > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Le programme des vols couvre une période trop longue");
+            }
+            cles[i] = (relatif << 32) | i;
+        }
+        Arrays.sort(cles);
+
+        this.connexionDepart = new int[nombreConnexions];
+        this.connexionArrivee = new int[nombreConnexions];
+        this.connexionHeureDepart = new long[nombreConnexions];
+        this.connexionHeureArrivee = new long[nombreConnexions];
+        this.connexionVol = new int[nombreConnexions];
+        this.connexionRang = new int[nombreConnexions];
+        for (int i = 0; i < nombreConnexions; i++) {
+            int source = (int) cles[i];
+            this.connexionDepart[i] = connexions[4 * source];
+            this.connexionArrivee[i] = connexions[4 * source + 1];
+            this.connexionVol[i] = connexions[4 * source + 2];
+            this.connexionRang[i] = connexions[4 * source + 3];
+            this.connexionHeureDepart[i] = heuresDepart[source];
+            this.connexionHeureArrivee[i] = heuresArrivee[source];
+        }
+
+        // Regroupement stable des connexions par aéroport de départ et par vol : les connexions d'un vol
+        // partant chacune après l'arrivée de la précédente, l'ordre chronologique est aussi l'ordre du vol
+        this.debutDepartsAeroport = new int[aeroports.length + 1];
+        this.departsAeroport = new int[nombreConnexions];
+        this.debutConnexionsVol = new int[vols.length + 1];
+        this.connexionsVol = new int[nombreConnexions];
+        regrouper(this.connexionDepart, this.debutDepartsAeroport, this.departsAeroport);
+        regrouper(this.connexionVol, this.debutConnexionsVol, this.connexionsVol);
+
+        this.prixVol = new double[vols.length];
+        for (int v = 0; v < vols.length; v++) {
+            this.prixVol[v] = vols[v].getPrixCourant();
+        }
+    }
+
+    /**
+     * Regroupe les connexions par clé avec un tri par dénombrement stable
+     *
+     * @param cles la clé de chaque connexion
+     * @param debuts le début de chaque groupe, rempli par la méthode
+     * @param groupes les connexions regroupées, remplies par la méthode
+     */
+    private static void regrouper(int[] cles, int[] debuts, int[] groupes) {
+        for (int cle : cles) {
+            debuts[cle + 1]++;
+        }
+        for (int i = 1; i < debuts.length; i++) {
+            debuts[i] += debuts[i - 1];
+        }
+        int[] positions = Arrays.copyOf(debuts, debuts.length - 1);
+        for (int i = 0; i < cles.length; i++) {
+            groupes[positions[cles[i]]++] = i;
+        }
+    }
+
+    /**
+     * Compile une photographie du réseau à partir d'un ensemble de vols
+     *
+     * @param vols les vols du réseau
+     * @exception IllegalArgumentException si les vols sont null
+     *
+     * @return le réseau compilé
+     */
+    public static ReseauVols construire(Collection<Vol> vols) {
+        if (vols == null) {
+            throw new IllegalArgumentException("vols cannot be null");
+        }
+
+        Map<Aeroport, Integer> indicesAeroports = new HashMap<>();
+        List<Aeroport> aeroports = new ArrayList<>();
+        Vol[] tableauVols = vols.toArray(new Vol[0]);
+
+        int capacite = 0;
+        for (Vol vol : tableauVols) {
+            capacite += vol.getEscales().size() + 1;
+        }
+        int[] connexions = new int[4 * capacite];
+        long[] heuresDepart = new long[capacite];
+        long[] heuresArrivee = new long[capacite];
+
+        int n = 0;
+        for (int v = 0; v < tableauVols.length; v++) {
+            Vol vol = tableauVols[v];
+            int precedent = indice(indicesAeroports, aeroports, vol.getDepart());
+            long heureDepart = secondes(vol.getDepartNanos());
+            int rang = 0;
+            for (Escale escale : vol.getEscales()) {
+                int arret = indice(indicesAeroports, aeroports, escale.getAeroport());
+                connexions[4 * n] = precedent;
+                connexions[4 * n + 1] = arret;
+                connexions[4 * n + 2] = v;
+                connexions[4 * n + 3] = rang++;
+                heuresDepart[n] = heureDepart;
+                heuresArrivee[n] = secondes(escale.getArriveeNanos());
+                n++;
+                precedent = arret;
+                heureDepart = secondes(escale.getDepartNanos());
+            }
+            connexions[4 * n] = precedent;
+            connexions[4 * n + 1] = indice(indicesAeroports, aeroports, vol.getArrivee());
+            connexions[4 * n + 2] = v;
+            connexions[4 * n + 3] = rang;
+            heuresDepart[n] = heureDepart;
+            heuresArrivee[n] = secondes(vol.getArriveeNanos());
+            n++;
+        }
+
+        return new ReseauVols(aeroports.toArray(new Aeroport[0]), indicesAeroports, tableauVols,
+                connexions, heuresDepart, heuresArrivee, n);
+    }
+
+    /**
+     * Retourne l'indice d'un aéroport en l'enregistrant s'il est nouveau
+     *
+     * @param indices l'indice de chaque aéroport déjà enregistré
+     * @param aeroports les aéroports déjà enregistrés, par indice
+     * @param aeroport l'aéroport
+     * @return l'indice de l'aéroport
+     */
+    private static int indice(Map<Aeroport, Integer> indices, List<Aeroport> aeroports, Aeroport aeroport) {
+        Integer indice = indices.get(aeroport);
+        if (indice == null) {
+            indice = aeroports.size();
+            indices.put(aeroport, indice);
+            aeroports.add(aeroport);
+        }
+        return indice;
+    }
+
+    /**
+     * Convertit un instant en nanosecondes depuis l'epoch en secondes depuis l'epoch
+     *
+     * @param nanos le nombre de nanosecondes depuis l'epoch
+     * @return le nombre de secondes depuis l'epoch
+     */
+    private static long secondes(long nanos) {
+        return Math.floorDiv(nanos, 1_000_000_000L);
+    }
+
+    /**
+     * Retourne le nombre d'aéroports du réseau
+     *
+     * @return le nombre d'aéroports du réseau
+     */
+    public int getNombreAeroports() {
+        return aeroports.length;
+    }
+
+    /**
+     * Retourne le nombre de vols du réseau
+     *
+     * @return le nombre de vols du réseau
+     */
+    public int getNombreVols() {
+        return vols.length;
+    }
+
+    /**
+     * Retourne le nombre de connexions du réseau
+     *
+     * @return le nombre de connexions du réseau
+     */
+    public int getNombreConnexions() {
+        return connexionDepart.length;
+    }
+
+    /**
+     * Retourne l'indice d'un aéroport dans le réseau
+     *
+     * @param aeroport l'aéroport
+     * @return l'indice de l'aéroport, ou -1 s'il n'est desservi par aucun vol du réseau
+     */
+    int indice(Aeroport aeroport) {
+        Integer indice = indicesAeroports.get(aeroport);
+        return indice == null ? -1 : indice;
+    }
+
+    /**
+     * Retourne l'aéroport d'indice donné
+     *
+     * @param indice l'indice de l'aéroport
+     * @return l'aéroport
+     */
+    Aeroport getAeroport(int indice) {
+        return aeroports[indice];
+    }
+
+    /**
+     * Retourne le vol d'indice donné
+     *
+     * @param indice l'indice du vol
+     * @return le vol
+     */
+    Vol getVol(int indice) {
+        return vols[indice];
+    }
+
+    /**
+     * Retourne l'indice de la première connexion partant à partir d'une heure donnée
+     *
+     * @param heure l'heure en secondes depuis l'epoch
+     * @return l'indice de la première connexion partant à cette heure ou après
+     */
+    int premiereConnexion(long heure) {
+        int bas = 0;
+        int haut = connexionHeureDepart.length;
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (connexionHeureDepart[milieu] < heure) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu;
+            }
+        }
+        return bas;
+    }
+
+    /**
+     * Construit le tronçon parcouru sur un vol entre deux de ses connexions
+     *
+     * @param embarquement l'indice de la connexion à laquelle on monte dans le vol
+     * @param debarquement l'indice de la connexion à l'issue de laquelle on descend du vol
+     * @return le tronçon correspondant
+     */
+    Troncon troncon(int embarquement, int debarquement) {
+        Vol vol = vols[connexionVol[embarquement]];
+        int rangDepart = connexionRang[embarquement];
+        int rangArrivee = connexionRang[debarquement] + 1;
+
+        Aeroport depart = vol.getDepart();
+        ZonedDateTime dateDepart = vol.getDateDepart();
+        Aeroport arrivee = vol.getArrivee();
+        ZonedDateTime dateArrivee = vol.getDateArrivee();
+        int rang = 1;
+        for (Escale escale : vol.getEscales()) {
+            if (rang == rangDepart) {
+                depart = escale.getAeroport();
+                dateDepart = escale.getDateDepart();
+            }
+            if (rang == rangArrivee) {
+                arrivee = escale.getAeroport();
+                dateArrivee = escale.getDateArrivee();
+            }
+            rang++;
+        }
+
+        return new Troncon(vol, depart, arrivee, dateDepart, dateArrivee, rangArrivee - rangDepart - 1);
+    }
+}
@@ -0,0 +1,125 @@
+package recherche;
+
+import gestionVol.Aeroport;
+import gestionVol.Vol;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * Classe représentant le tronçon d'un itinéraire parcouru à bord d'un même vol
+ */
+public class Troncon {
+
+    /**
+     * Le vol emprunté
+     */
+    private final Vol vol;
+
+    /**
+     * L'aéroport où l'on monte dans le vol
+     */
+    private final Aeroport depart;
+
+    /**
+     * L'aéroport où l'on descend du vol
+     */
+    private final Aeroport arrivee;
+
+    /**
+     * La date de départ du tronçon
+     */
+    private final ZonedDateTime dateDepart;
+
+    /**
+     * La date d'arrivée du tronçon
+     */
+    private final ZonedDateTime dateArrivee;
+
+    /**
+     * Le nombre d'escales du vol traversées sans en descendre
+     */
+    private final int nombreEscales;
+
+    /**
+     * Constructeur de la classe Troncon
+     *
+     * @param vol le vol emprunté
+     * @param depart l'aéroport où l'on monte dans le vol
+     * @param arrivee l'aéroport où l'on descend du vol
+     * @param dateDepart la date de départ du tronçon
+     * @param dateArrivee la date d'arrivée du tronçon
+     * @param nombreEscales le nombre d'escales traversées sans descendre du vol
+     */
+    Troncon(Vol vol, Aeroport depart, Aeroport arrivee, ZonedDateTime dateDepart, ZonedDateTime dateArrivee, int nombreEscales) {
+        this.vol = vol;
+        this.depart = depart;
+        this.arrivee = arrivee;
+        this.dateDepart = dateDepart;
+        this.dateArrivee = dateArrivee;
+        this.nombreEscales = nombreEscales;
+    }
+
+    /**
+     * Retourne le vol emprunté
+     *
+     * @return le vol emprunté
+     */
+    public Vol getVol() {
+        return vol;
+    }
+
+    /**
+     * Retourne l'aéroport où l'on monte dans le vol
+     *
+     * @return l'aéroport où l'on monte dans le vol
+     */
+    public Aeroport getDepart() {
+        return depart;
+    }
+
+    /**
+     * Retourne l'aéroport où l'on descend du vol
+     *
+     * @return l'aéroport où l'on descend du vol
+     */
+    public Aeroport getArrivee() {
+        return arrivee;
+    }
+
+    /**
+     * Retourne la date de départ du tronçon
+     *
+     * @return la date de départ du tronçon
+     */
+    public ZonedDateTime getDateDepart() {
+        return dateDepart;
+    }
+
+    /**
+     * Retourne la date d'arrivée du tronçon
+     *
+     * @return la date d'arrivée du tronçon
+     */
+    public ZonedDateTime getDateArrivee() {
+        return dateArrivee;
+    }
+
+    /**
+     * Retourne la durée du tronçon
+     *
+     * @return la durée du tronçon
+     */
+    public Duration getDuree() {
+        return Duration.between(dateDepart, dateArrivee);
+    }
+
+    /**
+     * Retourne le nombre d'escales du vol traversées sans en descendre
+     *
+     * @return le nombre d'escales traversées
+     */
+    public int getNombreEscales() {
+        return nombreEscales;
+    }
+}
@@ -0,0 +1,203 @@
+package reservation;
+
+import java.util.UUID;
+
+/**
+ * Classe représentant l'annuaire global des réservations et des clients, indexés par leur référence UUID.
+ * L'annuaire est alimenté par les constructeurs de {@link Reservation} et de {@link Client}.
+ * La recherche par référence textuelle décode directement les caractères sans construire de chaîne ni d'UUID
+ */
+public class AnnuaireReservations {
+
+    /**
+     * L'instance unique de l'annuaire
+     */
+    private static final AnnuaireReservations INSTANCE = new AnnuaireReservations();
+
+    /**
+     * Les réservations par numéro
+     */
+    private final IndexReferences<Reservation> reservations = new IndexReferences<>();
+
+    /**
+     * Les clients par référence
+     */
+    private final IndexReferences<Client> clients = new IndexReferences<>();
+
+    /**
+     * Constructeur de la classe AnnuaireReservations
+     */
+    private AnnuaireReservations() {
+    }
+
+    /**
+     * Retourne l'annuaire global des réservations et des clients
+     *
+     * @return l'annuaire global
+     */
+    public static AnnuaireReservations getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Retourne la réservation ayant un numéro donné
+     *
+     * @param numero le numéro de la réservation
+     * @exception IllegalArgumentException si le numéro est null
+     *
+     * @return la réservation, ou null si elle n'existe pas
+     */
+    public Reservation getReservation(UUID numero) {
+        if (numero == null) {
+            throw new IllegalArgumentException("numero cannot be null");
+        }
+
+        return this.reservations.rechercher(numero.getMostSignificantBits(), numero.getLeastSignificantBits());
+    }
+
+    /**
+     * Retourne la réservation ayant un numéro donné sous sa forme textuelle
+     *
+     * @param numero le numéro de la réservation, au format xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx
+     * @exception IllegalArgumentException si le numéro est null ou mal formé
+     *
+     * @return la réservation, ou null si elle n'existe pas
+     */
+    public Reservation getReservation(CharSequence numero) {
+        return this.reservations.rechercher(poidsFort(numero), poidsFaible(numero));
+    }
+
+    /**
+     * Retourne le client ayant une référence donnée
+     *
+     * @param reference la référence du client
+     * @exception IllegalArgumentException si la référence est null
+     *
+     * @return le client, ou null s'il n'existe pas
+     */
+    public Client getClient(UUID reference) {
+        if (reference == null) {
+            throw new IllegalArgumentException("reference cannot be null");
+        }
+
+        return this.clients.rechercher(reference.getMostSignificantBits(), reference.getLeastSignificantBits());
+    }
+
+    /**
+     * Retourne le client ayant une référence donnée sous sa forme textuelle
+     *
+     * @param reference la référence du client, au format xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx
+     * @exception IllegalArgumentException si la référence est null ou mal formée
+     *
+     * @return le client, ou null s'il n'existe pas
+     */
+    public Client getClient(CharSequence reference) {
+        return this.clients.rechercher(poidsFort(reference), poidsFaible(reference));
+    }
+
+    /**
+     * Retourne le nombre de réservations de l'annuaire
+     *
+     * @return le nombre de réservations de l'annuaire
+     */
+    public int getNombreReservations() {
+        return this.reservations.taille();
+    }
+
+    /**
+     * Retourne le nombre de clients de l'annuaire
+     *
+     * @return le nombre de clients de l'annuaire
+     */
+    public int getNombreClients() {
+        return this.clients.taille();
+    }
+
+    /**
+     * Vide l'annuaire, avant de recharger les réservations et les clients. Les réservations et les clients retirés
+     * restent liés entre eux
+     */
+    public void vider() {
+        this.reservations.vider();
+        this.clients.vider();
+    }
+
+    /**
+     * Enregistre une réservation dans l'annuaire
+     *
+     * @param reservation la réservation à enregistrer
+     */
+    void enregistrer(Reservation reservation) {
+        this.reservations.enregistrer(reservation.getNumero(), reservation);
+    }
+
+    /**
+     * Enregistre un client dans l'annuaire
+     *
+     * @param client le client à enregistrer
+     */
+    void enregistrer(Client client) {
+        this.clients.enregistrer(client.getUuid(), client);
+    }
+
+    /**
+     * Décode les 64 bits de poids fort d'une référence textuelle
+     *
+     * @param reference la référence au format xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx
+     * @exception IllegalArgumentException si la référence est null ou mal formée
+     *
+     * @return les 64 bits de poids fort
+     */
+    private static long poidsFort(CharSequence reference) {
+        verifierFormat(reference);
+        return hexadecimal(reference, 0, 8) << 32 | hexadecimal(reference, 9, 13) << 16 | hexadecimal(reference, 14, 18);
+    }
+
+    /**
+     * Décode les 64 bits de poids faible d'une référence textuelle déjà vérifiée
+     *
+     * @param reference la référence au format xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx
+     * @return les 64 bits de poids faible
+     */
+    private static long poidsFaible(CharSequence reference) {
+        return hexadecimal(reference, 19, 23) << 48 | hexadecimal(reference, 24, 36);
+    }
+
+    /**
+     * Vérifie la longueur et les tirets d'une référence textuelle
+     *
+     * @param reference la référence
+     * @exception IllegalArgumentException si la référence est null ou mal formée
+     */
+    private static void verifierFormat(CharSequence reference) {
+        if (reference == null) {
+            throw new IllegalArgumentException("reference cannot be null");
+        }
+        if (reference.length() != 36 || reference.charAt(8) != '-' || reference.charAt(13) != '-'
+                || reference.charAt(18) != '-' || reference.charAt(23) != '-') {
+            throw new IllegalArgumentException("La référence doit être au format xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx");
+        }
+    }
+
+    /**
+     * Décode une suite de chiffres hexadécimaux
+     *
+     * @param reference la référence
+     * @param debut l'indice du premier chiffre, inclus
+     * @param fin l'indice du dernier chiffre, exclu
+     * @exception IllegalArgumentException si un caractère n'est pas un chiffre hexadécimal
+     *
+     * @return la valeur décodée
+     */
+    private static long hexadecimal(CharSequence reference, int debut, int fin) {
+        long valeur = 0;
+        for (int i = debut; i < fin; i++) {
+            int chiffre = Character.digit(reference.charAt(i), 16);
+            if (chiffre < 0) {
+                throw new IllegalArgumentException("La référence doit être au format xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx");
+            }
+            valeur = valeur << 4 | chiffre;
+        }
+        return valeur;
+    }
+}
@@ -0,0 +1,47 @@
+package reservation;
+
+/**
+ * Classe représentant le blocage temporaire des places d'une réservation en attente.
+ * Un blocage est un maillon d'une des listes doublement chaînées de la roue d'expiration de {@link BlocagesPlaces}
+ */
+class Blocage {
+
+    /**
+     * La réservation dont les places sont bloquées
+     */
+    final Reservation reservation;
+
+    /**
+     * Le nombre de places bloquées sur le vol
+     */
+    int places;
+
+    /**
+     * Le tick de la roue à partir duquel le blocage expire
+     */
+    volatile long tickExpiration;
+
+    /**
+     * Le compartiment de la roue contenant le blocage, null s'il n'est chaîné nulle part
+     */
+    volatile BlocagesPlaces.Compartiment compartiment;
+
+    /**
+     * Le blocage précédent dans le compartiment
+     */
+    Blocage precedent;
+
+    /**
+     * Le blocage suivant dans le compartiment
+     */
+    Blocage suivant;
+
+    /**
+     * Constructeur de la classe Blocage
+     *
+     * @param reservation la réservation dont les places sont bloquées
+     */
+    Blocage(Reservation reservation) {
+        this.reservation = reservation;
+    }
+}
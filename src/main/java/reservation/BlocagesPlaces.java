@@ -0,0 +1,388 @@
+package reservation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Classe gérant le blocage temporaire des places des réservations en attente.
+ * Les blocages sont rangés dans une roue temporelle hachée : créer, prolonger, convertir ou faire expirer
+ * un blocage se fait en temps constant, et chaque tick ne parcourt qu'un seul compartiment de la roue
+ */
+public class BlocagesPlaces {
+
+    /**
+     * Compartiment de la roue : liste doublement chaînée de blocages avec une sentinelle
+     */
+    static class Compartiment {
+
+        /**
+         * La sentinelle de la liste
+         */
+        final Blocage tete = new Blocage(null);
+
+        Compartiment() {
+            tete.precedent = tete;
+            tete.suivant = tete;
+        }
+    }
+
+    /**
+     * La durée de vie d'un blocage
+     */
+    private final Duration dureeBlocage;
+
+    /**
+     * La durée d'un tick de la roue en nanosecondes
+     */
+    private final long dureeTick;
+
+    /**
+     * Les compartiments de la roue, en nombre égal à une puissance de deux
+     */
+    private final Compartiment[] compartiments;
+
+    /**
+     * Le masque permettant de passer d'un tick à son compartiment
+     */
+    private final int masque;
+
+    /**
+     * L'horloge en nanosecondes utilisée par la roue
+     */
+    private final LongSupplier horloge;
+
+    /**
+     * L'instant de l'horloge correspondant au tick 0
+     */
+    private final long origine;
+
+    /**
+     * Le dernier tick traité par la roue
+     */
+    private volatile long dernierTick = -1;
+
+    /**
+     * Le thread d'expiration en arrière-plan, null s'il n'est pas démarré
+     */
+    private Thread expiration;
+
+    private final LongAdder blocagesCrees = new LongAdder();
+    private final LongAdder blocagesProlonges = new LongAdder();
+    private final LongAdder blocagesExpires = new LongAdder();
+    private final LongAdder blocagesConvertis = new LongAdder();
+    private final LongAdder blocagesLiberes = new LongAdder();
+
+    /**
+     * Constructeur de la classe BlocagesPlaces avec une roue de 512 ticks de 10 millisecondes
+     *
+     * @param dureeBlocage la durée de vie d'un blocage
+     * @exception IllegalArgumentException si la durée de blocage est null ou n'est pas strictement positive
+     */
+    public BlocagesPlaces(Duration dureeBlocage) {
+        this(dureeBlocage, Duration.ofMillis(10), 512, System::nanoTime);
+    }
+
+    /**
+     * Constructeur de la classe BlocagesPlaces
+     *
+     * @param dureeBlocage la durée de vie d'un blocage
+     * @param dureeTick la durée d'un tick de la roue
+     * @param nombreCompartiments le nombre de compartiments de la roue, arrondi à la puissance de deux supérieure
+     * @param horloge l'horloge en nanosecondes utilisée par la roue
+     * @exception IllegalArgumentException si un paramètre est null, si une durée n'est pas strictement positive ou si le nombre de compartiments n'est pas strictement positif
+     */
+    public BlocagesPlaces(Duration dureeBlocage, Duration dureeTick, int nombreCompartiments, LongSupplier horloge) {
+        if (dureeBlocage == null || dureeTick == null || horloge == null) {
+            throw new IllegalArgumentException("dureeBlocage, dureeTick and horloge cannot be null");
+        }
+        if (dureeBlocage.isNegative() || dureeBlocage.isZero() || dureeTick.isNegative() || dureeTick.isZero()) {
+            throw new IllegalArgumentException("dureeBlocage et dureeTick doivent être strictement positives");
+        }
+        if (nombreCompartiments <= 0 || nombreCompartiments > 1 << 30) {
+            throw new IllegalArgumentException("nombreCompartiments doit être compris entre 1 et 2^30");
+        }
+
+        int taille = Integer.highestOneBit(nombreCompartiments);
+        if (taille < nombreCompartiments) {
+            taille <<= 1;
+        }
+
+        this.dureeBlocage = dureeBlocage;
+        this.dureeTick = dureeTick.toNanos();
+        this.compartiments = new Compartiment[taille];
+        for (int i = 0; i < taille; i++) {
+            this.compartiments[i] = new Compartiment();
+        }
+        this.masque = taille - 1;
+        this.horloge = horloge;
+        this.origine = horloge.getAsLong();
+    }
+
+    /**
+     * Retourne la durée de vie d'un blocage
+     *
+     * @return la durée de vie d'un blocage
+     */
+    public Duration getDureeBlocage() {
+        return dureeBlocage;
+    }
+
+    /**
+     * Arme un blocage pour toute la durée de blocage à partir de maintenant
+     *
+     * @param blocage le blocage à armer
+     */
+    void armer(Blocage blocage) {
+        this.blocagesCrees.increment();
+        this.chainer(blocage);
+    }
+
+    /**
+     * Repousse l'expiration d'un blocage à la durée de blocage à partir de maintenant
+     *
+     * @param blocage le blocage à prolonger
+     */
+    void prolonger(Blocage blocage) {
+        this.dechainer(blocage);
+        this.blocagesProlonges.increment();
+        this.chainer(blocage);
+    }
+
+    /**
+     * Remet dans la roue un blocage échu dont l'expiration n'a pas pu aboutir, pour la retenter à sa prochaine échéance
+     *
+     * @param blocage le blocage à réarmer
+     */
+    void rearmer(Blocage blocage) {
+        this.chainer(blocage);
+    }
+
+    /**
+     * Retire un blocage de la roue lorsque la réservation est payée
+     *
+     * @param blocage le blocage converti
+     */
+    void convertir(Blocage blocage) {
+        this.dechainer(blocage);
+        this.blocagesConvertis.increment();
+    }
+
+    /**
+     * Retire un blocage de la roue lorsque la réservation est annulée
+     *
+     * @param blocage le blocage libéré
+     */
+    void liberer(Blocage blocage) {
+        this.dechainer(blocage);
+        this.blocagesLiberes.increment();
+    }
+
+    /**
+     * Indique si un blocage doit expirer au tick donné
+     *
+     * @param blocage le blocage
+     * @param tick le tick en cours de traitement
+     * @return true si le blocage a expiré, false s'il a été prolongé entre temps
+     */
+    boolean estExpire(Blocage blocage, long tick) {
+        return blocage.tickExpiration <= tick;
+    }
+
+    /**
+     * Comptabilise l'expiration effective d'un blocage
+     */
+    void signalerExpiration() {
+        this.blocagesExpires.increment();
+    }
+
+    /**
+     * Chaîne un blocage dans le compartiment correspondant à son échéance
+     *
+     * @param blocage le blocage à chaîner
+     */
+    private void chainer(Blocage blocage) {
+        long echeance = this.horloge.getAsLong() + this.dureeBlocage.toNanos() - this.origine;
+        long tickEcheance = (echeance + this.dureeTick - 1) / this.dureeTick;
+
+        while (true) {
+            long tick = Math.max(tickEcheance, this.dernierTick + 1);
+            Compartiment compartiment = this.compartiments[(int) (tick & this.masque)];
+            synchronized (compartiment) {
+                // Le tick visé a pu être traité pendant qu'on attendait le compartiment
+                if (tick <= this.dernierTick) {
+                    continue;
+                }
+                blocage.tickExpiration = tick;
+                blocage.precedent = compartiment.tete.precedent;
+                blocage.suivant = compartiment.tete;
+                compartiment.tete.precedent.suivant = blocage;
+                compartiment.tete.precedent = blocage;
+                blocage.compartiment = compartiment;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Retire un blocage de son compartiment s'il y est encore chaîné
+     *
+     * @param blocage le blocage à retirer
+     */
+    private void dechainer(Blocage blocage) {
+        Compartiment compartiment;
+        while ((compartiment = blocage.compartiment) != null) {
+            synchronized (compartiment) {
+                if (blocage.compartiment != compartiment) {
+                    continue;
+                }
+                blocage.precedent.suivant = blocage.suivant;
+                blocage.suivant.precedent = blocage.precedent;
+                blocage.precedent = null;
+                blocage.suivant = null;
+                blocage.compartiment = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fait avancer la roue jusqu'à l'instant présent et fait expirer les blocages échus.
+     * Chaque tick ne parcourt que les blocages de son compartiment. Après une longue pause, le rattrapage se limite
+     * au dernier tour de la roue : chaque blocage portant son tick d'expiration, un tour visite tous les blocages échus
+     *
+     * @return le nombre de blocages ayant expiré
+     */
+    public synchronized int avancer() {
+        long tickActuel = (this.horloge.getAsLong() - this.origine) / this.dureeTick;
+        if (tickActuel - this.dernierTick > this.compartiments.length) {
+            this.dernierTick = tickActuel - this.compartiments.length;
+        }
+        int expires = 0;
+        List<Blocage> echus = new ArrayList<>();
+
+        for (long tick = this.dernierTick + 1; tick <= tickActuel; tick++) {
+            Compartiment compartiment = this.compartiments[(int) (tick & this.masque)];
+            synchronized (compartiment) {
+                Blocage blocage = compartiment.tete.suivant;
+                while (blocage != compartiment.tete) {
+                    Blocage suivant = blocage.suivant;
+                    if (blocage.tickExpiration <= tick) {
+                        blocage.precedent.suivant = suivant;
+                        suivant.precedent = blocage.precedent;
+                        blocage.precedent = null;
+                        blocage.suivant = null;
+                        blocage.compartiment = null;
+                        echus.add(blocage);
+                    }
+                    blocage = suivant;
+                }
+                this.dernierTick = tick;
+            }
+
+            // Les réservations sont verrouillées hors du compartiment pour ne jamais inverser l'ordre des verrous
+            for (Blocage blocage : echus) {
+                if (blocage.reservation.expirerBlocage(blocage, tick)) {
+                    expires++;
+                }
+            }
+            echus.clear();
+        }
+        return expires;
+    }
+
+    /**
+     * Démarre le thread d'expiration en arrière-plan
+     *
+     * @exception IllegalStateException si le thread d'expiration est déjà démarré
+     */
+    public synchronized void demarrer() {
+        if (this.expiration != null) {
+            throw new IllegalStateException("Le thread d'expiration est déjà démarré");
+        }
+
+        long pause = Math.max(this.dureeTick / 1_000_000, 1);
+        this.expiration = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                this.avancer();
+                try {
+                    Thread.sleep(pause);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "expiration-blocages");
+        this.expiration.setDaemon(true);
+        this.expiration.start();
+    }
+
+    /**
+     * Arrête le thread d'expiration en arrière-plan
+     */
+    public void arreter() {
+        Thread thread;
+        synchronized (this) {
+            thread = this.expiration;
+            this.expiration = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Retourne le nombre de blocages créés
+     *
+     * @return le nombre de blocages créés
+     */
+    public long getBlocagesCrees() {
+        return blocagesCrees.sum();
+    }
+
+    /**
+     * Retourne le nombre de prolongations de blocages
+     *
+     * @return le nombre de prolongations de blocages
+     */
+    public long getBlocagesProlonges() {
+        return blocagesProlonges.sum();
+    }
+
+    /**
+     * Retourne le nombre de blocages ayant expiré
+     *
+     * @return le nombre de blocages ayant expiré
+     */
+    public long getBlocagesExpires() {
+        return blocagesExpires.sum();
+    }
+
+    /**
+     * Retourne le nombre de blocages convertis en réservations payées
+     *
+     * @return le nombre de blocages convertis en réservations payées
+     */
+    public long getBlocagesConvertis() {
+        return blocagesConvertis.sum();
+    }
+
+    /**
+     * Retourne le nombre de blocages libérés par une annulation
+     *
+     * @return le nombre de blocages libérés par une annulation
+     */
+    public long getBlocagesLiberes() {
+        return blocagesLiberes.sum();
+    }
+
+    /**
+     * Retourne le nombre de blocages encore actifs
+     *
+     * @return le nombre de blocages encore actifs
+     */
+    public long getBlocagesActifs() {
+        return getBlocagesCrees() - getBlocagesExpires() - getBlocagesConvertis() - getBlocagesLiberes();
+    }
+}
@@ -1,8 +1,8 @@
 package reservation;
 
-import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Classe représentant un client
@@ -19,6 +19,11 @@ public class Client {
      */
     private final UUID reference;
 
+    /**
+     * La forme textuelle de la reference du client, calculée une seule fois
+     */
+    private final String referenceTexte;
+
     /**
      * Les informations de paiement du client
      */
@@ -29,7 +34,12 @@ public class Client {
      */
     private String contact;
 
-    private final Set<Reservation> reservations = new HashSet<>();
+    /**
+     * Le niveau de fidélité du client, qui le fait passer avant les autres en liste d'attente
+     */
+    private volatile NiveauClient niveau = NiveauClient.STANDARD;
+
+    private final Set<Reservation> reservations = ConcurrentHashMap.newKeySet();
 
     /**
      * Constructeur de la classe Client
@@ -38,15 +48,31 @@ public class Client {
      * @exception IllegalArgumentException si le nom, les informations de paiement ou le contact sont null
      */
     public Client(String nom, String paiement, String contact) {
+        this(UUID.randomUUID(), nom, paiement, contact);
+    }
+
+    /**
+     * Constructeur de la classe Client avec une reference connue, utilisé lors de la relecture du journal
+     *
+     * @param reference la reference du client
+     * @param nom le nom du client
+     * @param paiement les informations de paiement du client
+     * @param contact le contact du client
+     * @exception IllegalArgumentException si le nom, les informations de paiement ou le contact sont null
+     */
+    Client(UUID reference, String nom, String paiement, String contact) {
         if(nom == null || paiement == null || contact == null){
             throw new IllegalArgumentException("nom, paiement and contact cannot be null");
         }
 
-        this.reference = UUID.randomUUID();
+        this.reference = reference;
+        this.referenceTexte = this.reference.toString();
 
         this.nom = nom;
         this.paiement = paiement;
         this.contact = contact;
+
+        AnnuaireReservations.getInstance().enregistrer(this);
     }
 
     /**
@@ -78,7 +104,16 @@ public class Client {
      * @return la reference du client
      */
     public String getReference() {
-        return reference.toString();
+        return referenceTexte;
+    }
+
+    /**
+     * Retourne la reference du client sous forme d'UUID
+     *
+     * @return la reference du client
+     */
+    UUID getUuid() {
+        return reference;
     }
 
     /**
@@ -127,6 +162,29 @@ public class Client {
         return this.contact = contact;
     }
 
+    /**
+     * Retourne le niveau de fidélité du client
+     *
+     * @return le niveau de fidélité du client
+     */
+    public NiveauClient getNiveau() {
+        return niveau;
+    }
+
+    /**
+     * Modifie le niveau de fidélité du client. Les demandes déjà en liste d'attente gardent leur rang
+     *
+     * @param niveau le nouveau niveau de fidélité du client
+     * @exception IllegalArgumentException si le niveau est null
+     */
+    public void setNiveau(NiveauClient niveau) {
+        if(niveau == null){
+            throw new IllegalArgumentException("niveau cannot be null");
+        }
+
+        this.niveau = niveau;
+    }
+
     /**
      * Retourne les réservations du client
      *
@@ -150,6 +208,20 @@ public class Client {
         reservations.add(reservation);
     }
 
+    /**
+     * Supprime une réservation du client
+     *
+     * @param reservation la réservation à supprimer
+     * @exception IllegalArgumentException si la reservation est null
+     */
+    protected void removeReservationWithoutBidirectional(Reservation reservation) {
+        if(reservation == null){
+            throw new IllegalArgumentException("reservation cannot be null");
+        }
+
+        reservations.remove(reservation);
+    }
+
     /**
      * Débite le compte bancaire du client
      *
@@ -0,0 +1,256 @@
+package reservation;
+
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Classe représentant un index concurrent d'objets par référence UUID.
+ * Les références sont rangées sous forme de leurs deux mots de 64 bits dans des tables à adressage ouvert,
+ * réparties en segments protégés chacun par un verrou à estampille : une recherche ne boxe ni n'alloue rien
+ * et se fait le plus souvent en lecture optimiste, sans prendre de verrou
+ *
+ * @param <T> le type des objets indexés
+ */
+class IndexReferences<T> {
+
+    /**
+     * Le nombre de segments, puissance de deux
+     */
+    private static final int NOMBRE_SEGMENTS = 32;
+
+    /**
+     * La capacité initiale de chaque segment, puissance de deux
+     */
+    private static final int CAPACITE_INITIALE = 64;
+
+    /**
+     * Les segments de l'index
+     */
+    private final Segment[] segments = new Segment[NOMBRE_SEGMENTS];
+
+    /**
+     * Table à adressage ouvert d'un segment, remplacée d'un bloc lors d'un agrandissement
+     */
+    private static final class Table {
+
+        /**
+         * Les références rangées, deux mots par case : poids fort puis poids faible
+         */
+        final long[] cles;
+
+        /**
+         * Les objets rangés, null pour une case vide
+         */
+        final Object[] valeurs;
+
+        Table(int capacite) {
+            this.cles = new long[2 * capacite];
+            this.valeurs = new Object[capacite];
+        }
+    }
+
+    /**
+     * Segment de l'index
+     */
+    private static final class Segment {
+
+        /**
+         * Le verrou du segment
+         */
+        final StampedLock verrou = new StampedLock();
+
+        /**
+         * La table du segment
+         */
+        Table table = new Table(CAPACITE_INITIALE);
+
+        /**
+         * Le nombre d'objets du segment
+         */
+        int taille;
+    }
+
+    /**
+     * Constructeur de la classe IndexReferences
+     */
+    IndexReferences() {
+        for (int i = 0; i < NOMBRE_SEGMENTS; i++) {
+            this.segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Mélange les bits d'une référence
+     *
+     * @param poidsFort les 64 bits de poids fort de la référence
+     * @param poidsFaible les 64 bits de poids faible de la référence
+     * @return l'empreinte de la référence
+     */
+    private static long empreinte(long poidsFort, long poidsFaible) {
+        long h = poidsFort * 0x9E3779B97F4A7C15L ^ poidsFaible;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Retourne l'objet associé à une référence
+     *
+     * @param poidsFort les 64 bits de poids fort de la référence
+     * @param poidsFaible les 64 bits de poids faible de la référence
+     * @return l'objet associé, ou null si la référence est inconnue
+     */
+    @SuppressWarnings("unchecked")
+    T rechercher(long poidsFort, long poidsFaible) {
+        long h = empreinte(poidsFort, poidsFaible);
+        Segment segment = this.segments[(int) (h >>> 59) & (NOMBRE_SEGMENTS - 1)];
+
+        long estampille = segment.verrou.tryOptimisticRead();
+        Object valeur = chercher(segment.table, poidsFort, poidsFaible, h);
+        if (!segment.verrou.validate(estampille)) {
+            estampille = segment.verrou.readLock();
+            try {
+                valeur = chercher(segment.table, poidsFort, poidsFaible, h);
+            } finally {
+                segment.verrou.unlockRead(estampille);
+            }
+        }
+        return (T) valeur;
+    }
+
+    /**
+     * Cherche une référence dans une table. En lecture optimiste la table peut être modifiée pendant le parcours :
+     * le résultat n'est alors utilisé qu'après validation de l'estampille, et le parcours reste borné par la capacité
+     *
+     * @param table la table
+     * @param poidsFort les 64 bits de poids fort de la référence
+     * @param poidsFaible les 64 bits de poids faible de la référence
+     * @param h l'empreinte de la référence
+     * @return l'objet associé, ou null si la référence est absente
+     */
+    private static Object chercher(Table table, long poidsFort, long poidsFaible, long h) {
+        long[] cles = table.cles;
+        Object[] valeurs = table.valeurs;
+        int masque = valeurs.length - 1;
+        int i = (int) h & masque;
+        for (int n = 0; n <= masque; n++) {
+            Object valeur = valeurs[i];
+            if (valeur == null) {
+                return null;
+            }
+            if (cles[2 * i] == poidsFort && cles[2 * i + 1] == poidsFaible) {
+                return valeur;
+            }
+            i = (i + 1) & masque;
+        }
+        return null;
+    }
+
+    /**
+     * Associe un objet à une référence, en remplaçant l'objet précédemment associé
+     *
+     * @param reference la référence
+     * @param valeur l'objet à associer
+     */
+    void enregistrer(UUID reference, T valeur) {
+        long poidsFort = reference.getMostSignificantBits();
+        long poidsFaible = reference.getLeastSignificantBits();
+        long h = empreinte(poidsFort, poidsFaible);
+        Segment segment = this.segments[(int) (h >>> 59) & (NOMBRE_SEGMENTS - 1)];
+
+        long estampille = segment.verrou.writeLock();
+        try {
+            Table table = segment.table;
+            if (2 * (segment.taille + 1) > table.valeurs.length) {
+                table = agrandir(table);
+                segment.table = table;
+            }
+            if (ranger(table, poidsFort, poidsFaible, h, valeur)) {
+                segment.taille++;
+            }
+        } finally {
+            segment.verrou.unlockWrite(estampille);
+        }
+    }
+
+    /**
+     * Range une référence dans une table ayant au moins une case vide
+     *
+     * @param table la table
+     * @param poidsFort les 64 bits de poids fort de la référence
+     * @param poidsFaible les 64 bits de poids faible de la référence
+     * @param h l'empreinte de la référence
+     * @param valeur l'objet à associer
+     * @return true si la référence est nouvelle, false si elle était déjà rangée
+     */
+    private static boolean ranger(Table table, long poidsFort, long poidsFaible, long h, Object valeur) {
+        long[] cles = table.cles;
+        Object[] valeurs = table.valeurs;
+        int masque = valeurs.length - 1;
+        int i = (int) h & masque;
+        while (valeurs[i] != null) {
+            if (cles[2 * i] == poidsFort && cles[2 * i + 1] == poidsFaible) {
+                valeurs[i] = valeur;
+                return false;
+            }
+            i = (i + 1) & masque;
+        }
+        cles[2 * i] = poidsFort;
+        cles[2 * i + 1] = poidsFaible;
+        valeurs[i] = valeur;
+        return true;
+    }
+
+    /**
+     * Recopie une table dans une table deux fois plus grande
+     *
+     * @param table la table pleine
+     * @return la nouvelle table
+     */
+    private static Table agrandir(Table table) {
+        Table nouvelle = new Table(2 * table.valeurs.length);
+        for (int i = 0; i < table.valeurs.length; i++) {
+            Object valeur = table.valeurs[i];
+            if (valeur != null) {
+                long poidsFort = table.cles[2 * i];
+                long poidsFaible = table.cles[2 * i + 1];
+                ranger(nouvelle, poidsFort, poidsFaible, empreinte(poidsFort, poidsFaible), valeur);
+            }
+        }
+        return nouvelle;
+    }
+
+    /**
+     * Retire tous les objets de l'index
+     */
+    void vider() {
+        for (Segment segment : this.segments) {
+            long estampille = segment.verrou.writeLock();
+            try {
+                segment.table = new Table(CAPACITE_INITIALE);
+                segment.taille = 0;
+            } finally {
+                segment.verrou.unlockWrite(estampille);
+            }
+        }
+    }
+
+    /**
+     * Retourne le nombre d'objets indexés
+     *
+     * @return le nombre d'objets indexés
+     */
+    int taille() {
+        int taille = 0;
+        for (Segment segment : this.segments) {
+            long estampille = segment.verrou.readLock();
+            try {
+                taille += segment.taille;
+            } finally {
+                segment.verrou.unlockRead(estampille);
+            }
+        }
+        return taille;
+    }
+}
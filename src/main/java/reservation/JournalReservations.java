@@ -0,0 +1,792 @@
+package reservation;
+
+import gestionVol.CatalogueVols;
+import gestionVol.Vol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Classe représentant le journal binaire des transitions des réservations (write-ahead log).
+ * Chaque transition est ajoutée au journal sous le verrou de la réservation, avant d'avoir le moindre effet ;
+ * la réservation attend ensuite hors de son verrou que l'enregistrement soit durable, puis applique la transition,
+ * ou la défait si le journal n'a pas pu être écrit.
+ * Les synchronisations sur disque sont groupées : le premier thread en attente écrit et synchronise tout
+ * ce qui a été ajouté depuis la synchronisation précédente, les autres attendent qu'il ait terminé.
+ * Chaque enregistrement est précédé de sa longueur et de sa somme de contrôle CRC32C, ce qui permet à la relecture
+ * d'ignorer une fin de fichier incomplète après un arrêt brutal
+ */
+public class JournalReservations implements Closeable {
+
+    /**
+     * Type d'enregistrement : création d'une réservation
+     */
+    private static final byte CREATION = 1;
+
+    /**
+     * Type d'enregistrement : ajout de passagers
+     */
+    private static final byte AJOUT_PASSAGERS = 2;
+
+    /**
+     * Type d'enregistrement : retrait d'un passager
+     */
+    private static final byte RETRAIT_PASSAGER = 3;
+
+    /**
+     * Type d'enregistrement : changement d'état
+     */
+    private static final byte CHANGEMENT_ETAT = 4;
+
+    /**
+     * Type d'enregistrement : numéro d'une opération de paiement
+     */
+    private static final byte OPERATION_PAIEMENT = 5;
+
+    /**
+     * La taille de l'entête d'un enregistrement : longueur et somme de contrôle
+     */
+    private static final int TAILLE_ENTETE = 8;
+
+    /**
+     * Le journal dans lequel les réservations consignent leurs transitions, null si aucun
+     */
+    private static volatile JournalReservations actif;
+
+    /**
+     * Le fichier du journal
+     */
+    private final FileChannel canal;
+
+    /**
+     * Le verrou protégeant les tampons et les compteurs
+     */
+    private final Object verrou = new Object();
+
+    /**
+     * Le tampon recevant les enregistrements en attente d'écriture
+     */
+    private ByteBuffer courant = ByteBuffer.allocate(1 << 16);
+
+    /**
+     * Le tampon libre, échangé avec le tampon courant à chaque écriture
+     */
+    private ByteBuffer reserve = ByteBuffer.allocate(1 << 16);
+
+    /**
+     * Le numéro du dernier enregistrement ajouté
+     */
+    private long dernierAjoute;
+
+    /**
+     * Le numéro du dernier enregistrement rendu durable
+     */
+    private long dernierDurable;
+
+    /**
+     * Si un thread est en train d'écrire et de synchroniser le journal
+     */
+    private boolean ecritureEnCours;
+
+    /**
+     * L'erreur d'écriture ayant rendu le journal inutilisable, null si aucune
+     */
+    private IOException echec;
+
+    /**
+     * Si le journal est fermé
+     */
+    private boolean ferme;
+
+    /**
+     * Le nombre de synchronisations sur disque effectuées
+     */
+    private long synchronisations;
+
+    /**
+     * Constructeur de la classe JournalReservations
+     *
+     * @param canal le fichier du journal, positionné à la fin du dernier enregistrement valide
+     */
+    private JournalReservations(FileChannel canal) {
+        this.canal = canal;
+    }
+
+    /**
+     * Ouvre un journal, en le créant s'il n'existe pas. Une fin de fichier incomplète ou corrompue,
+     * laissée par un arrêt brutal, est tronquée
+     *
+     * @param fichier le chemin du journal
+     * @exception IllegalArgumentException si le chemin est null
+     * @exception UncheckedIOException si le journal ne peut pas être ouvert
+     *
+     * @return le journal ouvert
+     */
+    public static JournalReservations ouvrir(Path fichier) {
+        if (fichier == null) {
+            throw new IllegalArgumentException("fichier cannot be null");
+        }
+
+        try {
+            FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long fin = parcourir(canal, null);
+            canal.truncate(fin);
+            canal.position(fin);
+            return new JournalReservations(canal);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'ouvrir le journal des réservations", e);
+        }
+    }
+
+    /**
+     * Retourne le journal dans lequel les réservations consignent leurs transitions
+     *
+     * @return le journal actif, ou null si aucun
+     */
+    public static JournalReservations getActif() {
+        return actif;
+    }
+
+    /**
+     * Fait de ce journal celui dans lequel toutes les réservations consignent leurs transitions
+     */
+    public void activer() {
+        actif = this;
+    }
+
+    /**
+     * Cesse de consigner les transitions des réservations
+     */
+    public static void desactiver() {
+        actif = null;
+    }
+
+    /**
+     * Retourne le nombre d'enregistrements ajoutés depuis l'ouverture du journal
+     *
+     * @return le nombre d'enregistrements ajoutés
+     */
+    public long getNombreEnregistrements() {
+        synchronized (this.verrou) {
+            return this.dernierAjoute;
+        }
+    }
+
+    /**
+     * Retourne le nombre de synchronisations sur disque effectuées depuis l'ouverture du journal
+     *
+     * @return le nombre de synchronisations
+     */
+    public long getNombreSynchronisations() {
+        synchronized (this.verrou) {
+            return this.synchronisations;
+        }
+    }
+
+    /**
+     * Ajoute au journal la création d'une réservation, avec son client et son vol
+     *
+     * @param reservation la réservation créée
+     * @exception IllegalStateException si le journal est fermé
+     * @exception UncheckedIOException si une écriture précédente a échoué
+     *
+     * @return le numéro de l'enregistrement, à attendre avant d'appliquer la création
+     */
+    long creation(Reservation reservation) {
+        return ajouter(List.of(enregistrementCreation(reservation)));
+    }
+
+    /**
+     * Ajoute au journal l'ajout de passagers à une réservation
+     *
+     * @param reservation la réservation
+     * @param passagers les passagers ajoutés
+     * @exception IllegalStateException si le journal est fermé
+     * @exception UncheckedIOException si une écriture précédente a échoué
+     *
+     * @return le numéro de l'enregistrement, à attendre avant d'appliquer l'ajout
+     */
+    long ajoutPassagers(Reservation reservation, Collection<Passager> passagers) {
+        return ajouter(List.of(enregistrementAjout(reservation, passagers)));
+    }
+
+    /**
+     * Ajoute au journal le retrait d'un passager d'une réservation
+     *
+     * @param reservation la réservation
+     * @param passager le passager retiré
+     * @exception IllegalStateException si le journal est fermé
+     * @exception UncheckedIOException si une écriture précédente a échoué
+     *
+     * @return le numéro de l'enregistrement, à attendre avant d'appliquer le retrait
+     */
+    long retraitPassager(Reservation reservation, Passager passager) {
+        Enregistrement e = new Enregistrement(RETRAIT_PASSAGER, reservation.getNumero());
+        e.uuid(passager.getUuid());
+        return ajouter(List.of(e.octets()));
+    }
+
+    /**
+     * Ajoute au journal le nouvel état d'une réservation, avant qu'elle ne le prenne
+     *
+     * @param reservation la réservation
+     * @param etat le nouvel état
+     * @exception IllegalStateException si le journal est fermé
+     * @exception UncheckedIOException si une écriture précédente a échoué
+     *
+     * @return le numéro de l'enregistrement, à attendre avant d'appliquer le changement d'état
+     */
+    long changementEtat(Reservation reservation, EtatReservation etat) {
+        return ajouter(List.of(enregistrementEtat(reservation, etat)));
+    }
+
+    /**
+     * Ajoute au journal le paiement d'une réservation, avec le montant débité et les sièges attribués,
+     * avant qu'elle ne passe à l'état payée
+     *
+     * @param reservation la réservation
+     * @param montant le montant débité au client
+     * @exception IllegalStateException si le journal est fermé
+     * @exception UncheckedIOException si une écriture précédente a échoué
+     *
+     * @return le numéro de l'enregistrement, à attendre avant d'appliquer le paiement
+     */
+    long paiement(Reservation reservation, double montant) {
+        return ajouter(List.of(enregistrementPaiement(reservation, montant)));
+    }
+
+    /**
+     * Ajoute au journal le numéro d'une opération de paiement d'une réservation, avant que l'opération
+     * ne soit soumise au pipeline de paiements sous une clé d'idempotence tirée de ce numéro
+     *
+     * @param reservation la réservation
+     * @param operation le numéro de l'opération
+     * @exception IllegalStateException si le journal est fermé
+     * @exception UncheckedIOException si une écriture précédente a échoué
+     *
+     * @return le numéro de l'enregistrement, à attendre avant de soumettre l'opération
+     */
+    long operationPaiement(Reservation reservation, long operation) {
+        Enregistrement e = new Enregistrement(OPERATION_PAIEMENT, reservation.getNumero());
+        e.entierLong(operation);
+        return ajouter(List.of(e.octets()));
+    }
+
+    /**
+     * Ajoute au journal en une fois la création, les passagers et l'état payé d'un lot de réservations,
+     * pour une seule attente de durabilité pour tout le lot
+     *
+     * @param reservations les réservations du lot
+     * @exception IllegalStateException si le journal est fermé
+     * @exception UncheckedIOException si une écriture précédente a échoué
+     *
+     * @return le numéro du dernier enregistrement du lot, à attendre avant de rendre le lot visible
+     */
+    long lot(List<Reservation> reservations) {
+        List<byte[]> contenus = new ArrayList<>(3 * reservations.size());
+        for (Reservation reservation : reservations) {
+            contenus.add(enregistrementCreation(reservation));
+            contenus.add(enregistrementAjout(reservation, reservation.getPassagers()));
+            contenus.add(enregistrementPaiement(reservation, reservation.getMontantPaye()));
+        }
+        return ajouter(contenus);
+    }
+
+    /**
+     * Construit l'enregistrement de la création d'une réservation
+     *
+     * @param reservation la réservation créée
+     * @return le contenu de l'enregistrement
+     */
+    private static byte[] enregistrementCreation(Reservation reservation) {
+        Enregistrement e = new Enregistrement(CREATION, reservation.getNumero());
+        e.date(reservation.getDate());
+        Client client = reservation.getClient();
+        e.uuid(client.getUuid());
+        e.texte(client.getNom());
+        e.texte(client.getPaiement());
+        e.texte(client.getContact());
+        Vol vol = reservation.getVol();
+        e.texte(vol.getNumero());
+        e.entierLong(vol.getDateDepart().toLocalDate().toEpochDay());
+        return e.octets();
+    }
+
+    /**
+     * Construit l'enregistrement de l'ajout de passagers à une réservation
+     *
+     * @param reservation la réservation
+     * @param passagers les passagers ajoutés
+     * @return le contenu de l'enregistrement
+     */
+    private static byte[] enregistrementAjout(Reservation reservation, Collection<Passager> passagers) {
+        Enregistrement e = new Enregistrement(AJOUT_PASSAGERS, reservation.getNumero());
+        e.entier(passagers.size());
+        for (Passager passager : passagers) {
+            e.uuid(passager.getUuid());
+            e.texte(passager.getNom());
+            e.texte(passager.getPrenom());
+        }
+        return e.octets();
+    }
+
+    /**
+     * Construit l'enregistrement du nouvel état d'une réservation
+     *
+     * @param reservation la réservation
+     * @param etat le nouvel état
+     * @return le contenu de l'enregistrement
+     */
+    private static byte[] enregistrementEtat(Reservation reservation, EtatReservation etat) {
+        Enregistrement e = new Enregistrement(CHANGEMENT_ETAT, reservation.getNumero());
+        e.octet(etat.ordinal());
+        return e.octets();
+    }
+
+    /**
+     * Construit l'enregistrement du paiement d'une réservation : l'état payé, suivi du montant débité et des indices
+     * des sièges attribués
+     *
+     * @param reservation la réservation
+     * @param montant le montant débité
+     * @return le contenu de l'enregistrement
+     */
+    private static byte[] enregistrementPaiement(Reservation reservation, double montant) {
+        Enregistrement e = new Enregistrement(CHANGEMENT_ETAT, reservation.getNumero());
+        e.octet(EtatReservation.PAYEE.ordinal());
+        e.reel(montant);
+        int[] sieges = reservation.getIndicesSieges();
+        e.entier(sieges.length);
+        for (int siege : sieges) {
+            e.entier(siege);
+        }
+        return e.octets();
+    }
+
+    /**
+     * Ajoute des enregistrements au tampon courant, à la suite et sans en intercaler d'autres
+     *
+     * @param contenus les contenus des enregistrements
+     * @exception IllegalStateException si le journal est fermé
+     * @exception UncheckedIOException si une écriture précédente a échoué
+     *
+     * @return le numéro du dernier enregistrement ajouté
+     */
+    private long ajouter(List<byte[]> contenus) {
+        int[] sommes = new int[contenus.size()];
+        int taille = 0;
+        CRC32C crc = new CRC32C();
+        for (int i = 0; i < sommes.length; i++) {
+            crc.reset();
+            crc.update(contenus.get(i));
+            sommes[i] = (int) crc.getValue();
+            taille += TAILLE_ENTETE + contenus.get(i).length;
+        }
+
+        synchronized (this.verrou) {
+            verifierUtilisable();
+            if (this.courant.remaining() < taille) {
+                ByteBuffer agrandi = ByteBuffer.allocate(Math.max(2 * this.courant.capacity(), this.courant.position() + taille));
+                this.courant.flip();
+                agrandi.put(this.courant);
+                this.courant = agrandi;
+            }
+            for (int i = 0; i < sommes.length; i++) {
+                byte[] contenu = contenus.get(i);
+                this.courant.putInt(contenu.length);
+                this.courant.putInt(sommes[i]);
+                this.courant.put(contenu);
+            }
+            this.dernierAjoute += sommes.length;
+            return this.dernierAjoute;
+        }
+    }
+
+    /**
+     * Attend qu'un enregistrement soit durable. Si aucune écriture n'est en cours, le thread appelant écrit
+     * et synchronise en une fois tous les enregistrements en attente, y compris ceux des autres threads
+     *
+     * @param numero le numéro de l'enregistrement
+     * @exception UncheckedIOException si le journal n'a pas pu être écrit
+     */
+    void attendre(long numero) {
+        ByteBuffer lot;
+        long dernier;
+        boolean interrompu = false;
+        synchronized (this.verrou) {
+            while (this.dernierDurable < numero) {
+                if (this.echec != null) {
+                    throw new UncheckedIOException("Le journal des réservations n'a pas pu être écrit", this.echec);
+                }
+                if (!this.ecritureEnCours) {
+                    break;
+                }
+                try {
+                    this.verrou.wait();
+                } catch (InterruptedException e) {
+                    interrompu = true;
+                }
+            }
+            if (interrompu) {
+                Thread.currentThread().interrupt();
+            }
+            if (this.dernierDurable >= numero) {
+                return;
+            }
+
+            this.ecritureEnCours = true;
+            lot = this.courant;
+            this.courant = this.reserve;
+            this.reserve = null;
+            dernier = this.dernierAjoute;
+        }
+
+        IOException erreur = null;
+        try {
+            lot.flip();
+            while (lot.hasRemaining()) {
+                this.canal.write(lot);
+            }
+            this.canal.force(false);
+        } catch (IOException e) {
+            erreur = e;
+        }
+
+        synchronized (this.verrou) {
+            lot.clear();
+            this.reserve = lot;
+            this.ecritureEnCours = false;
+            if (erreur == null) {
+                this.dernierDurable = dernier;
+                this.synchronisations++;
+            } else {
+                this.echec = erreur;
+            }
+            this.verrou.notifyAll();
+        }
+
+        if (erreur != null) {
+            throw new UncheckedIOException("Le journal des réservations n'a pas pu être écrit", erreur);
+        }
+    }
+
+    /**
+     * Vérifie que le journal peut encore recevoir des enregistrements
+     *
+     * @exception IllegalStateException si le journal est fermé
+     * @exception UncheckedIOException si une écriture précédente a échoué
+     */
+    private void verifierUtilisable() {
+        if (this.ferme) {
+            throw new IllegalStateException("Le journal des réservations est fermé");
+        }
+        if (this.echec != null) {
+            throw new UncheckedIOException("Le journal des réservations n'a pas pu être écrit", this.echec);
+        }
+    }
+
+    /**
+     * Reconstruit les clients, les passagers et les réservations à partir du journal, et les rattache
+     * aux vols du catalogue. Le programme des vols doit avoir été rechargé avec ses places initiales :
+     * les places des réservations payées ou confirmées sont de nouveau réservées sur leur vol.
+     * Les blocages de places des réservations en attente ne sont pas restaurés
+     *
+     * @exception IllegalStateException si un vol du journal est absent du catalogue ou n'a plus assez de places
+     * @exception UncheckedIOException si le journal ne peut pas être lu
+     *
+     * @return les réservations reconstruites, dans l'ordre de leur création
+     */
+    public List<Reservation> rejouer() {
+        Map<UUID, Reservation> reservations = new LinkedHashMap<>();
+        Map<UUID, Client> clients = new HashMap<>();
+        Map<UUID, Passager> passagers = new HashMap<>();
+
+        synchronized (this.verrou) {
+            verifierUtilisable();
+            try {
+                parcourir(this.canal, contenu -> appliquer(contenu, reservations, clients, passagers));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Impossible de relire le journal des réservations", e);
+            }
+        }
+
+        for (Reservation reservation : reservations.values()) {
+            EtatReservation etat = reservation.getEtat();
+            if ((etat == EtatReservation.PAYEE || etat == EtatReservation.CONFIRMEE)
+                    && !reservation.getVol().reserverPlaces(reservation.getPassagers().size())) {
+                throw new IllegalStateException("Le vol " + reservation.getVol().getNumero() + " n'a plus assez de places pour ses réservations");
+            }
+        }
+        return new ArrayList<>(reservations.values());
+    }
+
+    /**
+     * Applique un enregistrement relu
+     *
+     * @param contenu le contenu de l'enregistrement
+     * @param reservations les réservations reconstruites par numéro
+     * @param clients les clients reconstruits par référence
+     * @param passagers les passagers reconstruits par référence
+     * @exception IllegalStateException si l'enregistrement est incohérent avec les précédents
+     */
+    private static void appliquer(ByteBuffer contenu, Map<UUID, Reservation> reservations,
+                                  Map<UUID, Client> clients, Map<UUID, Passager> passagers) {
+        byte type = contenu.get();
+        UUID numero = uuid(contenu);
+
+        if (type == CREATION) {
+            ZonedDateTime date = ZonedDateTime.ofInstant(Instant.ofEpochSecond(contenu.getLong(), contenu.getInt()), ZoneId.of(texte(contenu)));
+            UUID referenceClient = uuid(contenu);
+            String nom = texte(contenu);
+            String paiement = texte(contenu);
+            String contact = texte(contenu);
+            Client client = clients.computeIfAbsent(referenceClient, r -> new Client(r, nom, paiement, contact));
+            String numeroVol = texte(contenu);
+            LocalDate jour = LocalDate.ofEpochDay(contenu.getLong());
+            Vol vol = CatalogueVols.getInstance().rechercher(numeroVol, jour);
+            if (vol == null) {
+                throw new IllegalStateException("Le vol " + numeroVol + " du " + jour + " est absent du catalogue");
+            }
+            reservations.put(numero, new Reservation(numero, date, client, vol));
+            return;
+        }
+
+        Reservation reservation = reservations.get(numero);
+        if (reservation == null) {
+            throw new IllegalStateException("Le journal fait référence à une réservation inconnue : " + numero);
+        }
+        switch (type) {
+            case AJOUT_PASSAGERS -> {
+                int nombre = contenu.getInt();
+                for (int i = 0; i < nombre; i++) {
+                    UUID reference = uuid(contenu);
+                    String nom = texte(contenu);
+                    String prenom = texte(contenu);
+                    reservation.restaurerPassager(passagers.computeIfAbsent(reference, r -> new Passager(r, nom, prenom)));
+                }
+            }
+            case RETRAIT_PASSAGER -> {
+                Passager passager = passagers.get(uuid(contenu));
+                if (passager != null) {
+                    reservation.restaurerRetrait(passager);
+                }
+            }
+            case CHANGEMENT_ETAT -> {
+                reservation.restaurerEtat(EtatReservation.values()[contenu.get()]);
+                // Le montant et les sièges n'accompagnent que les paiements
+                if (contenu.remaining() >= Double.BYTES) {
+                    reservation.restaurerMontantPaye(contenu.getDouble());
+                }
+                if (contenu.remaining() >= Integer.BYTES) {
+                    int[] sieges = new int[contenu.getInt()];
+                    for (int i = 0; i < sieges.length; i++) {
+                        sieges[i] = contenu.getInt();
+                    }
+                    reservation.restaurerSieges(sieges);
+                }
+            }
+            case OPERATION_PAIEMENT -> reservation.restaurerOperationsPaiement(contenu.getLong());
+            default -> throw new IllegalStateException("Type d'enregistrement inconnu : " + type);
+        }
+    }
+
+    /**
+     * Parcourt les enregistrements valides d'un journal depuis son début
+     *
+     * @param canal le fichier du journal
+     * @param lecteur le traitement de chaque enregistrement, ou null pour seulement vérifier le journal
+     * @exception IOException si le journal ne peut pas être lu
+     *
+     * @return la position de la fin du dernier enregistrement valide
+     */
+    private static long parcourir(FileChannel canal, Consumer<ByteBuffer> lecteur) throws IOException {
+        long taille = canal.size();
+        long position = 0;
+        ByteBuffer entete = ByteBuffer.allocate(TAILLE_ENTETE);
+        CRC32C crc = new CRC32C();
+        while (position + TAILLE_ENTETE <= taille) {
+            entete.clear();
+            lire(canal, entete, position);
+            entete.flip();
+            int longueur = entete.getInt();
+            int somme = entete.getInt();
+            if (longueur <= 0 || position + TAILLE_ENTETE + longueur > taille) {
+                break;
+            }
+
+            ByteBuffer contenu = ByteBuffer.allocate(longueur);
+            lire(canal, contenu, position + TAILLE_ENTETE);
+            crc.reset();
+            crc.update(contenu.array());
+            if ((int) crc.getValue() != somme) {
+                break;
+            }
+
+            if (lecteur != null) {
+                contenu.flip();
+                lecteur.accept(contenu);
+            }
+            position += TAILLE_ENTETE + longueur;
+        }
+        return position;
+    }
+
+    /**
+     * Remplit un tampon à partir d'une position du fichier
+     *
+     * @param canal le fichier
+     * @param tampon le tampon à remplir
+     * @param position la position de lecture
+     * @exception IOException si le fichier ne peut pas être lu
+     */
+    private static void lire(FileChannel canal, ByteBuffer tampon, long position) throws IOException {
+        while (tampon.hasRemaining()) {
+            int lus = canal.read(tampon, position);
+            if (lus < 0) {
+                throw new IOException("Fin de journal inattendue");
+            }
+            position += lus;
+        }
+    }
+
+    /**
+     * Lit un UUID
+     *
+     * @param contenu le contenu de l'enregistrement
+     * @return l'UUID lu
+     */
+    private static UUID uuid(ByteBuffer contenu) {
+        return new UUID(contenu.getLong(), contenu.getLong());
+    }
+
+    /**
+     * Lit une chaîne de caractères
+     *
+     * @param contenu le contenu de l'enregistrement
+     * @return la chaîne lue
+     */
+    private static String texte(ByteBuffer contenu) {
+        byte[] octets = new byte[contenu.getInt()];
+        contenu.get(octets);
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Ferme le journal après avoir rendu durables les enregistrements en attente. Le journal est désactivé s'il était actif
+     *
+     * @exception UncheckedIOException si le fichier ne peut pas être fermé
+     */
+    @Override
+    public void close() {
+        if (actif == this) {
+            desactiver();
+        }
+
+        long dernier;
+        synchronized (this.verrou) {
+            if (this.ferme) {
+                return;
+            }
+            dernier = this.dernierAjoute;
+        }
+        if (dernier > 0) {
+            attendre(dernier);
+        }
+
+        synchronized (this.verrou) {
+            this.ferme = true;
+            try {
+                this.canal.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Impossible de fermer le journal des réservations", e);
+            }
+        }
+    }
+
+    /**
+     * Enregistrement en cours de construction
+     */
+    private static class Enregistrement {
+
+        /**
+         * Les octets de l'enregistrement, agrandis au besoin
+         */
+        private ByteBuffer octets = ByteBuffer.allocate(128);
+
+        Enregistrement(byte type, UUID reservation) {
+            octet(type);
+            uuid(reservation);
+        }
+
+        private void prevoir(int taille) {
+            if (octets.remaining() < taille) {
+                ByteBuffer agrandi = ByteBuffer.allocate(Math.max(2 * octets.capacity(), octets.position() + taille));
+                octets.flip();
+                agrandi.put(octets);
+                octets = agrandi;
+            }
+        }
+
+        void octet(int valeur) {
+            prevoir(1);
+            octets.put((byte) valeur);
+        }
+
+        void entier(int valeur) {
+            prevoir(4);
+            octets.putInt(valeur);
+        }
+
+        void entierLong(long valeur) {
+            prevoir(8);
+            octets.putLong(valeur);
+        }
+
+        void reel(double valeur) {
+            prevoir(8);
+            octets.putDouble(valeur);
+        }
+
+        void uuid(UUID valeur) {
+            entierLong(valeur.getMostSignificantBits());
+            entierLong(valeur.getLeastSignificantBits());
+        }
+
+        void texte(String valeur) {
+            byte[] utf8 = valeur.getBytes(StandardCharsets.UTF_8);
+            entier(utf8.length);
+            prevoir(utf8.length);
+            octets.put(utf8);
+        }
+
+        void date(ZonedDateTime date) {
+            entierLong(date.toEpochSecond());
+            entier(date.getNano());
+            texte(date.getZone().getId());
+        }
+
+        byte[] octets() {
+            return Arrays.copyOf(octets.array(), octets.position());
+        }
+    }
+}
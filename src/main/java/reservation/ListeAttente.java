@@ -0,0 +1,208 @@
+package reservation;
+
+import gestionVol.Vol;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Classe représentant la liste d'attente d'un vol : les réservations dont le paiement a échoué faute de places,
+ * servies par niveau de fidélité décroissant puis par ordre d'arrivée dès que des places reviennent au vol.
+ * Chaque vol a sa propre liste, verrouillée le temps de retirer une demande et de prendre ses places ;
+ * le paiement de la réservation promue se fait hors de ce verrou.
+ * Toute place rendue au vol, par une annulation, un retrait de passager ou l'expiration d'un blocage, déclenche la
+ * promotion depuis {@link Vol#libererPlaces(int)} : elle est confiée au pool commun, hors de tout verrou de l'appelant.
+ * Une demande annulée reste dans la file et est écartée lorsqu'elle arrive en tête, pour qu'une annulation
+ * ne coûte pas un parcours de la file
+ */
+public class ListeAttente {
+
+    /**
+     * L'ordre de service des demandes : niveau de fidélité le plus élevé d'abord, puis la plus ancienne
+     */
+    private static final Comparator<Attente> PRIORITE = Comparator.comparingInt((Attente attente) -> -attente.niveau)
+            .thenComparingLong(attente -> attente.rang);
+
+    /**
+     * La liste dont le fil courant exécute la promotion, pour ne pas replanifier une promotion sur les places
+     * qu'elle rend elle-même
+     */
+    private static final ThreadLocal<ListeAttente> PROMOTION = new ThreadLocal<>();
+
+    /**
+     * Le vol dont les places sont attendues
+     */
+    private final Vol vol;
+
+    /**
+     * Les demandes en attente, y compris celles annulées qui n'ont pas encore atteint la tête de file
+     */
+    private final PriorityQueue<Attente> file = new PriorityQueue<>(PRIORITE);
+
+    /**
+     * Le nombre de demandes en attente non annulées, modifié sous le verrou de la liste
+     */
+    private volatile int nombreEnAttente;
+
+    /**
+     * Si une promotion a été confiée au pool commun et n'a pas encore commencé
+     */
+    private final AtomicBoolean promotionPlanifiee = new AtomicBoolean();
+
+    /**
+     * Le rang d'arrivée de la prochaine demande
+     */
+    private long prochainRang;
+
+    /**
+     * Constructeur de la classe ListeAttente
+     *
+     * @param vol le vol dont les places sont attendues
+     * @exception IllegalArgumentException si le vol est null
+     */
+    public ListeAttente(Vol vol) {
+        if (vol == null) {
+            throw new IllegalArgumentException("vol cannot be null");
+        }
+
+        this.vol = vol;
+    }
+
+    /**
+     * Retourne le vol dont les places sont attendues
+     *
+     * @return le vol de la liste d'attente
+     */
+    public Vol getVol() {
+        return vol;
+    }
+
+    /**
+     * Retourne le nombre de réservations en attente
+     *
+     * @return le nombre de réservations en attente
+     */
+    public synchronized int getNombreEnAttente() {
+        return nombreEnAttente;
+    }
+
+    /**
+     * Promeut les réservations en attente, dans l'ordre, tant que le vol a assez de places pour la première.
+     * Les places de chaque réservation sont prises sous le verrou de la liste, puis la réservation est payée hors
+     * du verrou ; si elle ne peut plus l'être, ses places sont rendues au vol et la suivante est servie
+     */
+    public void promouvoir() {
+        ListeAttente precedente = PROMOTION.get();
+        PROMOTION.set(this);
+        try {
+            while (true) {
+                Attente attente;
+                synchronized (this) {
+                    attente = this.file.peek();
+                    while (attente != null && attente.retiree) {
+                        this.file.poll();
+                        attente = this.file.peek();
+                    }
+                    if (attente == null || !this.vol.reserverPlaces(attente.places)) {
+                        return;
+                    }
+                    this.file.poll();
+                    attente.retiree = true;
+                    this.nombreEnAttente--;
+                }
+
+                // Les places rendues sont servies au tour suivant de la boucle
+                if (!attente.reservation.promouvoir(attente)) {
+                    this.vol.libererPlaces(attente.places);
+                }
+            }
+        } finally {
+            if (precedente == null) {
+                PROMOTION.remove();
+            } else {
+                PROMOTION.set(precedente);
+            }
+        }
+    }
+
+    /**
+     * Signale que des places ont été rendues au vol, une fois son inventaire mis à jour. Si des réservations attendent,
+     * leur promotion est confiée au pool commun plutôt qu'exécutée par l'appelant, qui peut tenir le verrou d'une
+     * réservation ou de la roue des blocages. Les signalements reçus avant le début de la promotion planifiée sont
+     * servis par elle. Sans effet pour les places rendues par une promotion de la liste en cours dans le même fil
+     */
+    public void signalerPlacesLiberees() {
+        if (this.nombreEnAttente == 0 || PROMOTION.get() == this) {
+            return;
+        }
+        if (this.promotionPlanifiee.compareAndSet(false, true)) {
+            ForkJoinPool.commonPool().execute(() -> {
+                this.promotionPlanifiee.set(false);
+                this.promouvoir();
+            });
+        }
+    }
+
+    /**
+     * Ajoute une réservation à la file
+     *
+     * @param reservation la réservation en attente
+     * @param places le nombre de places attendues
+     * @return la demande ajoutée
+     */
+    synchronized Attente ajouter(Reservation reservation, int places) {
+        Attente attente = new Attente(this, reservation, places, reservation.getClient().getNiveau().ordinal(), this.prochainRang++);
+        this.file.add(attente);
+        this.nombreEnAttente++;
+        return attente;
+    }
+
+    /**
+     * Annule une demande encore dans la file. Sans effet si elle a déjà été promue ou annulée
+     *
+     * @param attente la demande à annuler
+     */
+    synchronized void annuler(Attente attente) {
+        if (!attente.retiree) {
+            attente.retiree = true;
+            this.nombreEnAttente--;
+        }
+    }
+
+    /**
+     * Une réservation en attente de places
+     */
+    static final class Attente {
+
+        final ListeAttente liste;
+
+        final Reservation reservation;
+
+        final int places;
+
+        final int niveau;
+
+        final long rang;
+
+        /**
+         * La réservation payée à venir, terminée en erreur si la réservation est annulée avant d'être promue
+         */
+        final CompletableFuture<Reservation> promesse = new CompletableFuture<>();
+
+        /**
+         * Si la demande a été promue ou annulée, modifié sous le verrou de la liste
+         */
+        boolean retiree;
+
+        Attente(ListeAttente liste, Reservation reservation, int places, int niveau, long rang) {
+            this.liste = liste;
+            this.reservation = reservation;
+            this.places = places;
+            this.niveau = niveau;
+            this.rang = rang;
+        }
+    }
+}
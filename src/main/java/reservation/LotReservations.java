@@ -0,0 +1,256 @@
+package reservation;
+
+import gestionVol.Vol;
+import supervision.Compteur;
+import supervision.Latence;
+import supervision.Metriques;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Classe représentant un lot de réservations effectuées en tout ou rien : soit toutes les réservations du lot
+ * sont créées et payées, soit aucune place n'est prise sur aucun vol.
+ * Les places sont prises vol par vol dans un ordre fixe (numéro puis date de départ), ce qui évite que deux lots
+ * concurrents portant sur les mêmes vols ne se gênent mutuellement. Les clients sont débités, puis le lot entier
+ * est consigné dans le journal actif avec une seule attente de durabilité ; les réservations ne deviennent visibles
+ * des clients, des vols, des passagers et de l'annuaire qu'une fois le lot durable
+ */
+public class LotReservations {
+
+    /**
+     * L'ordre dans lequel les places des vols sont prises
+     */
+    private static final Comparator<Vol> ORDRE_VOLS = Comparator.comparing(Vol::getNumero)
+            .thenComparingLong(Vol::getDepartNanos);
+
+    /**
+     * Les demandes du lot, dans l'ordre d'ajout
+     */
+    private final List<Demande> demandes = new ArrayList<>();
+
+    /**
+     * Si le lot a déjà été réservé
+     */
+    private boolean reserve;
+
+    /**
+     * Ajoute au lot la demande de réservation d'un client sur un vol pour un ou plusieurs passagers
+     *
+     * @param client le client effectuant la réservation
+     * @param vol le vol à réserver
+     * @param passagers les passagers de la réservation
+     * @exception IllegalArgumentException si le client, le vol ou les passagers sont null
+     * @exception IllegalArgumentException si il n'y a aucun passager ou si un passager est présent plusieurs fois
+     * @exception IllegalStateException si le lot a déjà été réservé
+     *
+     * @return le lot, pour enchaîner les ajouts
+     */
+    public synchronized LotReservations ajouter(Client client, Vol vol, Passager... passagers) {
+        if (client == null || vol == null || passagers == null) {
+            throw new IllegalArgumentException("client, vol and passagers cannot be null");
+        }
+        if (passagers.length == 0) {
+            throw new IllegalArgumentException("Une réservation du lot doit avoir au moins un passager");
+        }
+        Set<Passager> distincts = new HashSet<>();
+        for (Passager passager : passagers) {
+            if (passager == null) {
+                throw new IllegalArgumentException("passager cannot be null");
+            }
+            if (!distincts.add(passager)) {
+                throw new IllegalArgumentException("Impossible d'ajouter un passager : le passager est présent plusieurs fois dans la réservation");
+            }
+        }
+        if (this.reserve) {
+            throw new IllegalStateException("Le lot a déjà été réservé");
+        }
+
+        this.demandes.add(new Demande(client, vol, Arrays.copyOf(passagers, passagers.length)));
+        return this;
+    }
+
+    /**
+     * Retourne le nombre de réservations demandées dans le lot
+     *
+     * @return le nombre de réservations du lot
+     */
+    public synchronized int getNombreReservations() {
+        return demandes.size();
+    }
+
+    /**
+     * Réserve et paie toutes les réservations du lot. Si un vol est fermé ou n'a pas assez de places,
+     * les places déjà prises sur les autres vols sont rendues et aucune réservation n'est créée
+     *
+     * @exception IllegalStateException si le lot est vide ou a déjà été réservé
+     * @exception IllegalStateException si les réservations d'un des vols sont fermées
+     * @exception IllegalStateException si un des vols n'a pas assez de places disponibles
+     * @exception IllegalStateException si la cabine d'un des vols n'a plus assez de sièges libres
+     * @exception IllegalStateException si le lot n'a pas pu être consigné dans le journal actif
+     *
+     * @return les réservations payées, dans l'ordre des demandes ; celles d'un vol fermé juste après la consignation
+     * du lot sont annulées et remboursées
+     */
+    public synchronized List<Reservation> reserver() {
+        if (this.reserve) {
+            throw new IllegalStateException("Le lot a déjà été réservé");
+        }
+        if (this.demandes.isEmpty()) {
+            throw new IllegalStateException("Le lot ne contient aucune réservation");
+        }
+
+        // Places demandées par vol, prises ensuite dans l'ordre canonique des vols
+        Map<Vol, Integer> places = new LinkedHashMap<>();
+        for (Demande demande : this.demandes) {
+            if (!demande.vol.isReservationOuverte()) {
+                throw new IllegalStateException("Les réservations pour le vol " + demande.vol.getNumero() + " sont actuellement fermées");
+            }
+            places.merge(demande.vol, demande.passagers.length, Integer::sum);
+        }
+        List<Vol> vols = new ArrayList<>(places.keySet());
+        vols.sort(ORDRE_VOLS);
+
+        // Les places d'un vol sont toutes vendues au prix courant lu juste avant de les prendre
+        Map<Vol, Double> tarifs = new HashMap<>();
+        for (int i = 0; i < vols.size(); i++) {
+            Vol vol = vols.get(i);
+            tarifs.put(vol, vol.getPrixCourant());
+            if (!vol.reserverPlaces(places.get(vol))) {
+                for (int j = i - 1; j >= 0; j--) {
+                    vols.get(j).libererPlaces(places.get(vols.get(j)));
+                }
+                Metriques.incrementer(Compteur.PLACES_INSUFFISANTES);
+                throw new IllegalStateException("Impossible de réserver le lot : plus assez de places disponibles pour le vol " + vol.getNumero());
+            }
+        }
+        this.reserve = true;
+
+        // Les réservations restent invisibles tant que le lot n'est pas durable : aucune transition concurrente
+        // ne peut être consignée avant leur création
+        ZonedDateTime date = ZonedDateTime.now();
+        List<Reservation> reservations = new ArrayList<>(this.demandes.size());
+        for (Demande demande : this.demandes) {
+            Reservation reservation = new Reservation(UUID.randomUUID(), date, demande.client, demande.vol, false);
+            for (Passager passager : demande.passagers) {
+                reservation.preparerPassager(passager);
+            }
+            reservation.restaurerEtat(EtatReservation.PAYEE);
+            reservation.restaurerMontantPaye(tarifs.get(demande.vol) * demande.passagers.length);
+            reservations.add(reservation);
+        }
+
+        // Les sièges font partie du lot consigné : une cabine trop pleine fait échouer tout le lot
+        try {
+            for (Reservation reservation : reservations) {
+                reservation.attribuerSieges();
+            }
+        } catch (IllegalStateException e) {
+            abandonner(reservations, vols, places);
+            throw e;
+        }
+
+        // Chaque client n'est débité qu'une fois pour l'ensemble de ses réservations du lot, avant la consignation
+        Map<Client, Double> montants = new LinkedHashMap<>();
+        for (Demande demande : this.demandes) {
+            montants.merge(demande.client, tarifs.get(demande.vol) * demande.passagers.length, Double::sum);
+        }
+        Map<Client, Double> debites = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Client, Double> montant : montants.entrySet()) {
+                long appel = System.nanoTime();
+                montant.getKey().debiter(montant.getValue());
+                Metriques.mesurer(Latence.APPEL_PAIEMENT, appel);
+                debites.put(montant.getKey(), montant.getValue());
+            }
+            Metriques.ajouter(Compteur.DEBITS, debites.size());
+
+            // Un vol fermé entre temps a pu être annulé en masse
+            for (Vol vol : vols) {
+                if (!vol.isReservationOuverte()) {
+                    throw new IllegalStateException("Les réservations pour le vol " + vol.getNumero() + " sont actuellement fermées");
+                }
+            }
+
+            JournalReservations journal = JournalReservations.getActif();
+            if (journal != null) {
+                journal.attendre(journal.lot(reservations));
+            }
+        } catch (RuntimeException e) {
+            // Le lot n'est pas durable : les clients débités sont remboursés et les places rendues
+            debites.forEach(Client::rembourser);
+            abandonner(reservations, vols, places);
+            throw e;
+        }
+
+        for (Reservation reservation : reservations) {
+            reservation.publier();
+        }
+        Metriques.ajouter(Compteur.RESERVATIONS_CREEES, reservations.size());
+        Metriques.ajouter(Compteur.RESERVATIONS_PAYEES, reservations.size());
+
+        // Un vol fermé depuis la consignation a pu être annulé en masse sans voir les réservations du lot :
+        // elles sont annulées et remboursées, comme une réservation isolée créée sur un vol qui vient de fermer
+        for (Reservation reservation : reservations) {
+            if (!reservation.getVol().isReservationOuverte()) {
+                reservation.annulerParCompagnie();
+            }
+        }
+
+        return Collections.unmodifiableList(reservations);
+    }
+
+    /**
+     * Abandonne les réservations du lot qui n'a pas pu être consigné : elles ne sont visibles de personne,
+     * et sont seulement annulées pour rendre leurs sièges, puis leurs places sont rendues aux vols
+     *
+     * @param reservations les réservations construites
+     * @param vols les vols du lot
+     * @param places le nombre de places prises sur chaque vol
+     */
+    private static void abandonner(List<Reservation> reservations, List<Vol> vols, Map<Vol, Integer> places) {
+        for (Reservation reservation : reservations) {
+            reservation.restaurerEtat(EtatReservation.ANNULEE);
+        }
+        for (Vol vol : vols) {
+            vol.libererPlaces(places.get(vol));
+        }
+    }
+
+    /**
+     * Demande de réservation d'un client sur un vol
+     */
+    private static class Demande {
+
+        /**
+         * Le client effectuant la réservation
+         */
+        final Client client;
+
+        /**
+         * Le vol à réserver
+         */
+        final Vol vol;
+
+        /**
+         * Les passagers de la réservation
+         */
+        final Passager[] passagers;
+
+        Demande(Client client, Vol vol, Passager[] passagers) {
+            this.client = client;
+            this.vol = vol;
+            this.passagers = passagers;
+        }
+    }
+}
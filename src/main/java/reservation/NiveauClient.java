@@ -0,0 +1,11 @@
+package reservation;
+
+/**
+ * Enum representant les niveaux de fidélité des clients, du moins prioritaire au plus prioritaire
+ */
+public enum NiveauClient {
+    STANDARD,
+    ARGENT,
+    OR,
+    PLATINE
+}
@@ -0,0 +1,95 @@
+package reservation;
+
+/**
+ * Classe représentant une opération de paiement transmise à une passerelle de paiement
+ */
+public class OperationPaiement {
+
+    /**
+     * Enum représentant la nature d'une opération de paiement
+     */
+    public enum Nature {
+        DEBIT,
+        REMBOURSEMENT
+    }
+
+    /**
+     * La clé d'idempotence de l'opération
+     */
+    private final String cle;
+
+    /**
+     * La nature de l'opération
+     */
+    private final Nature nature;
+
+    /**
+     * Le client débité ou remboursé
+     */
+    private final Client client;
+
+    /**
+     * Le montant de l'opération
+     */
+    private final double montant;
+
+    /**
+     * Constructeur de la classe OperationPaiement
+     *
+     * @param cle la clé d'idempotence de l'opération
+     * @param nature la nature de l'opération
+     * @param client le client débité ou remboursé
+     * @param montant le montant de l'opération
+     * @exception IllegalArgumentException si la clé, la nature ou le client sont null
+     * @exception IllegalArgumentException si le montant est négatif
+     */
+    public OperationPaiement(String cle, Nature nature, Client client, double montant) {
+        if (cle == null || nature == null || client == null) {
+            throw new IllegalArgumentException("cle, nature and client cannot be null");
+        }
+        if (montant < 0) {
+            throw new IllegalArgumentException("montant doit être positif");
+        }
+
+        this.cle = cle;
+        this.nature = nature;
+        this.client = client;
+        this.montant = montant;
+    }
+
+    /**
+     * Retourne la clé d'idempotence de l'opération
+     *
+     * @return la clé d'idempotence de l'opération
+     */
+    public String getCle() {
+        return cle;
+    }
+
+    /**
+     * Retourne la nature de l'opération
+     *
+     * @return la nature de l'opération
+     */
+    public Nature getNature() {
+        return nature;
+    }
+
+    /**
+     * Retourne le client débité ou remboursé
+     *
+     * @return le client débité ou remboursé
+     */
+    public Client getClient() {
+        return client;
+    }
+
+    /**
+     * Retourne le montant de l'opération
+     *
+     * @return le montant de l'opération
+     */
+    public double getMontant() {
+        return montant;
+    }
+}
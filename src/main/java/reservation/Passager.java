@@ -1,7 +1,8 @@
 package reservation;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Classe représentant un client
@@ -18,7 +19,17 @@ public class Passager {
      */
     private String prenom;
 
-    private final Set<Reservation> reservations = new HashSet<>();
+    /**
+     * La reference unique du passager
+     */
+    private final UUID reference;
+
+    /**
+     * La forme textuelle de la reference du passager, calculée une seule fois
+     */
+    private final String referenceTexte;
+
+    private final Set<Reservation> reservations = ConcurrentHashMap.newKeySet();
 
     /**
      * Constructeur de la classe Passager
@@ -28,14 +39,47 @@ public class Passager {
      * @exception IllegalArgumentException si le nom ou le prénom sont null
      */
     public Passager(String nom, String prenom) {
+        this(UUID.randomUUID(), nom, prenom);
+    }
+
+    /**
+     * Constructeur de la classe Passager avec une reference connue, utilisé lors de la relecture du journal
+     *
+     * @param reference la reference du passager
+     * @param nom le nom du passager
+     * @param prenom le prénom du passager
+     * @exception IllegalArgumentException si le nom ou le prénom sont null
+     */
+    Passager(UUID reference, String nom, String prenom) {
         if(nom == null || prenom == null){
             throw new IllegalArgumentException("nom and prenom cannot be null");
         }
 
+        this.reference = reference;
+        this.referenceTexte = reference.toString();
+
         this.nom = nom;
         this.prenom = prenom;
     }
 
+    /**
+     * Retourne la reference du passager
+     *
+     * @return la reference du passager
+     */
+    public String getReference() {
+        return referenceTexte;
+    }
+
+    /**
+     * Retourne la reference du passager sous forme d'UUID
+     *
+     * @return la reference du passager
+     */
+    UUID getUuid() {
+        return reference;
+    }
+
     /**
      * Retourne le nom du passager
      *
@@ -0,0 +1,19 @@
+package reservation;
+
+import java.util.List;
+
+/**
+ * Interface d'une passerelle de paiement externe, à laquelle les débits et remboursements des clients
+ * sont transmis par lots
+ */
+public interface PasserellePaiement {
+
+    /**
+     * Traite un lot d'opérations de paiement. Chaque opération porte une clé d'idempotence :
+     * une passerelle recevant de nouveau une clé déjà traitée doit renvoyer le même résultat sans la rejouer
+     *
+     * @param operations les opérations du lot, dans l'ordre de leur soumission
+     * @return pour chaque opération, dans le même ordre, true si elle a été acceptée, false si elle a été refusée
+     */
+    boolean[] traiter(List<OperationPaiement> operations);
+}
@@ -0,0 +1,121 @@
+package reservation;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Passerelle de paiement locale simulant la latence d'une passerelle externe, pour les tests et les benchmarks.
+ * Chaque lot attend la latence configurée puis débite ou rembourse directement les clients
+ */
+public class PasserelleSimulee implements PasserellePaiement {
+
+    /**
+     * La latence simulée de chaque lot
+     */
+    private final Duration latence;
+
+    /**
+     * Les résultats des opérations déjà traitées, par clé d'idempotence
+     */
+    private final Map<String, Boolean> traitees = new ConcurrentHashMap<>();
+
+    /**
+     * Les clients dont les débits sont refusés
+     */
+    private final Set<Client> refuses = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Le nombre de lots reçus
+     */
+    private final LongAdder lots = new LongAdder();
+
+    /**
+     * Le nombre d'opérations reçues, tous lots confondus
+     */
+    private final LongAdder operations = new LongAdder();
+
+    /**
+     * Constructeur de la classe PasserelleSimulee
+     *
+     * @param latence la latence simulée de chaque lot
+     * @exception IllegalArgumentException si la latence est null ou négative
+     */
+    public PasserelleSimulee(Duration latence) {
+        if (latence == null || latence.isNegative()) {
+            throw new IllegalArgumentException("latence cannot be null or negative");
+        }
+
+        this.latence = latence;
+    }
+
+    /**
+     * Refuse désormais les débits d'un client
+     *
+     * @param client le client
+     */
+    public void refuser(Client client) {
+        refuses.add(client);
+    }
+
+    @Override
+    public boolean[] traiter(List<OperationPaiement> lot) {
+        if (!latence.isZero()) {
+            try {
+                Thread.sleep(latence.toMillis(), latence.toNanosPart() % 1_000_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Le traitement du lot a été interrompu", e);
+            }
+        }
+
+        boolean[] resultats = new boolean[lot.size()];
+        for (int i = 0; i < resultats.length; i++) {
+            OperationPaiement operation = lot.get(i);
+            resultats[i] = traitees.computeIfAbsent(operation.getCle(), cle -> executer(operation));
+        }
+        lots.increment();
+        operations.add(lot.size());
+        return resultats;
+    }
+
+    /**
+     * Exécute une opération qui n'a encore jamais été traitée
+     *
+     * @param operation l'opération
+     * @return true si l'opération est acceptée, false sinon
+     */
+    private boolean executer(OperationPaiement operation) {
+        Client client = operation.getClient();
+        if (operation.getNature() == OperationPaiement.Nature.REMBOURSEMENT) {
+            client.rembourser(operation.getMontant());
+            return true;
+        }
+        if (refuses.contains(client)) {
+            return false;
+        }
+        client.debiter(operation.getMontant());
+        return true;
+    }
+
+    /**
+     * Retourne le nombre de lots traités
+     *
+     * @return le nombre de lots traités
+     */
+    public long getNombreLots() {
+        return lots.sum();
+    }
+
+    /**
+     * Retourne le nombre d'opérations traitées, y compris celles déjà connues
+     *
+     * @return le nombre d'opérations traitées
+     */
+    public long getNombreOperations() {
+        return operations.sum();
+    }
+}
@@ -0,0 +1,429 @@
+package reservation;
+
+import supervision.Compteur;
+import supervision.Latence;
+import supervision.Metriques;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Classe représentant un pipeline asynchrone de paiements : les débits et remboursements sont déposés
+ * dans une file bornée et transmis par lots à une passerelle de paiement par un thread dédié,
+ * sans que les threads de réservation n'attendent la passerelle.
+ * Une opération soumise de nouveau avec une clé d'idempotence encore en cours de traitement
+ * partage le résultat de la première soumission ; une clé traitée récemment reçoit le résultat retenu, sans être
+ * transmise de nouveau. Au-delà de cette fenêtre bornée, l'idempotence repose sur la passerelle.
+ * Un remboursement dont le lot échoue est retenté avec la même clé, puis compté en échec
+ */
+public class PipelinePaiements implements Closeable {
+
+    /**
+     * La capacité par défaut de la file des opérations
+     */
+    private static final int CAPACITE = 4096;
+
+    /**
+     * La taille maximale par défaut d'un lot transmis à la passerelle
+     */
+    private static final int TAILLE_LOT = 128;
+
+    /**
+     * Le nombre de résultats d'opérations terminées retenus par clé d'idempotence
+     */
+    private static final int FENETRE_IDEMPOTENCE = 4096;
+
+    /**
+     * Le nombre de tentatives d'un remboursement dont le lot échoue
+     */
+    private static final int TENTATIVES_REMBOURSEMENT = 3;
+
+    /**
+     * La demande signalant la fin du pipeline au thread de traitement
+     */
+    private static final Demande FIN = new Demande(null);
+
+    /**
+     * Le pipeline par lequel passent les paiements des réservations, null si les paiements sont synchrones
+     */
+    private static volatile PipelinePaiements actif;
+
+    /**
+     * La passerelle de paiement
+     */
+    private final PasserellePaiement passerelle;
+
+    /**
+     * La file des opérations en attente
+     */
+    private final BlockingQueue<Demande> file;
+
+    /**
+     * La taille maximale d'un lot
+     */
+    private final int tailleLot;
+
+    /**
+     * Les opérations soumises et non encore traitées, par clé d'idempotence
+     */
+    private final Map<String, CompletableFuture<Boolean>> enCours = new ConcurrentHashMap<>();
+
+    /**
+     * Les résultats des dernières opérations terminées, par clé d'idempotence, de la plus ancienne à la plus récente.
+     * Les opérations dont le lot a échoué n'y sont pas retenues, pour pouvoir être retentées
+     */
+    private final Map<String, Boolean> terminees = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > FENETRE_IDEMPOTENCE;
+        }
+    };
+
+    /**
+     * Verrou partagé par les soumissions et pris exclusivement à la fermeture,
+     * pour qu'aucune opération ne soit déposée derrière la demande de fin
+     */
+    private final ReadWriteLock fermeture = new ReentrantReadWriteLock();
+
+    /**
+     * Si le pipeline est fermé
+     */
+    private boolean ferme;
+
+    /**
+     * Le thread de traitement des lots
+     */
+    private final Thread traitement;
+
+    /**
+     * Le nombre de lots soumis à la passerelle
+     */
+    private final LongAdder lots = new LongAdder();
+
+    /**
+     * Le nombre d'opérations soumises à la passerelle, tous lots confondus
+     */
+    private final LongAdder operations = new LongAdder();
+
+    /**
+     * Constructeur de la classe PipelinePaiements avec une file de 4096 opérations et des lots de 128 opérations
+     *
+     * @param passerelle la passerelle de paiement
+     * @exception IllegalArgumentException si la passerelle est null
+     */
+    public PipelinePaiements(PasserellePaiement passerelle) {
+        this(passerelle, CAPACITE, TAILLE_LOT);
+    }
+
+    /**
+     * Constructeur de la classe PipelinePaiements
+     *
+     * @param passerelle la passerelle de paiement
+     * @param capacite la capacité de la file des opérations, au-delà de laquelle les soumissions attendent
+     * @param tailleLot la taille maximale d'un lot transmis à la passerelle
+     * @exception IllegalArgumentException si la passerelle est null
+     * @exception IllegalArgumentException si la capacité ou la taille des lots n'est pas strictement positive
+     */
+    public PipelinePaiements(PasserellePaiement passerelle, int capacite, int tailleLot) {
+        if (passerelle == null) {
+            throw new IllegalArgumentException("passerelle cannot be null");
+        }
+        if (capacite <= 0 || tailleLot <= 0) {
+            throw new IllegalArgumentException("capacite et tailleLot doivent être strictement positifs");
+        }
+
+        this.passerelle = passerelle;
+        this.file = new ArrayBlockingQueue<>(capacite);
+        this.tailleLot = tailleLot;
+        this.traitement = new Thread(this::traiter, "pipeline-paiements");
+        this.traitement.setDaemon(true);
+        this.traitement.start();
+    }
+
+    /**
+     * Retourne le pipeline par lequel passent les paiements des réservations
+     *
+     * @return le pipeline actif, null si les paiements sont synchrones
+     */
+    public static PipelinePaiements getActif() {
+        return actif;
+    }
+
+    /**
+     * Fait passer les paiements et remboursements des réservations par ce pipeline
+     */
+    public void activer() {
+        actif = this;
+    }
+
+    /**
+     * Rétablit les paiements et remboursements synchrones
+     */
+    public static void desactiver() {
+        actif = null;
+    }
+
+    /**
+     * Soumet une opération de paiement. Si une opération de même clé est encore en cours de traitement,
+     * son résultat est partagé sans la soumettre de nouveau, et si elle vient d'être traitée son résultat est rendu
+     * tel quel. La soumission attend si la file est pleine
+     *
+     * @param operation l'opération à soumettre
+     * @exception IllegalArgumentException si l'opération est null
+     * @exception IllegalStateException si le pipeline est fermé
+     *
+     * @return le résultat à venir de l'opération : true si elle est acceptée, false si elle est refusée
+     */
+    public CompletableFuture<Boolean> soumettre(OperationPaiement operation) {
+        if (operation == null) {
+            throw new IllegalArgumentException("operation cannot be null");
+        }
+
+        this.fermeture.readLock().lock();
+        try {
+            if (this.ferme) {
+                throw new IllegalStateException("Le pipeline de paiements est fermé");
+            }
+
+            Boolean resultat;
+            synchronized (this.terminees) {
+                resultat = this.terminees.get(operation.getCle());
+            }
+            if (resultat != null) {
+                return CompletableFuture.completedFuture(resultat);
+            }
+
+            Demande demande = new Demande(operation);
+            CompletableFuture<Boolean> existant = this.enCours.putIfAbsent(operation.getCle(), demande.resultat);
+            if (existant != null) {
+                return existant;
+            }
+            try {
+                this.file.put(demande);
+            } catch (InterruptedException e) {
+                this.enCours.remove(operation.getCle(), demande.resultat);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("La soumission du paiement a été interrompue", e);
+            }
+            return demande.resultat;
+        } finally {
+            this.fermeture.readLock().unlock();
+        }
+    }
+
+    /**
+     * Soumet le débit d'une réservation
+     *
+     * @param reservation la réservation payée
+     * @param operation le numéro durable de l'opération de paiement de la réservation, dont est tirée la clé d'idempotence
+     * @param montant le montant à débiter
+     * @return le résultat à venir du débit
+     */
+    CompletableFuture<Boolean> debiter(Reservation reservation, long operation, double montant) {
+        String cle = reservation.getNumero() + "/debit/" + operation;
+        return soumettre(new OperationPaiement(cle, OperationPaiement.Nature.DEBIT, reservation.getClient(), montant));
+    }
+
+    /**
+     * Soumet le remboursement d'une réservation. Si le lot du remboursement échoue, il est soumis de nouveau avec
+     * la même clé, jusqu'à trois tentatives ; un remboursement refusé, échoué à chaque tentative ou qui ne peut plus
+     * être soumis est compté dans les {@link Metriques}
+     *
+     * @param reservation la réservation remboursée
+     * @param operation le numéro durable de l'opération de paiement de la réservation, dont est tirée la clé d'idempotence
+     * @param montant le montant à rembourser
+     * @return le résultat à venir du remboursement, après les tentatives
+     */
+    CompletableFuture<Boolean> rembourser(Reservation reservation, long operation, double montant) {
+        String cle = reservation.getNumero() + "/remboursement/" + operation;
+        OperationPaiement remboursement = new OperationPaiement(cle, OperationPaiement.Nature.REMBOURSEMENT, reservation.getClient(), montant);
+        CompletableFuture<Boolean> resultat = new CompletableFuture<>();
+        rembourser(remboursement, 1, resultat);
+        return resultat;
+    }
+
+    /**
+     * Soumet une tentative de remboursement, et la suivante si son lot échoue
+     *
+     * @param operation le remboursement
+     * @param tentative le numéro de la tentative
+     * @param resultat le résultat final du remboursement
+     */
+    private void rembourser(OperationPaiement operation, int tentative, CompletableFuture<Boolean> resultat) {
+        CompletableFuture<Boolean> envoi;
+        try {
+            envoi = soumettre(operation);
+        } catch (IllegalStateException e) {
+            Metriques.incrementer(Compteur.REMBOURSEMENTS_ECHOUES);
+            resultat.completeExceptionally(e);
+            return;
+        }
+        // Hors du thread de traitement, qu'une nouvelle soumission sur une file pleine bloquerait
+        envoi.whenCompleteAsync((accepte, erreur) -> {
+            if (erreur != null && tentative < TENTATIVES_REMBOURSEMENT) {
+                rembourser(operation, tentative + 1, resultat);
+                return;
+            }
+            if (erreur != null || !accepte) {
+                Metriques.incrementer(Compteur.REMBOURSEMENTS_ECHOUES);
+            }
+            if (erreur != null) {
+                resultat.completeExceptionally(erreur);
+            } else {
+                resultat.complete(accepte);
+            }
+        });
+    }
+
+    /**
+     * Boucle du thread de traitement : attend une opération, complète le lot avec celles déjà en file
+     * puis le transmet à la passerelle
+     */
+    private void traiter() {
+        List<Demande> lot = new ArrayList<>(this.tailleLot);
+        List<OperationPaiement> contenu = new ArrayList<>(this.tailleLot);
+        boolean fin = false;
+        while (!fin) {
+            try {
+                lot.add(this.file.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            this.file.drainTo(lot, this.tailleLot - 1);
+            if (lot.get(lot.size() - 1) == FIN) {
+                lot.remove(lot.size() - 1);
+                fin = true;
+            }
+
+            if (!lot.isEmpty()) {
+                for (Demande demande : lot) {
+                    contenu.add(demande.operation);
+                }
+                long debut = System.nanoTime();
+                try {
+                    boolean[] resultats = this.passerelle.traiter(contenu);
+                    Metriques.mesurer(Latence.LOT_PAIEMENTS, debut);
+                    for (int i = 0; i < lot.size(); i++) {
+                        terminer(lot.get(i), resultats[i], null);
+                    }
+                } catch (RuntimeException e) {
+                    for (Demande demande : lot) {
+                        terminer(demande, false, e);
+                    }
+                }
+                this.lots.increment();
+                this.operations.add(lot.size());
+            }
+            lot.clear();
+            contenu.clear();
+        }
+    }
+
+    /**
+     * Complète le résultat d'une opération traitée et libère sa clé d'idempotence, en retenant le résultat
+     * si le lot a été traité
+     *
+     * @param demande la demande traitée
+     * @param accepte si l'opération a été acceptée
+     * @param erreur l'erreur de la passerelle, null si le lot a été traité
+     */
+    private void terminer(Demande demande, boolean accepte, RuntimeException erreur) {
+        if (erreur == null) {
+            synchronized (this.terminees) {
+                this.terminees.put(demande.operation.getCle(), accepte);
+            }
+        }
+        this.enCours.remove(demande.operation.getCle(), demande.resultat);
+        if (erreur != null) {
+            demande.resultat.completeExceptionally(erreur);
+        } else {
+            demande.resultat.complete(accepte);
+        }
+    }
+
+    /**
+     * Retourne le nombre de lots transmis à la passerelle
+     *
+     * @return le nombre de lots transmis
+     */
+    public long getNombreLots() {
+        return lots.sum();
+    }
+
+    /**
+     * Retourne le nombre d'opérations transmises à la passerelle
+     *
+     * @return le nombre d'opérations transmises
+     */
+    public long getNombreOperations() {
+        return operations.sum();
+    }
+
+    /**
+     * Ferme le pipeline après avoir transmis toutes les opérations déjà soumises
+     */
+    @Override
+    public void close() {
+        this.fermeture.writeLock().lock();
+        try {
+            if (this.ferme) {
+                return;
+            }
+            this.ferme = true;
+        } finally {
+            this.fermeture.writeLock().unlock();
+        }
+        if (actif == this) {
+            desactiver();
+        }
+
+        boolean interrompu = false;
+        while (!this.file.offer(FIN)) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                interrompu = true;
+            }
+        }
+        while (this.traitement.isAlive()) {
+            try {
+                this.traitement.join();
+            } catch (InterruptedException e) {
+                interrompu = true;
+            }
+        }
+        if (interrompu) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Opération en attente de traitement, avec son résultat à venir
+     */
+    private static class Demande {
+
+        /**
+         * L'opération
+         */
+        final OperationPaiement operation;
+
+        /**
+         * Le résultat à venir de l'opération
+         */
+        final CompletableFuture<Boolean> resultat = new CompletableFuture<>();
+
+        Demande(OperationPaiement operation) {
+            this.operation = operation;
+        }
+    }
+}
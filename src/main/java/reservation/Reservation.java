@@ -1,9 +1,17 @@
 package reservation;
 
+import gestionVol.PlanSieges;
 import gestionVol.Vol;
+import supervision.Compteur;
+import supervision.EvenementReservation;
+import supervision.Latence;
+import supervision.Metriques;
 
+import java.io.UncheckedIOException;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.ToLongFunction;
 
 /**
  * Classe représentant une réservation
@@ -13,7 +21,7 @@ public class Reservation {
     /**
      * L'etat de la réservation
      */
-    private EtatReservation etat;
+    private volatile EtatReservation etat;
 
     /**
      * L'identifiant unique de la réservation
@@ -40,6 +48,55 @@ public class Reservation {
      */
     private final Set<Passager> passagers = new HashSet<>();
 
+    /**
+     * Le gestionnaire des blocages de places, null si la réservation ne bloque pas ses places avant le paiement
+     */
+    private final BlocagesPlaces blocages;
+
+    /**
+     * Le blocage en cours des places de la réservation, null si aucune place n'est bloquée
+     */
+    private Blocage blocage;
+
+    /**
+     * Si un paiement asynchrone de la réservation est en attente de la passerelle de paiement
+     */
+    private boolean paiementEnCours;
+
+    /**
+     * Le nombre d'opérations de paiement soumises au pipeline, débits et remboursements confondus. La clé d'idempotence
+     * de chaque opération est tirée de son numéro, consigné dans le journal avant sa soumission et repris par les
+     * photographies, pour qu'aucune opération ne réutilise la clé d'une autre après une relecture
+     */
+    private long operationsPaiement;
+
+    /**
+     * Le montant débité au client, remboursé en cas d'annulation, consigné avec le paiement dans le journal et
+     * les photographies. NaN tant qu'il n'est pas connu, notamment pour une réservation relue d'un ancien journal
+     */
+    private double montantPaye = Double.NaN;
+
+    /**
+     * La demande de la réservation dans la liste d'attente du vol, null si elle n'attend pas de places
+     */
+    private ListeAttente.Attente attente;
+
+    /**
+     * Le plan de cabine sur lequel les sièges des passagers ont été attribués, null s'ils n'en ont pas
+     */
+    private PlanSieges planSieges;
+
+    /**
+     * Les indices des sièges attribués aux passagers, dans l'ordre des passagers
+     */
+    private int[] sieges;
+
+    /**
+     * Si une transition de la réservation a été consignée et attend d'être durable pour être appliquée ;
+     * les transitions suivantes attendent qu'elle soit appliquée ou défaite
+     */
+    private boolean transitionEnCours;
+
     /**
      * Constructeur de la classe Reservation
      *
@@ -49,6 +106,20 @@ public class Reservation {
      * @exception IllegalStateException si les réservations pour ce vol sont fermées
      */
     public Reservation(Client client, Vol vol) {
+        this(client, vol, null);
+    }
+
+    /**
+     * Constructeur de la classe Reservation en mode blocage : les places des passagers sont bloquées sur le vol
+     * dès leur ajout, jusqu'au paiement ou jusqu'à l'expiration du blocage qui annule la réservation
+     *
+     * @param client le client ayant effectué la réservation
+     * @param vol le vol réservé
+     * @param blocages le gestionnaire des blocages de places, ou null pour ne pas bloquer de places avant le paiement
+     * @exception IllegalArgumentException si le client ou le vol sont null
+     * @exception IllegalStateException si les réservations pour ce vol sont fermées
+     */
+    public Reservation(Client client, Vol vol, BlocagesPlaces blocages) {
         if(!vol.isReservationOuverte()) {
             throw new IllegalStateException("Les réservations pour ce vol sont actuellement fermées");
         }
@@ -57,13 +128,77 @@ public class Reservation {
 
         this.numero = UUID.randomUUID();
 
+        this.date = ZonedDateTime.now();
+
         this.client = client;
+        this.vol = vol;
+        this.blocages = blocages;
+
+        // La création est durable avant que la réservation ne soit visible du client, du vol et de l'annuaire
+        JournalReservations journal = JournalReservations.getActif();
+        if (journal != null) {
+            journal.attendre(journal.creation(this));
+        }
+
         this.client.addReservationWithoutBidirectional(this);
+        this.vol.addReservationWithoutBidirectional(this);
 
+        // Le vol a pu être fermé depuis la vérification : son annulation en masse risquerait de manquer la réservation
+        if(!vol.isReservationOuverte()) {
+            this.etat = EtatReservation.ANNULEE;
+            this.client.removeReservationWithoutBidirectional(this);
+            this.vol.removeReservationWithoutBidirectional(this);
+            if (journal != null) {
+                journal.attendre(journal.changementEtat(this, EtatReservation.ANNULEE));
+            }
+            throw new IllegalStateException("Les réservations pour ce vol sont actuellement fermées");
+        }
+
+        if (blocages != null) {
+            this.blocage = new Blocage(this);
+            blocages.armer(this.blocage);
+        }
+
+        AnnuaireReservations.getInstance().enregistrer(this);
+
+        Metriques.incrementer(Compteur.RESERVATIONS_CREEES);
+    }
+
+    /**
+     * Constructeur de la classe Reservation utilisé lors de la relecture du journal ou d'une photographie :
+     * la réservation est recréée en attente, sans vérifier l'ouverture du vol ni être consignée
+     *
+     * @param numero l'identifiant unique de la réservation
+     * @param date la date de la réservation
+     * @param client le client ayant effectué la réservation
+     * @param vol le vol réservé
+     */
+    Reservation(UUID numero, ZonedDateTime date, Client client, Vol vol) {
+        this(numero, date, client, vol, true);
+    }
+
+    /**
+     * Constructeur de la classe Reservation utilisé lors de la relecture et par les lots de réservations :
+     * la réservation est créée en attente, sans vérifier l'ouverture du vol ni être consignée
+     *
+     * @param numero l'identifiant unique de la réservation
+     * @param date la date de la réservation
+     * @param client le client ayant effectué la réservation
+     * @param vol le vol réservé
+     * @param publier si la réservation est tout de suite ajoutée au client, au vol et à l'annuaire ; sinon elle
+     * n'est visible qu'une fois publiée par {@link #publier()}
+     */
+    Reservation(UUID numero, ZonedDateTime date, Client client, Vol vol, boolean publier) {
+        this.etat = EtatReservation.EN_ATTENTE;
+        this.numero = numero;
+        this.date = date;
+        this.client = client;
         this.vol = vol;
-        this.vol.addReservationWithoutBidirectional(this);
+        this.blocages = null;
 
-        this.date = ZonedDateTime.now();
+        if (publier) {
+            this.publier();
+        }
     }
 
     /**
@@ -121,28 +256,70 @@ public class Reservation {
     }
 
     /**
-     * Ajoute un ou plusieurs passagers à la réservation et met à jour les réservations de chaque passager
+     * Retourne si des places sont actuellement bloquées pour la réservation
+     *
+     * @return true si des places sont bloquées, false sinon
+     */
+    public synchronized boolean isPlacesBloquees() {
+        return blocage != null;
+    }
+
+    /**
+     * Ajoute un ou plusieurs passagers à la réservation et met à jour les réservations de chaque passager.
+     * En mode blocage, une place est bloquée sur le vol pour chaque passager ajouté
      *
      * @param passagers le ou les passagers à ajouter
      * @exception IllegalArgumentException si il n'y a aucun passager à ajouter
      * @exception IllegalArgumentException si un des passagers est déjà présent dans la réservation
      * @exception IllegalStateException si la réservation est payée, confirmée ou annulée
+     * @exception IllegalStateException si un paiement de la réservation est en cours
+     * @exception IllegalStateException si le vol n'a pas assez de places disponibles pour bloquer les places des passagers
      */
     public void addPassagers(Passager... passagers) {
         if(passagers == null){
             throw new IllegalArgumentException("passagers cannot be null");
         }
 
-        if (this.etat == EtatReservation.EN_ATTENTE) {
+        JournalReservations journal = JournalReservations.getActif();
+        long enregistrement;
+        boolean bloquees;
+        synchronized (this) {
+            this.attendreTransition();
+            if (this.etat != EtatReservation.EN_ATTENTE) {
+                throw new IllegalStateException("Impossible d'ajouter de nouveaux passagers : la réservation est payée, confirmée ou annulée");
+            }
+            this.verifierAucunPaiementEnCours();
+            Set<Passager> nouveaux = new HashSet<>();
             for (Passager passager : passagers) {
-                if (this.passagers.contains(passager)) {
+                if (this.passagers.contains(passager) || !nouveaux.add(passager)) {
                     throw new IllegalArgumentException("Impossible d'ajouter un passager : le passager est déjà présent dans la réservation");
                 }
+            }
+            if (nouveaux.isEmpty()) {
+                return;
+            }
+
+            bloquees = this.blocage != null;
+            if (bloquees && !this.vol.reserverPlaces(passagers.length)) {
+                throw new IllegalStateException("Impossible d'ajouter de nouveaux passagers : plus assez de places disponibles pour ce vol");
+            }
+            enregistrement = this.consigner(journal, j -> j.ajoutPassagers(this, Arrays.asList(passagers)));
+        }
+
+        this.attendreDurabilite(journal, enregistrement, () -> {
+            if (bloquees) {
+                this.vol.libererPlaces(passagers.length);
+            }
+        });
+        synchronized (this) {
+            if (bloquees) {
+                this.blocage.places += passagers.length;
+            }
+            for (Passager passager : passagers) {
                 this.passagers.add(passager);
                 passager.addReservationWithoutBidirectional(this);
             }
-        } else {
-            throw new IllegalStateException("Impossible d'ajouter de nouveaux passagers : la réservation est payée, confirmée ou annulée");
+            this.terminerTransition();
         }
     }
 
@@ -152,72 +329,204 @@ public class Reservation {
      * @param passager le passager à supprimer
      * @exception IllegalArgumentException si le passager est null
      * @exception IllegalStateException si la réservation est payée, confirmée ou annulée
+     * @exception IllegalStateException si un paiement de la réservation est en cours
      */
     public void removePassager(Passager passager) {
         if(passager == null){
             throw new IllegalArgumentException("passager cannot be null");
         }
 
-        if (this.etat == EtatReservation.EN_ATTENTE) {
+        JournalReservations journal = JournalReservations.getActif();
+        long enregistrement;
+        synchronized (this) {
+            this.attendreTransition();
+            if (this.etat != EtatReservation.EN_ATTENTE) {
+                throw new IllegalStateException("Impossible de supprimer un passager : la réservation est payée, confirmée ou annulée");
+            }
+            this.verifierAucunPaiementEnCours();
+            if (!this.passagers.contains(passager)) {
+                passager.removeReservationWithoutBidirectional(this);
+                return;
+            }
+            enregistrement = this.consigner(journal, j -> j.retraitPassager(this, passager));
+        }
+
+        this.attendreDurabilite(journal, enregistrement, () -> {});
+        synchronized (this) {
             passager.removeReservationWithoutBidirectional(this);
             this.passagers.remove(passager);
-        } else {
-            throw new IllegalStateException("Impossible de supprimer un passager : la réservation est payée, confirmée ou annulée");
+            if (this.blocage != null) {
+                this.vol.libererPlaces(1);
+                this.blocage.places--;
+            }
+            this.terminerTransition();
         }
     }
 
     /**
-     * Effectue le paiement de la réservation en vérifiant si le vol a assez de places disponibles pour tout les passagers
+     * Effectue le paiement de la réservation en réservant atomiquement une place sur le vol pour chaque passager.
+     * En mode blocage, les places déjà bloquées sont simplement converties.
+     * Toutes les places sont débitées au prix courant du vol au moment du paiement
      *
      * @exception IllegalStateException si la réservation est déjà payée, confirmée ou annulée
      * @exception IllegalStateException si aucun passager n'a été ajouté
      * @exception IllegalStateException si le vol n'a pas assez de places disponibles
+     * @exception IllegalStateException si la cabine n'a plus assez de sièges libres
+     * @exception IllegalStateException si un paiement de la réservation est en cours
      */
     public void payer() {
-        switch (this.etat) {
-            case EN_ATTENTE -> {
-                if (this.passagers.isEmpty()) {
-                    throw new IllegalStateException("Impossible de payer la réservation : aucun passager n'a été ajouté");
+        EvenementReservation evenement = EvenementReservation.commencer("payer");
+        try {
+            long debut = System.nanoTime();
+            JournalReservations journal = JournalReservations.getActif();
+            double montant;
+            long enregistrement;
+            synchronized (this) {
+                this.attendreTransition();
+                switch (this.etat) {
+                    case PAYEE, CONFIRMEE -> throw new IllegalStateException("Impossible de payer la réservation : la réservation est déjà payée");
+                    case ANNULEE -> throw new IllegalStateException("Impossible de payer la réservation : la réservation est annulée");
                 }
+                double tarif = this.vol.getPrixCourant();
+                this.prendrePlaces();
+                montant = tarif * this.passagers.size();
+                enregistrement = this.preparerEncaissementOuRendrePlaces(journal, montant);
+            }
+            this.terminerEncaissement(journal, enregistrement, montant, debut, true);
+            evenement.reussir();
+        } finally {
+            evenement.terminer(this.vol.getNumero(), this.numero, this.passagers.size(), this.etat);
+        }
+    }
 
-                if (this.vol.getPlacesDisponibles() < this.passagers.size()) {
-                    throw new IllegalStateException("Impossible de payer la réservation : plus assez de places disponibles pour ce vol");
-                }
+    /**
+     * Effectue le paiement de la réservation comme {@link #payer()}, ou la place dans la liste d'attente du vol s'il n'a
+     * pas assez de places disponibles. Une réservation en attente est payée automatiquement, au prix courant du vol,
+     * dès que des places lui reviennent ; ses passagers ne peuvent plus être modifiés d'ici là
+     *
+     * @exception IllegalStateException si la réservation est déjà payée, confirmée ou annulée
+     * @exception IllegalStateException si aucun passager n'a été ajouté
+     * @exception IllegalStateException si un paiement de la réservation est en cours ou si elle est déjà en attente
+     * @exception IllegalStateException si la cabine n'a plus assez de sièges libres
+     *
+     * @return la réservation payée à venir, terminée en erreur si la réservation est annulée avant d'avoir été promue
+     */
+    public CompletableFuture<Reservation> payerOuAttendre() {
+        long debut = System.nanoTime();
+        JournalReservations journal = JournalReservations.getActif();
+        ListeAttente.Attente attente = null;
+        double montant = 0;
+        long enregistrement = 0;
+        synchronized (this) {
+            this.attendreTransition();
+            switch (this.etat) {
+                case PAYEE, CONFIRMEE -> throw new IllegalStateException("Impossible de payer la réservation : la réservation est déjà payée");
+                case ANNULEE -> throw new IllegalStateException("Impossible de payer la réservation : la réservation est annulée");
+            }
+            double tarif = this.vol.getPrixCourant();
+            if (this.prendrePlacesSiDisponibles()) {
+                montant = tarif * this.passagers.size();
+                enregistrement = this.preparerEncaissementOuRendrePlaces(journal, montant);
+            } else {
+                attente = this.vol.getListeAttente().ajouter(this, this.passagers.size());
+                this.attente = attente;
+                Metriques.incrementer(Compteur.MISES_EN_ATTENTE);
+            }
+        }
+
+        if (attente == null) {
+            this.terminerEncaissement(journal, enregistrement, montant, debut, true);
+            return CompletableFuture.completedFuture(this);
+        }
+
+        // Des places ont pu revenir au vol entre l'échec de la réservation et la mise en attente
+        this.vol.promouvoirListeAttente();
+        return attente.promesse;
+    }
+
+    /**
+     * Effectue le paiement de la réservation par le pipeline de paiements actif, sans attendre la passerelle de paiement :
+     * les places sont prises immédiatement et la réservation passe à l'état payée lorsque le débit est accepté.
+     * Si le débit est refusé, les places sont rendues au vol et la réservation reste en attente.
+     * Sans pipeline actif, le paiement est effectué de manière synchrone
+     *
+     * @exception IllegalStateException si la réservation est déjà payée, confirmée ou annulée
+     * @exception IllegalStateException si aucun passager n'a été ajouté
+     * @exception IllegalStateException si le vol n'a pas assez de places disponibles
+     * @exception IllegalStateException si un paiement de la réservation est déjà en cours
+     * @exception UncheckedIOException si le numéro du débit n'a pas pu être consigné dans le journal
+     *
+     * @return la réservation payée à venir, terminée en erreur si le débit est refusé ou si la réservation est annulée entre temps
+     */
+    public CompletableFuture<Reservation> payerAsynchrone() {
+        PipelinePaiements paiements = PipelinePaiements.getActif();
+        if (paiements == null) {
+            this.payer();
+            return CompletableFuture.completedFuture(this);
+        }
+
+        JournalReservations journal = JournalReservations.getActif();
+        long operation;
+        long enregistrement;
+        double montant;
+        synchronized (this) {
+            this.attendreTransition();
+            double tarif = this.vol.getPrixCourant();
+            switch (this.etat) {
+                case EN_ATTENTE -> this.prendrePlaces();
+                case PAYEE, CONFIRMEE -> throw new IllegalStateException("Impossible de payer la réservation : la réservation est déjà payée");
+                case ANNULEE -> throw new IllegalStateException("Impossible de payer la réservation : la réservation est annulée");
+            }
+            this.paiementEnCours = true;
+            montant = tarif * this.passagers.size();
+            operation = ++this.operationsPaiement;
+            try {
+                enregistrement = journal == null ? 0 : journal.operationPaiement(this, operation);
+            } catch (RuntimeException e) {
+                this.paiementEnCours = false;
+                this.vol.libererPlaces(this.passagers.size());
+                throw e;
+            }
+        }
 
-                this.client.debiter(this.vol.getPrix() * this.passagers.size());
-                this.etat = EtatReservation.PAYEE;
+        // Le débit est soumis hors du verrou, une fois son numéro durable : la soumission peut attendre que la file du pipeline se libère
+        CompletableFuture<Boolean> debit;
+        try {
+            if (journal != null) {
+                journal.attendre(enregistrement);
             }
-            case PAYEE, CONFIRMEE -> throw new IllegalStateException("Impossible de payer la réservation : la réservation est déjà payée");
-            case ANNULEE -> throw new IllegalStateException("Impossible de payer la réservation : la réservation est annulée");
+            debit = paiements.debiter(this, operation, montant);
+            Metriques.incrementer(Compteur.DEBITS);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                this.paiementEnCours = false;
+                if (this.etat == EtatReservation.EN_ATTENTE) {
+                    this.vol.libererPlaces(this.passagers.size());
+                }
+            }
+            throw e;
         }
+        return debit.handleAsync((accepte, erreur) -> {
+            this.terminerPaiement(erreur == null && accepte, montant);
+            return this;
+        });
     }
 
     /**
-     * Annule la réservation.
+     * Annule la réservation et rend ses places au vol si elle était payée, puis promeut les réservations en attente du vol.
      * Si la réservation est payée mais non confirmé, le client est remboursé
      */
     public void annuler() {
-        switch (this.etat) {
-            case EN_ATTENTE, CONFIRMEE -> this.etat = EtatReservation.ANNULEE;
-            case PAYEE -> {
-                this.client.rembourser(this.vol.getPrix() * this.passagers.size());
-                this.etat = EtatReservation.ANNULEE;
-            }
-        }
+        this.annuler("annuler", false);
     }
 
     /**
      * À utiliser si le vol est annulé par la compagnie.
-     * Tout les passagers ayant payé sont remboursés
+     * Tout les passagers ayant payé sont remboursés et leurs places sont rendues au vol, puis les réservations
+     * en attente du vol sont promues
      */
     public void annulerParCompagnie() {
-        switch (this.etat) {
-            case EN_ATTENTE -> this.etat = EtatReservation.ANNULEE;
-            case PAYEE, CONFIRMEE -> {
-                this.client.rembourser(this.vol.getPrix() * this.passagers.size());
-                this.etat = EtatReservation.ANNULEE;
-            }
-        }
+        this.annuler("annulerParCompagnie", true);
     }
 
     /**
@@ -227,10 +536,660 @@ public class Reservation {
      * @exception IllegalStateException si la réservation est annulée
      */
     public void confirmer() {
-        switch (this.etat) {
-            case EN_ATTENTE -> throw new IllegalStateException("Impossible de confirmer la réservation : la réservation n'est pas encore payée");
-            case PAYEE -> this.etat = EtatReservation.CONFIRMEE;
-            case ANNULEE -> throw new IllegalStateException("Impossible de confirmer la réservation : la réservation est annulée");
+        EvenementReservation evenement = EvenementReservation.commencer("confirmer");
+        try {
+            JournalReservations journal = JournalReservations.getActif();
+            long enregistrement;
+            synchronized (this) {
+                this.attendreTransition();
+                switch (this.etat) {
+                    case EN_ATTENTE -> throw new IllegalStateException("Impossible de confirmer la réservation : la réservation n'est pas encore payée");
+                    case ANNULEE -> throw new IllegalStateException("Impossible de confirmer la réservation : la réservation est annulée");
+                }
+                if (this.etat == EtatReservation.CONFIRMEE) {
+                    evenement.reussir();
+                    return;
+                }
+                enregistrement = this.consigner(journal, j -> j.changementEtat(this, EtatReservation.CONFIRMEE));
+            }
+
+            this.attendreDurabilite(journal, enregistrement, () -> {});
+            synchronized (this) {
+                this.etat = EtatReservation.CONFIRMEE;
+                this.terminerTransition();
+            }
+            Metriques.incrementer(Compteur.RESERVATIONS_CONFIRMEES);
+            evenement.reussir();
+        } finally {
+            evenement.terminer(this.vol.getNumero(), this.numero, this.passagers.size(), this.etat);
+        }
+    }
+
+    /**
+     * Prolonge le blocage des places de la réservation de toute la durée de blocage à partir de maintenant
+     *
+     * @exception IllegalStateException si la réservation n'a pas de places bloquées
+     */
+    public synchronized void prolongerBlocage() {
+        this.attendreTransition();
+        if (this.etat != EtatReservation.EN_ATTENTE || this.blocage == null) {
+            throw new IllegalStateException("Impossible de prolonger le blocage : la réservation n'a pas de places bloquées");
+        }
+
+        this.blocages.prolonger(this.blocage);
+    }
+
+    /**
+     * Fait expirer le blocage des places : les places sont rendues au vol et la réservation est annulée.
+     * Si l'annulation n'a pas pu être consignée, le blocage est réarmé pour retenter à sa prochaine échéance
+     *
+     * @param blocage le blocage échu retiré de la roue
+     * @param tick le tick de la roue en cours de traitement
+     * @return true si le blocage a expiré, false s'il a été prolongé, converti ou libéré entre temps
+     */
+    boolean expirerBlocage(Blocage blocage, long tick) {
+        JournalReservations journal = JournalReservations.getActif();
+        long enregistrement;
+        synchronized (this) {
+            this.attendreTransition();
+            if (this.etat != EtatReservation.EN_ATTENTE || this.blocage != blocage || !this.blocages.estExpire(blocage, tick)) {
+                return false;
+            }
+            enregistrement = this.consigner(journal, j -> j.changementEtat(this, EtatReservation.ANNULEE));
+        }
+
+        try {
+            this.attendreDurabilite(journal, enregistrement, () -> this.blocages.rearmer(blocage));
+        } catch (RuntimeException e) {
+            return false;
+        }
+        synchronized (this) {
+            if (blocage.places > 0) {
+                this.vol.libererPlaces(blocage.places);
+            }
+            this.blocage = null;
+            this.etat = EtatReservation.ANNULEE;
+            this.terminerTransition();
+        }
+        Metriques.incrementer(Compteur.BLOCAGES_EXPIRES);
+        this.blocages.signalerExpiration();
+        return true;
+    }
+
+    /**
+     * Retourne le nombre de places actuellement bloquées pour la réservation
+     *
+     * @return le nombre de places bloquées, 0 si aucune
+     */
+    synchronized int getPlacesBloquees() {
+        return blocage == null ? 0 : blocage.places;
+    }
+
+    /**
+     * Rajoute un passager relu dans le journal ou une photographie, sans le consigner de nouveau
+     *
+     * @param passager le passager
+     */
+    synchronized void restaurerPassager(Passager passager) {
+        this.passagers.add(passager);
+        passager.addReservationWithoutBidirectional(this);
+    }
+
+    /**
+     * Retire un passager relu dans le journal, sans le consigner de nouveau
+     *
+     * @param passager le passager
+     */
+    synchronized void restaurerRetrait(Passager passager) {
+        this.passagers.remove(passager);
+        passager.removeReservationWithoutBidirectional(this);
+    }
+
+    /**
+     * Rétablit un état relu dans le journal ou une photographie, sans le consigner de nouveau ni toucher aux places du vol.
+     * Une réservation annulée rend ses sièges au plan de cabine
+     *
+     * @param etat l'état
+     */
+    synchronized void restaurerEtat(EtatReservation etat) {
+        this.etat = etat;
+        if (etat == EtatReservation.ANNULEE) {
+            this.libererSieges();
+        }
+    }
+
+    /**
+     * Ajoute un passager à une réservation qui n'a pas encore été publiée, sans le consigner
+     *
+     * @param passager le passager
+     */
+    synchronized void preparerPassager(Passager passager) {
+        this.passagers.add(passager);
+    }
+
+    /**
+     * Rend la réservation visible de son client, de son vol, de ses passagers et de l'annuaire
+     */
+    synchronized void publier() {
+        this.client.addReservationWithoutBidirectional(this);
+        this.vol.addReservationWithoutBidirectional(this);
+        for (Passager passager : this.passagers) {
+            passager.addReservationWithoutBidirectional(this);
+        }
+        AnnuaireReservations.getInstance().enregistrer(this);
+    }
+
+    /**
+     * Rétablit le montant débité au client pour la réservation, sans le débiter
+     *
+     * @param montant le montant débité
+     */
+    synchronized void restaurerMontantPaye(double montant) {
+        this.montantPaye = montant;
+    }
+
+    /**
+     * Rétablit le numéro de la dernière opération de paiement relu dans le journal ou une photographie,
+     * sans revenir sur un numéro plus récent
+     *
+     * @param operation le numéro de l'opération
+     */
+    synchronized void restaurerOperationsPaiement(long operation) {
+        this.operationsPaiement = Math.max(this.operationsPaiement, operation);
+    }
+
+    /**
+     * Reprend sur le plan de cabine du vol les sièges relus dans le journal ou une photographie.
+     * Sans effet si le vol n'a pas de plan de cabine ou si un des sièges y est déjà pris
+     *
+     * @param sieges les indices des sièges, dans l'ordre des passagers
+     */
+    synchronized void restaurerSieges(int[] sieges) {
+        PlanSieges plan = this.vol.getPlanSieges();
+        if (plan != null && sieges.length > 0 && this.sieges == null && plan.occuper(sieges)) {
+            this.planSieges = plan;
+            this.sieges = sieges;
+        }
+    }
+
+    /**
+     * Retourne les indices des sièges attribués aux passagers, pour le journal et les photographies
+     *
+     * @return les indices des sièges dans l'ordre des passagers, vide si aucun siège n'est attribué
+     */
+    synchronized int[] getIndicesSieges() {
+        return this.sieges == null ? new int[0] : this.sieges.clone();
+    }
+
+    /**
+     * Retourne le siège attribué à chaque passager de la réservation
+     *
+     * @return le libellé du siège de chaque passager, vide si le vol n'a pas de plan de cabine ou si la réservation n'est pas payée
+     */
+    public synchronized Map<Passager, String> getSieges() {
+        Map<Passager, String> sieges = new LinkedHashMap<>();
+        if (this.sieges != null) {
+            int i = 0;
+            for (Passager passager : this.passagers) {
+                sieges.put(passager, this.planSieges.libelle(this.sieges[i++]));
+            }
+        }
+        return sieges;
+    }
+
+    /**
+     * Attribue aux passagers des sièges adjacents autant que possible sur le plan de cabine du vol, avant que le
+     * paiement ne soit consigné : les sièges font partie du paiement et sont rendus s'il est défait.
+     * Sans effet si le vol n'a pas de plan de cabine ou si les sièges sont déjà attribués
+     *
+     * @exception IllegalStateException si la cabine n'a plus assez de sièges libres
+     */
+    synchronized void attribuerSieges() {
+        PlanSieges plan = this.vol.getPlanSieges();
+        if (plan == null || this.sieges != null) {
+            return;
+        }
+        int[] sieges = plan.attribuer(this.passagers.size());
+        if (sieges == null) {
+            throw new IllegalStateException("Impossible de payer la réservation : plus assez de sièges libres dans la cabine");
+        }
+        this.planSieges = plan;
+        this.sieges = sieges;
+    }
+
+    /**
+     * Retourne le montant débité au client pour la réservation
+     *
+     * @return le montant débité, NaN si la réservation n'a pas été payée ou si le montant n'est pas connu
+     */
+    public synchronized double getMontantPaye() {
+        return montantPaye;
+    }
+
+    /**
+     * Prend les places des passagers sur le vol pour le paiement, ou convertit le blocage en cours
+     *
+     * @exception IllegalStateException si un paiement de la réservation est en cours
+     * @exception IllegalStateException si aucun passager n'a été ajouté
+     * @exception IllegalStateException si le vol n'a pas assez de places disponibles
+     */
+    private void prendrePlaces() {
+        if (!this.prendrePlacesSiDisponibles()) {
+            Metriques.incrementer(Compteur.PLACES_INSUFFISANTES);
+            throw new IllegalStateException("Impossible de payer la réservation : plus assez de places disponibles pour ce vol");
+        }
+    }
+
+    /**
+     * Prend les places des passagers sur le vol s'il en reste assez, ou convertit le blocage en cours
+     *
+     * @exception IllegalStateException si un paiement de la réservation est en cours ou si elle est en attente
+     * @exception IllegalStateException si aucun passager n'a été ajouté
+     *
+     * @return true si les places ont été prises, false si le vol n'a pas assez de places disponibles
+     */
+    private boolean prendrePlacesSiDisponibles() {
+        this.verifierAucunPaiementEnCours();
+        if (this.passagers.isEmpty()) {
+            throw new IllegalStateException("Impossible de payer la réservation : aucun passager n'a été ajouté");
+        }
+
+        if (this.blocage != null) {
+            this.blocages.convertir(this.blocage);
+            this.blocage = null;
+            return true;
+        }
+        return this.vol.reserverPlaces(this.passagers.size());
+    }
+
+    /**
+     * Attribue les sièges, débite le client pour des places déjà prises et consigne le paiement, sans encore l'appliquer.
+     * Si les sièges ne peuvent pas être attribués ou si le paiement ne peut pas être consigné, rien n'est débité ni
+     * attribué ; les places restent à rendre par l'appelant
+     *
+     * @param journal le journal actif, ou null
+     * @param montant le montant à débiter
+     * @exception IllegalStateException si la cabine n'a plus assez de sièges libres
+     * @return le numéro de l'enregistrement à attendre, 0 sans journal
+     */
+    private long preparerEncaissement(JournalReservations journal, double montant) {
+        this.attribuerSieges();
+        long appel = System.nanoTime();
+        try {
+            this.client.debiter(montant);
+        } catch (RuntimeException e) {
+            this.libererSieges();
+            throw e;
+        }
+        Metriques.mesurer(Latence.APPEL_PAIEMENT, appel);
+        Metriques.incrementer(Compteur.DEBITS);
+        try {
+            return this.consigner(journal, j -> j.paiement(this, montant));
+        } catch (RuntimeException e) {
+            this.client.rembourser(montant);
+            this.libererSieges();
+            throw e;
+        }
+    }
+
+    /**
+     * Prépare l'encaissement comme {@link #preparerEncaissement}, en rendant au vol les places prises s'il échoue
+     *
+     * @param journal le journal actif, ou null
+     * @param montant le montant à débiter
+     * @return le numéro de l'enregistrement à attendre, 0 sans journal
+     */
+    private long preparerEncaissementOuRendrePlaces(JournalReservations journal, double montant) {
+        try {
+            return this.preparerEncaissement(journal, montant);
+        } catch (RuntimeException e) {
+            this.vol.libererPlaces(this.passagers.size());
+            throw e;
+        }
+    }
+
+    /**
+     * Attend que le paiement consigné soit durable puis passe la réservation à l'état payée.
+     * Si le journal n'a pas pu être écrit, le client est remboursé, les sièges sont rendus et la réservation reste en attente
+     *
+     * @param journal le journal actif, ou null
+     * @param enregistrement le numéro de l'enregistrement du paiement
+     * @param montant le montant débité
+     * @param debut l'instant du début du paiement, en nanosecondes
+     * @param rendrePlaces si les places sont rendues au vol en cas d'échec, sinon l'appelant s'en charge
+     */
+    private void terminerEncaissement(JournalReservations journal, long enregistrement, double montant, long debut, boolean rendrePlaces) {
+        this.attendreDurabilite(journal, enregistrement, () -> {
+            this.client.rembourser(montant);
+            this.libererSieges();
+            if (rendrePlaces) {
+                this.vol.libererPlaces(this.passagers.size());
+            }
+        });
+        synchronized (this) {
+            this.montantPaye = montant;
+            this.etat = EtatReservation.PAYEE;
+            this.terminerTransition();
+        }
+        Metriques.incrementer(Compteur.RESERVATIONS_PAYEES);
+        Metriques.mesurer(Latence.PAIEMENT_RESERVATION, debut);
+    }
+
+    /**
+     * Paie la réservation promue de la liste d'attente du vol, ses places ayant déjà été prises par la liste
+     *
+     * @param attente la demande promue
+     * @return true si la réservation a été payée, false si elle n'attendait plus ces places, si la cabine n'a plus assez de sièges libres ou si le débit a échoué
+     */
+    boolean promouvoir(ListeAttente.Attente attente) {
+        long debut = System.nanoTime();
+        JournalReservations journal = JournalReservations.getActif();
+        double montant;
+        long enregistrement;
+        RuntimeException erreur = null;
+        synchronized (this) {
+            this.attendreTransition();
+            if (this.attente != attente || this.etat != EtatReservation.EN_ATTENTE) {
+                return false;
+            }
+            this.attente = null;
+            montant = this.vol.getPrixCourant() * attente.places;
+            try {
+                enregistrement = this.preparerEncaissement(journal, montant);
+            } catch (RuntimeException e) {
+                enregistrement = -1;
+                erreur = e;
+            }
+        }
+
+        // Les suites de la promesse ne s'exécutent pas sous le verrou de la réservation
+        if (erreur == null) {
+            try {
+                this.terminerEncaissement(journal, enregistrement, montant, debut, false);
+                Metriques.incrementer(Compteur.PROMOTIONS_ATTENTE);
+            } catch (RuntimeException e) {
+                erreur = e;
+            }
+        }
+        if (erreur != null) {
+            attente.promesse.completeExceptionally(erreur);
+            return false;
+        }
+        attente.promesse.complete(this);
+        return true;
+    }
+
+    /**
+     * Rend au plan de cabine les sièges attribués aux passagers
+     */
+    private void libererSieges() {
+        if (this.sieges != null) {
+            this.planSieges.liberer(this.sieges);
+            this.planSieges = null;
+            this.sieges = null;
+        }
+    }
+
+    /**
+     * Retire la réservation de la liste d'attente du vol si elle y est
+     *
+     * @return la demande retirée, dont la promesse reste à terminer, null si la réservation n'était pas en attente
+     */
+    private ListeAttente.Attente quitterListeAttente() {
+        ListeAttente.Attente attente = this.attente;
+        if (attente != null) {
+            attente.liste.annuler(attente);
+            this.attente = null;
+        }
+        return attente;
+    }
+
+    /**
+     * Termine un paiement asynchrone : la réservation passe à l'état payée si le débit est accepté et consigné,
+     * sinon ses places sont rendues au vol. Un débit accepté est remboursé si la réservation a été annulée pendant le
+     * paiement ou si la cabine n'a plus assez de sièges libres
+     *
+     * @param accepte si le débit a été accepté
+     * @param montant le montant débité
+     * @exception IllegalStateException si le débit est refusé ou si la réservation a été annulée pendant le paiement
+     * @exception IllegalStateException si la cabine n'a plus assez de sièges libres
+     */
+    private void terminerPaiement(boolean accepte, double montant) {
+        JournalReservations journal = JournalReservations.getActif();
+        long enregistrement;
+        synchronized (this) {
+            this.attendreTransition();
+            this.paiementEnCours = false;
+            if (this.etat != EtatReservation.EN_ATTENTE) {
+                // Les places ont déjà été rendues par l'annulation
+                if (accepte) {
+                    this.rembourser(montant);
+                }
+                throw new IllegalStateException("Impossible de payer la réservation : la réservation a été annulée pendant le paiement");
+            }
+            if (!accepte) {
+                this.vol.libererPlaces(this.passagers.size());
+                Metriques.incrementer(Compteur.DEBITS_REFUSES);
+                throw new IllegalStateException("Impossible de payer la réservation : le paiement a été refusé");
+            }
+            try {
+                this.attribuerSieges();
+                enregistrement = this.consigner(journal, j -> j.paiement(this, montant));
+            } catch (RuntimeException e) {
+                this.rembourser(montant);
+                this.libererSieges();
+                this.vol.libererPlaces(this.passagers.size());
+                throw e;
+            }
+        }
+
+        this.attendreDurabilite(journal, enregistrement, () -> {
+            this.rembourser(montant);
+            this.libererSieges();
+            this.vol.libererPlaces(this.passagers.size());
+        });
+        synchronized (this) {
+            this.montantPaye = montant;
+            this.etat = EtatReservation.PAYEE;
+            this.terminerTransition();
+        }
+        Metriques.incrementer(Compteur.RESERVATIONS_PAYEES);
+    }
+
+    /**
+     * Vérifie qu'aucun paiement asynchrone de la réservation n'est en attente de la passerelle,
+     * ni aucun paiement différé en attente de places dans la liste d'attente du vol
+     *
+     * @exception IllegalStateException si un paiement est en cours ou si la réservation est en liste d'attente
+     */
+    private void verifierAucunPaiementEnCours() {
+        if (this.paiementEnCours) {
+            throw new IllegalStateException("Impossible de modifier la réservation : un paiement est en cours");
+        }
+        if (this.attente != null) {
+            throw new IllegalStateException("Impossible de modifier la réservation : la réservation est en liste d'attente");
+        }
+    }
+
+    /**
+     * Retourne le nombre d'opérations de paiement soumises au pipeline, pour les photographies
+     *
+     * @return le numéro de la dernière opération de paiement, 0 si aucune
+     */
+    synchronized long getOperationsPaiement() {
+        return this.operationsPaiement;
+    }
+
+    /**
+     * Retourne le montant à rembourser au client : le montant débité, ou à défaut le prix de base des places
+     *
+     * @return le montant à rembourser
+     */
+    private double montantARembourser() {
+        return Double.isNaN(this.montantPaye) ? this.vol.getPrix() * this.passagers.size() : this.montantPaye;
+    }
+
+    /**
+     * Rembourse le client, par le pipeline de paiements actif s'il y en a un. Le numéro du remboursement est alors
+     * consigné et rendu durable avant sa soumission, sous le verrou de la réservation
+     *
+     * @param montant le montant à rembourser
+     */
+    private void rembourser(double montant) {
+        Metriques.incrementer(Compteur.REMBOURSEMENTS);
+        PipelinePaiements paiements = PipelinePaiements.getActif();
+        if (paiements != null) {
+            long operation = ++this.operationsPaiement;
+            JournalReservations journal = JournalReservations.getActif();
+            if (journal != null) {
+                try {
+                    journal.attendre(journal.operationPaiement(this, operation));
+                } catch (RuntimeException e) {
+                    // Un journal devenu inutilisable n'empêche pas de rendre son argent au client
+                }
+            }
+            paiements.rembourser(this, operation, montant);
+        } else {
+            long appel = System.nanoTime();
+            this.client.rembourser(montant);
+            Metriques.mesurer(Latence.APPEL_PAIEMENT, appel);
+        }
+    }
+
+    /**
+     * Annule la réservation une fois l'annulation durable, rend ses places au vol et rembourse le client
+     * si elle était payée, puis promeut les réservations en attente du vol
+     *
+     * @param nom le nom de l'opération, pour l'évènement de supervision
+     * @param parCompagnie si le vol est annulé par la compagnie : une réservation confirmée est alors aussi remboursée
+     */
+    private void annuler(String nom, boolean parCompagnie) {
+        ListeAttente.Attente quittee = null;
+        EvenementReservation evenement = EvenementReservation.commencer(nom);
+        try {
+            JournalReservations journal = JournalReservations.getActif();
+            long enregistrement;
+            synchronized (this) {
+                this.attendreTransition();
+                if (this.etat == EtatReservation.ANNULEE) {
+                    evenement.reussir();
+                    return;
+                }
+                enregistrement = this.consigner(journal, j -> j.changementEtat(this, EtatReservation.ANNULEE));
+            }
+
+            this.attendreDurabilite(journal, enregistrement, () -> {});
+            synchronized (this) {
+                quittee = this.quitterListeAttente();
+                switch (this.etat) {
+                    case EN_ATTENTE -> {
+                        this.libererBlocage();
+                        if (this.paiementEnCours) {
+                            this.vol.libererPlaces(this.passagers.size());
+                        }
+                    }
+                    case PAYEE -> {
+                        this.rembourser(this.montantARembourser());
+                        this.libererSieges();
+                        this.vol.libererPlaces(this.passagers.size());
+                    }
+                    case CONFIRMEE -> {
+                        if (parCompagnie) {
+                            this.rembourser(this.montantARembourser());
+                        }
+                        this.libererSieges();
+                        this.vol.libererPlaces(this.passagers.size());
+                    }
+                }
+                this.etat = EtatReservation.ANNULEE;
+                this.terminerTransition();
+            }
+            Metriques.incrementer(parCompagnie ? Compteur.RESERVATIONS_ANNULEES_COMPAGNIE : Compteur.RESERVATIONS_ANNULEES);
+            evenement.reussir();
+        } finally {
+            evenement.terminer(this.vol.getNumero(), this.numero, this.passagers.size(), this.etat);
+        }
+
+        // Hors du verrou de la réservation : les suites de la promesse et le paiement des réservations promues
+        if (quittee != null) {
+            quittee.promesse.completeExceptionally(new IllegalStateException("Impossible de payer la réservation : la réservation a été annulée"));
+        }
+        this.vol.promouvoirListeAttente();
+    }
+
+    /**
+     * Ajoute une transition au journal actif, sous le verrou de la réservation et avant qu'elle n'ait d'effet.
+     * Les transitions suivantes de la réservation attendent que celle-ci soit appliquée ou défaite
+     *
+     * @param journal le journal actif, ou null
+     * @param transition l'ajout de l'enregistrement de la transition au journal
+     * @return le numéro de l'enregistrement à attendre, 0 sans journal
+     */
+    private long consigner(JournalReservations journal, ToLongFunction<JournalReservations> transition) {
+        long enregistrement = journal == null ? 0 : transition.applyAsLong(journal);
+        this.transitionEnCours = true;
+        return enregistrement;
+    }
+
+    /**
+     * Attend hors du verrou de la réservation qu'une transition consignée soit durable. Si le journal n'a pas pu
+     * être écrit, la transition est défaite, les transitions suivantes sont débloquées et l'erreur est relancée
+     *
+     * @param journal le journal actif, ou null
+     * @param enregistrement le numéro de l'enregistrement, 0 sans journal
+     * @param defaire ce qui a été préparé pour la transition et doit être défait, exécuté sous le verrou
+     * @exception UncheckedIOException si le journal n'a pas pu être écrit
+     */
+    private void attendreDurabilite(JournalReservations journal, long enregistrement, Runnable defaire) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.attendre(enregistrement);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                defaire.run();
+                this.terminerTransition();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Attend, sous le verrou de la réservation, qu'aucune transition consignée ne soit en attente d'être appliquée
+     */
+    private void attendreTransition() {
+        boolean interrompu = false;
+        while (this.transitionEnCours) {
+            try {
+                this.wait();
+            } catch (InterruptedException e) {
+                interrompu = true;
+            }
+        }
+        if (interrompu) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Termine la transition en cours et réveille les transitions qui l'attendaient
+     */
+    private void terminerTransition() {
+        this.transitionEnCours = false;
+        this.notifyAll();
+    }
+
+    /**
+     * Libère les places bloquées de la réservation si elle en a
+     */
+    private void libererBlocage() {
+        if (this.blocage != null) {
+            this.blocages.liberer(this.blocage);
+            if (this.blocage.places > 0) {
+                this.vol.libererPlaces(this.blocage.places);
+            }
+            this.blocage = null;
         }
     }
 }
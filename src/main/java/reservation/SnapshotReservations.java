@@ -0,0 +1,319 @@
+package reservation;
+
+import gestionVol.CatalogueVols;
+import gestionVol.Vol;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Classe représentant une photographie binaire des réservations, de leurs clients et de leurs passagers.
+ * Les vols y sont désignés par leur numéro et leur jour de départ et sont retrouvés dans le catalogue au chargement :
+ * la photographie du réseau doit donc être chargée avant celle des réservations
+ */
+public class SnapshotReservations {
+
+    /**
+     * L'entête des fichiers de photographie des réservations
+     */
+    private static final int MAGIQUE = 0x52535631;
+
+    /**
+     * La version du format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Constructeur de la classe SnapshotReservations
+     */
+    private SnapshotReservations() {
+    }
+
+    /**
+     * Écrit une photographie d'un ensemble de réservations, avec leurs clients et leurs passagers.
+     * Le fichier est écrit à côté puis renommé atomiquement, pour ne jamais laisser de photographie incomplète
+     *
+     * @param fichier le chemin de la photographie
+     * @param reservations les réservations à photographier
+     * @exception IllegalArgumentException si le chemin ou les réservations sont null
+     * @exception UncheckedIOException si la photographie ne peut pas être écrite
+     */
+    public static void ecrire(Path fichier, Collection<Reservation> reservations) {
+        if (fichier == null || reservations == null) {
+            throw new IllegalArgumentException("fichier and reservations cannot be null");
+        }
+
+        // L'état, les passagers, les sièges et les places bloquées de chaque réservation sont relevés ensemble sous son verrou
+        List<Photo> photos = new ArrayList<>(reservations.size());
+        Map<Client, Integer> clients = new LinkedHashMap<>();
+        Map<Passager, Integer> passagers = new LinkedHashMap<>();
+        for (Reservation reservation : reservations) {
+            Photo photo = new Photo(reservation);
+            photos.add(photo);
+            clients.putIfAbsent(reservation.getClient(), clients.size());
+            for (Passager passager : photo.passagers) {
+                passagers.putIfAbsent(passager, passagers.size());
+            }
+        }
+
+        Path temporaire = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporaire, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream sortie = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16));
+            sortie.writeInt(MAGIQUE);
+            sortie.writeInt(VERSION);
+
+            sortie.writeInt(clients.size());
+            for (Client client : clients.keySet()) {
+                uuid(sortie, client.getUuid());
+                texte(sortie, client.getNom());
+                texte(sortie, client.getPaiement());
+                texte(sortie, client.getContact());
+            }
+
+            sortie.writeInt(passagers.size());
+            for (Passager passager : passagers.keySet()) {
+                uuid(sortie, passager.getUuid());
+                texte(sortie, passager.getNom());
+                texte(sortie, passager.getPrenom());
+            }
+
+            sortie.writeInt(photos.size());
+            for (Photo photo : photos) {
+                Reservation reservation = photo.reservation;
+                uuid(sortie, reservation.getNumero());
+                sortie.writeLong(reservation.getDate().toEpochSecond());
+                sortie.writeInt(reservation.getDate().getNano());
+                texte(sortie, reservation.getDate().getZone().getId());
+                sortie.writeInt(clients.get(reservation.getClient()));
+                texte(sortie, reservation.getVol().getNumero());
+                sortie.writeLong(reservation.getVol().getDateDepart().toLocalDate().toEpochDay());
+                sortie.writeByte(photo.etat.ordinal());
+                sortie.writeDouble(photo.montantPaye);
+                sortie.writeLong(photo.operationsPaiement);
+                sortie.writeInt(photo.placesBloquees);
+                sortie.writeInt(photo.passagers.size());
+                for (Passager passager : photo.passagers) {
+                    sortie.writeInt(passagers.get(passager));
+                }
+                sortie.writeInt(photo.sieges.length);
+                for (int siege : photo.sieges) {
+                    sortie.writeInt(siege);
+                }
+            }
+            sortie.flush();
+            canal.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'écrire la photographie des réservations", e);
+        }
+
+        try {
+            Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'écrire la photographie des réservations", e);
+        }
+    }
+
+    /**
+     * Charge une photographie des réservations et rattache chaque réservation à son vol dans le catalogue.
+     * Les places du vol photographié tiennent déjà compte des réservations payées ; les blocages de places
+     * n'étant pas restaurés, les places qui étaient bloquées sont rendues à leur vol
+     *
+     * @param fichier le chemin de la photographie
+     * @exception IllegalArgumentException si le chemin est null
+     * @exception IllegalStateException si le fichier n'est pas une photographie des réservations
+     * @exception IllegalStateException si un vol de la photographie est absent du catalogue
+     * @exception UncheckedIOException si la photographie ne peut pas être lue
+     *
+     * @return les réservations chargées
+     */
+    public static List<Reservation> charger(Path fichier) {
+        if (fichier == null) {
+            throw new IllegalArgumentException("fichier cannot be null");
+        }
+
+        MappedByteBuffer tampon;
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("La photographie des réservations dépasse 2 Go");
+            }
+            tampon = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible de lire la photographie des réservations", e);
+        }
+
+        if (tampon.remaining() < 8 || tampon.getInt() != MAGIQUE) {
+            throw new IllegalStateException("Le fichier n'est pas une photographie des réservations");
+        }
+        if (tampon.getInt() != VERSION) {
+            throw new IllegalStateException("Le fichier n'est pas une photographie des réservations");
+        }
+
+        Client[] clients = new Client[tampon.getInt()];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new Client(uuid(tampon), texte(tampon), texte(tampon), texte(tampon));
+        }
+
+        Passager[] passagers = new Passager[tampon.getInt()];
+        for (int i = 0; i < passagers.length; i++) {
+            passagers[i] = new Passager(uuid(tampon), texte(tampon), texte(tampon));
+        }
+
+        int nombre = tampon.getInt();
+        List<Reservation> reservations = new ArrayList<>(nombre);
+        CatalogueVols catalogue = CatalogueVols.getInstance();
+        for (int i = 0; i < nombre; i++) {
+            UUID numero = uuid(tampon);
+            ZonedDateTime date = ZonedDateTime.ofInstant(Instant.ofEpochSecond(tampon.getLong(), tampon.getInt()), ZoneId.of(texte(tampon)));
+            Client client = clients[tampon.getInt()];
+            String numeroVol = texte(tampon);
+            LocalDate jour = LocalDate.ofEpochDay(tampon.getLong());
+            Vol vol = catalogue.rechercher(numeroVol, jour);
+            if (vol == null) {
+                throw new IllegalStateException("Le vol " + numeroVol + " du " + jour + " est absent du catalogue");
+            }
+
+            Reservation reservation = new Reservation(numero, date, client, vol);
+            EtatReservation etat = EtatReservation.values()[tampon.get()];
+            double montantPaye = tampon.getDouble();
+            long operationsPaiement = tampon.getLong();
+            int placesBloquees = tampon.getInt();
+            int nombrePassagers = tampon.getInt();
+            for (int j = 0; j < nombrePassagers; j++) {
+                reservation.restaurerPassager(passagers[tampon.getInt()]);
+            }
+            reservation.restaurerEtat(etat);
+            reservation.restaurerMontantPaye(montantPaye);
+            reservation.restaurerOperationsPaiement(operationsPaiement);
+            int[] sieges = new int[tampon.getInt()];
+            for (int j = 0; j < sieges.length; j++) {
+                sieges[j] = tampon.getInt();
+            }
+            reservation.restaurerSieges(sieges);
+            if (placesBloquees > 0) {
+                vol.libererPlaces(placesBloquees);
+            }
+            reservations.add(reservation);
+        }
+        return reservations;
+    }
+
+    /**
+     * État d'une réservation relevé de manière cohérente au moment de la photographie
+     */
+    private static class Photo {
+
+        /**
+         * La réservation
+         */
+        final Reservation reservation;
+
+        /**
+         * L'état de la réservation
+         */
+        final EtatReservation etat;
+
+        /**
+         * Le montant débité au client, NaN s'il n'est pas connu
+         */
+        final double montantPaye;
+
+        /**
+         * Le numéro de la dernière opération de paiement soumise au pipeline
+         */
+        final long operationsPaiement;
+
+        /**
+         * Le nombre de places bloquées
+         */
+        final int placesBloquees;
+
+        /**
+         * Les passagers de la réservation
+         */
+        final List<Passager> passagers;
+
+        /**
+         * Les indices des sièges attribués, dans l'ordre des passagers
+         */
+        final int[] sieges;
+
+        Photo(Reservation reservation) {
+            this.reservation = reservation;
+            synchronized (reservation) {
+                this.etat = reservation.getEtat();
+                this.montantPaye = reservation.getMontantPaye();
+                this.operationsPaiement = reservation.getOperationsPaiement();
+                this.placesBloquees = reservation.getPlacesBloquees();
+                this.passagers = new ArrayList<>(reservation.getPassagers());
+                this.sieges = reservation.getIndicesSieges();
+            }
+        }
+    }
+
+    /**
+     * Écrit un UUID
+     *
+     * @param sortie le flux d'écriture
+     * @param uuid l'UUID
+     * @exception IOException si l'écriture échoue
+     */
+    private static void uuid(DataOutputStream sortie, UUID uuid) throws IOException {
+        sortie.writeLong(uuid.getMostSignificantBits());
+        sortie.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Écrit une chaîne de caractères
+     *
+     * @param sortie le flux d'écriture
+     * @param texte la chaîne
+     * @exception IOException si l'écriture échoue
+     */
+    private static void texte(DataOutputStream sortie, String texte) throws IOException {
+        byte[] utf8 = texte.getBytes(StandardCharsets.UTF_8);
+        sortie.writeInt(utf8.length);
+        sortie.write(utf8);
+    }
+
+    /**
+     * Lit un UUID
+     *
+     * @param tampon le fichier projeté
+     * @return l'UUID lu
+     */
+    private static UUID uuid(MappedByteBuffer tampon) {
+        return new UUID(tampon.getLong(), tampon.getLong());
+    }
+
+    /**
+     * Lit une chaîne de caractères
+     *
+     * @param tampon le fichier projeté
+     * @return la chaîne lue
+     */
+    private static String texte(MappedByteBuffer tampon) {
+        byte[] utf8 = new byte[tampon.getInt()];
+        tampon.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
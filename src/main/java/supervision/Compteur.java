@@ -0,0 +1,28 @@
+package supervision;
+
+/**
+ * Enum représentant les événements comptés par les métriques du moteur de réservation
+ */
+public enum Compteur {
+    RESERVATIONS_CREEES,
+    RESERVATIONS_PAYEES,
+    RESERVATIONS_CONFIRMEES,
+    RESERVATIONS_ANNULEES,
+    RESERVATIONS_ANNULEES_COMPAGNIE,
+    BLOCAGES_EXPIRES,
+    PLACES_INSUFFISANTES,
+    DEBITS,
+    DEBITS_REFUSES,
+    REMBOURSEMENTS,
+    ESCALES_REFUSEES,
+    VOLS_OUVERTS,
+    VOLS_FERMES,
+    RECHERCHES_EN_CACHE,
+    RECHERCHES_CALCULEES,
+    RECHERCHES_EVINCEES,
+    RECHERCHES_INVALIDEES,
+    RECHERCHES_TRONQUEES,
+    MISES_EN_ATTENTE,
+    PROMOTIONS_ATTENTE,
+    REMBOURSEMENTS_ECHOUES
+}
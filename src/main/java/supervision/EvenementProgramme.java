@@ -0,0 +1,82 @@
+package supervision;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Événement Java Flight Recorder d'une modification du programme des vols (escales, aéroports, suppression de vols),
+ * qui mesure notamment la mise à jour des liens bidirectionnels des aéroports et des compagnies.
+ * Les champs ne sont renseignés que si l'événement est enregistré, pour un coût négligeable lorsque JFR est inactif
+ */
+@Name("flightreservation.Programme")
+@Label("Modification du programme des vols")
+@Category({"Flight reservation", "Programme"})
+@Description("Ajout d'escale, changement d'aéroport, suppression d'un vol ou d'un aéroport")
+@StackTrace(false)
+public class EvenementProgramme extends Event {
+
+    @Label("Opération")
+    String operation;
+
+    @Label("Numéro du vol")
+    String numeroVol;
+
+    @Label("Aéroport")
+    String aeroport;
+
+    @Label("Éléments concernés")
+    @Description("Escales du vol, réservations annulées ou villes desservies selon l'opération")
+    int elements;
+
+    @Label("Réussie")
+    boolean reussie;
+
+    /**
+     * Constructeur de la classe EvenementProgramme
+     *
+     * @param operation le nom de l'opération
+     */
+    private EvenementProgramme(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Commence la mesure d'une opération
+     *
+     * @param operation le nom de l'opération
+     * @return l'événement commencé
+     */
+    public static EvenementProgramme commencer(String operation) {
+        EvenementProgramme evenement = new EvenementProgramme(operation);
+        evenement.begin();
+        return evenement;
+    }
+
+    /**
+     * Indique que l'opération s'est terminée sans erreur
+     */
+    public void reussir() {
+        this.reussie = true;
+    }
+
+    /**
+     * Termine la mesure de l'opération et enregistre l'événement s'il dépasse le seuil configuré
+     *
+     * @param numeroVol le numéro du vol modifié, null pour une opération sur un aéroport
+     * @param aeroport le nom de l'aéroport concerné, null s'il n'y en a pas
+     * @param elements le nombre d'éléments concernés par l'opération
+     */
+    public void terminer(String numeroVol, String aeroport, int elements) {
+        end();
+        if (shouldCommit()) {
+            this.numeroVol = numeroVol;
+            this.aeroport = aeroport;
+            this.elements = elements;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package supervision;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.UUID;
+
+/**
+ * Événement Java Flight Recorder d'une opération sur une réservation (paiement, confirmation, annulation).
+ * Les champs ne sont renseignés que si l'événement est enregistré, pour un coût négligeable lorsque JFR est inactif
+ */
+@Name("flightreservation.Reservation")
+@Label("Opération sur une réservation")
+@Category({"Flight reservation", "Réservations"})
+@Description("Paiement, confirmation ou annulation d'une réservation")
+@StackTrace(false)
+public class EvenementReservation extends Event {
+
+    @Label("Opération")
+    String operation;
+
+    @Label("Numéro du vol")
+    String numeroVol;
+
+    @Label("Numéro de la réservation")
+    String numeroReservation;
+
+    @Label("Passagers")
+    int passagers;
+
+    @Label("État final")
+    String etat;
+
+    @Label("Réussie")
+    boolean reussie;
+
+    /**
+     * Constructeur de la classe EvenementReservation
+     *
+     * @param operation le nom de l'opération
+     */
+    private EvenementReservation(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Commence la mesure d'une opération
+     *
+     * @param operation le nom de l'opération
+     * @return l'événement commencé
+     */
+    public static EvenementReservation commencer(String operation) {
+        EvenementReservation evenement = new EvenementReservation(operation);
+        evenement.begin();
+        return evenement;
+    }
+
+    /**
+     * Indique que l'opération s'est terminée sans erreur
+     */
+    public void reussir() {
+        this.reussie = true;
+    }
+
+    /**
+     * Termine la mesure de l'opération et enregistre l'événement s'il dépasse le seuil configuré
+     *
+     * @param numeroVol le numéro du vol réservé
+     * @param numeroReservation le numéro de la réservation
+     * @param passagers le nombre de passagers de la réservation
+     * @param etat l'état de la réservation à la fin de l'opération
+     */
+    public void terminer(String numeroVol, UUID numeroReservation, int passagers, Enum<?> etat) {
+        end();
+        if (shouldCommit()) {
+            this.numeroVol = numeroVol;
+            this.numeroReservation = numeroReservation.toString();
+            this.passagers = passagers;
+            this.etat = etat.name();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package supervision;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Classe représentant un histogramme de durées en nanosecondes, enregistrable depuis plusieurs threads sans verrou.
+ * Chaque puissance de deux est découpée en huit compartiments, soit une précision relative de 12,5 % ;
+ * un enregistrement ne coûte qu'un calcul d'indice et l'incrément d'un compteur réparti
+ */
+public class HistogrammeLatences {
+
+    /**
+     * Le nombre de compartiments par puissance de deux, en bits
+     */
+    private static final int BITS_SOUS_COMPARTIMENTS = 3;
+
+    /**
+     * Le nombre de compartiments par puissance de deux
+     */
+    private static final int SOUS_COMPARTIMENTS = 1 << BITS_SOUS_COMPARTIMENTS;
+
+    /**
+     * Le nombre total de compartiments, couvrant toutes les valeurs positives d'un long
+     */
+    private static final int NOMBRE_COMPARTIMENTS = indice(Long.MAX_VALUE) + 1;
+
+    /**
+     * Les compteurs des compartiments
+     */
+    private final LongAdder[] compartiments = new LongAdder[NOMBRE_COMPARTIMENTS];
+
+    /**
+     * Le nombre de valeurs enregistrées
+     */
+    private final LongAdder nombre = new LongAdder();
+
+    /**
+     * La somme des valeurs enregistrées
+     */
+    private final LongAdder somme = new LongAdder();
+
+    /**
+     * La plus grande valeur enregistrée, 0 si aucune
+     */
+    private final LongAccumulator maximum = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Constructeur de la classe HistogrammeLatences
+     */
+    public HistogrammeLatences() {
+        for (int i = 0; i < NOMBRE_COMPARTIMENTS; i++) {
+            this.compartiments[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Enregistre une durée
+     *
+     * @param nanos la durée en nanosecondes, ramenée à 0 si elle est négative
+     */
+    public void enregistrer(long nanos) {
+        long valeur = Math.max(nanos, 0);
+        this.compartiments[indice(valeur)].increment();
+        this.nombre.increment();
+        this.somme.add(valeur);
+        this.maximum.accumulate(valeur);
+    }
+
+    /**
+     * Remet l'histogramme à zéro. Les enregistrements concurrents peuvent être partiellement conservés
+     */
+    public void reinitialiser() {
+        for (LongAdder compartiment : this.compartiments) {
+            compartiment.reset();
+        }
+        this.nombre.reset();
+        this.somme.reset();
+        this.maximum.reset();
+    }
+
+    /**
+     * Relève l'état courant de l'histogramme
+     *
+     * @return la photographie de l'histogramme
+     */
+    public Photo photographier() {
+        long[] comptes = new long[NOMBRE_COMPARTIMENTS];
+        for (int i = 0; i < NOMBRE_COMPARTIMENTS; i++) {
+            comptes[i] = this.compartiments[i].sum();
+        }
+        return new Photo(comptes, this.nombre.sum(), this.somme.sum(), this.maximum.get());
+    }
+
+    /**
+     * Retourne l'indice du compartiment d'une valeur
+     *
+     * @param valeur la valeur positive
+     * @return l'indice de son compartiment
+     */
+    static int indice(long valeur) {
+        if (valeur < SOUS_COMPARTIMENTS) {
+            return (int) valeur;
+        }
+        int exposant = 63 - Long.numberOfLeadingZeros(valeur);
+        int sousCompartiment = (int) (valeur >>> (exposant - BITS_SOUS_COMPARTIMENTS)) & (SOUS_COMPARTIMENTS - 1);
+        return (exposant - BITS_SOUS_COMPARTIMENTS + 1) * SOUS_COMPARTIMENTS + sousCompartiment;
+    }
+
+    /**
+     * Retourne la plus petite valeur d'un compartiment
+     *
+     * @param indice l'indice du compartiment
+     * @return la plus petite valeur du compartiment
+     */
+    static long borneInferieure(int indice) {
+        if (indice < SOUS_COMPARTIMENTS) {
+            return indice;
+        }
+        int exposant = indice / SOUS_COMPARTIMENTS + BITS_SOUS_COMPARTIMENTS - 1;
+        long sousCompartiment = indice % SOUS_COMPARTIMENTS;
+        return (SOUS_COMPARTIMENTS + sousCompartiment) << (exposant - BITS_SOUS_COMPARTIMENTS);
+    }
+
+    /**
+     * Photographie d'un histogramme de durées à un instant donné
+     */
+    public static class Photo {
+
+        /**
+         * Le nombre de valeurs de chaque compartiment
+         */
+        private final long[] comptes;
+
+        /**
+         * Le nombre de valeurs enregistrées
+         */
+        private final long nombre;
+
+        /**
+         * La somme des valeurs enregistrées
+         */
+        private final long somme;
+
+        /**
+         * La plus grande valeur enregistrée
+         */
+        private final long maximum;
+
+        Photo(long[] comptes, long nombre, long somme, long maximum) {
+            this.comptes = comptes;
+            this.nombre = nombre;
+            this.somme = somme;
+            this.maximum = maximum;
+        }
+
+        /**
+         * Retourne le nombre de durées enregistrées
+         *
+         * @return le nombre de durées enregistrées
+         */
+        public long getNombre() {
+            return nombre;
+        }
+
+        /**
+         * Retourne la durée moyenne
+         *
+         * @return la durée moyenne en nanosecondes, 0 si aucune durée n'a été enregistrée
+         */
+        public double getMoyenne() {
+            return nombre == 0 ? 0 : (double) somme / nombre;
+        }
+
+        /**
+         * Retourne la plus grande durée enregistrée
+         *
+         * @return la plus grande durée en nanosecondes
+         */
+        public long getMaximum() {
+            return maximum;
+        }
+
+        /**
+         * Retourne une estimation d'un quantile des durées, à 12,5 % près
+         *
+         * @param quantile le quantile, entre 0 et 1
+         * @exception IllegalArgumentException si le quantile n'est pas entre 0 et 1
+         *
+         * @return la durée en nanosecondes sous laquelle se trouve la part demandée des durées, 0 si aucune durée n'a été enregistrée
+         */
+        public long getQuantile(double quantile) {
+            if (quantile < 0 || quantile > 1) {
+                throw new IllegalArgumentException("quantile doit être compris entre 0 et 1");
+            }
+
+            long total = 0;
+            for (long compte : comptes) {
+                total += compte;
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long rang = Math.max(1, (long) Math.ceil(quantile * total));
+            long cumul = 0;
+            for (int i = 0; i < comptes.length; i++) {
+                cumul += comptes[i];
+                if (cumul >= rang) {
+                    long borneSuperieure = i + 1 < comptes.length ? borneInferieure(i + 1) - 1 : Long.MAX_VALUE;
+                    return Math.min(borneSuperieure, maximum);
+                }
+            }
+            return maximum;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package supervision;
+
+/**
+ * Enum représentant les opérations dont la durée est mesurée par les métriques du moteur de réservation
+ */
+public enum Latence {
+    PAIEMENT_RESERVATION,
+    APPEL_PAIEMENT,
+    LOT_PAIEMENTS
+}
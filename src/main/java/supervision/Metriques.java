@@ -0,0 +1,176 @@
+package supervision;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Classe singleton regroupant les métriques du moteur de réservation : des compteurs d'événements et des histogrammes
+ * de durées, répartis entre les threads pour qu'un enregistrement ne coûte que quelques nanosecondes sur le chemin critique.
+ * Les métriques sont consultables par une photographie ou par JMX une fois exposées
+ */
+public class Metriques implements MetriquesMXBean {
+
+    /**
+     * Le nom JMX sous lequel les métriques sont exposées
+     */
+    public static final String NOM_JMX = "flightreservation:type=Metriques";
+
+    /**
+     * L'instance unique des métriques
+     */
+    private static final Metriques INSTANCE = new Metriques();
+
+    /**
+     * Les compteurs, indexés par l'ordinal de leur événement
+     */
+    private final LongAdder[] compteurs = new LongAdder[Compteur.values().length];
+
+    /**
+     * Les histogrammes, indexés par l'ordinal de leur durée
+     */
+    private final HistogrammeLatences[] latences = new HistogrammeLatences[Latence.values().length];
+
+    /**
+     * Constructeur de la classe Metriques
+     */
+    private Metriques() {
+        for (int i = 0; i < compteurs.length; i++) {
+            compteurs[i] = new LongAdder();
+        }
+        for (int i = 0; i < latences.length; i++) {
+            latences[i] = new HistogrammeLatences();
+        }
+    }
+
+    /**
+     * Retourne l'instance unique des métriques
+     *
+     * @return les métriques
+     */
+    public static Metriques getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Compte un événement
+     *
+     * @param compteur l'événement
+     */
+    public static void incrementer(Compteur compteur) {
+        INSTANCE.compteurs[compteur.ordinal()].increment();
+    }
+
+    /**
+     * Compte plusieurs occurrences d'un événement
+     *
+     * @param compteur l'événement
+     * @param nombre le nombre d'occurrences
+     */
+    public static void ajouter(Compteur compteur, long nombre) {
+        INSTANCE.compteurs[compteur.ordinal()].add(nombre);
+    }
+
+    /**
+     * Enregistre la durée d'une opération commencée à un instant donné
+     *
+     * @param latence l'opération mesurée
+     * @param debut l'instant de début de l'opération, relevé par System.nanoTime()
+     */
+    public static void mesurer(Latence latence, long debut) {
+        INSTANCE.latences[latence.ordinal()].enregistrer(System.nanoTime() - debut);
+    }
+
+    /**
+     * Relève l'état courant de toutes les métriques
+     *
+     * @return la photographie des métriques
+     */
+    public PhotoMetriques photographier() {
+        EnumMap<Compteur, Long> valeurs = new EnumMap<>(Compteur.class);
+        for (Compteur compteur : Compteur.values()) {
+            valeurs.put(compteur, compteurs[compteur.ordinal()].sum());
+        }
+        EnumMap<Latence, HistogrammeLatences.Photo> histogrammes = new EnumMap<>(Latence.class);
+        for (Latence latence : Latence.values()) {
+            histogrammes.put(latence, latences[latence.ordinal()].photographier());
+        }
+        return new PhotoMetriques(valeurs, histogrammes);
+    }
+
+    /**
+     * Expose les métriques par JMX sous le nom {@value #NOM_JMX}. Sans effet si elles le sont déjà
+     *
+     * @exception IllegalStateException si les métriques ne peuvent pas être exposées
+     */
+    public void exposer() {
+        MBeanServer serveur = ManagementFactory.getPlatformMBeanServer();
+        try {
+            serveur.registerMBean(this, new ObjectName(NOM_JMX));
+        } catch (InstanceAlreadyExistsException e) {
+            // Déjà exposées
+        } catch (JMException e) {
+            throw new IllegalStateException("Impossible d'exposer les métriques par JMX", e);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getCompteurs() {
+        Map<String, Long> valeurs = new LinkedHashMap<>();
+        for (Compteur compteur : Compteur.values()) {
+            valeurs.put(compteur.name(), compteurs[compteur.ordinal()].sum());
+        }
+        return valeurs;
+    }
+
+    @Override
+    public Map<String, Long> getNombresMesures() {
+        return parLatence(HistogrammeLatences.Photo::getNombre);
+    }
+
+    @Override
+    public Map<String, Long> getMedianesNanos() {
+        return parLatence(photo -> photo.getQuantile(0.5));
+    }
+
+    @Override
+    public Map<String, Long> getCentiles99Nanos() {
+        return parLatence(photo -> photo.getQuantile(0.99));
+    }
+
+    @Override
+    public Map<String, Long> getMaximumsNanos() {
+        return parLatence(HistogrammeLatences.Photo::getMaximum);
+    }
+
+    @Override
+    public void reinitialiser() {
+        for (LongAdder compteur : compteurs) {
+            compteur.reset();
+        }
+        for (HistogrammeLatences histogramme : latences) {
+            histogramme.reinitialiser();
+        }
+    }
+
+    /**
+     * Extrait une valeur de l'histogramme de chaque durée
+     *
+     * @param extraction la valeur à extraire d'un histogramme
+     * @return les valeurs, par nom de durée
+     */
+    private Map<String, Long> parLatence(ToLongFunction<HistogrammeLatences.Photo> extraction) {
+        Map<String, Long> valeurs = new LinkedHashMap<>();
+        for (Latence latence : Latence.values()) {
+            valeurs.put(latence.name(), extraction.applyAsLong(latences[latence.ordinal()].photographier()));
+        }
+        return valeurs;
+    }
+}
@@ -0,0 +1,49 @@
+package supervision;
+
+import java.util.Map;
+
+/**
+ * Interface d'administration JMX des métriques du moteur de réservation
+ */
+public interface MetriquesMXBean {
+
+    /**
+     * Retourne la valeur de chaque compteur
+     *
+     * @return les compteurs, par nom
+     */
+    Map<String, Long> getCompteurs();
+
+    /**
+     * Retourne le nombre de mesures de chaque durée
+     *
+     * @return le nombre de mesures, par nom de durée
+     */
+    Map<String, Long> getNombresMesures();
+
+    /**
+     * Retourne la médiane de chaque durée mesurée
+     *
+     * @return la médiane en nanosecondes, par nom de durée
+     */
+    Map<String, Long> getMedianesNanos();
+
+    /**
+     * Retourne le 99e centile de chaque durée mesurée
+     *
+     * @return le 99e centile en nanosecondes, par nom de durée
+     */
+    Map<String, Long> getCentiles99Nanos();
+
+    /**
+     * Retourne le maximum de chaque durée mesurée
+     *
+     * @return le maximum en nanosecondes, par nom de durée
+     */
+    Map<String, Long> getMaximumsNanos();
+
+    /**
+     * Remet toutes les métriques à zéro
+     */
+    void reinitialiser();
+}
@@ -0,0 +1,89 @@
+package supervision;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Classe représentant les métriques du moteur de réservation relevées à un instant donné
+ */
+public class PhotoMetriques {
+
+    /**
+     * La valeur de chaque compteur
+     */
+    private final Map<Compteur, Long> compteurs;
+
+    /**
+     * La photographie de l'histogramme de chaque durée
+     */
+    private final Map<Latence, HistogrammeLatences.Photo> latences;
+
+    /**
+     * Constructeur de la classe PhotoMetriques
+     *
+     * @param compteurs la valeur de chaque compteur
+     * @param latences la photographie de l'histogramme de chaque durée
+     */
+    PhotoMetriques(EnumMap<Compteur, Long> compteurs, EnumMap<Latence, HistogrammeLatences.Photo> latences) {
+        this.compteurs = compteurs;
+        this.latences = latences;
+    }
+
+    /**
+     * Retourne la valeur d'un compteur
+     *
+     * @param compteur le compteur
+     * @exception IllegalArgumentException si le compteur est null
+     *
+     * @return la valeur du compteur
+     */
+    public long getCompteur(Compteur compteur) {
+        if (compteur == null) {
+            throw new IllegalArgumentException("compteur cannot be null");
+        }
+
+        return compteurs.get(compteur);
+    }
+
+    /**
+     * Retourne l'histogramme d'une durée mesurée
+     *
+     * @param latence la durée mesurée
+     * @exception IllegalArgumentException si la durée est null
+     *
+     * @return la photographie de l'histogramme
+     */
+    public HistogrammeLatences.Photo getLatence(Latence latence) {
+        if (latence == null) {
+            throw new IllegalArgumentException("latence cannot be null");
+        }
+
+        return latences.get(latence);
+    }
+
+    /**
+     * Retourne la différence des compteurs depuis une photographie précédente
+     *
+     * @param precedente la photographie précédente
+     * @param compteur le compteur
+     * @exception IllegalArgumentException si un paramètre est null
+     *
+     * @return l'accroissement du compteur entre les deux photographies
+     */
+    public long depuis(PhotoMetriques precedente, Compteur compteur) {
+        if (precedente == null) {
+            throw new IllegalArgumentException("precedente cannot be null");
+        }
+
+        return getCompteur(compteur) - precedente.getCompteur(compteur);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder texte = new StringBuilder();
+        compteurs.forEach((compteur, valeur) -> texte.append(compteur).append('=').append(valeur).append('\n'));
+        latences.forEach((latence, photo) -> texte.append(String.format("%s n=%d p50=%dns p99=%dns max=%dns%n",
+                latence, photo.getNombre(), photo.getQuantile(0.5), photo.getQuantile(0.99), photo.getMaximum())));
+        return texte.toString();
+    }
+}
@@ -0,0 +1,186 @@
+import gestionVol.*;
+import recherche.*;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Benchmarks de performance, exclus de la tâche test et lancés par la tâche benchmark
+ */
+@Tag("benchmark")
+public class Benchmarks {
+
+    private static final int NOMBRE_AEROPORTS = 5_000;
+
+    private static final int NOMBRE_VOLS = 500_000;
+
+    private static final ZonedDateTime DEBUT = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    // Réseau aléatoire de vols répartis sur une semaine, un sur cinq avec une escale
+    private static List<Vol> reseauAleatoire(Random random, Aeroport[] aeroports) {
+        for (int i = 0; i < aeroports.length; i++) {
+            aeroports[i] = new Aeroport("A" + i, new Ville("V" + i));
+        }
+        Compagnie[] compagnies = new Compagnie[50];
+        for (int i = 0; i < compagnies.length; i++) {
+            compagnies[i] = new Compagnie("C" + i);
+        }
+
+        List<Vol> vols = new ArrayList<>(NOMBRE_VOLS);
+        for (int i = 0; i < NOMBRE_VOLS; i++) {
+            int depart = random.nextInt(aeroports.length);
+            int arrivee = (depart + 1 + random.nextInt(aeroports.length - 1)) % aeroports.length;
+            ZonedDateTime dateDepart = DEBUT.plusMinutes(random.nextInt(7 * 24 * 60));
+            ZonedDateTime dateArrivee = dateDepart.plusMinutes(60 + random.nextInt(9 * 60));
+            Vol vol = new Vol("F" + i, compagnies[i % compagnies.length], aeroports[depart], aeroports[arrivee],
+                    dateDepart, dateArrivee, 180, 50.0 + random.nextInt(500));
+            if (i % 5 == 0) {
+                ZonedDateTime milieu = dateDepart.plus(Duration.between(dateDepart, dateArrivee).dividedBy(2));
+                vol.addEscale(aeroports[random.nextInt(aeroports.length)], milieu.minusMinutes(15), milieu.plusMinutes(15));
+            }
+            vols.add(vol);
+        }
+        return vols;
+    }
+
+    // Benchmark de la recherche d'itinéraires sur un réseau de 5 000 aéroports et 500 000 vols
+    @Test
+    public void benchmarkRechercheItineraires() {
+        Random random = new Random(42);
+        Aeroport[] aeroports = new Aeroport[NOMBRE_AEROPORTS];
+        List<Vol> vols = reseauAleatoire(random, aeroports);
+
+        long debutConstruction = System.nanoTime();
+        ReseauVols reseau = ReseauVols.construire(vols);
+        long construction = System.nanoTime() - debutConstruction;
+        RechercheItineraires recherche = new RechercheItineraires(reseau, Duration.ofMinutes(45));
+
+        // Préchauffage puis mesure de requêtes aléatoires
+        int nombreRequetes = 2_000;
+        long[] durees = new long[nombreRequetes];
+        int trouves = 0;
+        for (int tour = 0; tour < 2; tour++) {
+            for (int i = 0; i < nombreRequetes; i++) {
+                Aeroport origine = aeroports[random.nextInt(NOMBRE_AEROPORTS)];
+                Aeroport destination = aeroports[random.nextInt(NOMBRE_AEROPORTS)];
+                ZonedDateTime depart = DEBUT.plusMinutes(random.nextInt(3 * 24 * 60));
+                long t = System.nanoTime();
+                List<Itineraire> itineraires = recherche.rechercher(origine, destination, depart);
+                durees[i] = System.nanoTime() - t;
+                trouves += itineraires.size();
+            }
+        }
+        Arrays.sort(durees);
+
+        double mediane = durees[nombreRequetes / 2] / 1e6;
+        double p99 = durees[nombreRequetes * 99 / 100] / 1e6;
+        System.out.printf("Recherche d'itinéraires : %d connexions compilées en %d ms, médiane %.3f ms, p99 %.3f ms, %d itinéraires trouvés%n",
+                reseau.getNombreConnexions(), construction / 1_000_000, mediane, p99, trouves);
+
+        assertThat(trouves, greaterThan(0));
+        assertThat(mediane, lessThan(20.0));
+    }
+
+    // Benchmark de la recherche multicritère sur le même réseau
+    @Test
+    public void benchmarkRechercheMultiCritere() {
+        Random random = new Random(42);
+        Aeroport[] aeroports = new Aeroport[NOMBRE_AEROPORTS];
+        RechercheMultiCritere recherche = new RechercheMultiCritere(ReseauVols.construire(reseauAleatoire(random, aeroports)), Duration.ofMinutes(45));
+
+        int nombreRequetes = 2_000;
+        long[] durees = new long[nombreRequetes];
+        int trouves = 0;
+        for (int tour = 0; tour < 2; tour++) {
+            for (int i = 0; i < nombreRequetes; i++) {
+                Aeroport origine = aeroports[random.nextInt(NOMBRE_AEROPORTS)];
+                Aeroport destination = aeroports[random.nextInt(NOMBRE_AEROPORTS)];
+                ZonedDateTime depart = DEBUT.plusMinutes(random.nextInt(3 * 24 * 60));
+                long t = System.nanoTime();
+                List<Itineraire> front = recherche.rechercher(origine, destination, depart);
+                durees[i] = System.nanoTime() - t;
+                trouves += front.size();
+            }
+        }
+        Arrays.sort(durees);
+
+        double mediane = durees[nombreRequetes / 2] / 1e6;
+        double p99 = durees[nombreRequetes * 99 / 100] / 1e6;
+        System.out.printf("Recherche multicritère : médiane %.3f ms, p99 %.3f ms, %d itinéraires non dominés trouvés%n",
+                mediane, p99, trouves);
+
+        assertThat(trouves, greaterThan(0));
+        assertThat(mediane, lessThan(50.0));
+    }
+
+    // Benchmark de l'écriture et du chargement d'une photographie du même réseau
+    @Test
+    public void benchmarkSnapshotReseau() throws Exception {
+        Random random = new Random(42);
+        Aeroport[] aeroports = new Aeroport[NOMBRE_AEROPORTS];
+        List<Vol> vols = reseauAleatoire(random, aeroports);
+        Path fichier = Files.createTempFile("reseau", ".snap");
+
+        long debut = System.nanoTime();
+        SnapshotReseau.ecrire(fichier, vols);
+        long ecriture = System.nanoTime() - debut;
+
+        debut = System.nanoTime();
+        SnapshotReseau reseau = SnapshotReseau.charger(fichier);
+        long chargement = System.nanoTime() - debut;
+
+        System.out.printf("Photographie du réseau : %d Mo écrits en %d ms, %d vols chargés en %d ms%n",
+                Files.size(fichier) >> 20, ecriture / 1_000_000, reseau.getVols().size(), chargement / 1_000_000);
+        Files.delete(fichier);
+
+        assertThat(reseau.getVols(), hasSize(NOMBRE_VOLS));
+        assertThat(chargement / 1e9, lessThan(30.0));
+    }
+
+    // Benchmark de l'import en masse d'un programme de 500 000 vols
+    @Test
+    public void benchmarkImportProgramme() {
+        Random random = new Random(42);
+        Aeroport[] aeroports = new Aeroport[NOMBRE_AEROPORTS];
+        for (int i = 0; i < aeroports.length; i++) {
+            aeroports[i] = new Aeroport("I" + i, new Ville("IV" + i));
+        }
+        Compagnie compagnie = new Compagnie("Import");
+
+        StringBuilder programme = new StringBuilder(NOMBRE_VOLS * 120);
+        for (int i = 0; i < NOMBRE_VOLS; i++) {
+            int depart = random.nextInt(NOMBRE_AEROPORTS);
+            int arrivee = (depart + 1 + random.nextInt(NOMBRE_AEROPORTS - 1)) % NOMBRE_AEROPORTS;
+            ZonedDateTime dateDepart = DEBUT.plusMinutes(random.nextInt(7 * 24 * 60));
+            ZonedDateTime dateArrivee = dateDepart.plusMinutes(60 + random.nextInt(9 * 60));
+            programme.append("IMP").append(i).append(";Import;I").append(depart).append(";I").append(arrivee)
+                    .append(';').append(dateDepart).append(';').append(dateArrivee).append(";180;").append(50 + random.nextInt(500));
+            if (i % 5 == 0) {
+                ZonedDateTime milieu = dateDepart.plus(Duration.between(dateDepart, dateArrivee).dividedBy(2));
+                programme.append(";I").append(random.nextInt(NOMBRE_AEROPORTS))
+                        .append(';').append(milieu.minusMinutes(15)).append(';').append(milieu.plusMinutes(15));
+            }
+            programme.append('\n');
+        }
+
+        RapportImport rapport = new ImportProgramme(Arrays.asList(aeroports), List.of(compagnie)).importer(new StringReader(programme.toString()));
+        System.out.println("Import du programme : " + rapport);
+
+        assertThat(rapport.getNombreVols(), equalTo(NOMBRE_VOLS));
+        assertThat(rapport.getRejets(), empty());
+        assertThat(compagnie.getVols(), hasSize(NOMBRE_VOLS));
+    }
+}
@@ -1,11 +1,38 @@
 import gestionVol.*;
+import recherche.*;
 import reservation.*;
+import supervision.*;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.ObjectName;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -13,6 +40,17 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class Tests {
 
+    // Chaque test part d'un catalogue, d'index et de caches vides : les mêmes numéros de vol, aéroports et villes
+    // y sont réutilisés d'un test à l'autre
+    @BeforeEach
+    public void viderIndex() {
+        CatalogueVols.getInstance().vider();
+        IndexRoutes.getInstance().vider();
+        CalendrierTarifs.getInstance().vider();
+        CacheRecherche.getInstance().vider();
+        AnnuaireReservations.getInstance().vider();
+    }
+
     // Tests de aéroport / ville
     @Test
     public void testAeroport() {
@@ -380,4 +418,1724 @@ public class Tests {
         assertThrows(IllegalStateException.class, () -> reservation.payer());
         assertThrows(IllegalStateException.class, () -> reservation.confirmer());
     }
+
+    // Test de l'inventaire des places sous forte contention
+    @Test
+    public void testInventaireConcurrent() throws Exception {
+        // Init
+        Ville RoissyEnFrance = new Ville("Roissy-en-France");
+        Aeroport cdg = new Aeroport("CDG", RoissyEnFrance);
+
+        Ville NewYork = new Ville("New York");
+        Aeroport jfk = new Aeroport("JFK", NewYork);
+
+        Compagnie airFrance = new Compagnie("Air France");
+
+        ZonedDateTime dateDepart = ZonedDateTime.of(2020, 10, 21, 13, 0, 0, 0, ZoneId.systemDefault());
+        ZonedDateTime dateArrivee = dateDepart.plusHours(8);
+
+        int places = 1000;
+        Vol vol = new Vol("AF1234", airFrance, cdg, jfk, dateDepart, dateArrivee, places, 100.0);
+        vol.ouvrir();
+
+        // Chaque thread réserve puis annule une partie de ses réservations, bien au-delà de la capacité du vol
+        int nbThreads = 64;
+        int tentativesParThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Future<List<Reservation>>> resultats = new ArrayList<>();
+
+        for (int t = 0; t < nbThreads; t++) {
+            resultats.add(executor.submit(() -> {
+                Client client = new Client("Client", "CB", "client@gmail.com");
+                List<Reservation> payees = new ArrayList<>();
+                depart.await();
+                for (int i = 0; i < tentativesParThread; i++) {
+                    Reservation reservation = new Reservation(client, vol);
+                    for (int p = 0; p <= i % 3; p++) {
+                        reservation.addPassagers(new Passager("Passager", String.valueOf(p)));
+                    }
+                    try {
+                        reservation.payer();
+                    } catch (IllegalStateException e) {
+                        continue;
+                    }
+                    if (i % 5 == 0) {
+                        reservation.annuler();
+                    } else {
+                        payees.add(reservation);
+                    }
+                }
+                return payees;
+            }));
+        }
+
+        depart.countDown();
+        int placesVendues = 0;
+        for (Future<List<Reservation>> resultat : resultats) {
+            for (Reservation reservation : resultat.get()) {
+                assertThat(reservation.getEtat(), equalTo(EtatReservation.PAYEE));
+                placesVendues += reservation.getPassagers().size();
+            }
+        }
+        executor.shutdown();
+
+        // Aucune survente et aucune place perdue
+        assertThat(placesVendues + vol.getPlacesDisponibles(), equalTo(places));
+
+        int placesRestantes = 0;
+        while (vol.reserverPlaces(1)) {
+            placesRestantes++;
+        }
+        assertThat(placesVendues + placesRestantes, equalTo(places));
+        assertThat(vol.getPlacesDisponibles(), equalTo(0));
+
+        // Suppression du vol : l'inventaire est fermé et plus aucune place ne peut être réservée
+        vol.removeVol();
+        assertThat(vol.getPlacesDisponibles(), equalTo(0));
+        assertThat(vol.reserverPlaces(1), equalTo(false));
+    }
+
+    // Test du blocage temporaire des places des réservations en attente
+    @Test
+    public void testBlocagesPlaces() {
+        // Init
+        Ville RoissyEnFrance = new Ville("Roissy-en-France");
+        Aeroport cdg = new Aeroport("CDG", RoissyEnFrance);
+
+        Ville NewYork = new Ville("New York");
+        Aeroport jfk = new Aeroport("JFK", NewYork);
+
+        Compagnie airFrance = new Compagnie("Air France");
+
+        ZonedDateTime dateDepart = ZonedDateTime.of(2020, 10, 21, 13, 0, 0, 0, ZoneId.systemDefault());
+        Vol vol = new Vol("AF1234", airFrance, cdg, jfk, dateDepart, dateDepart.plusHours(8), 3, 100.0);
+        vol.ouvrir();
+
+        // Roue de 64 ticks d'une seconde pour des blocages de 10 minutes : plusieurs tours de roue par blocage
+        AtomicLong horloge = new AtomicLong();
+        BlocagesPlaces blocages = new BlocagesPlaces(Duration.ofMinutes(10), Duration.ofSeconds(1), 64, horloge::get);
+        Client client = new Client("Dupont", "CB", "Dupont@gmail.com");
+
+        // Les places sont bloquées dès l'ajout des passagers
+        Reservation r1 = new Reservation(client, vol, blocages);
+        r1.addPassagers(new Passager("Dupont", "Jean"), new Passager("Dupont", "Marie"));
+        assertThat(vol.getPlacesDisponibles(), equalTo(1));
+
+        Reservation r2 = new Reservation(client, vol, blocages);
+        assertThrows(IllegalStateException.class, () -> r2.addPassagers(new Passager("Martin", "Paul"), new Passager("Martin", "Léa")));
+        assertThat(r2.getPassagers(), empty());
+        r2.addPassagers(new Passager("Martin", "Paul"));
+        assertThat(vol.getPlacesDisponibles(), equalTo(0));
+
+        // Prolongation de r1 au bout de 5 minutes
+        horloge.addAndGet(Duration.ofMinutes(5).toNanos());
+        assertThat(blocages.avancer(), equalTo(0));
+        r1.prolongerBlocage();
+
+        // Au bout de 11 minutes seul le blocage de r2 a expiré
+        horloge.addAndGet(Duration.ofMinutes(6).toNanos());
+        assertThat(blocages.avancer(), equalTo(1));
+        assertThat(r2.getEtat(), equalTo(EtatReservation.ANNULEE));
+        assertThat(r2.isPlacesBloquees(), equalTo(false));
+        assertThat(r1.isPlacesBloquees(), equalTo(true));
+        assertThat(vol.getPlacesDisponibles(), equalTo(1));
+
+        // Le paiement convertit les places bloquées sans en réserver de nouvelles
+        r1.payer();
+        assertThat(r1.getEtat(), equalTo(EtatReservation.PAYEE));
+        assertThat(vol.getPlacesDisponibles(), equalTo(1));
+
+        horloge.addAndGet(Duration.ofMinutes(10).toNanos());
+        assertThat(blocages.avancer(), equalTo(0));
+        assertThat(r1.getEtat(), equalTo(EtatReservation.PAYEE));
+
+        // L'annulation d'une réservation en attente rend ses places bloquées
+        Reservation r3 = new Reservation(client, vol, blocages);
+        r3.addPassagers(new Passager("Durand", "Luc"));
+        assertThat(vol.getPlacesDisponibles(), equalTo(0));
+        r3.annuler();
+        assertThat(vol.getPlacesDisponibles(), equalTo(1));
+
+        assertThat(blocages.getBlocagesCrees(), equalTo(3L));
+        assertThat(blocages.getBlocagesProlonges(), equalTo(1L));
+        assertThat(blocages.getBlocagesExpires(), equalTo(1L));
+        assertThat(blocages.getBlocagesConvertis(), equalTo(1L));
+        assertThat(blocages.getBlocagesLiberes(), equalTo(1L));
+        assertThat(blocages.getBlocagesActifs(), equalTo(0L));
+
+        // Après une longue pause, un seul tour de roue suffit à faire expirer les blocages échus
+        Reservation r4 = new Reservation(client, vol, blocages);
+        r4.addPassagers(new Passager("Durand", "Luc"));
+        horloge.addAndGet(Duration.ofDays(365).toNanos());
+        assertThat(blocages.avancer(), equalTo(1));
+        assertThat(r4.getEtat(), equalTo(EtatReservation.ANNULEE));
+        assertThat(vol.getPlacesDisponibles(), equalTo(1));
+    }
+
+    // Test de l'index des départs et arrivées par date d'un aéroport
+    @Test
+    public void testIndexDepartsAeroport() {
+        // Init
+        Ville RoissyEnFrance = new Ville("Roissy-en-France");
+        Aeroport cdg = new Aeroport("CDG", RoissyEnFrance);
+
+        Ville NewYork = new Ville("New York");
+        Aeroport jfk = new Aeroport("JFK", NewYork);
+
+        Ville Londres = new Ville("Londres");
+        Aeroport lhr = new Aeroport("LHR", Londres);
+
+        Compagnie airFrance = new Compagnie("Air France");
+
+        ZonedDateTime minuit = ZonedDateTime.of(2020, 10, 21, 0, 0, 0, 0, ZoneId.systemDefault());
+        Vol vol13h = new Vol("AF13", airFrance, cdg, jfk, minuit.plusHours(13), minuit.plusHours(21), 130, 100.0);
+        Vol vol6h = new Vol("AF06", airFrance, cdg, jfk, minuit.plusHours(6), minuit.plusHours(14), 130, 100.0);
+        Vol vol9h = new Vol("AF09", airFrance, cdg, jfk, minuit.plusHours(9), minuit.plusHours(17), 130, 100.0);
+
+        // Recherche des départs entre 6h et 12h, triés par date de départ
+        assertThat(cdg.getVolsAuDepartEntre(minuit.plusHours(6), minuit.plusHours(12)), contains(vol6h, vol9h));
+        assertThat(jfk.getVolsAArriveeEntre(minuit.plusHours(14), minuit.plusHours(18)), contains(vol6h, vol9h));
+
+        // Les bornes hors de la plage des dates des vols sont ramenées à ses extrémités
+        assertThat(cdg.getVolsAuDepartEntre(minuit.withYear(1000), minuit.withYear(3000)), contains(vol6h, vol9h, vol13h));
+        assertThat(cdg.getVolsAuDepartEntre(minuit.plusHours(9), minuit.plusHours(9)), empty());
+
+        // L'index suit les changements de date
+        vol13h.setDateDepart(minuit.plusHours(7));
+        assertThat(cdg.getVolsAuDepartEntre(minuit.plusHours(6), minuit.plusHours(12)), contains(vol6h, vol13h, vol9h));
+        vol13h.setDateArrivee(minuit.plusHours(15));
+        assertThat(jfk.getVolsAArriveeEntre(minuit.plusHours(14), minuit.plusHours(18)), contains(vol6h, vol13h, vol9h));
+
+        // L'index suit les changements d'aéroport et la suppression des vols
+        vol9h.setDepart(lhr);
+        assertThat(cdg.getVolsAuDepartEntre(minuit.plusHours(6), minuit.plusHours(12)), contains(vol6h, vol13h));
+        assertThat(lhr.getVolsAuDepartEntre(minuit, minuit.plusDays(1)), contains(vol9h));
+
+        vol6h.removeVol();
+        assertThat(cdg.getVolsAuDepartEntre(minuit.plusHours(6), minuit.plusHours(12)), contains(vol13h));
+        assertThat(jfk.getVolsAArriveeEntre(minuit.plusHours(14), minuit.plusHours(18)), contains(vol13h, vol9h));
+    }
+
+    // Test de la recherche d'itinéraires avec correspondances
+    @Test
+    public void testRechercheItineraires() {
+        // Init
+        Ville paris = new Ville("Paris");
+        Ville RoissyEnFrance = new Ville("Roissy-en-France");
+        Aeroport cdg = new Aeroport("CDG", RoissyEnFrance);
+        cdg.addVilleDesservie(paris);
+
+        Ville NewYork = new Ville("New York");
+        Aeroport jfk = new Aeroport("JFK", NewYork);
+
+        Ville Londres = new Ville("Londres");
+        Aeroport lhr = new Aeroport("LHR", Londres);
+
+        Ville Amsterdam = new Ville("Amsterdam");
+        Aeroport ams = new Aeroport("AMS", Amsterdam);
+
+        Compagnie airFrance = new Compagnie("Air France");
+
+        ZonedDateTime minuit = ZonedDateTime.of(2020, 10, 21, 0, 0, 0, 0, ZoneId.systemDefault());
+        Vol cdgLhr = new Vol("AF1", airFrance, cdg, lhr, minuit.plusHours(8), minuit.plusHours(9), 130, 100.0);
+        Vol lhrJfkCourt = new Vol("AF2", airFrance, lhr, jfk, minuit.plusHours(9).plusMinutes(30), minuit.plusHours(17), 130, 400.0);
+        Vol lhrJfk = new Vol("AF3", airFrance, lhr, jfk, minuit.plusHours(10), minuit.plusHours(18), 130, 400.0);
+        Vol cdgJfk = new Vol("AF4", airFrance, cdg, jfk, minuit.plusHours(7), minuit.plusHours(19), 130, 300.0);
+        cdgJfk.addEscale(ams, minuit.plusHours(8), minuit.plusHours(9));
+
+        ReseauVols reseau = ReseauVols.construire(airFrance.getVols());
+        assertThat(reseau.getNombreConnexions(), equalTo(5));
+
+        // La correspondance de 30 minutes à Londres est trop courte
+        RechercheItineraires recherche = new RechercheItineraires(reseau, Duration.ofMinutes(45));
+        List<Itineraire> itineraires = recherche.rechercher(cdg, jfk, minuit.plusHours(7).plusMinutes(30));
+        assertThat(itineraires, hasSize(1));
+        Itineraire itineraire = itineraires.get(0);
+        assertThat(itineraire.getTroncons().get(0).getVol(), equalTo(cdgLhr));
+        assertThat(itineraire.getTroncons().get(1).getVol(), equalTo(lhrJfk));
+        assertThat(itineraire.getDateArrivee(), equalTo(minuit.plusHours(18)));
+        assertThat(itineraire.getNombreCorrespondances(), equalTo(1));
+        assertThat(itineraire.getPrix(), equalTo(500.0));
+
+        // Avec un temps de correspondance réduit à Londres, le vol le plus court devient possible
+        recherche.setCorrespondanceMinimale(lhr, Duration.ofMinutes(20));
+        itineraire = recherche.rechercher(paris, NewYork, minuit.plusHours(7).plusMinutes(30)).get(0);
+        assertThat(itineraire.getTroncons().get(1).getVol(), equalTo(lhrJfkCourt));
+        assertThat(itineraire.getDuree(), equalTo(Duration.ofHours(9)));
+
+        // Partir avant 7h permet de prendre le vol direct avec escale, qui arrive plus tard
+        itineraire = recherche.rechercher(cdg, jfk, minuit.plusHours(6)).get(0);
+        assertThat(itineraire.getTroncons().get(1).getVol(), equalTo(lhrJfkCourt));
+
+        // On peut monter dans un vol à son escale
+        itineraire = recherche.rechercher(ams, jfk, minuit.plusHours(8).plusMinutes(30)).get(0);
+        assertThat(itineraire.getTroncons(), hasSize(1));
+        assertThat(itineraire.getTroncons().get(0).getVol(), equalTo(cdgJfk));
+        assertThat(itineraire.getTroncons().get(0).getDepart(), equalTo(ams));
+        assertThat(itineraire.getDateDepart(), equalTo(minuit.plusHours(9)));
+        assertThat(itineraire.getDateArrivee(), equalTo(minuit.plusHours(19)));
+
+        // Le vol avec escale traverse Amsterdam sans en descendre
+        itineraire = recherche.rechercher(cdg, ams, minuit.plusHours(6)).get(0);
+        assertThat(itineraire.getTroncons().get(0).getNombreEscales(), equalTo(0));
+        itineraire = recherche.rechercher(cdg, jfk, minuit.plusHours(7).plusMinutes(50)).get(0);
+        assertThat(itineraire.getDateArrivee(), equalTo(minuit.plusHours(17)));
+
+        // Destination inatteignable
+        assertThat(recherche.rechercher(jfk, cdg, minuit), empty());
+    }
+
+    // Test de la recherche multicritère d'itinéraires
+    @Test
+    public void testRechercheMultiCritere() {
+        // Init
+        Ville RoissyEnFrance = new Ville("Roissy-en-France");
+        Aeroport cdg = new Aeroport("CDG", RoissyEnFrance);
+
+        Ville NewYork = new Ville("New York");
+        Aeroport jfk = new Aeroport("JFK", NewYork);
+
+        Ville Londres = new Ville("Londres");
+        Aeroport lhr = new Aeroport("LHR", Londres);
+
+        Ville Amsterdam = new Ville("Amsterdam");
+        Aeroport ams = new Aeroport("AMS", Amsterdam);
+
+        Compagnie airFrance = new Compagnie("Air France");
+
+        ZonedDateTime minuit = ZonedDateTime.of(2020, 10, 21, 0, 0, 0, 0, ZoneId.systemDefault());
+        Vol cdgLhr = new Vol("AF1", airFrance, cdg, lhr, minuit.plusHours(8), minuit.plusHours(9), 130, 100.0);
+        Vol lhrJfkCourt = new Vol("AF2", airFrance, lhr, jfk, minuit.plusHours(9).plusMinutes(30), minuit.plusHours(17), 130, 400.0);
+        new Vol("AF3", airFrance, lhr, jfk, minuit.plusHours(10), minuit.plusHours(18), 130, 400.0);
+        Vol cdgJfkEscale = new Vol("AF4", airFrance, cdg, jfk, minuit.plusHours(7), minuit.plusHours(19), 130, 300.0);
+        cdgJfkEscale.addEscale(ams, minuit.plusHours(8), minuit.plusHours(9));
+        Vol cdgJfkDirect = new Vol("AF5", airFrance, cdg, jfk, minuit.plusHours(11), minuit.plusHours(20), 130, 900.0);
+
+        RechercheMultiCritere recherche = new RechercheMultiCritere(ReseauVols.construire(airFrance.getVols()), Duration.ofMinutes(20));
+
+        // Le moins cher, le plus rapide et le plus direct en une seule recherche
+        List<Itineraire> front = recherche.rechercher(cdg, jfk, minuit.plusHours(6));
+        assertThat(front, hasSize(3));
+
+        assertThat(front.get(0).getTroncons(), hasSize(1));
+        assertThat(front.get(0).getTroncons().get(0).getVol(), equalTo(cdgJfkEscale));
+        assertThat(front.get(0).getPrix(), equalTo(300.0));
+        assertThat(front.get(0).getNombreArrets(), equalTo(1));
+
+        assertThat(front.get(1).getTroncons().get(0).getVol(), equalTo(cdgLhr));
+        assertThat(front.get(1).getTroncons().get(1).getVol(), equalTo(lhrJfkCourt));
+        assertThat(front.get(1).getDuree(), equalTo(Duration.ofHours(9)));
+        assertThat(front.get(1).getNombreArrets(), equalTo(1));
+
+        assertThat(front.get(2).getTroncons().get(0).getVol(), equalTo(cdgJfkDirect));
+        assertThat(front.get(2).getNombreArrets(), equalTo(0));
+
+        // Le tri suit le prix relevé par la recherche, même si un vol a changé de prix depuis la compilation du réseau
+        cdgJfkEscale.setPrix(2000.0);
+        front = recherche.rechercher(cdg, jfk, minuit.plusHours(6));
+        assertThat(front.get(0).getTroncons().get(0).getVol(), equalTo(cdgJfkEscale));
+        assertThat(front.get(0).getPrixRecherche(), equalTo(300.0));
+        assertThat(front.get(0).getPrix(), equalTo(2000.0));
+        cdgJfkEscale.setPrix(300.0);
+
+        // Une correspondance plus longue à Londres écarte le vol le plus court
+        recherche.setCorrespondanceMinimale(lhr, Duration.ofHours(2));
+        front = recherche.rechercher(cdg, jfk, minuit.plusHours(6));
+        assertThat(front, hasSize(2));
+        assertThat(front.get(0).getTroncons().get(0).getVol(), equalTo(cdgJfkEscale));
+        assertThat(front.get(1).getTroncons().get(0).getVol(), equalTo(cdgJfkDirect));
+
+        // Limité à un seul vol, seuls les vols directs restent
+        recherche = new RechercheMultiCritere(ReseauVols.construire(airFrance.getVols()), Duration.ofMinutes(20), 1, Duration.ofHours(24));
+        front = recherche.rechercher(cdg, jfk, minuit.plusHours(6));
+        assertThat(front, hasSize(2));
+        assertThat(front.get(1).getTroncons().get(0).getVol(), equalTo(cdgJfkDirect));
+
+        // Plus d'itinéraires non dominés que la capacité initiale du sac et du front : ils sont tous conservés
+        Compagnie klm = new Compagnie("KLM");
+        for (int i = 0; i < 100; i++) {
+            new Vol("KL" + i, klm, cdg, ams, minuit.plusHours(6).plusMinutes(i), minuit.plusHours(8).plusMinutes(2 * i), 130, 1000.0 - i);
+        }
+        PhotoMetriques avant = Metriques.getInstance().photographier();
+        recherche = new RechercheMultiCritere(ReseauVols.construire(klm.getVols()), Duration.ofMinutes(20));
+        front = recherche.rechercher(cdg, ams, minuit);
+        assertThat(front, hasSize(100));
+        assertThat(front.get(0).getPrix(), equalTo(901.0));
+        assertThat(recherche.isDerniereRechercheTronquee(), is(false));
+        assertThat(recherche.rechercher(cdg, ams, minuit), hasSize(100));
+        assertThat(Metriques.getInstance().photographier().depuis(avant, Compteur.RECHERCHES_TRONQUEES), equalTo(0L));
+    }
+
+    // Test du catalogue global des vols
+    @Test
+    public void testCatalogueVols() {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Compagnie airFrance = new Compagnie("Air France");
+        CatalogueVols catalogue = CatalogueVols.getInstance();
+
+        ZonedDateTime minuit = ZonedDateTime.of(2020, 10, 21, 0, 0, 0, 0, ZoneId.systemDefault());
+        Vol lundi = new Vol("CT100", airFrance, cdg, jfk, minuit.plusHours(8), minuit.plusHours(16), 130, 100.0);
+        Vol mardi = new Vol("CT100", airFrance, cdg, jfk, minuit.plusDays(1).plusHours(8), minuit.plusDays(1).plusHours(16), 130, 100.0);
+
+        // Un même numéro chaque jour : deux vols distincts
+        assertThat(lundi, not(equalTo(mardi)));
+        assertThat(airFrance.getVols(), hasSize(2));
+        assertThat(catalogue.rechercher("CT100"), hasSize(2));
+        assertThat(catalogue.rechercher("CT100", minuit.toLocalDate()), sameInstance(lundi));
+        assertThat(catalogue.rechercher("CT100", minuit.toLocalDate().plusDays(1)), sameInstance(mardi));
+        assertThat(catalogue.rechercher("CT999", minuit.toLocalDate()), nullValue());
+
+        // Le changement de numéro met à jour le catalogue et les ensembles de vols
+        lundi.setNumero("CT101");
+        assertThat(catalogue.rechercher("CT100"), hasSize(1));
+        assertThat(catalogue.rechercher("CT101", minuit.toLocalDate()), sameInstance(lundi));
+        assertThat(airFrance.getVols().contains(lundi), is(true));
+        assertThat(cdg.getVolsAuDepart().contains(lundi), is(true));
+        assertThat(jfk.getVolsAArrivee().contains(lundi), is(true));
+
+        // Le changement de jour de départ aussi
+        mardi.setDateArrivee(minuit.plusDays(2).plusHours(16));
+        mardi.setDateDepart(minuit.plusDays(2).plusHours(8));
+        assertThat(catalogue.rechercher("CT100", minuit.toLocalDate().plusDays(1)), nullValue());
+        assertThat(catalogue.rechercher("CT100", minuit.toLocalDate().plusDays(2)), sameInstance(mardi));
+        assertThat(airFrance.getVols().contains(mardi), is(true));
+        assertThat(cdg.getVolsAuDepartEntre(minuit.plusDays(2), minuit.plusDays(3)), contains(mardi));
+
+        // Un second vol de même numéro le même jour est refusé, à la création comme au changement de numéro ou de jour
+        assertThrows(IllegalArgumentException.class,
+                () -> new Vol("CT100", airFrance, cdg, jfk, minuit.plusDays(2).plusHours(10), minuit.plusDays(2).plusHours(18), 130, 100.0));
+        assertThat(airFrance.getVols(), hasSize(2));
+        Vol autreNumero = new Vol("CT102", airFrance, cdg, jfk, minuit.plusHours(10), minuit.plusHours(18), 130, 100.0);
+        assertThrows(IllegalArgumentException.class, () -> autreNumero.setNumero("CT101"));
+        assertThat(autreNumero.getNumero(), equalTo("CT102"));
+        Vol autreJour = new Vol("CT101", airFrance, cdg, jfk, minuit.plusDays(2).plusHours(10), minuit.plusDays(2).plusHours(18), 130, 100.0);
+        assertThrows(IllegalArgumentException.class, () -> autreJour.setDateDepart(minuit.plusHours(10)));
+        assertThat(catalogue.rechercher("CT101", minuit.toLocalDate()), sameInstance(lundi));
+        assertThat(catalogue.rechercher("CT101", minuit.toLocalDate().plusDays(2)), sameInstance(autreJour));
+        assertThat(catalogue.rechercher("CT102", minuit.toLocalDate()), sameInstance(autreNumero));
+
+        // Seul le vol supprimé quitte le catalogue
+        autreJour.removeVol();
+        autreNumero.removeVol();
+        assertThat(catalogue.rechercher("CT101", minuit.toLocalDate()), sameInstance(lundi));
+        assertThat(catalogue.rechercher("CT102"), empty());
+
+        // La suppression retire le vol du catalogue
+        lundi.removeVol();
+        assertThat(catalogue.rechercher("CT101"), empty());
+        assertThat(airFrance.getVols(), hasSize(1));
+    }
+
+    // Test de l'annuaire des réservations et des clients
+    @Test
+    public void testAnnuaireReservations() {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Compagnie airFrance = new Compagnie("Air France");
+        ZonedDateTime minuit = ZonedDateTime.of(2020, 10, 21, 0, 0, 0, 0, ZoneId.systemDefault());
+        Vol vol = new Vol("AN100", airFrance, cdg, jfk, minuit.plusHours(8), minuit.plusHours(16), 130, 100.0);
+        vol.ouvrir();
+        AnnuaireReservations annuaire = AnnuaireReservations.getInstance();
+
+        Client client = new Client("Jean", "FR76 1234", "jean@mail.fr");
+        Reservation reservation = new Reservation(client, vol);
+
+        // Recherche par UUID et par référence textuelle, quelle que soit la casse
+        assertThat(client.getReference(), sameInstance(client.getReference()));
+        assertThat(annuaire.getClient(client.getReference()), sameInstance(client));
+        assertThat(annuaire.getReservation(reservation.getNumero()), sameInstance(reservation));
+        assertThat(annuaire.getReservation(new StringBuilder(reservation.getNumero().toString().toUpperCase())), sameInstance(reservation));
+        assertThat(annuaire.getReservation(UUID.randomUUID()), nullValue());
+
+        // Référence mal formée
+        assertThrows(IllegalArgumentException.class, () -> annuaire.getClient("inconnu"));
+        assertThrows(IllegalArgumentException.class, () -> annuaire.getClient(client.getReference().replace('-', 'g')));
+
+        // De nombreuses références restent toutes retrouvables après agrandissement des tables
+        List<Reservation> reservations = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            reservations.add(new Reservation(client, vol));
+        }
+        for (Reservation r : reservations) {
+            assertThat(annuaire.getReservation(r.getNumero().toString()), sameInstance(r));
+        }
+        assertThat(annuaire.getNombreReservations(), equalTo(10_001));
+        assertThat(annuaire.getNombreClients(), equalTo(1));
+    }
+
+    // Test du journal des réservations et de sa relecture
+    @Test
+    public void testJournalReservations() throws Exception {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Compagnie airFrance = new Compagnie("Air France");
+        ZonedDateTime minuit = ZonedDateTime.of(2020, 10, 21, 0, 0, 0, 0, ZoneId.systemDefault());
+        Vol vol = new Vol("WL100", airFrance, cdg, jfk, minuit.plusHours(8), minuit.plusHours(16), 130, 100.0);
+        vol.setPlanSieges(new PlanSieges(13, "ABCDE FGHIJ"));
+        vol.ouvrir();
+
+        Path fichier = Files.createTempFile("journal", ".wal");
+        Client client = new Client("Jean", "FR76 1234", "jean@mail.fr");
+        Passager jean = new Passager("Dupont", "Jean");
+        Passager marie = new Passager("Dupont", "Marie");
+        Passager paul = new Passager("Martin", "Paul");
+        Reservation confirmee;
+        Reservation annulee;
+        Reservation enAttente;
+        try (JournalReservations journal = JournalReservations.ouvrir(fichier)) {
+            journal.activer();
+
+            confirmee = new Reservation(client, vol);
+            confirmee.addPassagers(jean, marie, paul);
+            confirmee.removePassager(paul);
+            confirmee.payer();
+            confirmee.confirmer();
+
+            annulee = new Reservation(client, vol);
+            annulee.addPassagers(paul);
+            annulee.payer();
+            annulee.annuler();
+
+            enAttente = new Reservation(client, vol);
+            enAttente.addPassagers(paul);
+
+            // Réservations concurrentes : les synchronisations sur disque sont partagées
+            ExecutorService executeur = Executors.newFixedThreadPool(8);
+            List<Future<?>> resultats = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                resultats.add(executeur.submit(() -> {
+                    for (int i = 0; i < 10; i++) {
+                        Reservation reservation = new Reservation(client, vol);
+                        reservation.addPassagers(new Passager("Durand", "Luc"));
+                        reservation.payer();
+                    }
+                }));
+            }
+            for (Future<?> resultat : resultats) {
+                resultat.get();
+            }
+            executeur.shutdown();
+
+            assertThat(journal.getNombreEnregistrements(), equalTo(11L + 240L));
+            assertThat(journal.getNombreSynchronisations(), greaterThan(0L));
+        }
+        assertThat(JournalReservations.getActif(), nullValue());
+
+        // Fin de fichier incomplète laissée par un arrêt brutal
+        Files.write(fichier, new byte[] {0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        // Redémarrage : l'ancien vol disparaît, le programme des vols est rechargé avec ses places initiales puis le journal est relu
+        vol.removeVol();
+        Vol recharge = new Vol("WL100", airFrance, cdg, jfk, minuit.plusHours(8), minuit.plusHours(16), 130, 100.0);
+        recharge.setPlanSieges(new PlanSieges(13, "ABCDE FGHIJ"));
+        try (JournalReservations journal = JournalReservations.ouvrir(fichier)) {
+            List<Reservation> reservations = journal.rejouer();
+            assertThat(reservations, hasSize(83));
+
+            Reservation relue = reservations.get(0);
+            assertThat(relue.getNumero(), equalTo(confirmee.getNumero()));
+            assertThat(relue.getEtat(), equalTo(EtatReservation.CONFIRMEE));
+            assertThat(relue.getVol(), sameInstance(recharge));
+            assertThat(relue.getClient().getReference(), equalTo(client.getReference()));
+            assertThat(relue.getPassagers(), hasSize(2));
+            assertThat(relue.getMontantPaye(), equalTo(confirmee.getMontantPaye()));
+            assertThat(relue.getSieges().values(), containsInAnyOrder("1A", "1B"));
+            // Les sièges de la réservation annulée sont rendus, ceux des 80 réservations concurrentes repris
+            assertThat(recharge.getPlanSieges().getNombreSiegesLibres(), is(130 - 2 - 80));
+            assertThat(AnnuaireReservations.getInstance().getReservation(confirmee.getNumero()), sameInstance(relue));
+
+            assertThat(reservations.get(1).getEtat(), equalTo(EtatReservation.ANNULEE));
+            assertThat(reservations.get(2).getEtat(), equalTo(EtatReservation.EN_ATTENTE));
+
+            // Paul est le même passager dans ses trois réservations
+            Passager paulRelu = reservations.get(2).getPassagers().iterator().next();
+            assertThat(paulRelu.getReference(), equalTo(paul.getReference()));
+            assertThat(paulRelu.getReservations(), hasSize(2));
+
+            // Les places payées sont de nouveau réservées sur le vol rechargé
+            assertThat(recharge.getPlacesDisponibles(), equalTo(130 - 2 - 80));
+        }
+
+        // Une transition que le journal ne peut pas consigner n'a aucun effet
+        recharge.ouvrir();
+        Reservation sansEffet = new Reservation(client, recharge);
+        sansEffet.addPassagers(new Passager("Durand", "Luc"));
+        int reservationsVol = recharge.getReservations().size();
+        JournalReservations inutilisable = JournalReservations.ouvrir(fichier);
+        inutilisable.close();
+        inutilisable.activer();
+        try {
+            assertThrows(IllegalStateException.class, () -> new Reservation(client, recharge));
+            assertThat(recharge.getReservations(), hasSize(reservationsVol));
+            assertThrows(IllegalStateException.class, sansEffet::payer);
+            assertThat(sansEffet.getEtat(), equalTo(EtatReservation.EN_ATTENTE));
+            assertThat(sansEffet.getMontantPaye(), equalTo(Double.NaN));
+            assertThat(recharge.getPlacesDisponibles(), equalTo(130 - 2 - 80));
+            assertThrows(IllegalStateException.class, sansEffet::annuler);
+            assertThat(sansEffet.getEtat(), equalTo(EtatReservation.EN_ATTENTE));
+        } finally {
+            JournalReservations.desactiver();
+        }
+        Files.delete(fichier);
+    }
+
+    // Test des photographies du réseau et des réservations
+    @Test
+    public void testSnapshots() throws Exception {
+        // Init
+        Ville roissy = new Ville("Roissy-en-France");
+        Ville paris = new Ville("Paris");
+        Aeroport cdg = new Aeroport("CDG", roissy);
+        cdg.addVilleDesservie(paris);
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Aeroport ams = new Aeroport("AMS", new Ville("Amsterdam"));
+        Compagnie airFrance = new Compagnie("Air France");
+
+        ZonedDateTime minuit = ZonedDateTime.of(2020, 10, 21, 0, 0, 0, 0, ZoneId.of("Europe/Paris"));
+        Vol direct = new Vol("SN100", airFrance, cdg, jfk, minuit.plusHours(8), minuit.plusHours(16), 130, 100.0);
+        Vol escale = new Vol("SN101", airFrance, cdg, jfk, minuit.plusHours(9), minuit.plusHours(20), 50, 80.0);
+        escale.addEscale(ams, minuit.plusHours(10), minuit.plusHours(11));
+        direct.setPlanSieges(new PlanSieges(13, "ABCDE FGHIJ"));
+        direct.ouvrir();
+
+        BlocagesPlaces blocages = new BlocagesPlaces(Duration.ofMinutes(15));
+        Client client = new Client("Jean", "FR76 1234", "jean@mail.fr");
+        Reservation payee = new Reservation(client, direct);
+        payee.addPassagers(new Passager("Dupont", "Jean"), new Passager("Dupont", "Marie"));
+        payee.payer();
+        Reservation bloquee = new Reservation(client, direct, blocages);
+        bloquee.addPassagers(new Passager("Martin", "Paul"));
+        assertThat(direct.getPlacesDisponibles(), equalTo(127));
+
+        Path reseau = Files.createTempFile("reseau", ".snap");
+        Path reservations = Files.createTempFile("reservations", ".snap");
+        SnapshotReseau.ecrire(reseau, List.of(direct, escale));
+        SnapshotReservations.ecrire(reservations, direct.getReservations());
+
+        // Redémarrage à partir des photographies, une fois les anciens vols disparus
+        direct.removeVol();
+        escale.removeVol();
+        SnapshotReseau charge = SnapshotReseau.charger(reseau);
+        assertThat(charge.getVols(), hasSize(2));
+        assertThat(charge.getAeroports(), hasSize(3));
+        assertThat(charge.getVilles(), hasSize(4));
+
+        Vol directCharge = CatalogueVols.getInstance().rechercher("SN100", minuit.toLocalDate());
+        assertThat(directCharge, not(sameInstance(direct)));
+        assertThat(directCharge.getDateDepart(), equalTo(direct.getDateDepart()));
+        assertThat(directCharge.isReservationOuverte(), is(true));
+        assertThat(directCharge.getCompagnie().getVols(), hasSize(2));
+        assertThat(directCharge.getDepart().getVolsAuDepart(), hasSize(2));
+        assertThat(directCharge.getDepart().getVillesDesservies().iterator().next().getNom(), equalTo("Paris"));
+        assertThat(directCharge.getDepart().getVolsAuDepartEntre(minuit, minuit.plusDays(1)).get(0), sameInstance(directCharge));
+
+        Vol escaleCharge = CatalogueVols.getInstance().rechercher("SN101", minuit.toLocalDate());
+        assertThat(escaleCharge.getEscales(), hasSize(1));
+        Escale escaleChargee = escaleCharge.getEscales().first();
+        assertThat(escaleChargee.getAeroport().getNom(), equalTo("AMS"));
+        assertThat(escaleChargee.getAeroport().getEscales(), contains(escaleChargee));
+
+        directCharge.setPlanSieges(new PlanSieges(13, "ABCDE FGHIJ"));
+        List<Reservation> chargees = SnapshotReservations.charger(reservations);
+        assertThat(chargees, hasSize(2));
+        Reservation payeeChargee = AnnuaireReservations.getInstance().getReservation(payee.getNumero());
+        assertThat(payeeChargee.getEtat(), equalTo(EtatReservation.PAYEE));
+        assertThat(payeeChargee.getVol(), sameInstance(directCharge));
+        assertThat(payeeChargee.getPassagers(), hasSize(2));
+        assertThat(payeeChargee.getMontantPaye(), equalTo(200.0));
+        assertThat(payeeChargee.getSieges().values(), containsInAnyOrder("1A", "1B"));
+        assertThat(directCharge.getPlanSieges().isLibre("1A"), is(false));
+        assertThat(payeeChargee.getClient().getReference(), equalTo(client.getReference()));
+
+        // La place bloquée est rendue au vol, les places payées restent prises
+        assertThat(directCharge.getPlacesDisponibles(), equalTo(128));
+
+        Files.delete(reseau);
+        Files.delete(reservations);
+    }
+
+    // Test de l'import en masse d'un programme de vols
+    @Test
+    public void testImportProgramme() {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Aeroport ams = new Aeroport("AMS", new Ville("Amsterdam"));
+        Compagnie airFrance = new Compagnie("Air France");
+        ImportProgramme importProgramme = new ImportProgramme(List.of(cdg, jfk, ams), List.of(airFrance), 2);
+
+        String programme = String.join("\n",
+                "# numero;compagnie;depart;arrivee;dateDepart;dateArrivee;places;prix;escales...",
+                "IM100;Air France;CDG;JFK;2020-10-21T08:00+02:00[Europe/Paris];2020-10-21T16:00+02:00[Europe/Paris];130;100.0",
+                "IM101;Air France;CDG;JFK;2020-10-21T09:00+02:00;2020-10-21T20:00+02:00;50;80.5;AMS;2020-10-21T10:00+02:00;2020-10-21T11:00+02:00",
+                "",
+                "IM102;Air France;CDG;LHR;2020-10-21T09:00+02:00;2020-10-21T10:00+02:00;50;80.0",
+                "IM103;Air France;CDG;JFK;2020-10-21T09:00+02:00;2020-10-21T20:00+02:00;50;80.0;AMS;2020-10-21T12:00+02:00;2020-10-21T11:00+02:00",
+                "IM104;Air France;JFK;CDG;2020-10-22T09:00-04:00;2020-10-22T22:00+02:00;200;150.0",
+                "IM100;Air France;CDG;JFK;2020-10-21T18:00+02:00;2020-10-22T02:00+02:00;130;100.0");
+        RapportImport rapport = importProgramme.importer(new StringReader(programme));
+
+        // Trois lignes rejetées sans interrompre l'import, dont un vol déjà au programme le même jour
+        assertThat(rapport.getNombreVols(), equalTo(3));
+        assertThat(rapport.getNombreEscales(), equalTo(1));
+        assertThat(rapport.getRejets(), hasSize(3));
+        assertThat(rapport.getRejets().get(0), equalTo("ligne 5 : aeroport inconnu LHR"));
+        assertThat(rapport.getRejets().get(2), equalTo("ligne 8 : le vol IM100 part déjà ce jour-là"));
+        assertThat(rapport.getVolsParSeconde(), greaterThan(0.0));
+
+        // Les vols sont publiés dans la compagnie, les aéroports et le catalogue
+        assertThat(airFrance.getVols(), hasSize(3));
+        assertThat(cdg.getVolsAuDepart(), hasSize(2));
+        assertThat(cdg.getVolsAArrivee(), hasSize(1));
+        Vol escale = CatalogueVols.getInstance().rechercher("IM101", LocalDate.of(2020, 10, 21));
+        assertThat(escale.getPrix(), equalTo(80.5));
+        assertThat(escale.getEscales().first().getAeroport(), sameInstance(ams));
+        assertThat(ams.getEscales(), hasSize(1));
+        assertThat(cdg.getVolsAuDepartEntre(escale.getDateDepart(), escale.getDateArrivee()), contains(escale));
+
+        // Plus de blocs que de threads et de places en attente : la lecture analyse elle-même les blocs en trop
+        StringBuilder volumineux = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            volumineux.append("#\n");
+        }
+        volumineux.append("IM200;Air France;CDG;LHR;2020-10-23T09:00+02:00;2020-10-23T10:00+02:00;50;80.0\n");
+        volumineux.append("IM201;Air France;CDG;JFK;2020-10-23T09:00+02:00;2020-10-23T20:00+02:00;50;80.0");
+        rapport = new ImportProgramme(List.of(cdg, jfk, ams), List.of(airFrance), 1).importer(new StringReader(volumineux.toString()));
+        assertThat(rapport.getNombreVols(), equalTo(1));
+        assertThat(rapport.getRejets(), contains("ligne 20001 : aeroport inconnu LHR"));
+    }
+
+    // Test des lots de réservations en tout ou rien
+    @Test
+    public void testLotReservations() throws Exception {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Compagnie airFrance = new Compagnie("Air France");
+        ZonedDateTime minuit = ZonedDateTime.of(2020, 10, 21, 0, 0, 0, 0, ZoneId.systemDefault());
+        Vol aller = new Vol("LT100", airFrance, cdg, jfk, minuit.plusHours(8), minuit.plusHours(16), 130, 100.0);
+        Vol retour = new Vol("LT101", airFrance, jfk, cdg, minuit.plusDays(7), minuit.plusDays(7).plusHours(8), 3, 120.0);
+        aller.ouvrir();
+        retour.ouvrir();
+
+        Client jean = new Client("Jean", "FR76 1234", "jean@mail.fr");
+        Client paul = new Client("Paul", "FR76 5678", "paul@mail.fr");
+        Passager dupont = new Passager("Dupont", "Jean");
+        Passager marie = new Passager("Dupont", "Marie");
+        Passager martin = new Passager("Martin", "Paul");
+
+        // Le lot est réservé et payé en entier
+        List<Reservation> reservations = new LotReservations()
+                .ajouter(jean, aller, dupont, marie)
+                .ajouter(jean, retour, dupont, marie)
+                .ajouter(paul, aller, martin)
+                .reserver();
+        assertThat(reservations, hasSize(3));
+        for (Reservation reservation : reservations) {
+            assertThat(reservation.getEtat(), equalTo(EtatReservation.PAYEE));
+        }
+        assertThat(reservations.get(1).getPassagers(), hasItems(dupont, marie));
+        assertThat(aller.getPlacesDisponibles(), equalTo(127));
+        assertThat(retour.getPlacesDisponibles(), equalTo(1));
+        assertThat(jean.getReservations(), hasSize(2));
+        assertThat(AnnuaireReservations.getInstance().getReservation(reservations.get(2).getNumero()), sameInstance(reservations.get(2)));
+
+        // Un vol sans assez de places fait échouer tout le lot sans prendre de place ailleurs
+        LotReservations complet = new LotReservations()
+                .ajouter(paul, aller, martin)
+                .ajouter(paul, retour, martin, marie);
+        assertThrows(IllegalStateException.class, complet::reserver);
+        assertThat(aller.getPlacesDisponibles(), equalTo(127));
+        assertThat(retour.getPlacesDisponibles(), equalTo(1));
+        assertThat(paul.getReservations(), hasSize(1));
+
+        // Un lot que le journal ne peut pas consigner ne laisse aucune trace de ses réservations déjà construites,
+        // et les clients déjà débités sont remboursés
+        double[] solde = new double[1];
+        Client compte = new Client("Compte", "FR76 9012", "compte@mail.fr") {
+            @Override
+            protected void debiter(double montant) {
+                solde[0] -= montant;
+            }
+
+            @Override
+            protected void rembourser(double montant) {
+                solde[0] += montant;
+            }
+        };
+        Passager durand = new Passager("Durand", "Luc");
+        int reservationsAnnuaire = AnnuaireReservations.getInstance().getNombreReservations();
+        Path fichier = Files.createTempFile("journal", ".wal");
+        JournalReservations inutilisable = JournalReservations.ouvrir(fichier);
+        inutilisable.close();
+        inutilisable.activer();
+        try {
+            LotReservations nonConsigne = new LotReservations()
+                    .ajouter(paul, aller, martin)
+                    .ajouter(compte, aller, durand)
+                    .ajouter(jean, retour, dupont);
+            assertThrows(IllegalStateException.class, nonConsigne::reserver);
+        } finally {
+            JournalReservations.desactiver();
+        }
+        Files.delete(fichier);
+        assertThat(aller.getPlacesDisponibles(), equalTo(127));
+        assertThat(retour.getPlacesDisponibles(), equalTo(1));
+        assertThat(paul.getReservations(), hasSize(1));
+        assertThat(jean.getReservations(), hasSize(2));
+        assertThat(martin.getReservations(), hasSize(1));
+        assertThat(durand.getReservations(), is(empty()));
+        assertThat(compte.getReservations(), is(empty()));
+        assertThat(solde[0], equalTo(0.0));
+        assertThat(aller.getReservations(), hasSize(2));
+        assertThat(AnnuaireReservations.getInstance().getNombreReservations(), equalTo(reservationsAnnuaire));
+
+        // Les réservations d'un lot réussi sont débitées une fois par client
+        new LotReservations().ajouter(compte, aller, durand).reserver();
+        assertThat(solde[0], equalTo(-100.0));
+        assertThat(durand.getReservations(), hasSize(1));
+
+        // Un passager ne peut pas figurer deux fois dans une même réservation
+        assertThrows(IllegalArgumentException.class, () -> new LotReservations().ajouter(jean, aller, martin, martin));
+        assertThrows(IllegalStateException.class, () -> new LotReservations().reserver());
+    }
+
+    // Test du pipeline de paiements asynchrones
+    @Test
+    public void testPipelinePaiements() throws Exception {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Compagnie airFrance = new Compagnie("Air France");
+        ZonedDateTime minuit = ZonedDateTime.of(2020, 10, 21, 0, 0, 0, 0, ZoneId.systemDefault());
+        Vol vol = new Vol("PP100", airFrance, cdg, jfk, minuit.plusHours(8), minuit.plusHours(16), 130, 100.0);
+        vol.ouvrir();
+
+        Client jean = new Client("Jean", "FR76 1234", "jean@mail.fr");
+        Client paul = new Client("Paul", "FR76 5678", "paul@mail.fr");
+        PasserelleSimulee passerelle = new PasserelleSimulee(Duration.ofMillis(20));
+        passerelle.refuser(paul);
+
+        try (PipelinePaiements pipeline = new PipelinePaiements(passerelle)) {
+            pipeline.activer();
+
+            // Les places sont prises tout de suite, la réservation est payée quand la passerelle accepte le débit
+            List<CompletableFuture<Reservation>> paiements = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                Reservation reservation = new Reservation(jean, vol);
+                reservation.addPassagers(new Passager("Dupont", "Jean" + i));
+                paiements.add(reservation.payerAsynchrone());
+            }
+            assertThat(vol.getPlacesDisponibles(), equalTo(120));
+            for (CompletableFuture<Reservation> paiement : paiements) {
+                assertThat(paiement.join().getEtat(), equalTo(EtatReservation.PAYEE));
+            }
+            assertThat(pipeline.getNombreOperations(), equalTo(10L));
+            assertThat(pipeline.getNombreLots(), lessThan(10L));
+
+            // Un débit refusé rend les places et laisse la réservation en attente
+            Reservation refusee = new Reservation(paul, vol);
+            refusee.addPassagers(new Passager("Martin", "Paul"));
+            CompletableFuture<Reservation> refus = refusee.payerAsynchrone();
+            assertThrows(IllegalStateException.class, refusee::payer);
+            assertThrows(CompletionException.class, refus::join);
+            assertThat(refusee.getEtat(), equalTo(EtatReservation.EN_ATTENTE));
+            assertThat(vol.getPlacesDisponibles(), equalTo(120));
+
+            // Une même clé d'idempotence en cours de traitement n'est soumise qu'une fois
+            OperationPaiement operation = new OperationPaiement("cle-unique", OperationPaiement.Nature.DEBIT, jean, 10.0);
+            CompletableFuture<Boolean> premier = pipeline.soumettre(operation);
+            assertThat(pipeline.soumettre(operation), sameInstance(premier));
+            assertThat(premier.join(), is(true));
+
+            // Une clé traitée récemment reçoit le même résultat sans être soumise de nouveau
+            long operations = pipeline.getNombreOperations();
+            CompletableFuture<Boolean> rejoue = pipeline.soumettre(operation);
+            assertThat(rejoue.isDone(), is(true));
+            assertThat(rejoue.join(), is(true));
+            assertThat(pipeline.getNombreOperations(), equalTo(operations));
+
+            // Le remboursement d'une annulation passe par le pipeline
+            paiements.get(0).join().annuler();
+            assertThat(vol.getPlacesDisponibles(), equalTo(121));
+        } finally {
+            PipelinePaiements.desactiver();
+        }
+        assertThat(passerelle.getNombreOperations(), equalTo(13L));
+
+        // Un remboursement dont le lot échoue est retenté avec la même clé
+        List<String> cles = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger echecs = new AtomicInteger(1);
+        PasserellePaiement instable = operationsLot -> {
+            for (OperationPaiement op : operationsLot) {
+                cles.add(op.getCle());
+            }
+            if (echecs.getAndDecrement() > 0) {
+                throw new IllegalStateException("passerelle indisponible");
+            }
+            boolean[] resultats = new boolean[operationsLot.size()];
+            Arrays.fill(resultats, true);
+            return resultats;
+        };
+        Reservation remboursee = new Reservation(jean, vol);
+        remboursee.addPassagers(new Passager("Dupont", "Rembourse"));
+        remboursee.payer();
+        try (PipelinePaiements pipeline = new PipelinePaiements(instable)) {
+            pipeline.activer();
+            remboursee.annuler();
+            long limite = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (cles.size() < 2 && System.nanoTime() < limite) {
+                Thread.sleep(10);
+            }
+        } finally {
+            PipelinePaiements.desactiver();
+        }
+        assertThat(cles.size(), equalTo(2));
+        assertThat(cles.get(1), equalTo(cles.get(0)));
+
+        // Un remboursement échoué à chaque tentative est compté
+        PhotoMetriques avant = Metriques.getInstance().photographier();
+        echecs.set(Integer.MAX_VALUE);
+        cles.clear();
+        Reservation perdue = new Reservation(jean, vol);
+        perdue.addPassagers(new Passager("Dupont", "Perdu"));
+        perdue.payer();
+        try (PipelinePaiements pipeline = new PipelinePaiements(instable)) {
+            pipeline.activer();
+            perdue.annuler();
+            long limite = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (Metriques.getInstance().photographier().depuis(avant, Compteur.REMBOURSEMENTS_ECHOUES) == 0
+                    && System.nanoTime() < limite) {
+                Thread.sleep(10);
+            }
+        } finally {
+            PipelinePaiements.desactiver();
+        }
+        assertThat(cles.size(), equalTo(3));
+        assertThat(Metriques.getInstance().photographier().depuis(avant, Compteur.REMBOURSEMENTS_ECHOUES), equalTo(1L));
+
+        // Après une relecture du journal, un nouveau débit ne reprend pas la clé du débit refusé
+        cles.clear();
+        PasserellePaiement refusPremier = operationsLot -> {
+            boolean[] resultats = new boolean[operationsLot.size()];
+            for (int i = 0; i < resultats.length; i++) {
+                cles.add(operationsLot.get(i).getCle());
+                resultats[i] = cles.size() > 1;
+            }
+            return resultats;
+        };
+        Path fichier = Files.createTempFile("paiements", ".wal");
+        try (JournalReservations journal = JournalReservations.ouvrir(fichier);
+             PipelinePaiements pipeline = new PipelinePaiements(refusPremier)) {
+            journal.activer();
+            pipeline.activer();
+            Reservation relancee = new Reservation(jean, vol);
+            relancee.addPassagers(new Passager("Dupont", "Relance"));
+            assertThrows(CompletionException.class, relancee.payerAsynchrone()::join);
+        } finally {
+            PipelinePaiements.desactiver();
+        }
+        try (JournalReservations journal = JournalReservations.ouvrir(fichier);
+             PipelinePaiements pipeline = new PipelinePaiements(refusPremier)) {
+            Reservation relue = journal.rejouer().get(0);
+            pipeline.activer();
+            assertThat(relue.payerAsynchrone().join().getEtat(), equalTo(EtatReservation.PAYEE));
+        } finally {
+            PipelinePaiements.desactiver();
+        }
+        assertThat(cles.size(), equalTo(2));
+        assertThat(cles.get(1), not(equalTo(cles.get(0))));
+    }
+
+    // Test de l'annulation massive des réservations d'un vol
+    @Test
+    public void testAnnulationMassive() throws Exception {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Compagnie airFrance = new Compagnie("Air France");
+        ZonedDateTime minuit = ZonedDateTime.of(2020, 10, 21, 0, 0, 0, 0, ZoneId.systemDefault());
+        Vol matin = new Vol("AM100", airFrance, cdg, jfk, minuit.plusHours(8), minuit.plusHours(16), 1000, 100.0);
+        Vol soir = new Vol("AM101", airFrance, cdg, jfk, minuit.plusHours(18), minuit.plusHours(26), 1000, 100.0);
+        Vol lendemain = new Vol("AM102", airFrance, cdg, jfk, minuit.plusDays(1), minuit.plusDays(1).plusHours(8), 1000, 100.0);
+        matin.ouvrir();
+        soir.ouvrir();
+        lendemain.ouvrir();
+
+        Client client = new Client("Jean", "FR76 1234", "jean@mail.fr");
+        for (Vol vol : List.of(matin, soir, lendemain)) {
+            for (int i = 0; i < 300; i++) {
+                Reservation reservation = new Reservation(client, vol);
+                reservation.addPassagers(new Passager("Dupont", "Jean" + i));
+                reservation.payer();
+            }
+        }
+
+        // Des réservations continuent d'arriver pendant l'annulation des vols de la journée
+        ExecutorService executeur = Executors.newFixedThreadPool(2);
+        CountDownLatch demarre = new CountDownLatch(2);
+        List<Future<?>> reservants = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            reservants.add(executeur.submit(() -> {
+                demarre.countDown();
+                for (int i = 0; i < 200; i++) {
+                    try {
+                        Reservation reservation = new Reservation(client, soir);
+                        reservation.addPassagers(new Passager("Martin", "Paul" + i));
+                        reservation.payer();
+                    } catch (IllegalStateException e) {
+                        // Vol fermé ou supprimé
+                    }
+                }
+            }));
+        }
+        demarre.await();
+        SuiviAnnulation suivi = new AnnulationMassive(4).annulerCompagnie(airFrance, minuit, minuit.plusHours(23));
+        for (Future<?> reservant : reservants) {
+            reservant.get();
+        }
+        executeur.shutdown();
+
+        assertThat(suivi.attendre().isTermine(), is(true));
+        assertThat(suivi.getNombreVols(), equalTo(2));
+        assertThat(suivi.getProgression(), equalTo(1.0));
+        assertThat(suivi.getEchecs(), equalTo(0L));
+        assertThat(suivi.getReservationsAnnulees(), greaterThan(599L));
+
+        // Aucune réservation des vols annulés n'échappe à l'annulation
+        for (Vol vol : List.of(matin, soir)) {
+            for (Reservation reservation : vol.getReservations()) {
+                assertThat(reservation.getEtat(), equalTo(EtatReservation.ANNULEE));
+            }
+        }
+        assertThat(airFrance.getVols(), contains(lendemain));
+        assertThat(lendemain.getPlacesDisponibles(), equalTo(700));
+        assertThrows(IllegalStateException.class, () -> new Reservation(client, soir));
+
+        // Des annulations concurrentes d'un même vol : un seul appel le supprime et annule ses réservations
+        AnnulationMassive annulation = new AnnulationMassive(2);
+        ExecutorService annuleurs = Executors.newFixedThreadPool(4);
+        List<Future<SuiviAnnulation>> suivis = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            suivis.add(annuleurs.submit(() -> annulation.annulerVol(lendemain)));
+        }
+        int supprimes = 0;
+        for (Future<SuiviAnnulation> concurrent : suivis) {
+            SuiviAnnulation termine = concurrent.get().attendre();
+            supprimes += termine.getNombreVols();
+            assertThat(termine.getEchecs(), equalTo(0L));
+        }
+        annuleurs.shutdown();
+        assertThat(supprimes, equalTo(1));
+        assertThat(airFrance.getVols(), empty());
+        for (Reservation reservation : lendemain.getReservations()) {
+            assertThat(reservation.getEtat(), equalTo(EtatReservation.ANNULEE));
+        }
+    }
+
+    // Test des métriques de supervision
+    @Test
+    public void testMetriques() throws Exception {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Compagnie airFrance = new Compagnie("Air France");
+        ZonedDateTime minuit = ZonedDateTime.of(2020, 10, 21, 0, 0, 0, 0, ZoneId.systemDefault());
+        Vol vol = new Vol("MT100", airFrance, cdg, jfk, minuit.plusHours(8), minuit.plusHours(16), 2, 100.0);
+        Metriques metriques = Metriques.getInstance();
+        PhotoMetriques avant = metriques.photographier();
+
+        vol.ouvrir();
+        Client client = new Client("Jean", "FR76 1234", "jean@mail.fr");
+        Reservation payee = new Reservation(client, vol);
+        payee.addPassagers(new Passager("Dupont", "Jean"), new Passager("Dupont", "Marie"));
+        payee.payer();
+        payee.confirmer();
+        Reservation refusee = new Reservation(client, vol);
+        refusee.addPassagers(new Passager("Martin", "Paul"));
+        assertThrows(IllegalStateException.class, refusee::payer);
+        refusee.annuler();
+        assertThrows(IllegalArgumentException.class, () -> vol.addEscale(cdg, minuit.plusHours(7), minuit.plusHours(9)));
+        vol.fermer();
+
+        // Chaque transition est comptée
+        PhotoMetriques apres = metriques.photographier();
+        assertThat(apres.depuis(avant, Compteur.RESERVATIONS_CREEES), equalTo(2L));
+        assertThat(apres.depuis(avant, Compteur.RESERVATIONS_PAYEES), equalTo(1L));
+        assertThat(apres.depuis(avant, Compteur.RESERVATIONS_CONFIRMEES), equalTo(1L));
+        assertThat(apres.depuis(avant, Compteur.RESERVATIONS_ANNULEES), equalTo(1L));
+        assertThat(apres.depuis(avant, Compteur.PLACES_INSUFFISANTES), equalTo(1L));
+        assertThat(apres.depuis(avant, Compteur.DEBITS), equalTo(1L));
+        assertThat(apres.depuis(avant, Compteur.ESCALES_REFUSEES), equalTo(1L));
+        assertThat(apres.depuis(avant, Compteur.VOLS_OUVERTS), equalTo(1L));
+        assertThat(apres.depuis(avant, Compteur.VOLS_FERMES), equalTo(1L));
+        assertThat(apres.getLatence(Latence.PAIEMENT_RESERVATION).getNombre(), greaterThan(avant.getLatence(Latence.PAIEMENT_RESERVATION).getNombre()));
+
+        // Les quantiles sont estimés à 12,5 % près
+        HistogrammeLatences histogramme = new HistogrammeLatences();
+        for (long nanos = 1; nanos <= 10_000; nanos++) {
+            histogramme.enregistrer(nanos);
+        }
+        HistogrammeLatences.Photo photo = histogramme.photographier();
+        assertThat(photo.getNombre(), equalTo(10_000L));
+        assertThat(photo.getMoyenne(), closeTo(5000.5, 0.001));
+        assertThat((double) photo.getQuantile(0.5), closeTo(5000, 625));
+        assertThat((double) photo.getQuantile(0.99), closeTo(9900, 1240));
+        assertThat(photo.getQuantile(1.0), equalTo(10_000L));
+
+        // Exposition par JMX
+        metriques.exposer();
+        metriques.exposer();
+        assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(Metriques.NOM_JMX)), is(true));
+        assertThat(metriques.getCompteurs().get("RESERVATIONS_CREEES"), greaterThan(0L));
+    }
+
+    // Test des évènements JFR des opérations de réservation
+    @Test
+    public void testEvenementsJfr() throws Exception {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Aeroport ams = new Aeroport("AMS", new Ville("Amsterdam"));
+        Compagnie airFrance = new Compagnie("Air France");
+        ZonedDateTime minuit = ZonedDateTime.of(2020, 10, 21, 0, 0, 0, 0, ZoneId.systemDefault());
+        Vol vol = new Vol("JF100", airFrance, cdg, jfk, minuit.plusHours(8), minuit.plusHours(16), 10, 100.0);
+        vol.ouvrir();
+        Client client = new Client("Jean", "FR76 1234", "jean@mail.fr");
+        Path fichier = Files.createTempFile("evenements", ".jfr");
+
+        try (Recording enregistrement = new Recording()) {
+            enregistrement.enable("flightreservation.Reservation").withThreshold(Duration.ZERO);
+            enregistrement.enable("flightreservation.Programme").withThreshold(Duration.ZERO);
+            enregistrement.start();
+
+            Reservation reservation = new Reservation(client, vol);
+            reservation.addPassagers(new Passager("Dupont", "Jean"), new Passager("Dupont", "Marie"));
+            reservation.payer();
+            reservation.confirmer();
+            vol.addEscale(ams, minuit.plusHours(10), minuit.plusHours(11));
+            assertThrows(IllegalArgumentException.class, () -> vol.addEscale(ams, minuit.plusHours(7), minuit.plusHours(9)));
+            vol.removeVol();
+
+            enregistrement.stop();
+            enregistrement.dump(fichier);
+        }
+
+        // Une opération réussie ou échouée donne un événement
+        List<RecordedEvent> evenements = new ArrayList<>();
+        for (RecordedEvent evenement : RecordingFile.readAllEvents(fichier)) {
+            if ("JF100".equals(evenement.getString("numeroVol"))) {
+                evenements.add(evenement);
+            }
+        }
+        Files.delete(fichier);
+        List<String> operations = new ArrayList<>();
+        for (RecordedEvent evenement : evenements) {
+            operations.add(evenement.getString("operation"));
+        }
+        assertThat(operations, hasItems("payer", "confirmer", "addEscale", "removeVol", "annulerParCompagnie"));
+
+        for (RecordedEvent evenement : evenements) {
+            switch (evenement.getString("operation")) {
+                case "payer" -> {
+                    assertThat(evenement.getEventType().getName(), equalTo("flightreservation.Reservation"));
+                    assertThat(evenement.getInt("passagers"), equalTo(2));
+                    assertThat(evenement.getString("etat"), equalTo("PAYEE"));
+                    assertThat(evenement.getBoolean("reussie"), is(true));
+                }
+                case "addEscale" -> {
+                    assertThat(evenement.getEventType().getName(), equalTo("flightreservation.Programme"));
+                    assertThat(evenement.getString("aeroport"), equalTo("AMS"));
+                }
+                case "removeVol" -> assertThat(evenement.getInt("elements"), equalTo(1));
+                default -> { }
+            }
+        }
+        assertThat(evenements.stream().filter(e -> e.getString("operation").equals("addEscale") && !e.getBoolean("reussie")).count(), equalTo(1L));
+    }
+
+    // Test des dates compactes des vols
+    @Test
+    public void testDatesCompactes() {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Aeroport ams = new Aeroport("AMS", new Ville("Amsterdam"));
+        Compagnie airFrance = new Compagnie("Air France");
+        ZonedDateTime depart = ZonedDateTime.of(2020, 10, 25, 1, 30, 0, 123_456_789, ZoneId.of("Europe/Paris"));
+        ZonedDateTime arrivee = ZonedDateTime.of(2020, 10, 25, 4, 0, 0, 0, ZoneId.of("America/New_York"));
+        Vol vol = new Vol("HC100", airFrance, cdg, jfk, depart, arrivee, 10, 100.0);
+
+        // Les dates sont reconstruites à l'identique, fuseau et nanosecondes compris
+        assertThat(vol.getDateDepart(), equalTo(depart));
+        assertThat(vol.getDateArrivee(), equalTo(arrivee));
+        assertThat(vol.getDepartNanos(), equalTo(depart.toEpochSecond() * 1_000_000_000L + depart.getNano()));
+        assertThat(vol.obtenirDuree(), equalTo(Duration.between(depart, arrivee)));
+
+        // Les comparaisons se font sur l'instant, quel que soit le fuseau
+        ZonedDateTime memeInstant = arrivee.withZoneSameInstant(ZoneId.of("UTC"));
+        assertThrows(IllegalArgumentException.class, () -> vol.setDateDepart(memeInstant));
+        Escale escale = vol.addEscale(ams, depart.plusHours(1), depart.plusHours(2).withZoneSameInstant(ZoneId.of("UTC")));
+        assertThat(escale.getDateDepart().getZone(), equalTo(ZoneId.of("UTC")));
+        assertThat(escale.getDuree(), equalTo(Duration.ofHours(1)));
+        assertThrows(IllegalArgumentException.class, () -> escale.setDateDepart(memeInstant));
+        assertThrows(IllegalArgumentException.class, () -> vol.addEscale(ams, depart.plusMinutes(90), depart.plusHours(3)));
+
+        // Le vol reste retrouvable par son numéro et son jour de départ local
+        assertThat(airFrance.getVols(), hasItem(vol));
+        vol.setDateDepart(depart.minusDays(1));
+        assertThat(vol.getDateDepart(), equalTo(depart.minusDays(1)));
+        assertThat(airFrance.getVols(), hasItem(vol));
+        vol.removeVol();
+    }
+
+    // Test des escales triées d'un vol
+    @Test
+    public void testEscalesTriees() {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Aeroport ams = new Aeroport("AMS", new Ville("Amsterdam"));
+        Aeroport lhr = new Aeroport("LHR", new Ville("Londres"));
+        Compagnie airFrance = new Compagnie("Air France");
+        ZonedDateTime minuit = ZonedDateTime.of(2020, 10, 21, 0, 0, 0, 0, ZoneId.systemDefault());
+        Vol vol = new Vol("EV100", airFrance, cdg, jfk, minuit.plusHours(8), minuit.plusHours(20), 10, 100.0);
+        assertThat(vol.getEscales(), empty());
+        assertThat(vol.getEscales().lower(vol.addEscale(ams, minuit.plusHours(14), minuit.plusHours(15))), nullValue());
+
+        // Les escales sont rangées par date d'arrivée quel que soit l'ordre d'ajout
+        Escale milieu = vol.getEscales().first();
+        Escale premiere = vol.addEscale(lhr, minuit.plusHours(10), minuit.plusHours(11));
+        Escale derniere = vol.addEscale(ams, minuit.plusHours(17), minuit.plusHours(18));
+        assertThat(vol.getEscales(), contains(premiere, milieu, derniere));
+        assertThat(vol.getEscales().lower(milieu), sameInstance(premiere));
+        assertThat(vol.getEscales().higher(milieu), sameInstance(derniere));
+        assertThat(vol.getEscales().higher(derniere), nullValue());
+        assertThat(vol.getEscales().last(), sameInstance(derniere));
+        assertThat(vol.getEscales().floor(milieu), sameInstance(milieu));
+        assertThat(vol.getEscales().ceiling(milieu), sameInstance(milieu));
+        assertThat(vol.getEscales().headSet(milieu), contains(premiere));
+        assertThat(vol.getEscales().tailSet(milieu, false), contains(derniere));
+        assertThat(vol.getEscales().descendingSet(), contains(derniere, milieu, premiere));
+        assertThrows(UnsupportedOperationException.class, () -> vol.getEscales().pollFirst());
+
+        // Une escale refusée n'est ajoutée ni au vol ni à l'aéroport
+        assertThrows(IllegalArgumentException.class, () -> vol.addEscale(lhr, minuit.plusHours(14), minuit.plusHours(16)));
+        assertThrows(IllegalArgumentException.class, () -> vol.addEscale(lhr, minuit.plusHours(12), minuit.plusHours(14)));
+        assertThat(vol.getEscales(), hasSize(3));
+        assertThat(lhr.getEscales(), contains(premiere));
+
+        vol.removeEscale(milieu);
+        assertThat(vol.getEscales(), contains(premiere, derniere));
+        assertThat(vol.getEscales().contains(milieu), is(false));
+        vol.removeVol();
+    }
+
+    // Test des occupations au sol des aéroports
+    @Test
+    public void testOccupationsSol() {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Aeroport ams = new Aeroport("AMS", new Ville("Amsterdam"));
+        Compagnie airFrance = new Compagnie("Air France");
+        ZonedDateTime minuit = ZonedDateTime.of(2020, 10, 21, 0, 0, 0, 0, ZoneId.systemDefault());
+        Vol vol1 = new Vol("OS100", airFrance, cdg, jfk, minuit.plusHours(8), minuit.plusHours(20), 10, 100.0);
+        Vol vol2 = new Vol("OS101", airFrance, cdg, jfk, minuit.plusHours(9), minuit.plusHours(21), 10, 100.0);
+        Escale escale1 = vol1.addEscale(ams, minuit.plusHours(10), minuit.plusHours(12));
+        Escale escale2 = vol2.addEscale(ams, minuit.plusHours(11), minuit.plusHours(13));
+
+        // Requêtes de chevauchement et à un instant donné
+        assertThat(ams.getOccupationsA(minuit.plusHours(10)), hasSize(1));
+        assertThat(ams.getOccupationsA(minuit.plusHours(11).plusMinutes(30)), hasSize(2));
+        assertThat(ams.getOccupationsA(minuit.plusHours(12)).get(0).getEscale(), sameInstance(escale2));
+        assertThat(ams.getOccupationsEntre(minuit, minuit.plusHours(10)), empty());
+        List<Occupation> occupations = ams.getOccupationsEntre(minuit.plusHours(9), minuit.plusHours(14));
+        assertThat(occupations, hasSize(2));
+        assertThat(occupations.get(0).getEscale(), sameInstance(escale1));
+        assertThat(occupations.get(0).getNature(), equalTo(Occupation.Nature.ESCALE));
+        assertThat(occupations.get(0).getDebut(), equalTo(minuit.plusHours(10)));
+        // Des bornes hors de la plage des horodatages sont ramenées à ses extrémités
+        assertThat(ams.getOccupationsEntre(minuit.minusYears(1000), minuit.plusYears(1000)), hasSize(2));
+        assertThat(ams.getOccupationsA(minuit.plusYears(1000)), empty());
+
+        // L'index suit les modifications des escales
+        escale1.setDateDepart(minuit.plusHours(15));
+        assertThat(ams.getOccupationsA(minuit.plusHours(14)), hasSize(1));
+        escale2.setAeroport(cdg);
+        assertThat(ams.getOccupationsA(minuit.plusHours(12)), hasSize(1));
+        assertThat(cdg.getOccupationsA(minuit.plusHours(12)).get(0).getEscale(), sameInstance(escale2));
+        vol1.removeEscale(escale1);
+        assertThat(ams.getOccupationsEntre(minuit, minuit.plusDays(1)), empty());
+
+        // Les rotations des vols sont suivies une fois la durée de rotation connue
+        cdg.setDureeRotation(Duration.ofMinutes(45));
+        assertThat(cdg.getOccupationsA(minuit.plusHours(8).minusMinutes(30)), hasSize(1));
+        assertThat(cdg.getOccupationsEntre(minuit.plusHours(7), minuit.plusHours(9)), hasSize(2));
+        vol2.setDateDepart(minuit.plusHours(7));
+        assertThat(cdg.getOccupationsEntre(minuit.plusHours(6), minuit.plusHours(9)).get(0).getVol(), sameInstance(vol2));
+        vol1.removeVol();
+        vol2.removeVol();
+        assertThat(cdg.getOccupationsEntre(minuit, minuit.plusDays(1)), empty());
+
+        // L'arbre donne les mêmes résultats qu'un parcours de toutes les escales
+        Random random = new Random(19);
+        Vol[] vols = new Vol[300];
+        for (int i = 0; i < vols.length; i++) {
+            ZonedDateTime depart = minuit.plusMinutes(random.nextInt(600));
+            vols[i] = new Vol("OS" + (200 + i), airFrance, cdg, jfk, depart, depart.plusHours(20), 10, 100.0);
+            vols[i].addEscale(ams, depart.plusMinutes(60 + random.nextInt(60)), depart.plusMinutes(180 + random.nextInt(300)));
+        }
+        for (int i = 0; i < vols.length; i += 3) {
+            vols[i].removeEscale(vols[i].getEscales().first());
+        }
+        for (int requete = 0; requete < 50; requete++) {
+            ZonedDateTime debut = minuit.plusMinutes(random.nextInt(1200));
+            ZonedDateTime fin = debut.plusMinutes(1 + random.nextInt(120));
+            long attendues = ams.getEscales().stream()
+                    .filter(e -> e.getDateArrivee().isBefore(fin) && e.getDateDepart().isAfter(debut)).count();
+            assertThat((long) ams.getOccupationsEntre(debut, fin).size(), equalTo(attendues));
+        }
+        for (Vol vol : vols) {
+            vol.removeVol();
+        }
+    }
+
+    // Test de l'index des routes entre villes
+    @Test
+    public void testIndexRoutes() {
+        // Init
+        Ville paris = new Ville("Paris");
+        Ville newYork = new Ville("New York");
+        Ville amsterdam = new Ville("Amsterdam");
+        Ville londres = new Ville("Londres");
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        cdg.addVilleDesservie(paris);
+        Aeroport ory = new Aeroport("ORY", paris);
+        Aeroport jfk = new Aeroport("JFK", newYork);
+        Aeroport ams = new Aeroport("AMS", amsterdam);
+        Aeroport lhr = new Aeroport("LHR", londres);
+        Compagnie airFrance = new Compagnie("Air France");
+        ZonedDateTime minuit = ZonedDateTime.of(2020, 10, 21, 0, 0, 0, 0, ZoneId.systemDefault());
+        IndexRoutes routes = IndexRoutes.getInstance();
+
+        // Liaisons directes et avec une correspondance, depuis tous les aéroports de la ville
+        Vol versAmsterdam = new Vol("IR100", airFrance, ory, ams, minuit.plusHours(8), minuit.plusHours(10), 10, 100.0);
+        Vol versNewYork = new Vol("IR101", airFrance, ams, jfk, minuit.plusHours(12), minuit.plusHours(20), 10, 100.0);
+        assertThat(routes.existeLiaisonDirecte(paris, amsterdam), is(true));
+        assertThat(routes.existeLiaisonDirecte(paris, newYork), is(false));
+        assertThat(routes.existeRoute(paris, newYork), is(true));
+        assertThat(routes.existeRoute(newYork, paris), is(false));
+        assertThat(routes.getAeroportsServant(paris, newYork), contains(ory));
+
+        // Une escale coupe la liaison directe en deux tronçons
+        Escale escale = versNewYork.addEscale(lhr, minuit.plusHours(14), minuit.plusHours(15));
+        assertThat(routes.existeLiaisonDirecte(amsterdam, londres), is(true));
+        assertThat(routes.existeLiaisonDirecte(amsterdam, newYork), is(false));
+        assertThat(routes.existeRoute(paris, newYork), is(false));
+        escale.setAeroport(cdg);
+        assertThat(routes.existeLiaisonDirecte(amsterdam, londres), is(false));
+        assertThat(routes.existeLiaisonDirecte(amsterdam, paris), is(true));
+        versNewYork.removeEscale(escale);
+        assertThat(routes.existeRoute(paris, newYork), is(true));
+
+        // Les villes desservies par un aéroport comptent pour la ville
+        Vol depuisLondres = new Vol("IR102", airFrance, lhr, jfk, minuit.plusHours(9), minuit.plusHours(17), 10, 100.0);
+        assertThat(routes.existeLiaisonDirecte(paris, newYork), is(false));
+        lhr.addVilleDesservie(paris);
+        assertThat(routes.existeLiaisonDirecte(paris, newYork), is(true));
+        assertThat(routes.getAeroportsServant(paris, newYork), containsInAnyOrder(ory, lhr));
+        lhr.removeVilleDesservie(paris);
+        assertThat(routes.existeLiaisonDirecte(paris, newYork), is(false));
+
+        // Une ville desservie par l'aéroport d'arrivée devient atteignable depuis les villes en amont, et seulement elles
+        Ville brooklyn = new Ville("Brooklyn");
+        assertThat(routes.existeRoute(paris, newYork), is(true));
+        jfk.addVilleDesservie(brooklyn);
+        assertThat(routes.existeRoute(paris, brooklyn), is(true));
+        assertThat(routes.existeLiaisonDirecte(amsterdam, brooklyn), is(true));
+        assertThat(routes.existeRoute(newYork, brooklyn), is(false));
+        jfk.removeVilleDesservie(brooklyn);
+        assertThat(routes.existeRoute(paris, brooklyn), is(false));
+
+        // La suppression des vols retire les routes
+        versAmsterdam.removeVol();
+        assertThat(routes.existeRoute(paris, newYork), is(false));
+        assertThat(routes.existeRoute(amsterdam, newYork), is(true));
+        versNewYork.removeVol();
+        depuisLondres.removeVol();
+        assertThat(routes.existeRoute(amsterdam, newYork), is(false));
+    }
+
+    // Test des tarifs dynamiques selon le remplissage
+    @Test
+    public void testTarifsDynamiques() throws Exception {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Compagnie airFrance = new Compagnie("Air France");
+        ZonedDateTime depart = ZonedDateTime.of(2020, 10, 21, 8, 0, 0, 0, ZoneId.systemDefault());
+        Vol vol = new Vol("TD100", airFrance, cdg, jfk, depart, depart.plusHours(8), 10, 100.0);
+        vol.ouvrir();
+        Client client = new Client("Dupont", "CB", "Dupont@gmail.com");
+
+        // Grille par défaut : une seule tranche au prix de base
+        assertThat(vol.getCapacite(), is(10));
+        assertThat(vol.getPrixCourant(), is(100.0));
+        assertThrows(IllegalArgumentException.class, () -> new GrilleTarifaire(new double[]{0.2}, new double[]{1}));
+        assertThrows(IllegalArgumentException.class, () -> new GrilleTarifaire(new double[]{0, 0.5, 0.5}, new double[]{1, 1.5, 2}));
+
+        // La tranche suit le remplissage, y compris les places vendues avant l'application de la grille
+        vol.reserverPlaces(2);
+        airFrance.appliquerGrilleTarifaire(new GrilleTarifaire(new double[]{0, 0.5, 0.8}, new double[]{1, 1.5, 2}));
+        assertThat(vol.getTrancheTarifaire(), is(0));
+        Reservation reservation = new Reservation(client, vol);
+        reservation.addPassagers(new Passager("Dupont", "Jean"), new Passager("Dupont", "Marie"), new Passager("Dupont", "Paul"));
+        reservation.payer();
+        assertThat(reservation.getMontantPaye(), is(300.0));
+        assertThat(vol.getTrancheTarifaire(), is(1));
+        assertThat(vol.getPrixCourant(), is(150.0));
+        vol.reserverPlaces(3);
+        assertThat(vol.getPrixCourant(), is(200.0));
+        vol.libererPlaces(3);
+        assertThat(vol.getPrixCourant(), is(150.0));
+
+        // Ajouter des places fait baisser le remplissage sans changer les places vendues
+        vol.setPlacesDisponibles(15);
+        assertThat(vol.getCapacite(), is(20));
+        assertThat(vol.getTrancheTarifaire(), is(0));
+        vol.setPlacesDisponibles(5);
+        assertThat(vol.getPrixCourant(), is(150.0));
+
+        // Le remboursement porte sur le montant payé, pas sur le prix courant
+        reservation.annuler();
+        assertThat(reservation.getMontantPaye(), is(300.0));
+        assertThat(vol.getPlacesDisponibles(), is(8));
+        assertThat(vol.getTrancheTarifaire(), is(0));
+
+        // Une grille changée pendant des ventes concurrentes : la tranche publiée est toujours celle de la grille en place
+        GrilleTarifaire grille = new GrilleTarifaire(new double[]{0, 0.5, 0.8}, new double[]{1, 1.5, 2});
+        ExecutorService vendeur = Executors.newSingleThreadExecutor();
+        Future<?> ventes = vendeur.submit(() -> {
+            for (int i = 0; i < 20000; i++) {
+                if (vol.reserverPlaces(8)) {
+                    vol.libererPlaces(8);
+                }
+            }
+        });
+        for (int i = 0; i < 2000; i++) {
+            vol.setGrilleTarifaire(i % 2 == 0 ? GrilleTarifaire.UNIQUE : grille);
+            assertThat(vol.getTrancheTarifaire(), lessThan(vol.getGrilleTarifaire().getNombreTranches()));
+        }
+        ventes.get();
+        vendeur.shutdown();
+        assertThat(vol.getTrancheTarifaire(), is(0));
+        vol.removeVol();
+    }
+
+    // Test du calendrier des tarifs les plus bas
+    @Test
+    public void testCalendrierTarifs() {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Aeroport ams = new Aeroport("AMS", new Ville("Amsterdam"));
+        Compagnie airFrance = new Compagnie("Air France");
+        ZonedDateTime jour = ZonedDateTime.of(2020, 10, 21, 8, 0, 0, 0, ZoneId.systemDefault());
+        LocalDate premier = jour.toLocalDate();
+        CalendrierTarifs calendrier = CalendrierTarifs.getInstance();
+        Vol matin = new Vol("CA100", airFrance, cdg, jfk, jour, jour.plusHours(8), 1, 300.0);
+        Vol soir = new Vol("CA101", airFrance, cdg, jfk, jour.plusHours(10), jour.plusHours(18), 10, 400.0);
+        Vol lendemain = new Vol("CA102", airFrance, cdg, jfk, jour.plusDays(1), jour.plusDays(1).plusHours(8), 10, 250.0);
+
+        // Seuls les vols ouverts comptent
+        assertThat(calendrier.getCalendrier(cdg, jfk, premier, 90), is(empty()));
+        matin.ouvrir();
+        soir.ouvrir();
+        lendemain.ouvrir();
+        assertThat(calendrier.getTarifMinimal(cdg, jfk, premier).getVol(), is(matin));
+        List<TarifJour> tarifs = calendrier.getCalendrier(cdg, jfk, premier, 90);
+        assertThat(tarifs.size(), is(2));
+        assertThat(tarifs.get(1).getJour(), is(premier.plusDays(1)));
+        assertThat(tarifs.get(1).getPrix(), is(250.0));
+        assertThrows(IllegalArgumentException.class, () -> calendrier.getCalendrier(cdg, jfk, premier, 0));
+
+        // Un vol complet laisse la place au suivant, puis la reprend lorsqu'une place se libère
+        matin.reserverPlaces(1);
+        assertThat(calendrier.getTarifMinimal(cdg, jfk, premier).getVol(), is(soir));
+        matin.libererPlaces(1);
+        assertThat(calendrier.getTarifMinimal(cdg, jfk, premier).getVol(), is(matin));
+
+        // Prix, fermeture, changement de route ou de jour et suppression
+        soir.setPrix(200.0);
+        assertThat(calendrier.getTarifMinimal(cdg, jfk, premier).getVol(), is(soir));
+        soir.fermer();
+        assertThat(calendrier.getTarifMinimal(cdg, jfk, premier).getPrix(), is(300.0));
+        matin.setArrivee(ams);
+        assertThat(calendrier.getTarifMinimal(cdg, jfk, premier), is(nullValue()));
+        assertThat(calendrier.getTarifMinimal(cdg, ams, premier).getVol(), is(matin));
+        lendemain.setDateDepart(jour.plusHours(2));
+        lendemain.setDateArrivee(jour.plusHours(10));
+        assertThat(calendrier.getCalendrier(cdg, jfk, premier, 90).size(), is(1));
+        assertThat(calendrier.getTarifMinimal(cdg, jfk, premier).getVol(), is(lendemain));
+        lendemain.removeVol();
+        assertThat(calendrier.getCalendrier(cdg, jfk, premier, 90), is(empty()));
+
+        // Un vol retiré par un vidage n'est plus rangé, même s'il est modifié ou déplacé ensuite
+        calendrier.vider();
+        assertThat(calendrier.getTarifMinimal(cdg, ams, premier), is(nullValue()));
+        matin.setPrix(100.0);
+        matin.setArrivee(jfk);
+        assertThat(calendrier.getTarifMinimal(cdg, jfk, premier), is(nullValue()));
+        assertThat(calendrier.getTarifMinimal(cdg, ams, premier), is(nullValue()));
+        matin.removeVol();
+        soir.removeVol();
+    }
+
+    // Test du cache des recherches de vols directs
+    @Test
+    public void testCacheRecherche() {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Compagnie airFrance = new Compagnie("Air France");
+        ZonedDateTime jour = ZonedDateTime.of(2020, 10, 21, 8, 0, 0, 0, ZoneId.systemDefault());
+        LocalDate premier = jour.toLocalDate();
+        CacheRecherche cache = CacheRecherche.getInstance();
+        Metriques metriques = Metriques.getInstance();
+        Vol matin = new Vol("RC100", airFrance, cdg, jfk, jour, jour.plusHours(8), 1, 300.0);
+        Vol soir = new Vol("RC101", airFrance, cdg, jfk, jour.plusHours(10), jour.plusHours(18), 10, 200.0);
+        matin.ouvrir();
+        soir.ouvrir();
+
+        // La deuxième recherche est servie par le cache
+        PhotoMetriques avant = metriques.photographier();
+        assertThat(cache.rechercher(cdg, jfk, premier), contains(soir, matin));
+        assertThat(cache.rechercher(cdg, jfk, premier), contains(soir, matin));
+        PhotoMetriques apres = metriques.photographier();
+        assertThat(apres.depuis(avant, Compteur.RECHERCHES_CALCULEES), equalTo(1L));
+        assertThat(apres.depuis(avant, Compteur.RECHERCHES_EN_CACHE), equalTo(1L));
+
+        // Un changement d'horaire invalide la recherche du jour
+        soir.setDateArrivee(jour.plusHours(19));
+        assertThat(metriques.photographier().depuis(apres, Compteur.RECHERCHES_INVALIDEES), equalTo(1L));
+        assertThat(cache.rechercher(cdg, jfk, premier), contains(soir, matin));
+        apres = metriques.photographier();
+
+        // Une vente qui ne remplit pas le vol ne touche pas au cache, une vente qui le remplit l'invalide
+        soir.reserverPlaces(1);
+        assertThat(metriques.photographier().depuis(apres, Compteur.RECHERCHES_INVALIDEES), equalTo(0L));
+        matin.reserverPlaces(1);
+        assertThat(cache.rechercher(cdg, jfk, premier), contains(soir));
+        matin.libererPlaces(1);
+        matin.setPrix(100.0);
+        assertThat(cache.rechercher(cdg, jfk, premier), contains(matin, soir));
+        soir.fermer();
+        assertThat(cache.rechercher(cdg, jfk, premier), contains(matin));
+        matin.setDateDepart(jour.minusDays(1));
+        assertThat(cache.rechercher(cdg, jfk, premier), is(empty()));
+        assertThat(cache.rechercher(cdg, jfk, premier.minusDays(1)), contains(matin));
+        assertThat(metriques.photographier().depuis(apres, Compteur.RECHERCHES_INVALIDEES), greaterThan(3L));
+
+        // La capacité borne le cache
+        cache.setCapacite(16);
+        avant = metriques.photographier();
+        for (int i = 0; i < 100; i++) {
+            cache.rechercher(cdg, jfk, premier.plusDays(i));
+        }
+        assertThat(cache.getTaille(), lessThanOrEqualTo(16));
+        assertThat(metriques.photographier().depuis(avant, Compteur.RECHERCHES_EVINCEES), greaterThanOrEqualTo(84L));
+        cache.setCapacite(CacheRecherche.CAPACITE_PAR_DEFAUT);
+        matin.removeVol();
+        soir.removeVol();
+    }
+
+    // Test de la liste d'attente d'un vol
+    @Test
+    public void testListeAttente() throws Exception {
+        // Init
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        Compagnie airFrance = new Compagnie("Air France");
+        ZonedDateTime depart = ZonedDateTime.of(2020, 10, 21, 8, 0, 0, 0, ZoneId.systemDefault());
+        Vol vol = new Vol("LA100", airFrance, cdg, jfk, depart, depart.plusHours(8), 2, 100.0);
+        vol.ouvrir();
+        Client standard = new Client("Dupont", "CB", "Dupont@gmail.com");
+        Client fidele = new Client("Martin", "CB", "Martin@gmail.com");
+        fidele.setNiveau(NiveauClient.OR);
+        Reservation complete = new Reservation(standard, vol);
+        complete.addPassagers(new Passager("Dupont", "Jean"), new Passager("Dupont", "Marie"));
+        assertThat(complete.payerOuAttendre().isDone(), is(true));
+
+        // Faute de places, les réservations attendent et ne peuvent plus être modifiées
+        Reservation premiere = new Reservation(standard, vol);
+        premiere.addPassagers(new Passager("Dupont", "Paul"));
+        CompletableFuture<Reservation> promessePremiere = premiere.payerOuAttendre();
+        Reservation seconde = new Reservation(standard, vol);
+        seconde.addPassagers(new Passager("Dupont", "Luc"));
+        CompletableFuture<Reservation> promesseSeconde = seconde.payerOuAttendre();
+        Reservation prioritaire = new Reservation(fidele, vol);
+        prioritaire.addPassagers(new Passager("Martin", "Anne"), new Passager("Martin", "Marc"));
+        CompletableFuture<Reservation> promessePrioritaire = prioritaire.payerOuAttendre();
+        Reservation abandonnee = new Reservation(standard, vol);
+        abandonnee.addPassagers(new Passager("Dupont", "Eve"));
+        CompletableFuture<Reservation> promesseAbandonnee = abandonnee.payerOuAttendre();
+        assertThat(vol.getListeAttente().getNombreEnAttente(), is(4));
+        assertThat(promessePremiere.isDone(), is(false));
+        assertThrows(IllegalStateException.class, () -> premiere.addPassagers(new Passager("Dupont", "Leo")));
+        assertThrows(IllegalStateException.class, premiere::payer);
+        abandonnee.annuler();
+        assertThat(promesseAbandonnee.isCompletedExceptionally(), is(true));
+        assertThat(vol.getListeAttente().getNombreEnAttente(), is(3));
+
+        // Les places rendues vont d'abord au client le plus fidèle, puis par ordre d'arrivée
+        complete.annuler();
+        assertThat(promessePrioritaire.join(), is(prioritaire));
+        assertThat(prioritaire.getEtat(), is(EtatReservation.PAYEE));
+        assertThat(promessePremiere.isDone(), is(false));
+        vol.setPlacesDisponibles(1);
+        assertThat(promessePremiere.join(), is(premiere));
+        assertThat(promesseSeconde.isDone(), is(false));
+        seconde.annuler();
+        assertThat(promesseSeconde.isCompletedExceptionally(), is(true));
+        assertThat(vol.getListeAttente().getNombreEnAttente(), is(0));
+        assertThat(vol.getPlacesDisponibles(), is(0));
+
+        // Des milliers de demandes sur un vol complet sont servies d'un bloc
+        List<CompletableFuture<Reservation>> promesses = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Reservation reservation = new Reservation(standard, vol);
+            reservation.addPassagers(new Passager("Passager", String.valueOf(i)));
+            promesses.add(reservation.payerOuAttendre());
+        }
+        vol.setPlacesDisponibles(1500);
+        long promues = promesses.stream().filter(CompletableFuture::isDone).count();
+        assertThat(promues, is(1500L));
+        assertThat(promesses.get(1499).isDone(), is(true));
+        assertThat(promesses.get(1500).isDone(), is(false));
+        assertThat(vol.getListeAttente().getNombreEnAttente(), is(500));
+        vol.removeVol();
+
+        // Les places d'un blocage expiré sont promues hors des verrous de la roue et de la réservation expirée
+        AtomicLong horloge = new AtomicLong();
+        BlocagesPlaces blocages = new BlocagesPlaces(Duration.ofMinutes(10), Duration.ofSeconds(1), 64, horloge::get);
+        Vol petit = new Vol("LA101", airFrance, cdg, jfk, depart, depart.plusHours(8), 1, 100.0);
+        petit.ouvrir();
+        Reservation bloquante = new Reservation(standard, petit, blocages);
+        bloquante.addPassagers(new Passager("Dupont", "Jean"));
+        Reservation attendue = new Reservation(fidele, petit);
+        attendue.addPassagers(new Passager("Martin", "Anne"));
+        CompletableFuture<Reservation> promesseAttendue = attendue.payerOuAttendre();
+        assertThat(promesseAttendue.isDone(), is(false));
+        horloge.addAndGet(Duration.ofMinutes(11).toNanos());
+        assertThat(blocages.avancer(), equalTo(1));
+        assertThat(bloquante.getEtat(), is(EtatReservation.ANNULEE));
+        assertThat(promesseAttendue.join(), is(attendue));
+        assertThat(attendue.getEtat(), is(EtatReservation.PAYEE));
+        assertThat(petit.getPlacesDisponibles(), is(0));
+        assertThat(petit.getListeAttente().getNombreEnAttente(), is(0));
+        petit.removeVol();
+    }
+
+    // Test du plan de cabine et de l'attribution des sièges
+    @Test
+    public void testPlanSieges() throws Exception {
+        // Init
+        assertThrows(IllegalArgumentException.class, () -> new PlanSieges(0, "ABC DEF"));
+        assertThrows(IllegalArgumentException.class, () -> new PlanSieges(10, "ABC ABC"));
+        PlanSieges plan = new PlanSieges(3, "ABC DEF");
+        assertThat(plan.getNombreSieges(), is(18));
+
+        // Les groupes restent dans un bloc, de l'avant vers l'arrière de la cabine
+        int[] trois = plan.attribuer(3);
+        assertThat(plan.libelle(trois[0]) + plan.libelle(trois[2]), is("1A1C"));
+        assertThat(plan.libelle(plan.attribuer(2)[0]), is("1D"));
+        assertThat(plan.libelle(plan.attribuer(3)[0]), is("2A"));
+        assertThat(plan.libelle(plan.attribuer(1)[0]), is("1F"));
+        assertThat(plan.isLibre("2D"), is(true));
+        plan.liberer(trois);
+        assertThat(plan.isLibre("1B"), is(true));
+        assertThat(plan.indice("3F"), is(17));
+        assertThrows(IllegalArgumentException.class, () -> plan.indice("4A"));
+
+        // Un grand groupe est découpé en blocs entiers, et rien n'est pris si la cabine est trop petite
+        int[] groupe = plan.attribuer(8);
+        assertThat(plan.getNombreSiegesLibres(), is(4));
+        assertThat(plan.attribuer(5), is(nullValue()));
+        assertThat(plan.getNombreSiegesLibres(), is(4));
+        plan.liberer(groupe);
+
+        // Les passagers d'une réservation payée reçoivent des sièges voisins, rendus à l'annulation
+        Aeroport cdg = new Aeroport("CDG", new Ville("Roissy-en-France"));
+        Aeroport jfk = new Aeroport("JFK", new Ville("New York"));
+        ZonedDateTime depart = ZonedDateTime.of(2020, 10, 21, 8, 0, 0, 0, ZoneId.systemDefault());
+        Vol vol = new Vol("PS100", new Compagnie("Air France"), cdg, jfk, depart, depart.plusHours(8), 180, 100.0);
+        assertThrows(IllegalArgumentException.class, () -> vol.setPlanSieges(new PlanSieges(20, "ABC DEF")));
+        PlanSieges planVol = new PlanSieges(30, "ABC DEF");
+        vol.setPlanSieges(planVol);
+        assertThat(planVol.getVol(), sameInstance(vol));
+        Vol autre = new Vol("PS101", new Compagnie("Air France"), cdg, jfk, depart, depart.plusHours(8), 180, 100.0);
+        assertThrows(IllegalArgumentException.class, () -> autre.setPlanSieges(planVol));
+        autre.removeVol();
+        vol.ouvrir();
+        Reservation reservation = new Reservation(new Client("Dupont", "CB", "Dupont@gmail.com"), vol);
+        reservation.addPassagers(new Passager("Dupont", "Jean"), new Passager("Dupont", "Marie"), new Passager("Dupont", "Paul"));
+        assertThat(reservation.getSieges().isEmpty(), is(true));
+        reservation.payer();
+        assertThat(reservation.getSieges().values(), containsInAnyOrder("1A", "1B", "1C"));
+        reservation.annuler();
+        assertThat(vol.getPlanSieges().isLibre("1B"), is(true));
+
+        // La capacité d'un vol ne change plus tant qu'un plan de cabine lui est attaché
+        assertThrows(IllegalStateException.class, () -> vol.setPlacesDisponibles(200));
+        assertThat(vol.getCapacite(), is(180));
+        vol.setPlanSieges(null);
+        vol.setPlacesDisponibles(200);
+        assertThat(vol.getCapacite(), is(200));
+        vol.setPlacesDisponibles(180);
+
+        // Une cabine pleine fait échouer le paiement : aucune place n'est prise
+        PlanSieges pleine = new PlanSieges(30, "ABC DEF");
+        vol.setPlanSieges(pleine);
+        pleine.attribuer(180);
+        Reservation sansSiege = new Reservation(new Client("Martin", "CB", "Martin@gmail.com"), vol);
+        sansSiege.addPassagers(new Passager("Martin", "Paul"));
+        assertThrows(IllegalStateException.class, sansSiege::payer);
+        assertThat(sansSiege.getEtat(), equalTo(EtatReservation.EN_ATTENTE));
+        assertThat(sansSiege.getSieges().isEmpty(), is(true));
+        assertThat(vol.getPlacesDisponibles(), is(180));
+        vol.removeVol();
+
+        // Des attributions concurrentes ne donnent jamais deux fois le même siège
+        PlanSieges cabine = new PlanSieges(30, "ABCDEFGHIJ");
+        ExecutorService executeur = Executors.newFixedThreadPool(8);
+        List<Future<List<Integer>>> resultats = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            resultats.add(executeur.submit(() -> {
+                List<Integer> pris = new ArrayList<>();
+                int[] sieges;
+                while ((sieges = cabine.attribuer(1)) != null) {
+                    pris.add(sieges[0]);
+                }
+                return pris;
+            }));
+        }
+        boolean[] vus = new boolean[cabine.getNombreSieges()];
+        int total = 0;
+        for (Future<List<Integer>> resultat : resultats) {
+            for (int siege : resultat.get()) {
+                assertThat(vus[siege], is(false));
+                vus[siege] = true;
+                total++;
+            }
+        }
+        executeur.shutdown();
+        assertThat(total, is(300));
+        assertThat(cabine.getNombreSiegesLibres(), is(0));
+    }
 }